@@ -1,5 +1,5 @@
 
-import React, { useEffect, useState } from 'react';
+import React, { useEffect, useRef, useState } from 'react';
 import {
   View,
   Text,
@@ -24,6 +24,8 @@ export default function AlertsHistoryScreen({ elder, onBack }: AlertsHistoryScre
   const [alerts, setAlerts] = useState<AlertType[]>([]);
   const [error, setError] = useState<string | null>(null);
   const [filter, setFilter] = useState<'all' | 'active'>('all');
+  // Continuation cursor from the last sync; refreshes fetch only what changed since
+  const cursorRef = useRef<string | undefined>(undefined);
 
   useEffect(() => {
     fetchAlerts();
@@ -34,14 +36,21 @@ export default function AlertsHistoryScreen({ elder, onBack }: AlertsHistoryScre
       setError(null);
       console.log('📤 Requesting alert history from elder:', elder.id);
 
-      const response = await wsService.sendRequest<{ alerts: AlertType[] }>(
+      const { items, cursor } = await wsService.fetchHistory<AlertType>(
         'GET_ALERT_HISTORY',
         elder.id,
-        {}
+        'alerts',
+        cursorRef.current
       );
+      cursorRef.current = cursor;
 
-      console.log('✅ Received alerts:', response);
-      setAlerts(response.alerts || []);
+      console.log('✅ Received alerts:', items.length);
+      // New and changed alerts replace the copies we already hold; newest first
+      setAlerts(prev => {
+        const byId = new Map(prev.map(a => [a.id, a]));
+        items.forEach(a => byId.set(a.id, a));
+        return Array.from(byId.values()).sort((a, b) => b.triggeredAt.localeCompare(a.triggeredAt));
+      });
     } catch (err) {
       console.error('❌ Failed to fetch alerts:', err);
       setError(err instanceof Error ? err.message : 'Failed to fetch alerts');
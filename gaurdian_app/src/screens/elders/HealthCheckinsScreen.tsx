@@ -1,5 +1,5 @@
 
-import React, { useEffect, useState } from 'react';
+import React, { useEffect, useRef, useState } from 'react';
 import {
   View,
   Text,
@@ -26,6 +26,8 @@ export default function HealthCheckinsScreen({ elder, onBack }: HealthCheckinsSc
   const [refreshing, setRefreshing] = useState(false);
   const [checkIns, setCheckIns] = useState<HealthCheckIn[]>([]);
   const [error, setError] = useState<string | null>(null);
+  // Continuation cursor from the last sync; refreshes fetch only new check-ins
+  const cursorRef = useRef<string | undefined>(undefined);
 
   useEffect(() => {
     fetchHealthHistory();
@@ -36,14 +38,21 @@ export default function HealthCheckinsScreen({ elder, onBack }: HealthCheckinsSc
       setError(null);
       console.log('📤 Requesting health history from elder:', elder.id);
 
-      const response = await wsService.sendRequest<{ checkIns: HealthCheckIn[] }>(
+      const { items, cursor } = await wsService.fetchHistory<HealthCheckIn>(
         'GET_HEALTH_HISTORY',
         elder.id,
-        {}
+        'checkIns',
+        cursorRef.current
       );
+      cursorRef.current = cursor;
 
-      console.log('✅ Received health check-ins:', response);
-      setCheckIns(response.checkIns || []);
+      console.log('✅ Received health check-ins:', items.length);
+      // Newest first, as the averages below expect
+      setCheckIns(prev => {
+        const byId = new Map(prev.map(c => [c.id, c]));
+        items.forEach(c => byId.set(c.id, c));
+        return Array.from(byId.values()).sort((a, b) => b.date.localeCompare(a.date));
+      });
     } catch (err) {
       console.error('❌ Failed to fetch health history:', err);
       setError(err instanceof Error ? err.message : 'Failed to fetch health data');
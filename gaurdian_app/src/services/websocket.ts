@@ -1,5 +1,5 @@
 import { WS_BASE_URL, WS_RECONNECT_INTERVAL, WS_MAX_RECONNECT_ATTEMPTS, WS_REQUEST_TIMEOUT } from '../utils/constants';
-import { WebSocketMessage, MessageType } from '../types';
+import { WebSocketMessage, MessageType, HistoryPage, HistorySyncRequest } from '../types';
 
 /**
  * Generate UUID without external library
@@ -13,6 +13,9 @@ function generateUUID(): string {
   });
 }
 
+// Upper bound on pages fetched by one history sync, in case an elder never reports the end
+const HISTORY_MAX_PAGES = 50;
+
 type MessageHandler = (message: WebSocketMessage) => void;
 type ConnectionStatusCallback = (status: 'connected' | 'disconnected' | 'connecting' | 'reconnecting') => void;
 
@@ -235,6 +238,31 @@ class WebSocketService {
     });
   }
 
+  /**
+   * Fetch alert or health history, following the elder's continuation cursor until every
+   * page has arrived. Pass the cursor returned by the previous call to get only rows that
+   * are new or changed since then; merge them by id.
+   */
+  async fetchHistory<T>(
+    type: 'GET_ALERT_HISTORY' | 'GET_HEALTH_HISTORY',
+    to: string,
+    key: 'alerts' | 'checkIns',
+    cursor?: string
+  ): Promise<{ items: T[]; cursor?: string }> {
+    const items: T[] = [];
+    let next = cursor;
+
+    for (let page = 0; page < HISTORY_MAX_PAGES; page++) {
+      const request: HistorySyncRequest = next ? { cursor: next } : {};
+      const response = await this.sendRequest<HistoryPage & { [k: string]: any }>(type, to, request);
+      items.push(...((response[key] as T[]) || []));
+      next = response.cursor ?? next;
+      if (!response.hasMore) break;
+    }
+
+    return { items, cursor: next };
+  }
+
   /**
    * Send a message without expecting response
    */
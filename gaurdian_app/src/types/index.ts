@@ -80,6 +80,17 @@ export interface HealthCheckIn {
   notes?: string;
 }
 
+// History sync (GET_ALERT_HISTORY / GET_HEALTH_HISTORY)
+export interface HistorySyncRequest {
+  cursor?: string; // Continuation token from the previous response
+  limit?: number;
+}
+
+export interface HistoryPage {
+  cursor?: string; // Send back to continue paging / for the next delta sync
+  hasMore?: boolean;
+}
+
 // WebSocket Message Types
 export type MessageType =
   // Query messages
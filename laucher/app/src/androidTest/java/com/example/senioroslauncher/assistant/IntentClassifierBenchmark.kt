@@ -0,0 +1,106 @@
+package com.example.senioroslauncher.assistant
+
+import android.content.Context
+
+/**
+ * Cold and warm latency of the intent model, for comparing devices and model/session changes.
+ *
+ * Cold runs load a fresh [IntentInferenceSession] each time (model mapping, delegate, tensor
+ * allocation) and time it through the first inference; warm runs reuse the shared session.
+ * Blocking and slow (seconds); run on a device by [IntentClassifierBenchmarkTest].
+ */
+object IntentClassifierBenchmark {
+
+    data class Result(
+        val coldRuns: Int,
+        val coldP50Ms: Double,
+        val coldP99Ms: Double,
+        val warmRuns: Int,
+        val warmP50Ms: Double,
+        val warmP99Ms: Double,
+        val batchSize: Int,
+        val batchPerItemP50Ms: Double
+    ) {
+        override fun toString(): String =
+            "cold(n=$coldRuns) p50=${"%.2f".format(coldP50Ms)}ms p99=${"%.2f".format(coldP99Ms)}ms; " +
+                "warm(n=$warmRuns) p50=${"%.2f".format(warmP50Ms)}ms p99=${"%.2f".format(warmP99Ms)}ms; " +
+                "batch of $batchSize p50=${"%.2f".format(batchPerItemP50Ms)}ms/item"
+    }
+
+    val DEFAULT_UTTERANCES = listOf(
+        "what time is it",
+        "call my daughter",
+        "remind me to take my blood pressure tablet at eight",
+        "did i take my medicine today",
+        "turn on the flashlight",
+        "set an alarm for six thirty tomorrow morning",
+        "how is the weather outside",
+        "send a message to john saying i will be late",
+        "i am not feeling well",
+        "open the camera"
+    )
+
+    /**
+     * Returns null if the model can't be loaded on this device.
+     */
+    fun run(
+        context: Context,
+        utterances: List<String> = DEFAULT_UTTERANCES,
+        coldRuns: Int = 5,
+        warmRuns: Int = 200,
+        batchSize: Int = 5
+    ): Result? {
+        require(utterances.isNotEmpty() && coldRuns > 0 && warmRuns > 0 && batchSize > 0)
+        val inputs = utterances.map { IntentClassifier.preprocessText(it) }
+
+        val cold = LongArray(coldRuns)
+        for (i in 0 until coldRuns) {
+            val session = IntentInferenceSession.createDetached(context)
+            try {
+                val start = System.nanoTime()
+                if (session.ensureLoaded().isFailure) return null
+                session.predict(listOf(inputs[i % inputs.size]))
+                cold[i] = System.nanoTime() - start
+            } finally {
+                session.close()
+            }
+        }
+
+        val shared = IntentInferenceSession.getInstance(context)
+        shared.warmUp()
+        if (!shared.isReady) return null
+
+        val warm = LongArray(warmRuns)
+        for (i in 0 until warmRuns) {
+            val input = listOf(inputs[i % inputs.size])
+            val start = System.nanoTime()
+            shared.predict(input)
+            warm[i] = System.nanoTime() - start
+        }
+
+        val batchInputs = List(batchSize) { inputs[it % inputs.size] }
+        val batched = LongArray(maxOf(1, warmRuns / batchSize))
+        for (i in batched.indices) {
+            val start = System.nanoTime()
+            shared.predict(batchInputs)
+            batched[i] = (System.nanoTime() - start) / batchSize
+        }
+
+        return Result(
+            coldRuns = coldRuns,
+            coldP50Ms = percentileMs(cold, 50.0),
+            coldP99Ms = percentileMs(cold, 99.0),
+            warmRuns = warmRuns,
+            warmP50Ms = percentileMs(warm, 50.0),
+            warmP99Ms = percentileMs(warm, 99.0),
+            batchSize = batchSize,
+            batchPerItemP50Ms = percentileMs(batched, 50.0)
+        )
+    }
+
+    private fun percentileMs(samples: LongArray, percentile: Double): Double {
+        val sorted = samples.sortedArray()
+        val rank = Math.ceil(sorted.size * percentile / 100.0).toInt().coerceIn(1, sorted.size)
+        return sorted[rank - 1] / 1_000_000.0
+    }
+}
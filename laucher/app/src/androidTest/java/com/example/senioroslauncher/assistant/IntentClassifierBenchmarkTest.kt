@@ -0,0 +1,28 @@
+package com.example.senioroslauncher.assistant
+
+import android.util.Log
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.platform.app.InstrumentationRegistry
+import org.junit.Assert.assertTrue
+import org.junit.Assume.assumeTrue
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * Runs [IntentClassifierBenchmark] on the device and logs the result under the
+ * "IntentClassifierBenchmark" tag. Skipped when the model isn't bundled in this build.
+ */
+@RunWith(AndroidJUnit4::class)
+class IntentClassifierBenchmarkTest {
+
+    @Test
+    fun coldAndWarmLatency() {
+        val context = InstrumentationRegistry.getInstrumentation().targetContext
+        val result = IntentClassifierBenchmark.run(context)
+        assumeTrue("Intent model could not be loaded", result != null)
+
+        Log.i("IntentClassifierBenchmark", result.toString())
+        // The shared session exists to make every call after the first cheap
+        assertTrue(result.toString(), result!!.warmP50Ms < result.coldP50Ms)
+    }
+}
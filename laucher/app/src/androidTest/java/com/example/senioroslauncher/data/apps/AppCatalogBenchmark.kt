@@ -0,0 +1,70 @@
+package com.example.senioroslauncher.data.apps
+
+import android.content.Context
+import android.content.Intent
+import android.graphics.Bitmap
+import android.graphics.Canvas
+
+/**
+ * Time to have the drawer's list and every icon ready, for comparing [AppCatalog] against
+ * the old per-open scan. Runs on the calling thread, off the main thread in
+ * [AppCatalogBenchmarkTest]. Clears the catalog's caches.
+ *
+ * - uncached: queryIntentActivities + rasterizing every icon, what the drawer used to do
+ * - cold: new process, nothing cached (first start after install)
+ * - disk: new process, catalog and icons on disk (every later process start)
+ * - warm: everything in memory (reopening the drawer)
+ */
+object AppCatalogBenchmark {
+
+    data class Result(
+        val apps: Int,
+        val uncachedMs: Double,
+        val coldMs: Double,
+        val diskMs: Double,
+        val warmMs: Double
+    ) {
+        override fun toString(): String =
+            "apps=$apps uncached=${"%.1f".format(uncachedMs)}ms cold=${"%.1f".format(coldMs)}ms " +
+                "disk=${"%.1f".format(diskMs)}ms warm=${"%.1f".format(warmMs)}ms"
+    }
+
+    suspend fun run(context: Context): Result {
+        val catalog = AppCatalog.getInstance(context)
+
+        val uncachedMs = timeMs { scanAndRasterize(context) }
+
+        catalog.clearMemory()
+        catalog.clearDisk()
+        val coldMs = timeMs { openDrawer(catalog) }
+
+        catalog.clearMemory()
+        val diskMs = timeMs { openDrawer(catalog) }
+
+        val warmMs = timeMs { openDrawer(catalog) }
+
+        return Result(catalog.apps.value.size, uncachedMs, coldMs, diskMs, warmMs)
+    }
+
+    private suspend fun openDrawer(catalog: AppCatalog) {
+        catalog.ensureLoaded().forEach { catalog.icon(it) }
+    }
+
+    private fun scanAndRasterize(context: Context) {
+        val packageManager = context.packageManager
+        val intent = Intent(Intent.ACTION_MAIN).addCategory(Intent.CATEGORY_LAUNCHER)
+        for (resolveInfo in packageManager.queryIntentActivities(intent, 0)) {
+            resolveInfo.loadLabel(packageManager)
+            val drawable = resolveInfo.loadIcon(packageManager)
+            val bitmap = Bitmap.createBitmap(AppCatalog.ICON_SIZE_PX, AppCatalog.ICON_SIZE_PX, Bitmap.Config.ARGB_8888)
+            drawable.setBounds(0, 0, bitmap.width, bitmap.height)
+            drawable.draw(Canvas(bitmap))
+        }
+    }
+
+    private inline fun timeMs(block: () -> Unit): Double {
+        val start = System.nanoTime()
+        block()
+        return (System.nanoTime() - start) / 1_000_000.0
+    }
+}
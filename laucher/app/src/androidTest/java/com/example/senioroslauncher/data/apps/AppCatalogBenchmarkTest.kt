@@ -0,0 +1,28 @@
+package com.example.senioroslauncher.data.apps
+
+import android.util.Log
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.platform.app.InstrumentationRegistry
+import kotlinx.coroutines.runBlocking
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * Runs [AppCatalogBenchmark] on the device and logs the result under the "AppCatalogBenchmark"
+ * tag. Leaves the catalog rebuilt and cached, as after a normal drawer open.
+ */
+@RunWith(AndroidJUnit4::class)
+class AppCatalogBenchmarkTest {
+
+    @Test
+    fun drawerReadyTime() = runBlocking {
+        val context = InstrumentationRegistry.getInstrumentation().targetContext
+        val result = AppCatalogBenchmark.run(context)
+
+        Log.i("AppCatalogBenchmark", result.toString())
+        assertTrue(result.toString(), result.apps > 0)
+        // Reopening from memory must not touch the package manager or the disk
+        assertTrue(result.toString(), result.warmMs < result.diskMs)
+    }
+}
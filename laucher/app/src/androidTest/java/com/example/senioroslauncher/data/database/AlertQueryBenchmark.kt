@@ -0,0 +1,115 @@
+package com.example.senioroslauncher.data.database
+
+import android.content.Context
+import androidx.room.Room
+import com.example.senioroslauncher.data.database.entity.AlertType
+import java.util.Date
+
+/**
+ * Latency of the guardian alert queries on a 100k-row alert table, with the time-range
+ * indexes of [com.example.senioroslauncher.data.database.entity.AlertEntity] and again after
+ * dropping them (the schema before migration 2 -> 3). Uses its own in-memory database and runs
+ * on the calling thread, off the main thread in [AlertQueryBenchmarkTest].
+ *
+ * - recent: the 5 newest alerts (GET_STATE)
+ * - recentOfType: newest SOS in the last 10 minutes (AlertManager's duplicate check)
+ * - resolvedSince: alerts resolved in the last day, a delta sync page
+ */
+object AlertQueryBenchmark {
+
+    const val ROWS = 100_000
+    private const val RUNS = 25
+    private const val SPAN_MS = 365L * 24 * 60 * 60 * 1000
+
+    private val ALERT_INDEXES = listOf(
+        "index_alerts_triggeredAt",
+        "index_alerts_type_triggeredAt",
+        "index_alerts_resolved_triggeredAt",
+        "index_alerts_resolvedAt"
+    )
+
+    /**
+     * Median milliseconds per query.
+     */
+    data class Timings(val recentMs: Double, val recentOfTypeMs: Double, val resolvedSinceMs: Double) {
+        override fun toString(): String =
+            "recent=${"%.2f".format(recentMs)}ms recentOfType=${"%.2f".format(recentOfTypeMs)}ms " +
+                "resolvedSince=${"%.2f".format(resolvedSinceMs)}ms"
+    }
+
+    data class Result(val rows: Int, val indexed: Timings, val unindexed: Timings) {
+        override fun toString(): String = "rows=$rows indexed[$indexed] unindexed[$unindexed]"
+    }
+
+    suspend fun run(context: Context): Result {
+        val database = Room.inMemoryDatabaseBuilder(context, AppDatabase::class.java).build()
+        try {
+            val now = System.currentTimeMillis()
+            seed(database, now)
+            val indexed = measure(database, now)
+
+            val db = database.openHelper.writableDatabase
+            ALERT_INDEXES.forEach { db.execSQL("DROP INDEX IF EXISTS `$it`") }
+            val unindexed = measure(database, now)
+
+            return Result(ROWS, indexed, unindexed)
+        } finally {
+            database.close()
+        }
+    }
+
+    /**
+     * [ROWS] alerts over the past year, mostly resolved; about 1% are SOS.
+     */
+    private fun seed(database: AppDatabase, now: Long) {
+        val types = AlertType.values()
+        val db = database.openHelper.writableDatabase
+        db.beginTransaction()
+        try {
+            val insert = db.compileStatement(
+                "INSERT INTO alerts (type, triggeredAt, resolved, resolvedAt, notes) VALUES (?, ?, ?, ?, '')"
+            )
+            for (i in 0 until ROWS) {
+                val triggeredAt = now - SPAN_MS + SPAN_MS * i / ROWS
+                val type = if (i % 100 == 0) AlertType.SOS else types[1 + i % (types.size - 1)]
+                insert.bindString(1, type.name)
+                insert.bindLong(2, triggeredAt)
+                if (i % 10 != 0) {
+                    insert.bindLong(3, 1)
+                    insert.bindLong(4, triggeredAt + 60_000)
+                } else {
+                    insert.bindLong(3, 0)
+                    insert.bindNull(4)
+                }
+                insert.executeInsert()
+                insert.clearBindings()
+            }
+            db.setTransactionSuccessful()
+        } finally {
+            db.endTransaction()
+        }
+    }
+
+    private suspend fun measure(database: AppDatabase, now: Long): Timings {
+        val dao = database.alertDao()
+        val tenMinutesAgo = Date(now - 10 * 60 * 1000)
+        val dayAgo = Date(now - 24 * 60 * 60 * 1000)
+        return Timings(
+            recentMs = medianMs { dao.getRecentAlertsSync(5) },
+            recentOfTypeMs = medianMs { dao.hasRecentAlert(AlertType.SOS, tenMinutesAgo) },
+            resolvedSinceMs = medianMs { dao.getAlertsResolvedSinceSync(Long.MAX_VALUE, dayAgo, 0, 100) }
+        )
+    }
+
+    private inline fun medianMs(block: () -> Unit): Double {
+        block() // first run compiles the statement
+        val times = DoubleArray(RUNS)
+        for (i in 0 until RUNS) {
+            val start = System.nanoTime()
+            block()
+            times[i] = (System.nanoTime() - start) / 1_000_000.0
+        }
+        times.sort()
+        return times[RUNS / 2]
+    }
+}
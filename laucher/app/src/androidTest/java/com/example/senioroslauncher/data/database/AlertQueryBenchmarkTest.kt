@@ -0,0 +1,29 @@
+package com.example.senioroslauncher.data.database
+
+import android.util.Log
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.platform.app.InstrumentationRegistry
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.runBlocking
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * Runs [AlertQueryBenchmark] on the device and logs the result under the "AlertQueryBenchmark"
+ * tag. Doesn't touch the app's own database.
+ */
+@RunWith(AndroidJUnit4::class)
+class AlertQueryBenchmarkTest {
+
+    @Test
+    fun alertQueriesOn100kRows() = runBlocking(Dispatchers.IO) {
+        val context = InstrumentationRegistry.getInstrumentation().targetContext
+        val result = AlertQueryBenchmark.run(context)
+
+        Log.i("AlertQueryBenchmark", result.toString())
+        // Without the indexes each of these scans and sorts the whole table
+        assertTrue(result.toString(), result.indexed.recentMs < result.unindexed.recentMs)
+        assertTrue(result.toString(), result.indexed.recentOfTypeMs < result.unindexed.recentOfTypeMs)
+    }
+}
@@ -47,6 +47,7 @@ import androidx.compose.ui.unit.dp
 import androidx.compose.ui.unit.sp
 import androidx.core.content.ContextCompat
 import androidx.lifecycle.compose.collectAsStateWithLifecycle
+import com.example.senioroslauncher.data.apps.AppCatalog
 import com.example.senioroslauncher.data.database.entity.SpeedDialContactEntity
 import com.example.senioroslauncher.data.preferences.PreferencesManager
 import com.example.senioroslauncher.ui.apps.AllAppsActivity
@@ -428,6 +429,11 @@ private fun AppGrid(context: Context) {
         )
     }
 
+    // Have the drawer's list and icons in memory before All Apps is tapped
+    LaunchedEffect(Unit) {
+        AppCatalog.getInstance(context).prewarm()
+    }
+
     // Add All Apps and Help to the list
     val allAppItems = appItems + listOf(
         AppItem(Icons.Default.Apps, R.string.all_apps, CardPurple, AppsIndigo) { ctx ->
@@ -5,12 +5,18 @@ import android.app.NotificationChannel
 import android.app.NotificationManager
 import android.content.Intent
 import android.os.Build
+import com.example.senioroslauncher.assistant.IntentInferenceSession
+import com.example.senioroslauncher.assistant.MultilingualManager
+import com.example.senioroslauncher.assistant.TranslatorPool
 import com.example.senioroslauncher.data.database.AppDatabase
 import com.example.senioroslauncher.data.guardian.ElderIdentity
+import com.example.senioroslauncher.data.preferences.PreferencesManager
 import com.example.senioroslauncher.services.GuardianMonitoringService
+import com.example.senioroslauncher.services.medication.MissedDoseSweepWorker
 import kotlinx.coroutines.CoroutineScope
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.flow.first
 import kotlinx.coroutines.launch
 
 class SeniorLauncherApp : Application() {
@@ -27,6 +33,22 @@ class SeniorLauncherApp : Application() {
 
         // Start Guardian Monitoring Service if there are paired guardians
         startGuardianServiceIfNeeded()
+
+        // Periodic check for doses nobody responded to
+        MissedDoseSweepWorker.schedule(this)
+
+        // Load the intent model off the main thread so the first voice command is fast
+        applicationScope.launch {
+            IntentInferenceSession.getInstance(this@SeniorLauncherApp).warmUp()
+        }
+
+        // Have the translation model for the configured language ready before it's needed
+        applicationScope.launch {
+            val language = PreferencesManager(this@SeniorLauncherApp).language.first()
+            MultilingualManager.SUPPORTED_LANGUAGES[language]?.let {
+                TranslatorPool.getInstance().prefetch(it.mlkitCode)
+            }
+        }
     }
 
     private fun startGuardianServiceIfNeeded() {
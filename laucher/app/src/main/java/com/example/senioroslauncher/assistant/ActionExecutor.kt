@@ -22,7 +22,9 @@ import android.provider.MediaStore
 import android.provider.Settings
 import android.util.Log
 import androidx.core.content.ContextCompat
+import androidx.room.InvalidationTracker
 import com.example.senioroslauncher.SeniorLauncherApp
+import com.example.senioroslauncher.data.contacts.ContactIndex
 import com.example.senioroslauncher.ui.calendar.CalendarActivity
 import com.example.senioroslauncher.ui.emergency.EmergencyActivity
 import com.example.senioroslauncher.ui.health.HealthActivity
@@ -56,6 +58,38 @@ class ActionExecutor(private val context: Context) {
 
     companion object {
         private const val TAG = "ActionExecutor"
+        private const val WARM_TTL_MS = 30_000L
+    }
+
+    /**
+     * A lookup done ahead of time by [prefetch], trusted for [WARM_TTL_MS]. Medication rows are
+     * also dropped as soon as Room reports a write to their tables, from any screen or a
+     * guardian command.
+     */
+    private class Warm<T>(val value: T, val loadedAt: Long = System.currentTimeMillis()) {
+        val isFresh: Boolean get() = System.currentTimeMillis() - loadedAt < WARM_TTL_MS
+    }
+
+    private val contactIndex = ContactIndex.getInstance(context)
+    private val warmPackages = java.util.concurrent.ConcurrentHashMap<String, Warm<String?>>()
+    @Volatile
+    private var warmMedications: Warm<List<MedicationEntity>>? = null
+    private val warmSchedules = java.util.concurrent.ConcurrentHashMap<Long, Warm<List<MedicationScheduleEntity>>>()
+    // Bumped on every medication write, so a lookup that raced with one isn't kept
+    @Volatile
+    private var medicationGeneration = 0
+
+    private val database = (context.applicationContext as SeniorLauncherApp).database
+    private val medicationObserver = object : InvalidationTracker.Observer("medications", "medication_schedules") {
+        override fun onInvalidated(tables: Set<String>) {
+            medicationGeneration++
+            warmMedications = null
+            warmSchedules.clear()
+        }
+    }
+
+    init {
+        database.invalidationTracker.addObserver(medicationObserver)
     }
 
     data class ActionResult(
@@ -152,6 +186,49 @@ class ActionExecutor(private val context: Context) {
             else -> onResult(ActionResult(false, "I don't know how to do that yet"))
         }
     }
+    /**
+     * Do the slow lookups [execute] would need for [intent] (app package, medication rows)
+     * ahead of time, e.g. from a speculative prediction while the user is still speaking.
+     * Results are reused by [execute] for [WARM_TTL_MS]; a wrong guess only costs the lookup.
+     * Contact numbers need no prefetch, they come from the in-memory [ContactIndex].
+     */
+    suspend fun prefetch(intent: String, entities: EntityExtractor.ExtractedEntities) = withContext(Dispatchers.IO) {
+        try {
+            when (intent) {
+                "OPEN_APP" -> entities.appName?.takeIf { it.isNotBlank() }?.let { appName ->
+                    if (warmPackages[appName.lowercase()]?.isFresh != true) {
+                        warmPackages[appName.lowercase()] = Warm(findPackageName(appName))
+                    }
+                }
+                "MEDICATION_LIST_TODAY", "MEDICATION_LOG_TAKEN" -> activeMedications()
+                "MEDICATION_QUERY" -> activeMedications().forEach { schedulesFor(it.id) }
+            }
+        } catch (e: Exception) {
+            Log.w(TAG, "Prefetch for $intent failed", e)
+        }
+    }
+
+    /**
+     * Stop following medication writes. Call when the owner goes away.
+     */
+    fun close() {
+        database.invalidationTracker.removeObserver(medicationObserver)
+    }
+
+    private suspend fun activeMedications(): List<MedicationEntity> {
+        warmMedications?.takeIf { it.isFresh }?.let { return it.value }
+        val generation = medicationGeneration
+        return database.medicationDao().getAllActiveMedications().first()
+            .also { if (generation == medicationGeneration) warmMedications = Warm(it) }
+    }
+
+    private suspend fun schedulesFor(medicationId: Long): List<MedicationScheduleEntity> {
+        warmSchedules[medicationId]?.takeIf { it.isFresh }?.let { return it.value }
+        val generation = medicationGeneration
+        return database.medicationScheduleDao().getSchedulesForMedicationSync(medicationId)
+            .also { if (generation == medicationGeneration) warmSchedules[medicationId] = Warm(it) }
+    }
+
     private fun executeBookRide(entities: EntityExtractor.ExtractedEntities, onResult: (ActionResult) -> Unit) {
         val destination = entities.destination
 
@@ -333,18 +410,8 @@ class ActionExecutor(private val context: Context) {
         }
 
         try {
-            // 1. Try known hardcoded list first
-            var packageName = getPackageName(appName)
-
-            // 2. Fuzzy Search: Look through installed apps if not found above
-            if (packageName == null) {
-                val installedApps = context.packageManager.getInstalledApplications(PackageManager.GET_META_DATA)
-                val bestMatch = installedApps.find {
-                    val label = context.packageManager.getApplicationLabel(it).toString()
-                    label.contains(appName, ignoreCase = true)
-                }
-                packageName = bestMatch?.packageName
-            }
+            val packageName = warmPackages[appName.lowercase()]?.takeIf { it.isFresh }?.value
+                ?: findPackageName(appName)
 
             if (packageName != null) {
                 val intent = context.packageManager.getLaunchIntentForPackage(packageName)
@@ -364,6 +431,19 @@ class ActionExecutor(private val context: Context) {
         }
     }
 
+    private fun findPackageName(appName: String): String? {
+        // 1. Try known hardcoded list first
+        getPackageName(appName)?.let { return it }
+
+        // 2. Fuzzy Search: Look through installed apps if not found above
+        val installedApps = context.packageManager.getInstalledApplications(PackageManager.GET_META_DATA)
+        val bestMatch = installedApps.find {
+            val label = context.packageManager.getApplicationLabel(it).toString()
+            label.contains(appName, ignoreCase = true)
+        }
+        return bestMatch?.packageName
+    }
+
     private fun getPackageName(appName: String): String? {
         return when (appName.lowercase()) {
             "whatsapp" -> "com.whatsapp"
@@ -748,12 +828,8 @@ class ActionExecutor(private val context: Context) {
         // 2. Fetch data in background to read aloud
         scope.launch(Dispatchers.IO) {
             try {
-                // Access the database via the Application context
-                val app = context.applicationContext as SeniorLauncherApp
-                val dao = app.database.medicationDao()
-
-                // Get the current list (Flow.first() takes the immediate snapshot)
-                val medications = dao.getAllActiveMedications().first()
+                // Current list, possibly already loaded by prefetch()
+                val medications = activeMedications()
 
                 // 3. Format the speech string
                 val speechText = if (medications.isEmpty()) {
@@ -884,6 +960,7 @@ class ActionExecutor(private val context: Context) {
                     )
                     scheduleDao.insert(schedule)
                 }
+                warmMedications = null
 
                 // 3. Notify Guardians / Cloud
                 val savedMed = medDao.getMedicationByIdSync(medId)
@@ -915,12 +992,8 @@ class ActionExecutor(private val context: Context) {
 
         scope.launch(Dispatchers.IO) {
             try {
-                val app = context.applicationContext as SeniorLauncherApp
-                val medDao = app.database.medicationDao()
-                val scheduleDao = app.database.medicationScheduleDao()
-
-                // 1. Get relevant medications (Using .first() to read Flow)
-                val allMeds = medDao.getAllActiveMedications().first()
+                // 1. Get relevant medications
+                val allMeds = activeMedications()
                 val medications = if (!targetMedName.isNullOrEmpty()) {
                     allMeds.filter { it.name.contains(targetMedName, ignoreCase = true) }
                 } else {
@@ -942,8 +1015,7 @@ class ActionExecutor(private val context: Context) {
                 var bestDiff = Long.MAX_VALUE
 
                 for (med in medications) {
-                    // FIX: Use .first() to get the List from the Flow
-                    val schedules = scheduleDao.getSchedulesForMedication(med.id).first()
+                    val schedules = schedulesFor(med.id)
 
                     for (schedule in schedules) {
                         val doseTime = Calendar.getInstance().apply {
@@ -1283,9 +1355,16 @@ class ActionExecutor(private val context: Context) {
         onResult(ActionResult(true, "I can help you with calls, messages, medications, appointments, and much more. Just ask!"))
     }
     /**
-     * Helper to find a phone number by name from System Contacts
+     * Helper to find a phone number by name: relationship aliases ("my daughter") and
+     * phonetic/fuzzy name matches from the in-memory [ContactIndex]. Falls back to a
+     * provider query only while the index hasn't been loaded yet.
      */
     private fun getPhoneNumber(name: String): String? {
+        contactIndex.resolve(name)?.let { return it.entry.phoneNumber.replace(Regex("[^0-9+]"), "") }
+        return if (contactIndex.snapshot.value.isLoaded) null else queryPhoneNumber(name)
+    }
+
+    private fun queryPhoneNumber(name: String): String? {
         var phoneNumber: String? = null
         val contentResolver = context.contentResolver
         val uri = android.provider.ContactsContract.CommonDataKinds.Phone.CONTENT_URI
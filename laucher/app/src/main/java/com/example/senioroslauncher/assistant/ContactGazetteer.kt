@@ -0,0 +1,65 @@
+package com.example.senioroslauncher.assistant
+
+import com.example.senioroslauncher.data.contacts.NameMatching
+
+/**
+ * Contact names as a word trie, so [EntityExtractor] can recognise "call anish kumar" or
+ * "ring up aunt meera please" without guessing which word is the name.
+ *
+ * Every full display name is indexed, and so is each of its words on its own ("anish" for
+ * "Anish Kumar"), since people rarely say full names. Matching is on lowercase words.
+ */
+class ContactGazetteer private constructor(private val root: Node, val size: Int) {
+
+    /**
+     * [wordCount] words matched. [displayName] is the contact's name when the whole name
+     * was spoken, or null for a partial ("anish" of "Anish Kumar").
+     */
+    class Match(val wordCount: Int, val displayName: String?)
+
+    private class Node {
+        val children = HashMap<String, Node>(2)
+        var displayName: String? = null
+        var isWord = false
+    }
+
+    companion object {
+        val EMPTY = ContactGazetteer(Node(), 0)
+
+        fun fromNames(names: Iterable<String>): ContactGazetteer {
+            val root = Node()
+            var count = 0
+            for (name in names) {
+                val words = NameMatching.words(name)
+                if (words.isEmpty()) continue
+                var node = root
+                for (word in words) node = node.children.getOrPut(word) { Node() }
+                node.displayName = name.trim()
+                if (words.size > 1) {
+                    for (word in words) root.children.getOrPut(word) { Node() }.isWord = true
+                }
+                count++
+            }
+            return ContactGazetteer(root, count)
+        }
+    }
+
+    /**
+     * Longest contact name (or name word) starting at [words]`[start]`.
+     */
+    fun matchAt(words: List<String>, start: Int): Match? {
+        var node = root
+        var best: Match? = null
+        var i = start
+        while (i < words.size) {
+            node = node.children[words[i]] ?: break
+            i++
+            if (node.displayName != null) {
+                best = Match(i - start, node.displayName)
+            } else if (node.isWord && i - start == 1) {
+                best = Match(1, null)
+            }
+        }
+        return best
+    }
+}
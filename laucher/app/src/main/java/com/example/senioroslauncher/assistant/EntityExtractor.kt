@@ -2,16 +2,286 @@ package com.example.senioroslauncher.assistant
 
 import android.util.Log
 import com.example.senioroslauncher.data.database.entity.MedicationFrequency
-import java.text.SimpleDateFormat
 import java.util.*
 
 /**
  * Extract entities from user commands (names, times, numbers, etc.)
+ *
+ * The text is tokenized once ([tokenize]: lowercase words, numbers, clock times, with number
+ * words folded into numbers) and a single scan over the tokens fills every slot against
+ * fixed lookup tables: the time grammar, medication lexicon, app names, place keywords and
+ * the device [contacts]. No regular expressions are compiled per call.
  */
-class EntityExtractor {
+class EntityExtractor(
+    // Replaced whenever the contact list is reloaded
+    @Volatile var contacts: ContactGazetteer = ContactGazetteer.EMPTY
+) {
 
     companion object {
         private const val TAG = "EntityExtractor"
+
+        private val UNITS = mapOf(
+            "zero" to 0, "one" to 1, "two" to 2, "three" to 3, "four" to 4, "five" to 5,
+            "six" to 6, "seven" to 7, "eight" to 8, "nine" to 9, "ten" to 10, "eleven" to 11,
+            "twelve" to 12, "thirteen" to 13, "fourteen" to 14, "fifteen" to 15, "sixteen" to 16,
+            "seventeen" to 17, "eighteen" to 18, "nineteen" to 19
+        )
+        private val TENS = mapOf(
+            "twenty" to 20, "thirty" to 30, "forty" to 40, "fifty" to 50,
+            "sixty" to 60, "seventy" to 70, "eighty" to 80, "ninety" to 90
+        )
+
+        private val AM = setOf("am", "morning")
+        private val PM = setOf("pm", "afternoon", "evening", "night", "tonight")
+
+        private val DOSAGE_UNITS = setOf(
+            "mg", "milligram", "milligrams", "g", "gram", "grams", "ml", "milliliter", "milliliters",
+            "mcg", "microgram", "micrograms", "tablet", "tablets", "pill", "pills",
+            "capsule", "capsules", "drop", "drops"
+        )
+
+        // Words that are never the contact's name in "call ..." / "message ..." commands
+        private val CONTACT_SKIP = setOf(
+            "call", "phone", "dial", "ring", "message", "text", "whatsapp", "sms", "contact",
+            "please", "now", "send", "to", "a", "an", "the", "up", "can", "you", "could", "would",
+            "will", "i", "want", "like", "me", "make", "give", "and", "say", "saying", "tell",
+            "video", "voice", "for", "my"
+        )
+
+        // Generic and common Indian brand names, lowercase words
+        private val MEDICATION_LEXICON: List<String> = listOf(
+            "metformin", "glimepiride", "gliclazide", "sitagliptin", "insulin",
+            "amlodipine", "telmisartan", "losartan", "lisinopril", "enalapril", "ramipril",
+            "metoprolol", "atenolol", "bisoprolol", "carvedilol", "hydrochlorothiazide",
+            "furosemide", "spironolactone", "digoxin",
+            "atorvastatin", "rosuvastatin", "simvastatin",
+            "aspirin", "ecosprin", "clopidogrel", "warfarin", "apixaban", "rivaroxaban",
+            "paracetamol", "acetaminophen", "crocin", "dolo", "ibuprofen", "diclofenac", "tramadol",
+            "omeprazole", "pantoprazole", "rabeprazole", "ranitidine", "famotidine",
+            "levothyroxine", "thyroxine", "thyronorm", "eltroxin",
+            "prednisone", "prednisolone", "gabapentin", "pregabalin",
+            "donepezil", "memantine", "levodopa", "tamsulosin", "allopurinol",
+            "montelukast", "salbutamol", "albuterol", "cetirizine", "levocetirizine",
+            "sertraline", "escitalopram", "alprazolam", "clonazepam", "zolpidem", "melatonin",
+            "calcium", "iron", "vitamin d", "folic acid", "shelcal"
+        )
+
+        private val MEDICATION_SKIP = setOf(
+            "i", "took", "take", "taken", "have", "had", "add", "my", "the", "a", "an", "to", "please",
+            "medicine", "medicines", "medication", "medications", "pill", "pills", "tablet", "tablets",
+            "remind", "reminder", "me", "for", "did", "log", "mark", "as", "of", "new",
+            "when", "what", "whats", "is", "next", "dose", "do", "need", "should", "time", "at"
+        )
+
+        private val APP_NAMES: List<Pair<String, String>> = listOf(
+            "whatsapp" to "WhatsApp", "youtube" to "YouTube", "google maps" to "Google Maps",
+            "maps" to "Google Maps", "gmail" to "Gmail", "facebook" to "Facebook",
+            "instagram" to "Instagram", "chrome" to "Chrome", "spotify" to "Spotify",
+            "messenger" to "Messenger", "twitter" to "Twitter", "telegram" to "Telegram",
+            "linkedin" to "LinkedIn", "netflix" to "Netflix"
+        )
+        private val APP_SKIP = setOf("open", "launch", "start", "run", "the", "app", "please", "my", "can", "you")
+
+        // Earlier entries win
+        private val LOCATIONS: List<Pair<String, String>> = listOf(
+            "hospital" to "hospital", "pharmacy" to "pharmacy", "medical store" to "pharmacy",
+            "clinic" to "clinic", "doctor" to "doctor", "emergency" to "emergency room"
+        )
+        private val LOCATION_SKIP = setOf("nearest", "nearby", "find", "search", "locate")
+
+        // Saved places for ride booking; earlier entries win
+        private val DESTINATIONS: List<Pair<String, String>> = listOf(
+            "home" to "home", "doctor" to "doctor", "clinic" to "doctor", "hospital" to "doctor",
+            "pharmacy" to "pharmacy", "chemist" to "pharmacy", "drug store" to "pharmacy"
+        )
+
+        private val FREQUENCIES: List<Pair<String, MedicationFrequency>> = listOf(
+            "daily" to MedicationFrequency.DAILY, "every day" to MedicationFrequency.DAILY,
+            "weekly" to MedicationFrequency.WEEKLY, "every week" to MedicationFrequency.WEEKLY,
+            "monthly" to MedicationFrequency.MONTHLY, "every month" to MedicationFrequency.MONTHLY,
+            "needed" to MedicationFrequency.AS_NEEDED, "pain" to MedicationFrequency.AS_NEEDED
+        )
+
+        // Phrase tables compiled to first word -> (phrase words, value, rank)
+        private val MEDICATION_TABLE = phraseTable(MEDICATION_LEXICON.map { it to it })
+        private val APP_TABLE = phraseTable(APP_NAMES)
+        private val LOCATION_TABLE = phraseTable(LOCATIONS)
+        private val DESTINATION_TABLE = phraseTable(DESTINATIONS)
+        private val FREQUENCY_TABLE = phraseTable(FREQUENCIES)
+
+        private fun <T> phraseTable(entries: List<Pair<String, T>>): Map<String, List<Phrase<T>>> {
+            val table = HashMap<String, MutableList<Phrase<T>>>()
+            entries.forEachIndexed { rank, (phrase, value) ->
+                val words = phrase.split(' ')
+                table.getOrPut(words[0]) { ArrayList(1) }.add(Phrase(words, value, rank))
+            }
+            // Longest phrase first, so "google maps" is tried before "maps"
+            table.values.forEach { list -> list.sortByDescending { it.words.size } }
+            return table
+        }
+
+        /**
+         * Split [text] into lowercase tokens in one pass. Apostrophes and dots inside words are
+         * dropped ("o'clock" -> "oclock", "p.m." -> "pm"), "6:30" becomes one clock token,
+         * letters and digits are split ("500mg" -> 500, "mg") and number words are folded
+         * into numbers ("twenty five" -> 25).
+         */
+        internal fun tokenize(text: String): List<Token> {
+            val raw = ArrayList<Token>()
+            val word = StringBuilder()
+            var i = 0
+            val n = text.length
+            while (i < n) {
+                val c = text[i]
+                when {
+                    c.isDigit() -> {
+                        val start = i
+                        var value = 0
+                        while (i < n && text[i].isDigit()) {
+                            value = (value * 10 + (text[i] - '0')).coerceAtMost(1_000_000)
+                            i++
+                        }
+                        if (i + 1 < n && text[i] == ':' && text[i + 1].isDigit()) {
+                            var j = i + 1
+                            var minute = 0
+                            while (j < n && text[j].isDigit() && j - i <= 2) {
+                                minute = minute * 10 + (text[j] - '0')
+                                j++
+                            }
+                            raw.add(Token(text.substring(start, j), start, j, Token.CLOCK, value, minute))
+                            i = j
+                        } else {
+                            // Decimal part ("2.5 mg") belongs to the token; the value is its integer part
+                            if (i + 1 < n && text[i] == '.' && text[i + 1].isDigit()) {
+                                i++
+                                while (i < n && text[i].isDigit()) i++
+                            }
+                            raw.add(Token(text.substring(start, i), start, i, Token.NUMBER, value))
+                        }
+                    }
+                    c.isLetter() -> {
+                        val start = i
+                        word.setLength(0)
+                        while (i < n) {
+                            val ch = text[i]
+                            if (ch.isLetter()) {
+                                word.append(ch.lowercaseChar())
+                            } else if ((ch == '\'' || ch == '.' || ch == '’') &&
+                                i + 1 < n && text[i + 1].isLetter()
+                            ) {
+                                // Inner apostrophe or dot: skip it, keep the word going
+                            } else {
+                                break
+                            }
+                            i++
+                        }
+                        if (i < n && text[i] == '.' && word.length == 2 && (word[0] == 'a' || word[0] == 'p') && word[1] == 'm') {
+                            i++ // trailing dot of "a.m."
+                        }
+                        raw.add(Token(word.toString(), start, i, Token.WORD))
+                    }
+                    else -> i++
+                }
+            }
+            return foldNumberWords(raw)
+        }
+
+        private fun foldNumberWords(tokens: List<Token>): List<Token> {
+            if (tokens.none { it.kind == Token.WORD && (it.text in UNITS || it.text in TENS) }) return tokens
+            val out = ArrayList<Token>(tokens.size)
+            var i = 0
+            while (i < tokens.size) {
+                val first = tokens[i]
+                if (first.kind != Token.WORD || (first.text !in UNITS && first.text !in TENS)) {
+                    out.add(first)
+                    i++
+                    continue
+                }
+                var total = 0
+                var current = 0
+                var end = i
+                var lastWasTens = false
+                var lastWasUnit = false
+                while (end < tokens.size && tokens[end].kind == Token.WORD) {
+                    val w = tokens[end].text
+                    val unit = UNITS[w]
+                    val tens = TENS[w]
+                    when {
+                        unit != null && !lastWasUnit && (current % 100 == 0 || (lastWasTens && unit < 10)) -> {
+                            current += unit
+                            lastWasUnit = true
+                            lastWasTens = false
+                        }
+                        tens != null && current % 100 == 0 && !lastWasTens && !lastWasUnit -> {
+                            current += tens
+                            lastWasTens = true
+                        }
+                        w == "hundred" && current in 1..99 && (lastWasUnit || lastWasTens) -> {
+                            current *= 100
+                            lastWasUnit = false
+                            lastWasTens = false
+                        }
+                        w == "thousand" && current in 1..999 && (lastWasUnit || lastWasTens) -> {
+                            total += current * 1000
+                            current = 0
+                            lastWasUnit = false
+                            lastWasTens = false
+                        }
+                        else -> break
+                    }
+                    end++
+                }
+                val last = tokens[end - 1]
+                out.add(Token(tokens.subList(i, end).joinToString(" ") { it.text }, first.start, last.end, Token.NUMBER, total + current))
+                i = end
+            }
+            return out
+        }
+    }
+
+    internal class Token(
+        val text: String,
+        val start: Int,
+        val end: Int,
+        val kind: Int,
+        val value: Int = -1,
+        val minute: Int = -1
+    ) {
+        companion object {
+            const val WORD = 0
+            const val NUMBER = 1
+            const val CLOCK = 2
+        }
+    }
+
+    private class Phrase<T>(val words: List<String>, val value: T, val rank: Int)
+
+    /**
+     * Every slot the scan can fill; [extract] copies out the ones the intent uses.
+     */
+    private class Slots {
+        var firstNumber: Int? = null
+        var hour = -1
+        var minute = 0
+        var meridiem: Boolean? = null // true = pm
+        var dayPart: Boolean? = null // true = pm (evening/night), false = morning
+        var tomorrow = false
+        var dosage: String? = null
+        var frequency: MedicationFrequency? = null
+        var frequencyRank = Int.MAX_VALUE
+        var contact: String? = null
+        var contactAfterMy: String? = null
+        var contactFirstWord: String? = null
+        var bodyStart = Int.MAX_VALUE // token index of "saying"/"that"/"to say": the message follows
+        var medication: String? = null
+        var medicationFallback: String? = null
+        var app: String? = null
+        var appFallback: String? = null
+        var location: String? = null
+        var locationRank = Int.MAX_VALUE
+        var destination: String? = null
+        var destinationRank = Int.MAX_VALUE
+        var afterTo: Int = -1 // char offset of the first token after "to"/"goto"
     }
 
     data class ExtractedEntities(
@@ -34,63 +304,73 @@ class EntityExtractor {
      */
     fun extract(text: String, intent: String): ExtractedEntities {
         Log.d(TAG, "Extracting entities from: '$text' for intent: $intent")
+        return extractQuietly(text, intent)
+    }
+
+    /**
+     * [extract] without logging, for benchmarks.
+     */
+    internal fun extractQuietly(text: String, intent: String): ExtractedEntities {
+        val tokens = tokenize(text)
+        val slots = scan(text, tokens)
 
         return when (intent) {
             "CALL_CONTACT", "SEND_MESSAGE", "CAREGIVER_CONTACT" -> {
                 ExtractedEntities(
-                    contactName = extractContactName(text),
+                    contactName = slots.contactAfterMy ?: slots.contact ?: slots.contactFirstWord,
                     rawText = text
                 )
             }
             "SET_ALARM" -> {
                 ExtractedEntities(
-                    time = extractTime(text),
+                    time = buildTime(slots),
                     rawText = text
                 )
             }
             "SET_TIMER" -> {
                 ExtractedEntities(
-                    duration = extractDuration(text),
+                    duration = slots.firstNumber,
                     rawText = text
                 )
             }
             "OPEN_APP" -> {
                 ExtractedEntities(
-                    appName = extractAppName(text),
+                    appName = slots.app ?: slots.appFallback,
                     rawText = text
                 )
             }
             "MEDICATION_ADD" -> {
                 ExtractedEntities(
-                    medicationName = extractMedicationName(text),
-                    dosage = extractDosage(text),
-                    frequency = extractFrequency(text),
+                    medicationName = slots.medication ?: slots.medicationFallback,
+                    dosage = slots.dosage,
+                    frequency = slots.frequency,
                     rawText = text
                 )
             }
             "MEDICATION_LOG_TAKEN", "MEDICATION_QUERY" -> {
                 ExtractedEntities(
-                    medicationName = extractMedicationName(text),
+                    medicationName = slots.medication ?: slots.medicationFallback,
                     rawText = text
                 )
             }
             "SEARCH_LOCATION", "APPOINTMENT_CREATE" -> {
                 ExtractedEntities(
-                    location = extractLocation(text),
-                    time = if (intent == "APPOINTMENT_CREATE") extractTime(text) else null,
+                    location = slots.location ?: remainder(tokens, LOCATION_SKIP),
+                    time = if (intent == "APPOINTMENT_CREATE") buildTime(slots) else null,
                     rawText = text
                 )
             }
             "HEALTH_RECORD" -> {
                 ExtractedEntities(
-                    number = extractNumber(text),
+                    number = slots.firstNumber,
                     rawText = text
                 )
             }
             // NEW: Ride Booking extraction
             "BOOK_RIDE" -> {
                 ExtractedEntities(
-                    destination = extractDestination(text),
+                    destination = slots.destination
+                        ?: slots.afterTo.takeIf { it >= 0 }?.let { text.substring(it).lowercase().trim() },
                     rawText = text
                 )
             }
@@ -98,194 +378,202 @@ class EntityExtractor {
         }
     }
 
-    private fun extractContactName(text: String): String? {
-        val lowerText = text.lowercase()
-        val cleaned = lowerText
-            .replace(Regex("(call|phone|dial|ring|message|text|whatsapp|sms|contact)\\s+"), "")
-            .replace(Regex("\\s+(please|now)"), "")
-            .trim()
-
-        val myPattern = Regex("my\\s+(\\w+)")
-        val myMatch = myPattern.find(cleaned)
-        if (myMatch != null) {
-            return myMatch.groupValues[1].capitalize()
-        }
-
-        val words = cleaned.split(" ")
-        return words.firstOrNull()?.capitalize()
-    }
-
     /**
-     * Updated to handle LLM 24-hour format and auto-scheduling for tomorrow
+     * One left-to-right pass over [tokens] filling every slot.
      */
-    private fun extractTime(text: String): Calendar? {
-        val lowerText = text.lowercase()
-        val now = Calendar.getInstance()
-        val calendar = Calendar.getInstance()
-
-        // Format A: "HH:mm" (24-hour, e.g., "06:00", "14:30") - Common from LLM
-        val pattern24 = Regex("(\\d{1,2}):(\\d{2})")
-        val match24 = pattern24.find(lowerText)
-
-        if (match24 != null) {
-            val hour = match24.groupValues[1].toInt()
-            val minute = match24.groupValues[2].toInt()
-
-            calendar.set(Calendar.HOUR_OF_DAY, hour)
-            calendar.set(Calendar.MINUTE, minute)
-            calendar.set(Calendar.SECOND, 0)
-
-            // If time has passed today, schedule for tomorrow
-            if (calendar.before(now)) {
-                calendar.add(Calendar.DAY_OF_YEAR, 1)
+    private fun scan(text: String, tokens: List<Token>): Slots {
+        val slots = Slots()
+        val words = tokens.map { it.text }
+        val gazetteer = contacts
+
+        var i = 0
+        while (i < tokens.size) {
+            val token = tokens[i]
+            val next = tokens.getOrNull(i + 1)
+
+            when (token.kind) {
+                Token.CLOCK -> {
+                    if (slots.firstNumber == null) slots.firstNumber = token.value
+                    if (slots.hour < 0 && token.value <= 23 && token.minute <= 59) {
+                        slots.hour = token.value
+                        slots.minute = token.minute
+                        meridiemAt(next)?.let { slots.meridiem = it }
+                    }
+                }
+                Token.NUMBER -> {
+                    if (slots.firstNumber == null) slots.firstNumber = token.value
+                    scanNumberTime(tokens, i, slots)
+                }
+                Token.WORD -> scanWord(text, tokens, words, i, slots, gazetteer)
             }
-            return calendar
+            i++
         }
+        return slots
+    }
 
-        // Format B: "h:mm am/pm" (e.g., "6:30 pm")
-        val patternAmPm = Regex("(\\d{1,2})[:\\s]*(\\d{0,2})\\s*(am|pm)")
-        val matchAmPm = patternAmPm.find(lowerText)
+    private fun scanNumberTime(tokens: List<Token>, i: Int, slots: Slots) {
+        if (slots.hour >= 0) return
+        val hour = tokens[i].value
+        if (hour !in 0..23) return
+        val next = tokens.getOrNull(i + 1)
+        val afterNext = tokens.getOrNull(i + 2)
+
+        // "6 30 pm", "six thirty pm"
+        if (next != null && next.kind == Token.NUMBER && next.value in 0..59 && hour in 1..12) {
+            val meridiem = meridiemAt(afterNext)
+            if (meridiem != null || dayPartAhead(tokens, i + 2) != null || wordBefore(tokens, i) == "at") {
+                slots.hour = hour
+                slots.minute = next.value
+                slots.meridiem = meridiem
+                return
+            }
+        }
+        // "7 pm", "7 oclock", "at 7"
+        val meridiem = meridiemAt(next)
+        if ((meridiem != null && hour in 1..12) || next?.text == "oclock" || wordBefore(tokens, i) == "at") {
+            slots.hour = hour
+            slots.minute = 0
+            slots.meridiem = meridiem
+        }
+    }
 
-        if (matchAmPm != null) {
-            val hour = matchAmPm.groupValues[1].toInt()
-            val minuteStr = matchAmPm.groupValues[2]
-            val minute = if (minuteStr.isNotEmpty()) minuteStr.toInt() else 0
-            val amPm = matchAmPm.groupValues[3]
+    private fun scanWord(
+        text: String,
+        tokens: List<Token>,
+        words: List<String>,
+        i: Int,
+        slots: Slots,
+        gazetteer: ContactGazetteer
+    ) {
+        val token = tokens[i]
+        val w = token.text
+        val next = tokens.getOrNull(i + 1)
+
+        when (w) {
+            "tomorrow" -> slots.tomorrow = true
+            "noon", "midday" -> if (slots.hour < 0) { slots.hour = 12; slots.minute = 0; slots.meridiem = null }
+            "midnight" -> if (slots.hour < 0) { slots.hour = 0; slots.minute = 0; slots.meridiem = null }
+            "half", "quarter" -> if (slots.hour < 0 && next != null) {
+                val target = tokens.getOrNull(i + 2)
+                if (target != null && target.kind == Token.NUMBER && target.value in 1..12) {
+                    when {
+                        next.text == "past" -> {
+                            slots.hour = target.value
+                            slots.minute = if (w == "half") 30 else 15
+                            slots.meridiem = meridiemAt(tokens.getOrNull(i + 3))
+                        }
+                        next.text == "to" && w == "quarter" -> {
+                            slots.hour = if (target.value == 1) 12 else target.value - 1
+                            slots.minute = 45
+                            slots.meridiem = meridiemAt(tokens.getOrNull(i + 3))
+                        }
+                    }
+                }
+            }
+            "to", "goto" -> {
+                if (slots.afterTo < 0 && next != null) slots.afterTo = next.start
+                if (w == "to" && next?.text == "say") slots.bodyStart = minOf(slots.bodyStart, i)
+            }
+            "saying", "that" -> slots.bodyStart = minOf(slots.bodyStart, i)
+            "my" -> if (i < slots.bodyStart && slots.contactAfterMy == null && next != null && next.kind == Token.WORD) {
+                slots.contactAfterMy = next.text.capitalize()
+            }
+        }
+        // "in the morning", "tonight": only used when there's no am/pm
+        if (w in AM && w != "am") slots.dayPart = slots.dayPart ?: false
+        if (w in PM && w != "pm") slots.dayPart = true
 
-            var finalHour = hour
-            if (amPm == "pm" && hour != 12) finalHour += 12
-            if (amPm == "am" && hour == 12) finalHour = 0
+        // Dosage: the unit closes a number span ("500 mg", "2.5ml", "two tablets")
+        if (slots.dosage == null && w in DOSAGE_UNITS && i > 0 && tokens[i - 1].kind == Token.NUMBER) {
+            slots.dosage = text.substring(tokens[i - 1].start, token.end).lowercase()
+        }
 
-            calendar.set(Calendar.HOUR_OF_DAY, finalHour)
-            calendar.set(Calendar.MINUTE, minute)
-            calendar.set(Calendar.SECOND, 0)
+        matchPhrase(FREQUENCY_TABLE, words, i)?.let { if (it.rank < slots.frequencyRank) { slots.frequency = it.value; slots.frequencyRank = it.rank } }
+        matchPhrase(LOCATION_TABLE, words, i)?.let { if (it.rank < slots.locationRank) { slots.location = it.value; slots.locationRank = it.rank } }
+        matchPhrase(DESTINATION_TABLE, words, i)?.let { if (it.rank < slots.destinationRank) { slots.destination = it.value; slots.destinationRank = it.rank } }
+        if (slots.app == null) matchPhrase(APP_TABLE, words, i)?.let { slots.app = it.value }
+        if (slots.medication == null) {
+            matchPhrase(MEDICATION_TABLE, words, i)?.let { phrase ->
+                slots.medication = phrase.words.joinToString(" ") { it.capitalize() }
+            }
+        }
 
-            if (calendar.before(now)) {
-                calendar.add(Calendar.DAY_OF_YEAR, 1)
+        if (slots.appFallback == null && w !in APP_SKIP) slots.appFallback = w.capitalize()
+        if (slots.medicationFallback == null && w !in MEDICATION_SKIP && w !in DOSAGE_UNITS && w !in AM && w !in PM) {
+            slots.medicationFallback = w.capitalize()
+        }
+        // Only the recipient is a contact: "text my daughter that ravi is here" isn't for Ravi
+        if (w !in CONTACT_SKIP && i < slots.bodyStart) {
+            if (slots.contact == null) {
+                gazetteer.matchAt(words, i)?.let { match ->
+                    slots.contact = match.displayName
+                        ?: words.subList(i, i + match.wordCount).joinToString(" ") { it.capitalize() }
+                }
             }
-            return calendar
+            if (slots.contactFirstWord == null) slots.contactFirstWord = w.capitalize()
         }
+    }
 
+    private fun <T> matchPhrase(table: Map<String, List<Phrase<T>>>, words: List<String>, i: Int): Phrase<T>? {
+        val candidates = table[words[i]] ?: return null
+        for (phrase in candidates) {
+            if (i + phrase.words.size > words.size) continue
+            var matches = true
+            for (k in 1 until phrase.words.size) {
+                if (words[i + k] != phrase.words[k]) {
+                    matches = false
+                    break
+                }
+            }
+            if (matches) return phrase
+        }
         return null
     }
 
-    /**
-     * Updated to return raw number without pre-converting seconds to minutes
-     */
-    private fun extractDuration(text: String): Int? {
-        val lowerText = text.lowercase()
-        val numberPattern = Regex("(\\d+)")
-        val match = numberPattern.find(lowerText)
-        return match?.groupValues?.get(1)?.toInt()
+    private fun meridiemAt(token: Token?): Boolean? = when (token?.text) {
+        "am" -> false
+        "pm" -> true
+        else -> null
     }
 
-    private fun extractAppName(text: String): String? {
-        val lowerText = text.lowercase()
-        val cleaned = lowerText
-            .replace(Regex("(open|launch|start|run)\\s+"), "")
-            .trim()
-
-        return when {
-            cleaned.contains("whatsapp") -> "WhatsApp"
-            cleaned.contains("youtube") -> "YouTube"
-            cleaned.contains("maps") || cleaned.contains("google maps") -> "Google Maps"
-            cleaned.contains("gmail") -> "Gmail"
-            cleaned.contains("facebook") -> "Facebook"
-            cleaned.contains("instagram") -> "Instagram"
-            cleaned.contains("chrome") -> "Chrome"
-            cleaned.contains("spotify") -> "Spotify"
-            cleaned.contains("messenger") -> "Messenger"
-            cleaned.contains("twitter") -> "Twitter"
-            cleaned.contains("telegram") -> "Telegram"
-            cleaned.contains("linkedin") -> "LinkedIn"
-            cleaned.contains("netflix") -> "Netflix"
-            else -> cleaned.split(" ").firstOrNull()?.capitalize()
+    private fun dayPartAhead(tokens: List<Token>, from: Int): Boolean? {
+        for (k in from until minOf(tokens.size, from + 3)) {
+            val w = tokens[k].text
+            if (w in AM) return false
+            if (w in PM) return true
         }
+        return null
     }
 
-    private fun extractMedicationName(text: String): String? {
-        val lowerText = text.lowercase()
-        // Remove common words to isolate the med name
-        val cleaned = lowerText
-            .replace(Regex("(i took|took|take|add|medicine|pill|medication|tablet|my)\\s+"), "")
-            .trim()
+    private fun wordBefore(tokens: List<Token>, i: Int): String? = tokens.getOrNull(i - 1)?.text
 
-        // Return first word as the medication name (e.g. "Metformin")
-        return cleaned.split(" ").firstOrNull()?.capitalize()
-    }
+    private fun remainder(tokens: List<Token>, skip: Set<String>): String? =
+        tokens.filter { it.text !in skip }.joinToString(" ") { it.text }.takeIf { it.isNotEmpty() }
 
     /**
-     * Extracts dosage including full words (milligrams, tablets, etc.)
+     * Next occurrence of the scanned time; handles 24-hour clocks, am/pm and day parts.
      */
-    private fun extractDosage(text: String): String? {
-        val lowerText = text.lowercase()
+    private fun buildTime(slots: Slots): Calendar? {
+        if (slots.hour < 0) return null
+        var hour = slots.hour
+        val pm = slots.meridiem ?: slots.dayPart.takeIf { hour in 1..12 }
+        if (pm == true && hour < 12) hour += 12
+        if (pm == false && hour == 12) hour = 0
 
-        // Regex matches:
-        // 1. Number (int or decimal)
-        // 2. Optional space
-        // 3. Unit (mg, milligrams, tablet, etc.)
-        val dosagePattern = Regex("(\\d+(\\.\\d+)?)\\s*(mg|milligrams?|g|grams?|ml|milliliters?|mcg|micrograms?|tablets?|pills?|capsules?|drops?)")
-
-        val match = dosagePattern.find(lowerText)
-        return match?.value
-    }
-
-    private fun extractFrequency(text: String): MedicationFrequency? {
-        val lowerText = text.lowercase()
-        return when {
-            lowerText.contains("daily") || lowerText.contains("every day") -> MedicationFrequency.DAILY
-            lowerText.contains("weekly") || lowerText.contains("every week") -> MedicationFrequency.WEEKLY
-            lowerText.contains("monthly") || lowerText.contains("every month") -> MedicationFrequency.MONTHLY
-            lowerText.contains("needed") || lowerText.contains("pain") -> MedicationFrequency.AS_NEEDED
-            else -> null
-        }
-    }
-
-    private fun extractLocation(text: String): String? {
-        val lowerText = text.lowercase()
-        val cleaned = lowerText
-            .replace(Regex("(nearest|nearby|find|search|locate)\\s+"), "")
-            .trim()
-
-        return when {
-            cleaned.contains("hospital") -> "hospital"
-            cleaned.contains("pharmacy") || cleaned.contains("medical store") -> "pharmacy"
-            cleaned.contains("clinic") -> "clinic"
-            cleaned.contains("doctor") -> "doctor"
-            cleaned.contains("emergency") -> "emergency room"
-            else -> cleaned
-        }
-    }
+        val now = Calendar.getInstance()
+        val calendar = Calendar.getInstance()
+        calendar.set(Calendar.HOUR_OF_DAY, hour)
+        calendar.set(Calendar.MINUTE, slots.minute)
+        calendar.set(Calendar.SECOND, 0)
 
-    /**
-     * NEW: Helper for Ride Booking
-     */
-    private fun extractDestination(text: String): String? {
-        val lowerText = text.lowercase()
-
-        // Check for saved places keywords
-        if (lowerText.contains("home")) return "home"
-        if (lowerText.contains("doctor") || lowerText.contains("clinic") || lowerText.contains("hospital")) return "doctor"
-        if (lowerText.contains("pharmacy") || lowerText.contains("chemist") || lowerText.contains("drug store")) return "pharmacy"
-
-        // Extract general destination using "to"
-        // e.g. "Ride to the mall" -> "the mall"
-        val toPattern = Regex("(to|goto)\\s+(.+)")
-        val match = toPattern.find(lowerText)
-        if (match != null) {
-            return match.groupValues[2].trim()
+        // If time has passed today (or the user said tomorrow), schedule for tomorrow
+        if (calendar.before(now) || slots.tomorrow) {
+            calendar.add(Calendar.DAY_OF_YEAR, 1)
         }
-
-        return null
-    }
-
-    private fun extractNumber(text: String): Int? {
-        val numberPattern = Regex("(\\d+)")
-        val match = numberPattern.find(text)
-        return match?.groupValues?.get(1)?.toIntOrNull()
+        return calendar
     }
 
     private fun String.capitalize(): String {
         return replaceFirstChar { if (it.isLowerCase()) it.titlecase() else it.toString() }
     }
-}
\ No newline at end of file
+}
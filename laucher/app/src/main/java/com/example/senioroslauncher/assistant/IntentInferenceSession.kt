@@ -0,0 +1,263 @@
+package com.example.senioroslauncher.assistant
+
+import android.content.Context
+import android.util.Log
+import com.google.gson.Gson
+import com.google.gson.reflect.TypeToken
+import org.tensorflow.lite.Interpreter
+import org.tensorflow.lite.flex.FlexDelegate
+import java.io.FileInputStream
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+import java.nio.MappedByteBuffer
+import java.nio.channels.FileChannel
+
+/**
+ * Loaded intent model plus everything reused between inferences: the interpreter, the
+ * tokenizer vocabulary and direct input/output buffers (one pair per batch size, allocated
+ * on first use). One instance per process ([getInstance]), loaded and warmed up in the
+ * background at app start so the first voice command doesn't pay for it.
+ *
+ * All inference methods are synchronized; the interpreter and buffers are not thread-safe.
+ */
+class IntentInferenceSession private constructor(private val context: Context) {
+
+    /**
+     * Top intent for one input.
+     */
+    class Prediction(
+        val intentIndex: Int,
+        val intent: String,
+        val confidence: Float
+    )
+
+    companion object {
+        private const val TAG = "IntentInferenceSession"
+        private const val MODEL_PATH = "models/intent_classifier.tflite"
+        private const val TOKENIZER_PATH = "models/tokenizer.json"
+        private const val INTENT_MAPPING_PATH = "models/intent_mapping.json"
+        const val MAX_LENGTH = 64
+        const val MAX_BATCH = 8
+        private const val VOCAB_SIZE = 5000
+        private const val WARM_UP_TEXT = "what time is it"
+
+        @Volatile
+        private var INSTANCE: IntentInferenceSession? = null
+
+        fun getInstance(context: Context): IntentInferenceSession {
+            return INSTANCE ?: synchronized(this) {
+                INSTANCE ?: IntentInferenceSession(context.applicationContext).also { INSTANCE = it }
+            }
+        }
+
+        /**
+         * A session outside the shared instance, for measuring cold start. Close it when done.
+         */
+        internal fun createDetached(context: Context) = IntentInferenceSession(context.applicationContext)
+
+        /**
+         * Interpreter threads: the model is small, so past a few threads synchronisation costs
+         * more than it saves, and little cores should be left to the UI.
+         */
+        fun threadCount(): Int = (Runtime.getRuntime().availableProcessors() / 2).coerceIn(1, 4)
+    }
+
+    private var interpreter: Interpreter? = null
+    private var flexDelegate: FlexDelegate? = null // Owned here; the interpreter doesn't close it
+    private val tokenizer = HashMap<String, Int>()
+    private var intents: Array<String> = emptyArray()
+    private var loadFailure: Exception? = null
+
+    private val inputBuffers = arrayOfNulls<ByteBuffer>(MAX_BATCH + 1)
+    private val outputBuffers = arrayOfNulls<ByteBuffer>(MAX_BATCH + 1)
+    private var currentBatch = 1
+
+    val isReady: Boolean get() = interpreter != null
+    val intentCount: Int get() = intents.size
+
+    /**
+     * Load the model if it isn't yet. Safe to call repeatedly; a failed load is not retried.
+     */
+    @Synchronized
+    fun ensureLoaded(): Result<Unit> {
+        if (interpreter != null) return Result.success(Unit)
+        loadFailure?.let { return Result.failure(it) }
+
+        var delegate: FlexDelegate? = null
+        var loaded: Interpreter? = null
+        return try {
+            // The model uses select TF ops
+            delegate = FlexDelegate()
+            val options = Interpreter.Options().apply {
+                setNumThreads(threadCount())
+                addDelegate(delegate)
+            }
+            loaded = Interpreter(loadModelFile(), options)
+            loadTokenizer()
+            loadIntentMapping()
+            interpreter = loaded
+            flexDelegate = delegate
+            Log.d(TAG, "✓ Model loaded: ${intents.size} intents, ${tokenizer.size} words, ${threadCount()} threads")
+            Result.success(Unit)
+        } catch (e: Exception) {
+            Log.e(TAG, "Failed to load intent model", e)
+            loaded?.close()
+            delegate?.close()
+            loadFailure = e
+            Result.failure(e)
+        }
+    }
+
+    /**
+     * Load and run one throwaway inference so kernels, delegate and buffers are initialised
+     * before the first real command. Blocking; call from a background thread.
+     */
+    fun warmUp() {
+        val start = System.nanoTime()
+        if (ensureLoaded().isFailure) return
+        predict(listOf(IntentClassifier.preprocessText(WARM_UP_TEXT)))
+        Log.d(TAG, "Warm-up done in ${(System.nanoTime() - start) / 1_000_000}ms")
+    }
+
+    /**
+     * Classify already-preprocessed texts (see [IntentClassifier.preprocessText]) in one
+     * inference per [MAX_BATCH] inputs. Returns null if the model isn't loaded.
+     * With [scoresOut], each input's full score vector is also copied out.
+     */
+    @Synchronized
+    fun predict(texts: List<String>, scoresOut: Array<FloatArray>? = null): List<Prediction>? {
+        val interpreter = interpreter ?: return null
+        val predictions = ArrayList<Prediction>(texts.size)
+
+        var offset = 0
+        while (offset < texts.size) {
+            val batch = minOf(MAX_BATCH, texts.size - offset)
+            resizeIfNeeded(interpreter, batch)
+
+            val input = inputBuffer(batch)
+            for (i in 0 until batch) writeTokens(input, texts[offset + i])
+            input.rewind()
+
+            val output = outputBuffer(batch)
+            output.rewind()
+            interpreter.run(input, output)
+            output.rewind()
+
+            val scores = output.asFloatBuffer()
+            for (i in 0 until batch) {
+                val base = i * intents.size
+                var best = 0
+                var bestScore = Float.NEGATIVE_INFINITY
+                for (j in intents.indices) {
+                    val score = scores.get(base + j)
+                    if (score > bestScore) {
+                        bestScore = score
+                        best = j
+                    }
+                }
+                scoresOut?.getOrNull(offset + i)?.let { out ->
+                    for (j in 0 until minOf(out.size, intents.size)) out[j] = scores.get(base + j)
+                }
+                predictions.add(Prediction(best, intents[best], bestScore))
+            }
+            offset += batch
+        }
+        return predictions
+    }
+
+    fun intentName(index: Int): String = intents.getOrElse(index) { "UNKNOWN" }
+
+    @Synchronized
+    fun close() {
+        interpreter?.close()
+        interpreter = null
+        // After the interpreter, which still references the delegate until closed
+        flexDelegate?.close()
+        flexDelegate = null
+        inputBuffers.fill(null)
+        outputBuffers.fill(null)
+    }
+
+    private fun resizeIfNeeded(interpreter: Interpreter, batch: Int) {
+        if (batch == currentBatch) return
+        interpreter.resizeInput(0, intArrayOf(batch, MAX_LENGTH))
+        interpreter.allocateTensors()
+        currentBatch = batch
+    }
+
+    private fun inputBuffer(batch: Int): ByteBuffer {
+        val buffer = inputBuffers[batch] ?: ByteBuffer.allocateDirect(batch * MAX_LENGTH * 4)
+            .order(ByteOrder.nativeOrder())
+            .also { inputBuffers[batch] = it }
+        buffer.clear()
+        return buffer
+    }
+
+    private fun outputBuffer(batch: Int): ByteBuffer {
+        return outputBuffers[batch] ?: ByteBuffer.allocateDirect(batch * intents.size * 4)
+            .order(ByteOrder.nativeOrder())
+            .also { outputBuffers[batch] = it }
+    }
+
+    /**
+     * Token ids of [text]'s known words, padded with zeros to [MAX_LENGTH] (post-padding,
+     * as in training).
+     */
+    private fun writeTokens(buffer: ByteBuffer, text: String) {
+        var written = 0
+        var start = 0
+        while (start < text.length && written < MAX_LENGTH) {
+            var end = text.indexOf(' ', start)
+            if (end < 0) end = text.length
+            if (end > start) {
+                val id = tokenizer[text.substring(start, end)]
+                if (id != null && id < VOCAB_SIZE) {
+                    buffer.putInt(id)
+                    written++
+                }
+            }
+            start = end + 1
+        }
+        while (written < MAX_LENGTH) {
+            buffer.putInt(0)
+            written++
+        }
+    }
+
+    private fun loadModelFile(): MappedByteBuffer {
+        context.assets.openFd(MODEL_PATH).use { fileDescriptor ->
+            FileInputStream(fileDescriptor.fileDescriptor).use { inputStream ->
+                return inputStream.channel.map(
+                    FileChannel.MapMode.READ_ONLY,
+                    fileDescriptor.startOffset,
+                    fileDescriptor.declaredLength
+                )
+            }
+        }
+    }
+
+    private fun loadTokenizer() {
+        val json = context.assets.open(TOKENIZER_PATH).bufferedReader().use { it.readText() }
+        val type = object : TypeToken<Map<String, Any>>() {}.type
+        val tokenizerJson: Map<String, Any> = Gson().fromJson(json, type)
+
+        @Suppress("UNCHECKED_CAST")
+        val wordIndex = tokenizerJson["word_index"] as? Map<String, Double> ?: return
+
+        wordIndex.forEach { (word, index) ->
+            tokenizer[word] = index.toInt()
+        }
+    }
+
+    private fun loadIntentMapping() {
+        val json = context.assets.open(INTENT_MAPPING_PATH).bufferedReader().use { it.readText() }
+        val type = object : TypeToken<Map<String, String>>() {}.type
+        val mappingJson: Map<String, String> = Gson().fromJson(json, type)
+
+        val mapped = Array(mappingJson.size) { "UNKNOWN" }
+        mappingJson.forEach { (key, value) ->
+            key.toIntOrNull()?.takeIf { it in mapped.indices }?.let { mapped[it] = value }
+        }
+        intents = mapped
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.senioroslauncher.assistant
+
+/**
+ * LRU cache of accepted intent results, looked up by the exact utterance first and then by
+ * its normalized phrase (see [normalize]), so "Turn on the flashlight, please." hits the
+ * entry stored for "turn on flashlight".
+ *
+ * Only the intent is cached; entities (times, names) are always extracted from the current
+ * utterance.
+ */
+class IntentResultCache(private val maxEntries: Int = 128) {
+
+    data class Entry(val intent: String, val confidence: Float)
+
+    enum class Hit { EXACT, NORMALIZED }
+
+    companion object {
+        // Dropped from the normalized phrase; they never change what the user asked for
+        private val FILLER_WORDS = setOf(
+            "please", "kindly", "just", "the", "a", "an", "um", "uh", "umm", "hmm"
+        )
+
+        /**
+         * Model preprocessing plus filler-word removal.
+         */
+        fun normalize(text: String): String {
+            val processed = IntentClassifier.preprocessText(text)
+            if (processed.isEmpty()) return processed
+            return processed.split(' ')
+                .filter { it !in FILLER_WORDS }
+                .joinToString(" ")
+        }
+    }
+
+    private val exact = lru()
+    private val normalized = lru()
+
+    @Synchronized
+    fun get(text: String, normalizedText: String): Pair<Entry, Hit>? {
+        exact[text]?.let { return it to Hit.EXACT }
+        normalized[normalizedText]?.let {
+            exact[text] = it
+            return it to Hit.NORMALIZED
+        }
+        return null
+    }
+
+    @Synchronized
+    fun put(text: String, normalizedText: String, entry: Entry) {
+        exact[text] = entry
+        if (normalizedText.isNotEmpty()) normalized[normalizedText] = entry
+    }
+
+    @Synchronized
+    fun clear() {
+        exact.clear()
+        normalized.clear()
+    }
+
+    private fun lru() = object : LinkedHashMap<String, Entry>(16, 0.75f, true) {
+        override fun removeEldestEntry(eldest: MutableMap.MutableEntry<String, Entry>?): Boolean =
+            size > maxEntries
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.senioroslauncher.assistant
+
+/**
+ * Fast path for unambiguous command phrases, checked before the TFLite model.
+ *
+ * Phrases are stored in a word trie and matched against the normalized utterance
+ * ([IntentResultCache.normalize]). The longest matching phrase wins; if phrases of two
+ * different intents tie, or a negation precedes the match ("don't turn on the flashlight"),
+ * there is no fast-path result and the model decides. Phrases starting with '=' only match
+ * the whole utterance, for short ones like "hello" that would otherwise fire inside longer
+ * requests; phrases starting with '^' only match at the start of the utterance, for ones that
+ * must not fire when merely mentioned ("my sister said i fell down" is not an SOS).
+ */
+class KeywordIntentMatcher(phrases: Map<String, List<String>> = DEFAULT_PHRASES) {
+
+    data class Match(val intent: String, val phrase: String)
+
+    private class Node {
+        val children = HashMap<String, Node>()
+        var intent: String? = null
+        var phrase: String? = null
+        var wholeUtterance = false
+        var atStart = false
+    }
+
+    companion object {
+        const val KEYWORD_CONFIDENCE = 0.95f
+
+        // "stop"/"cancel" are left out: they are commands themselves ("stop timer")
+        private val NEGATIONS = setOf("dont", "not", "never", "no")
+
+        // Written in normalized form: lowercase, no punctuation, no filler words ("the", "a")
+        val DEFAULT_PHRASES: Map<String, List<String>> = mapOf(
+            "FLASHLIGHT_ON" to listOf(
+                "turn on flashlight", "switch on flashlight", "flashlight on",
+                "turn on torch", "switch on torch", "torch on"
+            ),
+            "FLASHLIGHT_OFF" to listOf(
+                "turn off flashlight", "switch off flashlight", "flashlight off",
+                "turn off torch", "switch off torch", "torch off"
+            ),
+            "QUERY_TIME" to listOf("what time is it", "whats time", "what is time", "tell me time", "current time"),
+            "QUERY_DATE" to listOf("what is date", "whats date", "what day is it", "todays date", "what is todays date"),
+            "CHECK_BATTERY" to listOf("battery level", "how much battery", "battery percentage", "check battery"),
+            "OPEN_CAMERA" to listOf("open camera"),
+            "TAKE_SELFIE" to listOf("take selfie", "take my selfie"),
+            "RECORD_VIDEO" to listOf("record video", "record my video"),
+            "OPEN_GALLERY" to listOf("open gallery", "open photos", "show my photos"),
+            "OPEN_SETTINGS" to listOf("open settings"),
+            "READ_NOTIFICATIONS" to listOf("read notifications", "read my notifications"),
+            "SCREEN_LOCK" to listOf("lock screen", "lock phone", "lock my phone"),
+            "FIND_PHONE" to listOf("find my phone", "where is my phone"),
+            "REPEAT_LAST" to listOf("repeat that", "say that again", "repeat last"),
+            "DO_NOT_DISTURB" to listOf("do not disturb"),
+            "SET_ALARM" to listOf("set alarm", "wake me up"),
+            "SET_TIMER" to listOf("set timer", "start timer"),
+            "VOLUME_CONTROL" to listOf(
+                "volume up", "volume down", "increase volume", "decrease volume",
+                "turn up volume", "turn down volume"
+            ),
+            "BRIGHTNESS_CONTROL" to listOf(
+                "brightness up", "brightness down", "increase brightness", "decrease brightness"
+            ),
+            "MEDICATION_LIST_TODAY" to listOf(
+                "my medicines today", "my medications today", "todays medicines", "todays medications"
+            ),
+            "MEDICATION_LOG_TAKEN" to listOf(
+                "i took my medicine", "i took my medication", "i took my pills",
+                "i have taken my medicine", "i have taken my medication"
+            ),
+            "MEDICATION_HISTORY" to listOf("medication history", "medicine history"),
+            "APPOINTMENT_LIST" to listOf("my appointments", "upcoming appointments", "list appointments"),
+            "HEALTH_CHECKIN_START" to listOf("health checkin", "health check in", "daily checkin"),
+            "HEALTH_SUMMARY" to listOf("health summary"),
+            "QA_WEATHER" to listOf("weather today", "whats weather", "how is weather", "weather forecast"),
+            "QA_NEWS" to listOf("latest news", "todays news", "read news"),
+            "SOS_TRIGGER" to listOf("^sos", "^emergency help", "^i fell down", "^i have fallen"),
+            "SMALL_TALK_GREET" to listOf("=hello", "=hi", "=good morning", "=good afternoon", "=good evening"),
+            "SMALL_TALK_THANKS" to listOf("=thanks", "=thank you", "=thank you very much"),
+            "SMALL_TALK_GOODBYE" to listOf("=bye", "=goodbye", "=good night"),
+            "SMALL_TALK_JOKE" to listOf("tell me joke", "tell joke"),
+            "SMALL_TALK_HELP" to listOf("what can you do")
+        )
+    }
+
+    private val root = Node()
+
+    init {
+        phrases.forEach { (intent, list) -> list.forEach { add(intent, it) } }
+    }
+
+    private fun add(intent: String, phrase: String) {
+        val wholeUtterance = phrase.startsWith("=")
+        val atStart = phrase.startsWith("^")
+        val text = phrase.removePrefix("=").removePrefix("^")
+        var node = root
+        for (word in text.split(' ')) {
+            node = node.children.getOrPut(word) { Node() }
+        }
+        node.intent = intent
+        node.phrase = text
+        node.wholeUtterance = wholeUtterance
+        node.atStart = atStart
+    }
+
+    /**
+     * Match an utterance already normalized with [IntentResultCache.normalize].
+     */
+    fun match(normalizedText: String): Match? {
+        if (normalizedText.isEmpty()) return null
+        val words = normalizedText.split(' ')
+
+        var best: Node? = null
+        var bestStart = 0
+        var bestLength = 0
+        var ambiguous = false
+
+        for (start in words.indices) {
+            var node = root
+            var i = start
+            while (i < words.size) {
+                node = node.children[words[i]] ?: break
+                i++
+                val intent = node.intent ?: continue
+                if (node.wholeUtterance && (start != 0 || i != words.size)) continue
+                if (node.atStart && start != 0) continue
+
+                val length = i - start
+                if (length > bestLength) {
+                    best = node
+                    bestStart = start
+                    bestLength = length
+                    ambiguous = false
+                } else if (length == bestLength && best?.intent != intent) {
+                    ambiguous = true
+                }
+            }
+        }
+
+        val match = best ?: return null
+        if (ambiguous) return null
+        for (i in 0 until bestStart) {
+            if (words[i] in NEGATIONS) return null
+        }
+        return Match(match.intent!!, match.phrase!!)
+    }
+}
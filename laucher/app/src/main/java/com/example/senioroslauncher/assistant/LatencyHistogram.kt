@@ -0,0 +1,75 @@
+package com.example.senioroslauncher.assistant
+
+import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.atomic.AtomicLongArray
+
+/**
+ * Fixed-size latency histogram with power-of-two microsecond buckets (1us .. ~33s).
+ * Recording is lock-free and allocation-free; percentiles are bucket upper bounds,
+ * so they are accurate to within a factor of two.
+ */
+class LatencyHistogram(val name: String) {
+
+    companion object {
+        private const val BUCKETS = 26 // bucket i counts samples below 2^i microseconds
+    }
+
+    private val counts = AtomicLongArray(BUCKETS)
+    private val total = AtomicLong()
+    private val sumNanos = AtomicLong()
+    private val maxNanos = AtomicLong()
+
+    val count: Long get() = total.get()
+
+    fun record(nanos: Long) {
+        val micros = (nanos / 1000).coerceAtLeast(0)
+        val bucket = (64 - java.lang.Long.numberOfLeadingZeros(micros)).coerceAtMost(BUCKETS - 1)
+        counts.incrementAndGet(bucket)
+        total.incrementAndGet()
+        sumNanos.addAndGet(nanos)
+        maxNanos.accumulateAndGet(nanos) { a, b -> maxOf(a, b) }
+    }
+
+    /**
+     * Times [block] and records it.
+     */
+    inline fun <T> time(block: () -> T): T {
+        val start = System.nanoTime()
+        try {
+            return block()
+        } finally {
+            record(System.nanoTime() - start)
+        }
+    }
+
+    /**
+     * Upper bound of the bucket holding the [percentile] (0..100), in milliseconds.
+     */
+    fun percentileMs(percentile: Double): Double {
+        val n = total.get()
+        if (n == 0L) return 0.0
+        val rank = Math.ceil(n * percentile / 100.0).toLong().coerceAtLeast(1)
+        var seen = 0L
+        for (i in 0 until BUCKETS) {
+            seen += counts.get(i)
+            if (seen >= rank) return (1L shl i) / 1000.0
+        }
+        return maxNanos.get() / 1_000_000.0
+    }
+
+    fun reset() {
+        for (i in 0 until BUCKETS) counts.set(i, 0)
+        total.set(0)
+        sumNanos.set(0)
+        maxNanos.set(0)
+    }
+
+    fun summary(): String {
+        val n = total.get()
+        if (n == 0L) return "$name: n=0"
+        val mean = sumNanos.get() / n / 1_000_000.0
+        return "$name: n=$n mean=${"%.2f".format(mean)}ms p50<=${percentileMs(50.0)}ms " +
+            "p90<=${percentileMs(90.0)}ms p99<=${percentileMs(99.0)}ms " +
+            "max=${"%.2f".format(maxNanos.get() / 1_000_000.0)}ms"
+    }
+}
@@ -0,0 +1,200 @@
+package com.example.senioroslauncher.assistant
+
+import android.util.Log
+import java.util.EnumMap
+import kotlin.math.sqrt
+
+/**
+ * Local-first intent resolution, cheapest stage first:
+ * 1. [IntentResultCache] - exact utterance, then normalized phrase
+ * 2. [KeywordIntentMatcher] - trie of unambiguous command phrases
+ * 3. [IntentClassifier] - TFLite model
+ *
+ * Several speech hypotheses can be resolved at once ([classifyHypotheses]), and partial
+ * transcripts can be classified without side effects while the user speaks ([speculate]).
+ * Callers escalate to the network ([IntentRefinementService]) only when the result is below
+ * [IntentClassifier.CONFIDENCE_THRESHOLD], and feed accepted refinements back through
+ * [remember] so the phrase is answered locally next time. Each stage keeps a latency histogram.
+ */
+class LocalIntentPipeline(
+    private val classifier: IntentClassifier,
+    private val cache: IntentResultCache = IntentResultCache(),
+    private val matcher: KeywordIntentMatcher = KeywordIntentMatcher()
+) {
+    enum class Stage { CACHE, KEYWORD, MODEL, REFINEMENT }
+
+    /**
+     * One speech recognition alternative; [speechConfidence] <= 0 means the recognizer gave none.
+     */
+    data class Hypothesis(val text: String, val speechConfidence: Float)
+
+    data class Ranked(
+        val hypothesisIndex: Int,
+        val text: String,
+        val result: LocalResult,
+        val jointScore: Float
+    )
+
+    data class LocalResult(
+        val intent: String,
+        val confidence: Float,
+        val stage: Stage
+    ) {
+        val isAboveThreshold: Boolean
+            get() = confidence >= IntentClassifier.CONFIDENCE_THRESHOLD &&
+                intent != "UNKNOWN" && intent != "ERROR"
+    }
+
+    companion object {
+        private const val TAG = "LocalIntentPipeline"
+        private const val REFINED_CONFIDENCE = 0.90f
+        private const val RANK_DECAY = 0.8f
+    }
+
+    private val histograms = EnumMap<Stage, LatencyHistogram>(Stage::class.java).apply {
+        Stage.values().forEach { put(it, LatencyHistogram(it.name.lowercase())) }
+    }
+    private val totalHistogram = LatencyHistogram("local_total")
+    private val speculativeHistogram = LatencyHistogram("speculative")
+
+    /**
+     * Resolve [text] locally. Blocking (the model stage runs inference); call off the main thread.
+     */
+    fun classify(text: String): LocalResult = classifyHypotheses(listOf(Hypothesis(text, 1f))).result
+
+    /**
+     * Resolve speech recognition alternatives (best first) and pick the best
+     * (hypothesis, intent) pair. Hypotheses the cache or keyword matcher can't answer are
+     * classified together in one batched inference.
+     *
+     * Among hypotheses whose intent clears the threshold, the highest [jointScore] wins; if
+     * none does, the top hypothesis is returned so the caller escalates with it.
+     */
+    fun classifyHypotheses(hypotheses: List<Hypothesis>): Ranked {
+        val start = System.nanoTime()
+        try {
+            return rank(hypotheses, cacheResult = true)
+        } finally {
+            totalHistogram.record(System.nanoTime() - start)
+        }
+    }
+
+    /**
+     * Classify a partial transcript while the user is still speaking. Same stages as
+     * [classify], but nothing is cached (a half-finished sentence is not a phrase worth
+     * remembering) and the end-to-end time goes to its own histogram, not the total.
+     */
+    fun speculate(text: String): LocalResult =
+        speculativeHistogram.time { rank(listOf(Hypothesis(text, 1f)), cacheResult = false).result }
+
+    /**
+     * Cache a [speculate] result that turned out to be the final utterance.
+     */
+    fun accept(text: String, result: LocalResult) {
+        if (result.stage == Stage.CACHE || !result.isAboveThreshold) return
+        cache.put(text, IntentResultCache.normalize(text), IntentResultCache.Entry(result.intent, result.confidence))
+    }
+
+    private fun rank(hypotheses: List<Hypothesis>, cacheResult: Boolean): Ranked {
+        require(hypotheses.isNotEmpty()) { "no hypotheses" }
+        val normalized = hypotheses.map { IntentResultCache.normalize(it.text) }
+        val results = arrayOfNulls<LocalResult>(hypotheses.size)
+
+        for (i in hypotheses.indices) {
+            results[i] = resolveCheaply(hypotheses[i].text, normalized[i])
+        }
+
+        val pending = hypotheses.indices.filter { results[it] == null }
+        if (pending.isNotEmpty()) {
+            val predictions = histogram(Stage.MODEL).time {
+                classifier.classifyBatch(pending.map { hypotheses[it].text })
+            }
+            pending.forEachIndexed { k, i ->
+                results[i] = LocalResult(predictions[k].intent, predictions[k].confidence, Stage.MODEL)
+            }
+        }
+
+        val weights = speechWeights(hypotheses)
+        var best = -1
+        var bestScore = 0f
+        for (i in hypotheses.indices) {
+            val result = results[i]!!
+            if (!result.isAboveThreshold) continue
+            val score = jointScore(result.confidence, weights[i])
+            if (best < 0 || score > bestScore) {
+                best = i
+                bestScore = score
+            }
+        }
+
+        if (best < 0) {
+            val top = results[0]!!
+            return Ranked(0, hypotheses[0].text, top, jointScore(top.confidence, weights[0]))
+        }
+
+        val chosen = results[best]!!
+        if (best > 0) {
+            Log.d(TAG, "Reranked: '${hypotheses[best].text}' (#$best) -> ${chosen.intent} over '${hypotheses[0].text}' -> ${results[0]!!.intent}")
+        }
+        if (cacheResult && chosen.stage != Stage.CACHE) {
+            cache.put(hypotheses[best].text, normalized[best], IntentResultCache.Entry(chosen.intent, chosen.confidence))
+        }
+        return Ranked(best, hypotheses[best].text, chosen, bestScore)
+    }
+
+    private fun resolveCheaply(text: String, normalized: String): LocalResult? {
+        val cached = histogram(Stage.CACHE).time { cache.get(text, normalized) }
+        if (cached != null) {
+            val (entry, hit) = cached
+            Log.d(TAG, "Cache hit ($hit): '$text' -> ${entry.intent}")
+            return LocalResult(entry.intent, entry.confidence, Stage.CACHE)
+        }
+
+        val keyword = histogram(Stage.KEYWORD).time { matcher.match(normalized) }
+        if (keyword != null) {
+            Log.d(TAG, "Keyword match '${keyword.phrase}': '$text' -> ${keyword.intent}")
+            return LocalResult(keyword.intent, KeywordIntentMatcher.KEYWORD_CONFIDENCE, Stage.KEYWORD)
+        }
+        return null
+    }
+
+    /**
+     * Recognizers often report a confidence only for the top result (others 0 or missing);
+     * those get the top weight decayed by rank.
+     */
+    private fun speechWeights(hypotheses: List<Hypothesis>): FloatArray {
+        val top = hypotheses[0].speechConfidence.takeIf { it > 0f } ?: 1f
+        var rankWeight = top
+        return FloatArray(hypotheses.size) { i ->
+            val reported = hypotheses[i].speechConfidence
+            val weight = if (reported > 0f) reported else rankWeight
+            rankWeight *= RANK_DECAY
+            weight
+        }
+    }
+
+    /**
+     * Intent confidence weighted by the square root of the speech weight, so a clearly
+     * understood second hypothesis can beat an ambiguous first one without the recognizer's
+     * ranking being ignored.
+     */
+    private fun jointScore(intentConfidence: Float, speechWeight: Float): Float =
+        intentConfidence * sqrt(speechWeight.coerceIn(0f, 1f))
+
+    /**
+     * Times a network refinement call into the [Stage.REFINEMENT] histogram.
+     */
+    inline fun <T> timeRefinement(block: () -> T): T = histogram(Stage.REFINEMENT).time(block)
+
+    /**
+     * Cache an intent the network resolved for [text], so repeating it stays local.
+     */
+    fun remember(text: String, intent: String) {
+        cache.put(text, IntentResultCache.normalize(text), IntentResultCache.Entry(intent, REFINED_CONFIDENCE))
+    }
+
+    fun histogram(stage: Stage): LatencyHistogram = histograms.getValue(stage)
+
+    fun latencySummary(): String =
+        (histograms.values + totalHistogram + speculativeHistogram).joinToString("; ") { it.summary() }
+}
@@ -8,19 +8,15 @@ import android.speech.RecognizerIntent
 import android.speech.SpeechRecognizer
 import android.speech.tts.TextToSpeech
 import android.util.Log
-import com.google.mlkit.common.model.DownloadConditions
 import com.google.mlkit.nl.languageid.LanguageIdentification
 import com.google.mlkit.nl.translate.TranslateLanguage
-import com.google.mlkit.nl.translate.Translation
-import com.google.mlkit.nl.translate.Translator
-import com.google.mlkit.nl.translate.TranslatorOptions
 import kotlinx.coroutines.CoroutineScope
 import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.async
+import kotlinx.coroutines.awaitAll
 import kotlinx.coroutines.launch
-import kotlinx.coroutines.suspendCancellableCoroutine
 import kotlinx.coroutines.withContext
 import java.util.*
-import kotlin.coroutines.resume
 
 /**
  * Handles multilingual speech recognition, translation, and text-to-speech.
@@ -31,11 +27,13 @@ class MultilingualManager(private val context: Context) {
     private var speechRecognizer: SpeechRecognizer? = null
     private var tts: TextToSpeech? = null
     private val languageIdentifier = LanguageIdentification.getClient()
-    private val translators = mutableMapOf<String, Translator>()
+    private val translatorPool = TranslatorPool.getInstance()
     private val scope = CoroutineScope(Dispatchers.Main)
 
     companion object {
         private const val TAG = "MultilingualManager"
+        private const val MAX_HYPOTHESES = 5
+        private const val MAX_TRANSLATED_HYPOTHESES = 3 // Each alternative costs a translation
 
         // Map short codes to configuration
         // FIX: Replaced TranslateLanguage constants with string literals to avoid version errors
@@ -58,6 +56,17 @@ class MultilingualManager(private val context: Context) {
         val text: String,
         val detectedLanguage: String,
         val translatedToEnglish: String,
+        val confidence: Float,
+        // All recognizer alternatives, best first (the first one is the fields above)
+        val hypotheses: List<Hypothesis> = emptyList()
+    )
+
+    /**
+     * One recognizer alternative. [confidence] is 0 when the recognizer didn't score it.
+     */
+    data class Hypothesis(
+        val text: String,
+        val translatedToEnglish: String,
         val confidence: Float
     )
 
@@ -113,7 +122,7 @@ class MultilingualManager(private val context: Context) {
             putExtra(RecognizerIntent.EXTRA_ONLY_RETURN_LANGUAGE_PREFERENCE, targetLocale)
 
             putExtra(RecognizerIntent.EXTRA_PARTIAL_RESULTS, true)
-            putExtra(RecognizerIntent.EXTRA_MAX_RESULTS, 1)
+            putExtra(RecognizerIntent.EXTRA_MAX_RESULTS, MAX_HYPOTHESES)
         }
 
         speechRecognizer?.setRecognitionListener(object : RecognitionListener {
@@ -137,13 +146,15 @@ class MultilingualManager(private val context: Context) {
                 val confidences = results?.getFloatArray(SpeechRecognizer.CONFIDENCE_SCORES)
 
                 if (!matches.isNullOrEmpty()) {
-                    val text = matches[0]
-                    val confidence = confidences?.getOrNull(0) ?: 1.0f
-                    Log.d(TAG, "Raw Input ($languageCode): $text")
+                    val alternatives = matches.take(MAX_HYPOTHESES).mapIndexed { i, text ->
+                        // Only the top result defaults to full confidence when none is reported
+                        text to (confidences?.getOrNull(i) ?: if (i == 0) 1.0f else 0f)
+                    }
+                    Log.d(TAG, "Raw Input ($languageCode): ${alternatives.joinToString(" | ") { it.first }}")
 
                     scope.launch {
                         // Pass the selected language code so we don't have to guess
-                        processResult(text, confidence, languageCode, listener)
+                        processResult(alternatives, languageCode, listener)
                     }
                 }
             }
@@ -183,36 +194,39 @@ class MultilingualManager(private val context: Context) {
 
     /**
      * Process result using the KNOWN language code.
+     * [alternatives] are (text, confidence) pairs, best first.
      */
     private suspend fun processResult(
-        text: String,
-        confidence: Float,
+        alternatives: List<Pair<String, Float>>,
         languageCode: String,
         listener: SpeechListener
     ) {
         withContext(Dispatchers.IO) {
-            // 1. If it's English, no translation needed
-            if (languageCode == "en") {
-                withContext(Dispatchers.Main) {
-                    listener.onSpeechResult(SpeechResult(text, "en", text, confidence))
-                }
-                return@withContext
+            val hypotheses = if (languageCode == "en") {
+                // 1. If it's English, no translation needed
+                alternatives.map { (text, confidence) -> Hypothesis(text, text, confidence) }
+            } else {
+                // 2. If it's Tamil/Hindi/etc, Translate to English (alternatives in parallel)
+                alternatives.take(MAX_TRANSLATED_HYPOTHESES).map { (text, confidence) ->
+                    async {
+                        Log.d(TAG, "Translating from $languageCode: $text")
+                        val translated = translateToEnglish(text, languageCode)
+                        val finalEnglish = translated ?: text // Fallback to original if translation fails
+                        Log.d(TAG, "Translation result: $finalEnglish")
+                        Hypothesis(text, finalEnglish, confidence)
+                    }
+                }.awaitAll()
             }
 
-            // 2. If it's Tamil/Hindi/etc, Translate to English
-            Log.d(TAG, "Translating from $languageCode: $text")
-            val translated = translateToEnglish(text, languageCode)
-
-            val finalEnglish = translated ?: text // Fallback to original if translation fails
-            Log.d(TAG, "Translation result: $finalEnglish")
-
+            val top = hypotheses.first()
             withContext(Dispatchers.Main) {
                 listener.onSpeechResult(
                     SpeechResult(
-                        text = text, // Original text (e.g. Tamil script)
+                        text = top.text, // Original text (e.g. Tamil script)
                         detectedLanguage = languageCode,
-                        translatedToEnglish = finalEnglish, // English text for Backend
-                        confidence = confidence
+                        translatedToEnglish = top.translatedToEnglish, // English text for Backend
+                        confidence = top.confidence,
+                        hypotheses = hypotheses
                     )
                 )
             }
@@ -221,38 +235,27 @@ class MultilingualManager(private val context: Context) {
 
     private suspend fun translateToEnglish(text: String, sourceLanguage: String): String? {
         val langConfig = SUPPORTED_LANGUAGES[sourceLanguage] ?: return null
+        return translatorPool.translateToEnglish(text, langConfig.mlkitCode)
+    }
 
-        return suspendCancellableCoroutine { continuation ->
-            val translatorKey = "${sourceLanguage}_en"
-
-            // Get or create translator
-            val translator = translators.getOrPut(translatorKey) {
-                val options = TranslatorOptions.Builder()
-                    .setSourceLanguage(langConfig.mlkitCode)
-                    .setTargetLanguage(TranslateLanguage.ENGLISH)
-                    .build()
-                Translation.getClient(options)
-            }
+    /**
+     * English text for [text] spoken in [languageCode]: itself for English, otherwise the
+     * translation (null if it fails). Used for partial results; repeats hit the pool's cache.
+     */
+    suspend fun toEnglish(text: String, languageCode: String): String? =
+        if (languageCode == "en") text else translateToEnglish(text, languageCode)
 
-            // Check if model is downloaded
-            val conditions = DownloadConditions.Builder().requireWifi().build()
-
-            translator.downloadModelIfNeeded(conditions)
-                .addOnSuccessListener {
-                    translator.translate(text)
-                        .addOnSuccessListener { continuation.resume(it) }
-                        .addOnFailureListener { e ->
-                            Log.e(TAG, "Translation failed", e)
-                            continuation.resume(null)
-                        }
-                }
-                .addOnFailureListener { e ->
-                    Log.e(TAG, "Model download failed", e)
-                    continuation.resume(null)
-                }
-        }
+    /**
+     * Make sure the translation model for [languageCode] is downloaded and a translator is
+     * warm, so the first command in that language doesn't wait for it.
+     */
+    suspend fun prefetchLanguage(languageCode: String) {
+        val langConfig = SUPPORTED_LANGUAGES[languageCode] ?: return
+        translatorPool.prefetch(langConfig.mlkitCode)
     }
 
+    fun translationLatencySummary(): String = translatorPool.latencySummary()
+
     fun speak(text: String, languageCode: String = "en") {
         val langConfig = SUPPORTED_LANGUAGES[languageCode]
         if (langConfig != null) {
@@ -277,7 +280,6 @@ class MultilingualManager(private val context: Context) {
         speechRecognizer = null
         tts?.shutdown()
         tts = null
-        translators.values.forEach { it.close() }
-        translators.clear()
+        // Translators are shared with other screens; the pool closes idle ones itself
     }
 }
\ No newline at end of file
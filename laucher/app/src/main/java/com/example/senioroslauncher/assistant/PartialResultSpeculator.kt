@@ -0,0 +1,124 @@
+package com.example.senioroslauncher.assistant
+
+import android.util.Log
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.withContext
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * Guesses the intent from partial transcripts while the user is still speaking.
+ *
+ * Each partial result restarts a short debounce; when the transcript settles, it is
+ * classified with [LocalIntentPipeline.speculate], its entities are extracted and the
+ * lookups the action will need are started ([ActionExecutor.prefetch]). Seniors often pause
+ * mid-sentence, so by the time the recognizer delivers the final result the contact number
+ * or medication list is usually loaded already.
+ *
+ * When the final transcript is exactly the last speculated one, [take] hands back the
+ * speculation so the caller can skip classification and entity extraction too.
+ */
+class PartialResultSpeculator(
+    private val scope: CoroutineScope,
+    private val pipeline: LocalIntentPipeline,
+    private val entityExtractor: EntityExtractor,
+    private val actionExecutor: ActionExecutor,
+    // Partial transcript to English; null skips this partial
+    private val toEnglish: suspend (String) -> String?
+) {
+
+    data class Speculation(
+        val text: String, // English, as classified
+        val result: LocalIntentPipeline.LocalResult,
+        val entities: EntityExtractor.ExtractedEntities
+    )
+
+    companion object {
+        private const val TAG = "PartialSpeculator"
+        private const val DEBOUNCE_MS = 250L
+        private const val MIN_WORDS = 2
+    }
+
+    private var pending: Job? = null
+    private var lastPartial: String? = null
+
+    @Volatile
+    private var latest: Speculation? = null
+
+    // Speculation whose text differed from the final one, waiting for the final intent
+    private var pendingOutcome: Speculation? = null
+
+    private val exactHits = AtomicInteger()
+    private val intentHits = AtomicInteger()
+    private val misses = AtomicInteger()
+
+    /**
+     * A new partial transcript. Call from the main thread.
+     */
+    fun onPartial(text: String) {
+        val trimmed = text.trim()
+        if (trimmed == lastPartial) return
+        lastPartial = trimmed
+        if (trimmed.split(' ').count { it.isNotBlank() } < MIN_WORDS) return
+
+        pending?.cancel()
+        pending = scope.launch {
+            delay(DEBOUNCE_MS)
+            val english = toEnglish(trimmed) ?: return@launch
+            if (english == latest?.text) return@launch
+
+            val result = withContext(Dispatchers.Default) { pipeline.speculate(english) }
+            if (!result.isAboveThreshold) return@launch
+
+            val entities = entityExtractor.extract(english, result.intent)
+            latest = Speculation(english, result, entities)
+            Log.d(TAG, "Speculating ${result.intent} (${result.confidence}, ${result.stage}) from '$english'")
+            // Not part of the debounced job: a newer partial must not cancel a lookup in flight
+            scope.launch { actionExecutor.prefetch(result.intent, entities) }
+        }
+    }
+
+    /**
+     * The final transcript has arrived: stop speculating and return the speculation if it
+     * was made from exactly [finalText], or null.
+     */
+    fun take(finalText: String): Speculation? {
+        pending?.cancel()
+        pending = null
+        lastPartial = null
+        val speculation = latest ?: return null
+        latest = null
+
+        if (speculation.text == finalText) {
+            exactHits.incrementAndGet()
+            pipeline.accept(finalText, speculation.result)
+            return speculation
+        }
+        pendingOutcome = speculation
+        return null
+    }
+
+    /**
+     * Record whether the final intent (classified normally after [take] returned null)
+     * matches what was speculated, i.e. whether the prefetch was useful.
+     */
+    fun recordFinalIntent(intent: String) {
+        val speculation = pendingOutcome ?: return
+        pendingOutcome = null
+        if (speculation.result.intent == intent) intentHits.incrementAndGet() else misses.incrementAndGet()
+    }
+
+    fun reset() {
+        pending?.cancel()
+        pending = null
+        lastPartial = null
+        latest = null
+        pendingOutcome = null
+    }
+
+    fun summary(): String =
+        "speculation: exact=${exactHits.get()} intent=${intentHits.get()} miss=${misses.get()}"
+}
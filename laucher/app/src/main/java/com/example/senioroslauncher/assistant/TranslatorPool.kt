@@ -0,0 +1,269 @@
+package com.example.senioroslauncher.assistant
+
+import android.util.Log
+import com.google.android.gms.tasks.Task
+import com.google.mlkit.common.model.DownloadConditions
+import com.google.mlkit.common.model.RemoteModelManager
+import com.google.mlkit.nl.translate.TranslateLanguage
+import com.google.mlkit.nl.translate.TranslateRemoteModel
+import com.google.mlkit.nl.translate.Translation
+import com.google.mlkit.nl.translate.Translator
+import com.google.mlkit.nl.translate.TranslatorOptions
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Deferred
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.NonCancellable
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.async
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.isActive
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.suspendCancellableCoroutine
+import kotlinx.coroutines.sync.Mutex
+import kotlinx.coroutines.sync.withLock
+import kotlinx.coroutines.withContext
+import kotlin.coroutines.resume
+import kotlin.coroutines.resumeWithException
+
+/**
+ * Warm ML Kit translators into English, shared by the whole process ([getInstance]).
+ *
+ * - Models are made available once per language ([prefetch] at startup, or on first use)
+ *   instead of calling `downloadModelIfNeeded` before every translation; concurrent callers
+ *   share one download, which runs in the pool's scope so one caller giving up doesn't
+ *   cancel it for the others.
+ * - At most [MAX_TRANSLATORS] translators are kept in the pool, least recently used evicted
+ *   first, and any translator unused for [IDLE_TIMEOUT_MS] is closed to free its native
+ *   memory. Translators are counted while in use and only closed once idle; an evicted
+ *   translator still in use is closed by its last user.
+ * - Recent translations are cached, since elders tend to repeat the same few commands.
+ *
+ * Each stage keeps a [LatencyHistogram]; see [latencySummary].
+ */
+class TranslatorPool private constructor() {
+
+    companion object {
+        private const val TAG = "TranslatorPool"
+        private const val MAX_TRANSLATORS = 2
+        private const val IDLE_TIMEOUT_MS = 5 * 60_000L
+        private const val MAX_CACHED_TRANSLATIONS = 64
+        private const val WARM_UP_TEXT = "hello"
+
+        @Volatile
+        private var INSTANCE: TranslatorPool? = null
+
+        fun getInstance(): TranslatorPool {
+            return INSTANCE ?: synchronized(this) {
+                INSTANCE ?: TranslatorPool().also { INSTANCE = it }
+            }
+        }
+    }
+
+    // Fields guarded by mutex
+    private class PooledTranslator(val translator: Translator) {
+        var lastUsed = System.currentTimeMillis()
+        var inUse = 0
+        var evicted = false
+    }
+
+    private val scope = CoroutineScope(SupervisorJob() + Dispatchers.Default)
+    private val mutex = Mutex()
+
+    // Guarded by mutex; access order, eldest first
+    private val translators = LinkedHashMap<String, PooledTranslator>(4, 0.75f, true)
+    private val modelReady = HashMap<String, Deferred<Boolean>>()
+    private var reaper: Job? = null
+
+    private val cache = object : LinkedHashMap<String, String>(16, 0.75f, true) {
+        override fun removeEldestEntry(eldest: MutableMap.MutableEntry<String, String>?): Boolean =
+            size > MAX_CACHED_TRANSLATIONS
+    }
+
+    private val cacheHistogram = LatencyHistogram("translate_cache")
+    private val modelHistogram = LatencyHistogram("translate_model_ready")
+    private val translateHistogram = LatencyHistogram("translate_run")
+    private val totalHistogram = LatencyHistogram("translate_total")
+
+    /**
+     * Download the model for [mlkitCode] (Wi-Fi only) and run one throwaway translation, so
+     * the first real command in that language only pays for the translation itself.
+     */
+    suspend fun prefetch(mlkitCode: String) {
+        if (mlkitCode == TranslateLanguage.ENGLISH) return
+        val start = System.nanoTime()
+        if (!ensureModel(mlkitCode)) return
+        withTranslator(mlkitCode) { translator ->
+            try {
+                translator.translate(WARM_UP_TEXT).await()
+                Log.d(TAG, "✓ Prefetched $mlkitCode in ${(System.nanoTime() - start) / 1_000_000}ms")
+            } catch (e: CancellationException) {
+                throw e
+            } catch (e: Exception) {
+                Log.w(TAG, "Warm-up translation failed for $mlkitCode", e)
+            }
+        }
+    }
+
+    /**
+     * Translate [text] from [mlkitCode] into English, or null if the model isn't available
+     * or translation fails.
+     */
+    suspend fun translateToEnglish(text: String, mlkitCode: String): String? {
+        val start = System.nanoTime()
+        try {
+            val key = "$mlkitCode:$text"
+            cacheHistogram.time { synchronized(cache) { cache[key] } }?.let { return it }
+
+            val ready = modelHistogram.time { ensureModel(mlkitCode) }
+            if (!ready) return null
+
+            val translated = try {
+                withTranslator(mlkitCode) { translator ->
+                    translateHistogram.time { translator.translate(text).await() }
+                }
+            } catch (e: CancellationException) {
+                throw e
+            } catch (e: Exception) {
+                Log.e(TAG, "Translation failed", e)
+                return null
+            }
+            synchronized(cache) { cache[key] = translated }
+            return translated
+        } finally {
+            totalHistogram.record(System.nanoTime() - start)
+        }
+    }
+
+    fun latencySummary(): String =
+        listOf(cacheHistogram, modelHistogram, translateHistogram, totalHistogram)
+            .joinToString("; ") { it.summary() }
+
+    /**
+     * Close every idle translator and drop the rest from the pool (closed when their current
+     * use ends). The pool stays usable; translators are reopened on demand.
+     */
+    suspend fun closeAll() {
+        mutex.withLock {
+            translators.values.forEach { evictLocked(it) }
+            translators.clear()
+            reaper?.cancel()
+            reaper = null
+        }
+    }
+
+    /**
+     * Run [block] with the pooled translator for [mlkitCode], which stays open until it returns.
+     */
+    private suspend inline fun <T> withTranslator(mlkitCode: String, block: (Translator) -> T): T {
+        val pooled = acquire(mlkitCode)
+        try {
+            return block(pooled.translator)
+        } finally {
+            withContext(NonCancellable) { release(pooled) }
+        }
+    }
+
+    private suspend fun acquire(mlkitCode: String): PooledTranslator = mutex.withLock {
+        val pooled = translators[mlkitCode] ?: run {
+            if (translators.size >= MAX_TRANSLATORS) {
+                val eldest = translators.entries.first()
+                translators.remove(eldest.key)
+                evictLocked(eldest.value)
+                Log.d(TAG, "Evicted translator ${eldest.key} (pool full)")
+            }
+
+            val options = TranslatorOptions.Builder()
+                .setSourceLanguage(mlkitCode)
+                .setTargetLanguage(TranslateLanguage.ENGLISH)
+                .build()
+            PooledTranslator(Translation.getClient(options)).also {
+                translators[mlkitCode] = it
+                startReaperLocked()
+            }
+        }
+        pooled.inUse++
+        pooled.lastUsed = System.currentTimeMillis()
+        pooled
+    }
+
+    private suspend fun release(pooled: PooledTranslator) {
+        mutex.withLock {
+            pooled.inUse--
+            pooled.lastUsed = System.currentTimeMillis()
+            if (pooled.evicted && pooled.inUse == 0) pooled.translator.close()
+        }
+    }
+
+    /**
+     * Close [pooled] now if nobody is translating with it, otherwise when the last use ends.
+     * The caller has already removed it from [translators].
+     */
+    private fun evictLocked(pooled: PooledTranslator) {
+        pooled.evicted = true
+        if (pooled.inUse == 0) pooled.translator.close()
+    }
+
+    /**
+     * True once the model for [mlkitCode] is on the device. Callers for the same language
+     * share one download; a failed download is retried on the next call. Cancelling the
+     * caller cancels only its wait.
+     */
+    private suspend fun ensureModel(mlkitCode: String): Boolean {
+        val pending = mutex.withLock {
+            modelReady.getOrPut(mlkitCode) { scope.async { downloadModel(mlkitCode) } }
+        }
+        return pending.await()
+    }
+
+    private suspend fun downloadModel(mlkitCode: String): Boolean {
+        val ready = try {
+            val conditions = DownloadConditions.Builder().requireWifi().build()
+            RemoteModelManager.getInstance()
+                .download(TranslateRemoteModel.Builder(mlkitCode).build(), conditions)
+                .await()
+            true
+        } catch (e: CancellationException) {
+            throw e
+        } catch (e: Exception) {
+            Log.e(TAG, "Model download failed for $mlkitCode", e)
+            false
+        }
+        if (!ready) mutex.withLock { modelReady.remove(mlkitCode) }
+        return ready
+    }
+
+    private fun startReaperLocked() {
+        if (reaper?.isActive == true) return
+        reaper = scope.launch {
+            while (isActive) {
+                delay(IDLE_TIMEOUT_MS)
+                val empty = mutex.withLock {
+                    val cutoff = System.currentTimeMillis() - IDLE_TIMEOUT_MS
+                    val iterator = translators.entries.iterator()
+                    while (iterator.hasNext()) {
+                        val (code, pooled) = iterator.next()
+                        if (pooled.inUse == 0 && pooled.lastUsed <= cutoff) {
+                            pooled.translator.close()
+                            iterator.remove()
+                            Log.d(TAG, "Closed idle translator $code")
+                        }
+                    }
+                    translators.isEmpty().also { if (it) reaper = null }
+                }
+                if (empty) break
+            }
+        }
+    }
+
+    /**
+     * Suspend until the Task completes, without pulling in the play-services coroutines
+     * artifact for this one use.
+     */
+    private suspend fun <T> Task<T>.await(): T = suspendCancellableCoroutine { continuation ->
+        addOnSuccessListener { continuation.resume(it) }
+        addOnFailureListener { continuation.resumeWithException(it) }
+        addOnCanceledListener { continuation.cancel() }
+    }
+}
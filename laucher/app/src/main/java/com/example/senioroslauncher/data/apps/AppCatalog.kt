@@ -0,0 +1,342 @@
+package com.example.senioroslauncher.data.apps
+
+import android.content.BroadcastReceiver
+import android.content.ComponentName
+import android.content.Context
+import android.content.Intent
+import android.content.IntentFilter
+import android.content.pm.PackageManager
+import android.content.pm.ResolveInfo
+import android.graphics.Bitmap
+import android.graphics.BitmapFactory
+import android.graphics.Canvas
+import android.graphics.drawable.BitmapDrawable
+import android.graphics.drawable.Drawable
+import android.provider.Settings
+import android.util.Log
+import android.util.LruCache
+import androidx.core.content.ContextCompat
+import androidx.core.content.pm.PackageInfoCompat
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.flow.MutableStateFlow
+import kotlinx.coroutines.flow.StateFlow
+import kotlinx.coroutines.flow.asStateFlow
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.sync.Mutex
+import kotlinx.coroutines.sync.withLock
+import kotlinx.coroutines.withContext
+import kotlinx.serialization.Serializable
+import kotlinx.serialization.encodeToString
+import kotlinx.serialization.json.Json
+import java.io.File
+
+/**
+ * Launchable apps and their icons, shared by the app drawer and the home screen
+ * ([getInstance]).
+ *
+ * The list is persisted to disk and reused across process starts: on start it is checked
+ * against [PackageManager.getChangedPackages] and only changed packages are re-queried.
+ * While the process runs, package add/remove/replace broadcasts keep it current.
+ *
+ * Icons are rasterized once per package version at [ICON_SIZE_PX] and kept in a memory LRU
+ * and a size-bounded PNG cache on disk, both keyed by package + versionCode, so an update
+ * replaces the icon and nothing else has to be invalidated.
+ */
+class AppCatalog private constructor(private val context: Context) {
+
+    @Serializable
+    data class AppEntry(
+        val packageName: String,
+        val activityName: String,
+        val label: String,
+        val versionCode: Long
+    ) {
+        val iconKey: String get() = "${packageName}_${activityName.hashCode().toUInt()}_$versionCode"
+    }
+
+    @Serializable
+    private data class Persisted(
+        val bootCount: Int,
+        val changeSequence: Int,
+        val apps: List<AppEntry>
+    )
+
+    companion object {
+        private const val TAG = "AppCatalog"
+        const val ICON_SIZE_PX = 128
+        private const val CATALOG_FILE = "app_catalog.json"
+        private const val ICON_DIR = "app_icons"
+        private const val MAX_DISK_BYTES = 8L * 1024 * 1024
+
+        @Volatile
+        private var INSTANCE: AppCatalog? = null
+
+        fun getInstance(context: Context): AppCatalog {
+            return INSTANCE ?: synchronized(this) {
+                INSTANCE ?: AppCatalog(context.applicationContext).also {
+                    INSTANCE = it
+                    it.registerPackageReceiver()
+                }
+            }
+        }
+    }
+
+    private val packageManager = context.packageManager
+    private val scope = CoroutineScope(SupervisorJob() + Dispatchers.IO)
+    private val mutex = Mutex()
+    private val json = Json { ignoreUnknownKeys = true }
+    private val catalogFile = File(context.filesDir, CATALOG_FILE)
+    private val iconDir = File(context.cacheDir, ICON_DIR)
+
+    // An eighth of the heap at most; a 128px icon is 64KB, so a few hundred apps fit
+    private val memoryIcons = object : LruCache<String, Bitmap>(
+        (Runtime.getRuntime().maxMemory() / 8).coerceAtMost(Int.MAX_VALUE.toLong()).toInt()
+    ) {
+        override fun sizeOf(key: String, value: Bitmap): Int = value.byteCount
+    }
+
+    private var changeSequence = 0
+    private var loaded = false
+
+    private val usage = AppUsage(context)
+    private val searchIndex = AppSearchIndex(usage)
+
+    private val _apps = MutableStateFlow<List<AppEntry>>(emptyList())
+
+    /**
+     * Launchable apps sorted by label, excluding this launcher. Empty until [ensureLoaded].
+     */
+    val apps: StateFlow<List<AppEntry>> = _apps.asStateFlow()
+
+    private val packageReceiver = object : BroadcastReceiver() {
+        override fun onReceive(context: Context, intent: Intent) {
+            val packageName = intent.data?.schemeSpecificPart ?: return
+            // The removal half of an update is followed by PACKAGE_ADDED with EXTRA_REPLACING
+            if (intent.action == Intent.ACTION_PACKAGE_REMOVED) {
+                if (intent.getBooleanExtra(Intent.EXTRA_REPLACING, false)) return
+                usage.forget(packageName)
+            }
+            scope.launch { refreshPackages(listOf(packageName)) }
+        }
+    }
+
+    private fun registerPackageReceiver() {
+        val filter = IntentFilter().apply {
+            addAction(Intent.ACTION_PACKAGE_ADDED)
+            addAction(Intent.ACTION_PACKAGE_REMOVED)
+            addAction(Intent.ACTION_PACKAGE_CHANGED)
+            addAction(Intent.ACTION_PACKAGE_REPLACED)
+            addDataScheme("package")
+        }
+        ContextCompat.registerReceiver(context, packageReceiver, filter, ContextCompat.RECEIVER_EXPORTED)
+    }
+
+    /**
+     * Load the catalog: from memory, else from disk (re-querying only packages that changed
+     * since it was written), else with a full scan.
+     */
+    suspend fun ensureLoaded(): List<AppEntry> = withContext(Dispatchers.IO) {
+        mutex.withLock {
+            if (loaded) return@withLock
+            val persisted = readPersisted()
+            val bootCount = currentBootCount()
+            if (persisted == null || bootCount < 0 || persisted.bootCount != bootCount) {
+                // Sequence numbers restart at boot, so a catalog from an earlier boot can't be diffed
+                changeSequence = packageManager.getChangedPackages(0)?.sequenceNumber ?: 0
+                publish(scanAll())
+            } else {
+                publish(persisted.apps)
+                changeSequence = persisted.changeSequence
+                val changed = packageManager.getChangedPackages(changeSequence)
+                if (changed != null) {
+                    changeSequence = changed.sequenceNumber
+                    applyChanges(changed.packageNames)
+                }
+            }
+            loaded = true
+            persist()
+        }
+        _apps.value
+    }
+
+    /**
+     * Load the catalog and decode every icon into memory when the home screen appears, so
+     * the drawer opens without rasterizing anything.
+     */
+    suspend fun prewarm() {
+        val start = System.nanoTime()
+        val apps = ensureLoaded()
+        withContext(Dispatchers.IO) { apps.forEach { icon(it) } }
+        trimDiskCache()
+        Log.d(TAG, "Prewarmed ${apps.size} apps in ${(System.nanoTime() - start) / 1_000_000}ms")
+    }
+
+    /**
+     * Apps for the drawer's search box, best match first; the whole list for a blank query.
+     * Typing one more letter is a single step in the index.
+     */
+    fun search(query: String): List<AppEntry> =
+        if (query.isBlank()) _apps.value else searchIndex.search(query)
+
+    /**
+     * Note a launch from the launcher, so the app ranks higher in [search].
+     */
+    fun recordLaunch(entry: AppEntry) = usage.recordLaunch(entry.packageName)
+
+    /**
+     * Icon from memory only, for drawing the first frame without waiting.
+     */
+    fun cachedIcon(entry: AppEntry): Bitmap? = memoryIcons.get(entry.iconKey)
+
+    /**
+     * Icon from memory, then disk, then rasterized from the package (and cached on both).
+     */
+    suspend fun icon(entry: AppEntry): Bitmap? {
+        memoryIcons.get(entry.iconKey)?.let { return it }
+        return withContext(Dispatchers.IO) {
+            val file = File(iconDir, "${entry.iconKey}.png")
+            val bitmap = decodeIcon(file) ?: rasterize(entry)?.also { writeIcon(file, it) }
+            bitmap?.also { memoryIcons.put(entry.iconKey, it) }
+        }
+    }
+
+    /**
+     * Drop the in-memory state so the next load goes to disk; for the drawer benchmark (androidTest).
+     */
+    internal fun clearMemory() {
+        memoryIcons.evictAll()
+        loaded = false
+    }
+
+    /**
+     * Drop the persisted catalog and icon files too; for the drawer benchmark (androidTest).
+     */
+    internal fun clearDisk() {
+        catalogFile.delete()
+        iconDir.listFiles()?.forEach { it.delete() }
+    }
+
+    private suspend fun refreshPackages(packageNames: List<String>) {
+        mutex.withLock {
+            if (!loaded) return // The next ensureLoaded() picks it up through the change sequence
+            applyChanges(packageNames)
+            packageManager.getChangedPackages(changeSequence)?.let { changeSequence = it.sequenceNumber }
+            persist()
+        }
+    }
+
+    private fun applyChanges(packageNames: List<String>) {
+        val changed = packageNames.toSet()
+        val updated = _apps.value.filter { it.packageName !in changed } +
+            packageNames.flatMap { scanPackage(it) }
+        // Icons of old versions are left for the disk trim; their keys won't be asked for again
+        _apps.value.filter { it.packageName in changed }.forEach { memoryIcons.remove(it.iconKey) }
+        publish(updated)
+        Log.d(TAG, "Refreshed ${packageNames.size} changed packages")
+    }
+
+    private fun publish(apps: List<AppEntry>) {
+        val sorted = apps
+            .filter { it.packageName != context.packageName }
+            .distinctBy { it.packageName to it.activityName }
+            .sortedBy { it.label.lowercase() }
+
+        // Only what changed goes through the search index
+        val previous = _apps.value.associateBy { it.packageName to it.activityName }
+        val current = sorted.associateBy { it.packageName to it.activityName }
+        previous.forEach { (key, entry) -> if (key !in current) searchIndex.remove(entry) }
+        current.forEach { (key, entry) -> if (previous[key] != entry) searchIndex.add(entry) }
+
+        _apps.value = sorted
+    }
+
+    private fun scanAll(): List<AppEntry> =
+        packageManager.queryIntentActivities(launcherIntent(), 0).mapNotNull { toEntry(it) }
+
+    private fun scanPackage(packageName: String): List<AppEntry> =
+        packageManager.queryIntentActivities(launcherIntent().setPackage(packageName), 0).mapNotNull { toEntry(it) }
+
+    private fun launcherIntent() = Intent(Intent.ACTION_MAIN).addCategory(Intent.CATEGORY_LAUNCHER)
+
+    private fun toEntry(resolveInfo: ResolveInfo): AppEntry? = try {
+        val activityInfo = resolveInfo.activityInfo
+        val packageInfo = packageManager.getPackageInfo(activityInfo.packageName, 0)
+        AppEntry(
+            packageName = activityInfo.packageName,
+            activityName = activityInfo.name,
+            label = resolveInfo.loadLabel(packageManager).toString(),
+            versionCode = PackageInfoCompat.getLongVersionCode(packageInfo)
+        )
+    } catch (e: Exception) {
+        null
+    }
+
+    private fun rasterize(entry: AppEntry): Bitmap? = try {
+        drawableToBitmap(packageManager.getActivityIcon(ComponentName(entry.packageName, entry.activityName)))
+    } catch (e: PackageManager.NameNotFoundException) {
+        null
+    }
+
+    private fun drawableToBitmap(drawable: Drawable): Bitmap {
+        if (drawable is BitmapDrawable && drawable.bitmap != null) {
+            return Bitmap.createScaledBitmap(drawable.bitmap, ICON_SIZE_PX, ICON_SIZE_PX, true)
+        }
+        val bitmap = Bitmap.createBitmap(ICON_SIZE_PX, ICON_SIZE_PX, Bitmap.Config.ARGB_8888)
+        val canvas = Canvas(bitmap)
+        drawable.setBounds(0, 0, canvas.width, canvas.height)
+        drawable.draw(canvas)
+        return bitmap
+    }
+
+    private fun decodeIcon(file: File): Bitmap? {
+        if (!file.exists()) return null
+        return BitmapFactory.decodeFile(file.path)?.also { file.setLastModified(System.currentTimeMillis()) }
+    }
+
+    private fun writeIcon(file: File, bitmap: Bitmap) {
+        try {
+            iconDir.mkdirs()
+            val temp = File(iconDir, "${file.name}.tmp")
+            temp.outputStream().use { bitmap.compress(Bitmap.CompressFormat.PNG, 100, it) }
+            temp.renameTo(file)
+        } catch (e: Exception) {
+            Log.w(TAG, "Failed to cache icon ${file.name}", e)
+        }
+    }
+
+    /**
+     * Delete least recently used icon files until the cache is under [MAX_DISK_BYTES].
+     */
+    private fun trimDiskCache() {
+        val files = iconDir.listFiles() ?: return
+        var total = files.sumOf { it.length() }
+        if (total <= MAX_DISK_BYTES) return
+        for (file in files.sortedBy { it.lastModified() }) {
+            total -= file.length()
+            file.delete()
+            if (total <= MAX_DISK_BYTES) break
+        }
+    }
+
+    private fun readPersisted(): Persisted? = try {
+        if (catalogFile.exists()) json.decodeFromString<Persisted>(catalogFile.readText()) else null
+    } catch (e: Exception) {
+        Log.w(TAG, "Discarding unreadable app catalog", e)
+        null
+    }
+
+    private fun persist() {
+        try {
+            val temp = File(catalogFile.path + ".tmp")
+            temp.writeText(json.encodeToString(Persisted(currentBootCount(), changeSequence, _apps.value)))
+            temp.renameTo(catalogFile)
+        } catch (e: Exception) {
+            Log.w(TAG, "Failed to persist app catalog", e)
+        }
+    }
+
+    private fun currentBootCount(): Int =
+        Settings.Global.getInt(context.contentResolver, Settings.Global.BOOT_COUNT, -1)
+}
@@ -0,0 +1,228 @@
+package com.example.senioroslauncher.data.apps
+
+import com.example.senioroslauncher.data.contacts.NameMatching
+import java.text.Normalizer
+
+/**
+ * Search index for the app drawer, kept in step with [AppCatalog] through [add] and
+ * [remove] instead of being rebuilt.
+ *
+ * Label words (and the whole label run together, so "googlem" finds "Google Maps") go into
+ * a prefix trie whose nodes carry every app below them, so a keystroke that extends the
+ * previous query is one step down from the last node. Queries and labels are transliterated
+ * to plain Latin first (accents dropped, Devanagari romanised), so "व्हाट्सएप" ("vhatsep")
+ * reaches WhatsApp. Words that don't start a label fall back to the sound-alike trie, then to a
+ * bounded edit-distance walk of the trie for typos. Results are ranked by match quality, then by [AppUsage] frecency.
+ */
+class AppSearchIndex(private val usage: AppUsage? = null) {
+
+    private enum class Quality { LABEL_START, WORD_START, SOUNDS_LIKE, TYPO }
+
+    private class Node {
+        val children = HashMap<Char, Node>(2)
+        val keys = HashSet<String>(2) // every app with a word through this node
+    }
+
+    private class Trie {
+        val root = Node()
+
+        fun add(word: String, key: String) {
+            var node = root
+            for (c in word) {
+                node = node.children.getOrPut(c) { Node() }
+                node.keys.add(key)
+            }
+        }
+
+        fun remove(word: String, key: String) {
+            var node = root
+            for (c in word) {
+                val child = node.children[c] ?: return
+                child.keys.remove(key)
+                if (child.keys.isEmpty()) {
+                    node.children.remove(c)
+                    return
+                }
+                node = child
+            }
+        }
+
+        fun find(prefix: String, from: Node = root, fromDepth: Int = 0): Node? {
+            var node = from
+            for (i in fromDepth until prefix.length) node = node.children[prefix[i]] ?: return null
+            return node
+        }
+    }
+
+    companion object {
+        private val DEVANAGARI_VOWELS: Map<Char, String> =
+            "अa आaa इi ईii उu ऊuu एe ऐai ओo औau ऋri".split(' ').associate { it[0] to it.substring(1) }
+        private val DEVANAGARI_CONSONANTS: Map<Char, String> =
+            ("कk खkh गg घgh ङn चch छchh जj झjh ञn टt ठth डd ढdh णn तt थth दd धdh नn पp फph बb भbh " +
+                "मm यy रr लl वv शsh षsh सs हh").split(' ').associate { it[0] to it.substring(1) }
+        private val DEVANAGARI_SIGNS: Map<Char, String> = mapOf(
+            'ा' to "a", 'ि' to "i", 'ी' to "i", 'ु' to "u", 'ू' to "u", 'े' to "e", 'ै' to "ai",
+            'ो' to "o", 'ौ' to "au", 'ृ' to "ri", 'ं' to "n", 'ँ' to "n", 'ः' to "h", '्' to ""
+        )
+        private val MARKS = Regex("\\p{Mn}+")
+
+        /**
+         * Lowercase Latin words of [text]: Devanagari romanised, accents dropped.
+         */
+        internal fun normalize(text: String): List<String> {
+            val latin = StringBuilder(text.length)
+            for (i in text.indices) {
+                val c = text[i]
+                val consonant = DEVANAGARI_CONSONANTS[c]
+                when {
+                    consonant != null -> {
+                        latin.append(consonant)
+                        // Inherent 'a' between consonants; silent at the end of a word
+                        if (text.getOrNull(i + 1)?.let { DEVANAGARI_CONSONANTS.containsKey(it) } == true) latin.append('a')
+                    }
+                    DEVANAGARI_VOWELS.containsKey(c) -> latin.append(DEVANAGARI_VOWELS.getValue(c))
+                    DEVANAGARI_SIGNS.containsKey(c) -> latin.append(DEVANAGARI_SIGNS.getValue(c))
+                    else -> latin.append(c)
+                }
+            }
+            return NameMatching.words(MARKS.replace(Normalizer.normalize(latin, Normalizer.Form.NFD), ""))
+        }
+
+        private fun maxTypos(length: Int): Int = when {
+            length <= 3 -> 0
+            length <= 6 -> 1
+            else -> 2
+        }
+    }
+
+    private val words = Trie()
+    private val sounds = Trie()
+    private val entries = HashMap<String, AppCatalog.AppEntry>()
+    private val indexedWords = HashMap<String, List<String>>()
+
+    // The last query word and its trie node, so typing one more letter is one step down
+    private var lastWord = ""
+    private var lastNode: Node? = null
+
+    val size: Int @Synchronized get() = entries.size
+
+    @Synchronized
+    fun add(entry: AppCatalog.AppEntry) {
+        val key = keyOf(entry)
+        if (entries.containsKey(key)) remove(entry)
+        val labelWords = normalize(entry.label)
+        val indexed = if (labelWords.size > 1) labelWords + labelWords.joinToString("") else labelWords
+        for (word in indexed) {
+            words.add(word, key)
+            sounds.add(NameMatching.phonetic(word), key)
+        }
+        entries[key] = entry
+        indexedWords[key] = indexed
+        lastNode = null
+    }
+
+    @Synchronized
+    fun remove(entry: AppCatalog.AppEntry) {
+        val key = keyOf(entry)
+        val indexed = indexedWords.remove(key) ?: return
+        for (word in indexed) {
+            words.remove(word, key)
+            sounds.remove(NameMatching.phonetic(word), key)
+        }
+        entries.remove(key)
+        lastNode = null
+    }
+
+    /**
+     * Apps matching every word of [query], best first. Blank queries return nothing; the
+     * drawer shows the full catalog then.
+     */
+    @Synchronized
+    fun search(query: String): List<AppCatalog.AppEntry> {
+        val queryWords = normalize(query)
+        if (queryWords.isEmpty()) return emptyList()
+
+        // Worst match quality over the query's words decides the app's tier
+        var matched: HashMap<String, Quality>? = null
+        for ((index, word) in queryWords.withIndex()) {
+            val forWord = matchWord(word, isLast = index == queryWords.lastIndex)
+            matched = if (matched == null) {
+                forWord
+            } else {
+                HashMap<String, Quality>().also { both ->
+                    for ((key, quality) in matched) {
+                        val other = forWord[key] ?: continue
+                        both[key] = maxOf(quality, other)
+                    }
+                }
+            }
+            if (matched.isEmpty()) return emptyList()
+        }
+
+        val now = System.currentTimeMillis()
+        return matched!!.entries
+            .sortedWith(
+                compareBy<Map.Entry<String, Quality>> { it.value }
+                    .thenByDescending { usage?.score(entries.getValue(it.key).packageName, now) ?: 0.0 }
+                    .thenBy { entries.getValue(it.key).label.lowercase() }
+            )
+            .map { entries.getValue(it.key) }
+    }
+
+    private fun matchWord(word: String, isLast: Boolean): HashMap<String, Quality> {
+        val result = HashMap<String, Quality>()
+        val node = if (isLast) findIncremental(word) else words.find(word)
+        if (node != null) {
+            for (key in node.keys) {
+                result[key] = if (indexedWords.getValue(key).first().startsWith(word)) Quality.LABEL_START else Quality.WORD_START
+            }
+            return result
+        }
+        sounds.find(NameMatching.phonetic(word))?.keys?.forEach { result[it] = Quality.SOUNDS_LIKE }
+        if (result.isNotEmpty()) return result
+        val max = maxTypos(word.length)
+        if (max > 0) collectTypos(word, max, result)
+        return result
+    }
+
+    private fun findIncremental(word: String): Node? {
+        val previous = lastNode
+        val node = if (previous != null && word.startsWith(lastWord)) {
+            words.find(word, previous, lastWord.length)
+        } else {
+            words.find(word)
+        }
+        lastWord = word
+        lastNode = node
+        return node
+    }
+
+    /**
+     * Apps with a word that starts within [max] edits of [word]: a Levenshtein row per trie
+     * level, pruning branches whose whole row is over the limit.
+     */
+    private fun collectTypos(word: String, max: Int, out: HashMap<String, Quality>) {
+        val firstRow = IntArray(word.length + 1) { it }
+        for ((c, child) in words.root.children) walkTypos(child, c, word, firstRow, max, out)
+    }
+
+    private fun walkTypos(node: Node, c: Char, word: String, previousRow: IntArray, max: Int, out: HashMap<String, Quality>) {
+        val row = IntArray(word.length + 1)
+        row[0] = previousRow[0] + 1
+        var rowMin = row[0]
+        for (j in 1..word.length) {
+            val cost = if (word[j - 1] == c) 0 else 1
+            row[j] = minOf(row[j - 1] + 1, previousRow[j] + 1, previousRow[j - 1] + cost)
+            if (row[j] < rowMin) rowMin = row[j]
+        }
+        if (row[word.length] <= max) {
+            // The query is within reach of this prefix; everything below matches
+            node.keys.forEach { out.putIfAbsent(it, Quality.TYPO) }
+            return
+        }
+        if (rowMin > max) return
+        for ((next, child) in node.children) walkTypos(child, next, word, row, max, out)
+    }
+
+    private fun keyOf(entry: AppCatalog.AppEntry) = entry.packageName + "/" + entry.activityName
+}
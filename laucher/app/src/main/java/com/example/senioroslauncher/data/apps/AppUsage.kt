@@ -0,0 +1,48 @@
+package com.example.senioroslauncher.data.apps
+
+import android.content.Context
+import java.util.concurrent.ConcurrentHashMap
+import kotlin.math.pow
+
+/**
+ * How often and how recently each app was opened from the launcher, for ranking drawer
+ * search results. Each launch adds 1 to a score that halves every [HALF_LIFE_MS], so an app
+ * used daily this week outranks one used a lot last year.
+ */
+class AppUsage(context: Context) {
+
+    companion object {
+        private const val PREF_NAME = "app_usage"
+        private const val HALF_LIFE_MS = 7L * 24 * 60 * 60 * 1000
+    }
+
+    private class Usage(val score: Double, val at: Long)
+
+    private val prefs = context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE)
+
+    // Stored as "score@timestamp" per package
+    private val usage = ConcurrentHashMap<String, Usage>().apply {
+        for ((packageName, value) in prefs.all) {
+            val parts = (value as? String)?.split('@') ?: continue
+            val score = parts.getOrNull(0)?.toDoubleOrNull() ?: continue
+            val at = parts.getOrNull(1)?.toLongOrNull() ?: continue
+            put(packageName, Usage(score, at))
+        }
+    }
+
+    fun recordLaunch(packageName: String, now: Long = System.currentTimeMillis()) {
+        val updated = Usage(score(packageName, now) + 1.0, now)
+        usage[packageName] = updated
+        prefs.edit().putString(packageName, "${updated.score}@${updated.at}").apply()
+    }
+
+    fun score(packageName: String, now: Long = System.currentTimeMillis()): Double {
+        val entry = usage[packageName] ?: return 0.0
+        return entry.score * 0.5.pow((now - entry.at).coerceAtLeast(0L).toDouble() / HALF_LIFE_MS)
+    }
+
+    fun forget(packageName: String) {
+        usage.remove(packageName)
+        prefs.edit().remove(packageName).apply()
+    }
+}
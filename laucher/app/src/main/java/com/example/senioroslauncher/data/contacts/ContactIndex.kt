@@ -0,0 +1,406 @@
+package com.example.senioroslauncher.data.contacts
+
+import android.Manifest
+import android.content.Context
+import android.content.pm.PackageManager
+import android.database.ContentObserver
+import android.net.Uri
+import android.os.Handler
+import android.os.Looper
+import android.provider.ContactsContract
+import android.util.Log
+import androidx.core.content.ContextCompat
+import com.example.senioroslauncher.data.database.AppDatabase
+import com.example.senioroslauncher.data.database.entity.EmergencyContactEntity
+import com.example.senioroslauncher.data.database.entity.SpeedDialContactEntity
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.flow.MutableStateFlow
+import kotlinx.coroutines.flow.StateFlow
+import kotlinx.coroutines.flow.asStateFlow
+import kotlinx.coroutines.flow.combine
+import kotlinx.coroutines.launch
+
+/**
+ * In-memory index of the phone book, shared by the assistant and the contacts screens
+ * ([getInstance]). Read once, then kept fresh by a [ContentObserver] on the contacts
+ * provider; speed dial and emergency contacts from the database are folded in as
+ * relationship aliases ("my daughter") and ranked first.
+ *
+ * Lookups ([resolve], [search]) work on an immutable [Snapshot] and never touch the
+ * provider.
+ */
+class ContactIndex private constructor(private val context: Context) {
+
+    data class Entry(
+        val id: String,
+        val name: String,
+        val phoneNumber: String,
+        val photoUri: String? = null
+    )
+
+    enum class MatchKind { ALIAS, EXACT, WORDS, PHONETIC, FUZZY }
+
+    class Match(val entry: Entry, val kind: MatchKind)
+
+    /**
+     * One consistent view of the index. [contacts] is sorted by name, one entry per contact.
+     * [isLoaded] is false until the phone book has been read (or if it can't be).
+     */
+    class Snapshot internal constructor(
+        val contacts: List<Entry>,
+        val isLoaded: Boolean,
+        internal val fullNames: Map<String, Int>,
+        internal val vocabulary: Array<String>, // sorted, distinct name words
+        internal val wordPostings: Map<String, IntArray>,
+        internal val phoneticPostings: Map<String, IntArray>,
+        internal val wordCounts: IntArray,
+        internal val phoneKeys: Array<String>,
+        internal val aliases: Map<String, Entry>,
+        internal val favourites: Set<String>, // phone keys of speed dial and emergency contacts
+        internal val namesByNumber: Map<String, String> // every number of every contact, by phone key
+    )
+
+    companion object {
+        private const val TAG = "ContactIndex"
+        private const val RELOAD_DEBOUNCE_MS = 1_000L
+
+        @Volatile
+        private var INSTANCE: ContactIndex? = null
+
+        fun getInstance(context: Context): ContactIndex {
+            return INSTANCE ?: synchronized(this) {
+                INSTANCE ?: ContactIndex(context.applicationContext).also {
+                    INSTANCE = it
+                    it.start()
+                }
+            }
+        }
+
+        private val EMPTY = build(emptyList(), emptyMap(), false, emptyList(), emptyList())
+
+        private fun build(
+            device: List<Entry>,
+            deviceNumbers: Map<String, String>,
+            isLoaded: Boolean,
+            emergency: List<EmergencyContactEntity>,
+            speedDial: List<SpeedDialContactEntity>
+        ): Snapshot {
+            val fullNames = HashMap<String, Int>(device.size)
+            val words = HashMap<String, MutableList<Int>>()
+            val phonetic = HashMap<String, MutableList<Int>>()
+            val wordCounts = IntArray(device.size)
+            val phoneKeys = Array(device.size) { NameMatching.phoneKey(device[it].phoneNumber) }
+
+            device.forEachIndexed { index, entry ->
+                val nameWords = NameMatching.words(entry.name)
+                wordCounts[index] = nameWords.size
+                fullNames.putIfAbsent(nameWords.joinToString(" "), index)
+                for (word in nameWords.distinct()) {
+                    words.getOrPut(word) { ArrayList(1) }.add(index)
+                    phonetic.getOrPut(NameMatching.phonetic(word)) { ArrayList(1) }.add(index)
+                }
+            }
+
+            // Emergency contacts first (primary, then their order), then speed dial
+            val aliases = HashMap<String, Entry>()
+            emergency.sortedWith(compareBy({ !it.isPrimary }, { it.sortOrder })).forEach { contact ->
+                val relationship = NameMatching.relationship(contact.relationship)
+                    ?: NameMatching.relationship(contact.name)
+                    ?: return@forEach
+                aliases.putIfAbsent(relationship, Entry("emergency:${contact.id}", contact.name, contact.phoneNumber, contact.photoUri))
+            }
+            speedDial.sortedBy { it.position }.forEach { contact ->
+                val relationship = NameMatching.relationship(contact.name) ?: return@forEach
+                aliases.putIfAbsent(relationship, Entry("speed_dial:${contact.id}", contact.name, contact.phoneNumber, contact.photoUri))
+            }
+            val favourites = (emergency.map { it.phoneNumber } + speedDial.map { it.phoneNumber })
+                .map { NameMatching.phoneKey(it) }
+                .filter { it.isNotEmpty() }
+                .toHashSet()
+
+            return Snapshot(
+                contacts = device,
+                isLoaded = isLoaded,
+                fullNames = fullNames,
+                vocabulary = words.keys.toTypedArray().apply { sort() },
+                wordPostings = words.mapValues { it.value.toIntArray() },
+                phoneticPostings = phonetic.mapValues { it.value.toIntArray() },
+                wordCounts = wordCounts,
+                phoneKeys = phoneKeys,
+                aliases = aliases,
+                favourites = favourites,
+                namesByNumber = deviceNumbers
+            )
+        }
+    }
+
+    private val scope = CoroutineScope(SupervisorJob() + Dispatchers.IO)
+    private val lock = Any()
+
+    private var deviceContacts: List<Entry> = emptyList()
+    private var deviceNumbers: Map<String, String> = emptyMap()
+    private var deviceLoaded = false
+    private var emergencyContacts: List<EmergencyContactEntity> = emptyList()
+    private var speedDialContacts: List<SpeedDialContactEntity> = emptyList()
+    private var reloadJob: Job? = null
+    private var reloadGeneration = 0L
+
+    private val _snapshot = MutableStateFlow(EMPTY)
+    val snapshot: StateFlow<Snapshot> = _snapshot.asStateFlow()
+
+    private val observer = object : ContentObserver(Handler(Looper.getMainLooper())) {
+        override fun onChange(selfChange: Boolean, uri: Uri?) {
+            scheduleReload(RELOAD_DEBOUNCE_MS)
+        }
+    }
+
+    private fun start() {
+        try {
+            context.contentResolver.registerContentObserver(ContactsContract.Contacts.CONTENT_URI, true, observer)
+        } catch (e: SecurityException) {
+            Log.w(TAG, "Can't observe contacts", e)
+        }
+        scheduleReload(0)
+
+        val database = AppDatabase.getDatabase(context)
+        scope.launch {
+            combine(
+                database.emergencyContactDao().getAllContacts(),
+                database.speedDialContactDao().getAllSpeedDialContacts()
+            ) { emergency, speedDial -> emergency to speedDial }
+                .collect { (emergency, speedDial) ->
+                    synchronized(lock) {
+                        emergencyContacts = emergency
+                        speedDialContacts = speedDial
+                    }
+                    publish()
+                }
+        }
+    }
+
+    /**
+     * Re-read the phone book now, e.g. right after the contacts permission was granted.
+     */
+    fun refresh() = scheduleReload(0)
+
+    private fun scheduleReload(delayMs: Long) {
+        synchronized(lock) {
+            reloadJob?.cancel()
+            // The provider read blocks and ignores cancellation; only the latest reload may publish
+            val generation = ++reloadGeneration
+            reloadJob = scope.launch {
+                delay(delayMs)
+                val loaded = readDeviceContacts()
+                synchronized(lock) {
+                    if (generation != reloadGeneration) return@launch
+                    deviceContacts = loaded?.first ?: emptyList()
+                    deviceNumbers = loaded?.second ?: emptyMap()
+                    deviceLoaded = loaded != null
+                }
+                publish()
+            }
+        }
+    }
+
+    private fun publish() {
+        val start = System.nanoTime()
+        val snapshot = synchronized(lock) {
+            build(deviceContacts, deviceNumbers, deviceLoaded, emergencyContacts, speedDialContacts)
+        }
+        _snapshot.value = snapshot
+        Log.d(TAG, "Indexed ${snapshot.contacts.size} contacts, ${snapshot.aliases.size} aliases in ${(System.nanoTime() - start) / 1_000_000}ms")
+    }
+
+    /**
+     * One entry per contact with a phone number, sorted by name, and the contact name for
+     * every number; null without permission.
+     */
+    private fun readDeviceContacts(): Pair<List<Entry>, Map<String, String>>? {
+        if (ContextCompat.checkSelfPermission(context, Manifest.permission.READ_CONTACTS) != PackageManager.PERMISSION_GRANTED) {
+            return null
+        }
+        val entries = ArrayList<Entry>()
+        val numbers = HashMap<String, String>()
+        try {
+            context.contentResolver.query(
+                ContactsContract.CommonDataKinds.Phone.CONTENT_URI,
+                arrayOf(
+                    ContactsContract.CommonDataKinds.Phone.CONTACT_ID,
+                    ContactsContract.CommonDataKinds.Phone.DISPLAY_NAME,
+                    ContactsContract.CommonDataKinds.Phone.NUMBER,
+                    ContactsContract.CommonDataKinds.Phone.PHOTO_URI
+                ),
+                null,
+                null,
+                ContactsContract.CommonDataKinds.Phone.DISPLAY_NAME + " ASC"
+            )?.use { cursor ->
+                val seen = HashSet<String>()
+                while (cursor.moveToNext()) {
+                    val id = cursor.getString(0) ?: continue
+                    val number = cursor.getString(2) ?: continue
+                    val name = cursor.getString(1) ?: "Unknown"
+                    numbers.putIfAbsent(NameMatching.phoneKey(number), name)
+                    if (!seen.add(id)) continue
+                    entries.add(Entry(id, name, number, cursor.getString(3)))
+                }
+            }
+        } catch (e: Exception) {
+            Log.e(TAG, "Failed to read contacts", e)
+            return null
+        }
+        return entries to numbers
+    }
+
+    /**
+     * Contact name for a phone number in any format ("+91 98450 12345", "09845012345"),
+     * or null if it isn't in the phone book.
+     */
+    fun nameForNumber(number: String): String? {
+        val key = NameMatching.phoneKey(number)
+        return if (key.isEmpty()) null else _snapshot.value.namesByNumber[key]
+    }
+
+    /**
+     * Best contact for a spoken name ("anish", "my daughter", "laxmi" for "Lakshmi Iyer").
+     * Tries the exact name and whole words, then relationship aliases, then sound-alike and
+     * misspelled words; ties go to speed dial / emergency contacts. A relationship said with
+     * "my" ("my brother") is tried first, but a bare word that is also a name ("anna", "ma")
+     * means the contact of that name.
+     */
+    fun resolve(spokenName: String): Match? {
+        val snapshot = _snapshot.value
+        val spoken = NameMatching.words(spokenName)
+        val words = spoken.filter { it != "my" && it != "the" }
+        if (words.isEmpty()) return null
+
+        val alias = if (words.size == 1) {
+            NameMatching.RELATIONSHIP_ALIASES[words[0]]?.let { snapshot.aliases[it] }
+        } else {
+            null
+        }
+        if (alias != null && "my" in spoken) return Match(alias, MatchKind.ALIAS)
+
+        snapshot.fullNames[words.joinToString(" ")]?.let {
+            return Match(snapshot.contacts[it], MatchKind.EXACT)
+        }
+
+        intersect(words.map { snapshot.wordPostings[it] })
+            ?.let { return Match(snapshot.contacts[best(snapshot, it, words.size)], MatchKind.WORDS) }
+
+        if (alias != null) return Match(alias, MatchKind.ALIAS)
+
+        intersect(words.map { snapshot.phoneticPostings[NameMatching.phonetic(it)] })
+            ?.let { return Match(snapshot.contacts[best(snapshot, it, words.size)], MatchKind.PHONETIC) }
+
+        intersect(words.map { fuzzyPostings(snapshot, it) })
+            ?.let { return Match(snapshot.contacts[best(snapshot, it, words.size)], MatchKind.FUZZY) }
+
+        return null
+    }
+
+    /**
+     * Contacts for the search box: every query word must start a word of the name, or the
+     * query's digits must appear in the number. Falls back to sound-alike matching.
+     */
+    fun search(query: String): List<Entry> {
+        val snapshot = _snapshot.value
+        if (query.isBlank()) return snapshot.contacts
+
+        val digits = query.filter { it.isDigit() }
+        if (digits.isNotEmpty() && digits.length == query.count { !it.isWhitespace() && it != '+' && it != '-' }) {
+            return snapshot.contacts.filterIndexed { i, _ -> snapshot.phoneKeys[i].contains(digits) }
+        }
+
+        val words = NameMatching.words(query)
+        val matches = intersect(words.map { prefixPostings(snapshot, it) })
+            ?: intersect(words.map { snapshot.phoneticPostings[NameMatching.phonetic(it)] })
+            ?: return emptyList()
+        return matches.map { snapshot.contacts[it] }
+    }
+
+    private fun prefixPostings(snapshot: Snapshot, prefix: String): IntArray? {
+        val vocabulary = snapshot.vocabulary
+        var low = 0
+        var high = vocabulary.size
+        while (low < high) {
+            val mid = (low + high) ushr 1
+            if (vocabulary[mid] < prefix) low = mid + 1 else high = mid
+        }
+        var union: IntArray? = null
+        var i = low
+        while (i < vocabulary.size && vocabulary[i].startsWith(prefix)) {
+            val postings = snapshot.wordPostings.getValue(vocabulary[i])
+            union = if (union == null) postings else union(union, postings)
+            i++
+        }
+        return union
+    }
+
+    private fun fuzzyPostings(snapshot: Snapshot, word: String): IntArray? {
+        val max = NameMatching.maxEdits(word.length)
+        if (max == 0) return null
+        var union: IntArray? = null
+        for (candidate in snapshot.vocabulary) {
+            if (NameMatching.withinEdits(word, candidate, max)) {
+                val postings = snapshot.wordPostings.getValue(candidate)
+                union = if (union == null) postings else union(union, postings)
+            }
+        }
+        return union
+    }
+
+    /**
+     * Speed dial / emergency contacts first, then the name with the fewest extra words,
+     * then alphabetical.
+     */
+    private fun best(snapshot: Snapshot, candidates: IntArray, spokenWords: Int): Int =
+        candidates.minWith(
+            compareBy<Int>({ snapshot.phoneKeys[it] !in snapshot.favourites }, { snapshot.wordCounts[it] - spokenWords }, { it })
+        )
+
+    /**
+     * Sorted intersection; null if any list is missing or the result is empty.
+     */
+    private fun intersect(postings: List<IntArray?>): IntArray? {
+        if (postings.isEmpty() || postings.any { it == null }) return null
+        var result = postings[0]!!
+        for (k in 1 until postings.size) {
+            val other = postings[k]!!
+            val out = IntArray(minOf(result.size, other.size))
+            var i = 0
+            var j = 0
+            var n = 0
+            while (i < result.size && j < other.size) {
+                when {
+                    result[i] < other[j] -> i++
+                    result[i] > other[j] -> j++
+                    else -> { out[n++] = result[i]; i++; j++ }
+                }
+            }
+            result = out.copyOf(n)
+        }
+        return result.takeIf { it.isNotEmpty() }
+    }
+
+    private fun union(a: IntArray, b: IntArray): IntArray {
+        val out = IntArray(a.size + b.size)
+        var i = 0
+        var j = 0
+        var n = 0
+        while (i < a.size || j < b.size) {
+            val next = when {
+                j >= b.size -> a[i++]
+                i >= a.size -> b[j++]
+                a[i] < b[j] -> a[i++]
+                a[i] > b[j] -> b[j++]
+                else -> { j++; a[i++] }
+            }
+            out[n++] = next
+        }
+        return out.copyOf(n)
+    }
+}
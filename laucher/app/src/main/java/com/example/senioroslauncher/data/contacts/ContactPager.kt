@@ -0,0 +1,283 @@
+package com.example.senioroslauncher.data.contacts
+
+import android.Manifest
+import android.content.Context
+import android.content.pm.PackageManager
+import android.database.Cursor
+import android.provider.ContactsContract
+import android.util.Log
+import androidx.core.content.ContextCompat
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.flow.MutableStateFlow
+import kotlinx.coroutines.flow.StateFlow
+import kotlinx.coroutines.flow.asStateFlow
+import kotlinx.coroutines.flow.drop
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.sync.Mutex
+import kotlinx.coroutines.sync.withLock
+
+/**
+ * The phone book a page at a time, for scrolling through every contact on the contacts
+ * screen. Only the total, the alphabet sections and the pages near the viewport are held,
+ * so memory and time to first frame don't depend on the size of the address book.
+ *
+ * Rows are addressed by position: [get] returns null for a row whose page isn't loaded yet.
+ * The screen reports the rows it shows through [show] (from an effect, not from composition),
+ * which loads their pages and the next one. Positions map to contacts through one id-only
+ * cursor held open in sort order (the provider takes only a plain row count as its limit,
+ * not an offset); its window holds the ids around the rows last read, and a page's names
+ * and numbers are then queried for just those ids. When [ContactIndex] sees the provider change, the cursor,
+ * count, sections and held pages are re-read, and only pages whose contents differ are
+ * replaced; a page read before the refresh started is discarded rather than published.
+ *
+ * One instance per screen; [close] it when the screen goes away.
+ */
+class ContactPager(private val context: Context, private val scope: CoroutineScope) {
+
+    /**
+     * A letter of the alphabet bar and the position of its first contact.
+     */
+    data class Section(val title: String, val position: Int)
+
+    class State internal constructor(
+        val total: Int,
+        val sections: List<Section>,
+        internal val pages: Map<Int, List<ContactIndex.Entry>>,
+        val isLoaded: Boolean
+    )
+
+    companion object {
+        private const val TAG = "ContactPager"
+        const val PAGE_SIZE = 40
+        private const val MAX_PAGES = 6
+        private const val SELECTION = "${ContactsContract.Contacts.HAS_PHONE_NUMBER} = 1"
+        private const val SORT = "${ContactsContract.Contacts.SORT_KEY_PRIMARY} ASC, ${ContactsContract.Contacts._ID} ASC"
+
+        // Stay under SQLite's bound parameter limit
+        private const val MAX_IDS_PER_QUERY = 500
+    }
+
+    private val mutex = Mutex()
+    // Guarded by itself, with firstVisible and lastVisible
+    private val loading = HashSet<Int>()
+    // The first page until the screen reports what it shows
+    private var firstVisible = 0
+    private var lastVisible = 0
+    // Bumped by refresh(); page reads from an older generation are dropped
+    @Volatile
+    private var generation = 0L
+    private var refreshJob: Job? = null
+    private var watchJob: Job? = null
+
+    // Contact ids in display order; guarded by itself
+    private val idsLock = Any()
+    private var ids: Cursor? = null
+    private var closed = false
+
+    private val _state = MutableStateFlow(State(0, emptyList(), emptyMap(), false))
+    val state: StateFlow<State> = _state.asStateFlow()
+
+    init {
+        refresh()
+        watchJob = scope.launch {
+            ContactIndex.getInstance(context).snapshot.drop(1).collect { refresh() }
+        }
+    }
+
+    /**
+     * The contact at [position] in [state], or null while its page loads.
+     */
+    fun get(position: Int, state: State = _state.value): ContactIndex.Entry? =
+        state.pages[position / PAGE_SIZE]?.getOrNull(position % PAGE_SIZE)
+
+    /**
+     * Rows [first]..[last] are on screen: load their pages, and the next one, if not held yet.
+     */
+    fun show(first: Int, last: Int) {
+        synchronized(loading) {
+            firstVisible = first
+            lastVisible = last
+        }
+        loadVisible()
+    }
+
+    /**
+     * Re-read the count and sections, then every held page, replacing only what changed.
+     */
+    fun refresh() {
+        refreshJob?.cancel()
+        // The provider reads block and ignore cancellation; only the latest refresh may publish
+        val refreshGeneration = ++generation
+        refreshJob = scope.launch(Dispatchers.IO) {
+            if (!hasPermission()) return@launch
+            val (total, sections) = readIndex() ?: return@launch
+            val heldPages = _state.value.pages.keys.filter { it * PAGE_SIZE < total }
+            val reread = heldPages.associateWith { readPage(it) }
+            mutex.withLock {
+                if (refreshGeneration != generation) return@launch
+                val current = _state.value
+                val pages = LinkedHashMap<Int, List<ContactIndex.Entry>>()
+                for ((index, page) in reread) {
+                    if (page == null) continue
+                    // Keep the old list when nothing changed, so its rows aren't redrawn
+                    pages[index] = current.pages[index]?.takeIf { it == page } ?: page
+                }
+                _state.value = State(total, sections, pages, true)
+            }
+            // Pages on screen that weren't held, or were dropped as stale meanwhile
+            loadVisible()
+        }
+    }
+
+    fun close() {
+        refreshJob?.cancel()
+        watchJob?.cancel()
+        synchronized(idsLock) {
+            closed = true
+            ids?.close()
+            ids = null
+        }
+    }
+
+    private fun loadVisible() {
+        val state = _state.value
+        if (!state.isLoaded || state.total == 0) return // refresh() calls again once the total is known
+        val (first, last) = synchronized(loading) { firstVisible to lastVisible }
+        val lastPage = minOf(last / PAGE_SIZE + 1, (state.total - 1) / PAGE_SIZE)
+        for (pageIndex in first / PAGE_SIZE..lastPage) {
+            if (pageIndex !in state.pages) loadPage(pageIndex)
+        }
+    }
+
+    private fun loadPage(pageIndex: Int) {
+        synchronized(loading) {
+            if (!loading.add(pageIndex)) return
+        }
+        val pageGeneration = generation
+        scope.launch(Dispatchers.IO) {
+            var stale = false
+            try {
+                val page = readPage(pageIndex) ?: return@launch
+                mutex.withLock {
+                    if (pageGeneration != generation) {
+                        stale = true
+                        return@launch
+                    }
+                    val current = _state.value
+                    val pages = LinkedHashMap(current.pages)
+                    pages[pageIndex] = page
+                    // Drop the pages farthest from the one just loaded
+                    while (pages.size > MAX_PAGES) {
+                        pages.remove(pages.keys.maxBy { kotlin.math.abs(it - pageIndex) })
+                    }
+                    _state.value = State(current.total, current.sections, pages, current.isLoaded)
+                }
+            } finally {
+                synchronized(loading) { loading.remove(pageIndex) }
+            }
+            // Read against the old ids; load it again if it is still on screen
+            if (stale) loadVisible()
+        }
+    }
+
+    private fun hasPermission() =
+        ContextCompat.checkSelfPermission(context, Manifest.permission.READ_CONTACTS) == PackageManager.PERMISSION_GRANTED
+
+    /**
+     * Contact count and the provider's alphabet index (titles with counts), from one
+     * id-only query whose cursor then replaces [ids].
+     */
+    private fun readIndex(): Pair<Int, List<Section>>? = try {
+        val uri = ContactsContract.Contacts.CONTENT_URI.buildUpon()
+            .appendQueryParameter(ContactsContract.Contacts.EXTRA_ADDRESS_BOOK_INDEX, "true")
+            .build()
+        context.contentResolver.query(uri, arrayOf(ContactsContract.Contacts._ID), SELECTION, null, SORT)?.let { cursor ->
+            val extras = cursor.extras
+            val titles = extras.getStringArray(ContactsContract.Contacts.EXTRA_ADDRESS_BOOK_INDEX_TITLES)
+            val counts = extras.getIntArray(ContactsContract.Contacts.EXTRA_ADDRESS_BOOK_INDEX_COUNTS)
+            val sections = ArrayList<Section>()
+            if (titles != null && counts != null) {
+                var position = 0
+                for (i in titles.indices) {
+                    sections.add(Section(titles[i], position))
+                    position += counts.getOrElse(i) { 0 }
+                }
+            }
+            val total = cursor.count
+            synchronized(idsLock) {
+                if (closed) {
+                    cursor.close()
+                } else {
+                    ids?.close()
+                    ids = cursor
+                }
+            }
+            total to sections
+        }
+    } catch (e: Exception) {
+        Log.e(TAG, "Failed to read contacts index", e)
+        null
+    }
+
+    /**
+     * One page of contacts with a phone number each: the ids at its positions in [ids], then
+     * names and numbers in queries for just those ids.
+     */
+    private fun readPage(pageIndex: Int): List<ContactIndex.Entry>? = try {
+        val pageIds = ArrayList<String>(PAGE_SIZE)
+        synchronized(idsLock) {
+            val cursor = ids ?: return null
+            if (cursor.moveToPosition(pageIndex * PAGE_SIZE)) {
+                do {
+                    cursor.getString(0)?.let { pageIds.add(it) }
+                } while (cursor.position < (pageIndex + 1) * PAGE_SIZE - 1 && cursor.moveToNext())
+            }
+        }
+
+        val rows = HashMap<String, Pair<String, String?>>()
+        val numbers = HashMap<String, String>()
+        for (chunk in pageIds.chunked(MAX_IDS_PER_QUERY)) {
+            val args = chunk.toTypedArray()
+            context.contentResolver.query(
+                ContactsContract.Contacts.CONTENT_URI,
+                arrayOf(
+                    ContactsContract.Contacts._ID,
+                    ContactsContract.Contacts.DISPLAY_NAME_PRIMARY,
+                    ContactsContract.Contacts.PHOTO_THUMBNAIL_URI
+                ),
+                "${ContactsContract.Contacts._ID} IN (${placeholders(chunk.size)})",
+                args,
+                null
+            )?.use { cursor ->
+                while (cursor.moveToNext()) {
+                    val id = cursor.getString(0) ?: continue
+                    rows[id] = (cursor.getString(1) ?: "Unknown") to cursor.getString(2)
+                }
+            }
+            context.contentResolver.query(
+                ContactsContract.CommonDataKinds.Phone.CONTENT_URI,
+                arrayOf(ContactsContract.CommonDataKinds.Phone.CONTACT_ID, ContactsContract.CommonDataKinds.Phone.NUMBER),
+                "${ContactsContract.CommonDataKinds.Phone.CONTACT_ID} IN (${placeholders(chunk.size)})",
+                args,
+                "${ContactsContract.CommonDataKinds.Phone.IS_SUPER_PRIMARY} DESC"
+            )?.use { cursor ->
+                while (cursor.moveToNext()) {
+                    val id = cursor.getString(0) ?: continue
+                    numbers.putIfAbsent(id, cursor.getString(1) ?: continue)
+                }
+            }
+        }
+        // A contact deleted since the ids were read is left out until the next refresh
+        pageIds.mapNotNull { id ->
+            val (name, photo) = rows[id] ?: return@mapNotNull null
+            ContactIndex.Entry(id, name, numbers[id].orEmpty(), photo)
+        }
+    } catch (e: Exception) {
+        Log.e(TAG, "Failed to read contacts page $pageIndex", e)
+        null
+    }
+
+    private fun placeholders(count: Int) = List(count) { "?" }.joinToString(",")
+}
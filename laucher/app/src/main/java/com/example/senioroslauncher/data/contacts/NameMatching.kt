@@ -0,0 +1,141 @@
+package com.example.senioroslauncher.data.contacts
+
+/**
+ * Word-level helpers for matching spoken or typed names against contact names.
+ */
+internal object NameMatching {
+
+    // Spoken relationship words -> canonical relationship
+    val RELATIONSHIP_ALIASES: Map<String, String> = mapOf(
+        "mom" to "mother", "mum" to "mother", "mummy" to "mother", "mother" to "mother",
+        "amma" to "mother", "maa" to "mother", "ma" to "mother",
+        "dad" to "father", "daddy" to "father", "papa" to "father", "father" to "father",
+        "appa" to "father", "pitaji" to "father",
+        "son" to "son", "beta" to "son",
+        "daughter" to "daughter", "beti" to "daughter",
+        "wife" to "wife", "husband" to "husband",
+        "brother" to "brother", "bhai" to "brother", "anna" to "brother",
+        "sister" to "sister", "didi" to "sister", "akka" to "sister",
+        "grandson" to "grandson", "granddaughter" to "granddaughter",
+        "doctor" to "doctor", "doc" to "doctor",
+        "neighbour" to "neighbour", "neighbor" to "neighbour",
+        "caregiver" to "caregiver", "carer" to "caregiver", "nurse" to "caregiver",
+        "friend" to "friend"
+    )
+
+    /**
+     * Lowercase letter/digit words of [text].
+     */
+    fun words(text: String): List<String> {
+        val words = ArrayList<String>(3)
+        val current = StringBuilder()
+        for (c in text) {
+            if (c.isLetterOrDigit()) {
+                current.append(c.lowercaseChar())
+            } else if (c != '\'' && current.isNotEmpty()) {
+                words.add(current.toString())
+                current.setLength(0)
+            }
+        }
+        if (current.isNotEmpty()) words.add(current.toString())
+        return words
+    }
+
+    /**
+     * Canonical relationship for a free-text label like "My Daughter" or "Amma", or null.
+     */
+    fun relationship(label: String): String? =
+        words(label).firstNotNullOfOrNull { RELATIONSHIP_ALIASES[it] }
+
+    /**
+     * Sound-alike key for one lowercase word, tuned for romanised Indian and English names:
+     * "Lakshmi"/"Laxmi", "Srinivas"/"Sreenivas", "Mohammed"/"Mohamed" share a key.
+     * A few spellings are folded (ph, ck, x, q, soft/hard c, w, z, y) and 'h' after the first
+     * letter is dropped (so "kh", "sh" fold too). Vowels are kept as three classes (a; e/i;
+     * o/u), so "Mohan" and "Meena" stay apart, and repeated letters or classes collapse.
+     */
+    fun phonetic(word: String): String {
+        if (word.isEmpty()) return word
+        val folded = StringBuilder(word.length)
+        var i = 0
+        while (i < word.length) {
+            val c = word[i]
+            val next = if (i + 1 < word.length) word[i + 1] else ' '
+            when {
+                c == 'p' && next == 'h' -> { folded.append('f'); i++ }
+                c == 'c' && next == 'h' -> { folded.append('c'); i++ }
+                c == 'c' && next == 'k' -> { folded.append('k'); i++ }
+                c == 'x' -> folded.append("ks")
+                c == 'q' -> folded.append('k')
+                c == 'c' -> folded.append(if (next == 'e' || next == 'i' || next == 'y') 's' else 'k')
+                c == 'w' -> folded.append('v')
+                c == 'z' -> folded.append('s')
+                c == 'y' -> folded.append('i')
+                else -> folded.append(c)
+            }
+            i++
+        }
+
+        val key = StringBuilder(folded.length)
+        for (k in folded.indices) {
+            if (k > 0 && folded[k] == 'h') continue
+            val c = when (folded[k]) {
+                'e', 'i' -> 'i'
+                'o', 'u' -> 'u'
+                else -> folded[k]
+            }
+            if (key.isNotEmpty() && c == key[key.length - 1]) continue
+            key.append(c)
+        }
+        return key.toString()
+    }
+
+    /**
+     * True if [a] and [b] are within [max] edits (insert, delete, substitute, swap).
+     */
+    fun withinEdits(a: String, b: String, max: Int): Boolean {
+        if (kotlin.math.abs(a.length - b.length) > max) return false
+        if (a == b) return true
+        val n = b.length
+        var prevPrev = IntArray(n + 1)
+        var prev = IntArray(n + 1) { it }
+        var current = IntArray(n + 1)
+        for (i in 1..a.length) {
+            current[0] = i
+            var rowMin = current[0]
+            for (j in 1..n) {
+                val cost = if (a[i - 1] == b[j - 1]) 0 else 1
+                var value = minOf(prev[j] + 1, current[j - 1] + 1, prev[j - 1] + cost)
+                if (i > 1 && j > 1 && a[i - 1] == b[j - 2] && a[i - 2] == b[j - 1]) {
+                    value = minOf(value, prevPrev[j - 2] + 1)
+                }
+                current[j] = value
+                if (value < rowMin) rowMin = value
+            }
+            if (rowMin > max) return false
+            val recycled = prevPrev
+            prevPrev = prev
+            prev = current
+            current = recycled
+        }
+        return prev[n] <= max
+    }
+
+    /**
+     * Edits allowed for a word of [length] letters: none for short words, where one edit
+     * already turns one name into another.
+     */
+    fun maxEdits(length: Int): Int = when {
+        length <= 3 -> 0
+        length <= 6 -> 1
+        else -> 2
+    }
+
+    /**
+     * Digits of a phone number without the country code prefix noise, for equality checks.
+     */
+    fun phoneKey(number: String): String {
+        val digits = number.filter { it.isDigit() }
+        return if (digits.length > 10) digits.takeLast(10) else digits
+    }
+}
@@ -16,15 +16,17 @@ import com.example.senioroslauncher.data.database.entity.*
         EmergencyContactEntity::class,
         AppointmentEntity::class,
         NoteEntity::class,
+        NoteFtsEntity::class,
         SpeedDialContactEntity::class,
         MedicalProfileEntity::class,
         HydrationLogEntity::class,
         // Guardian Integration entities
         AlertEntity::class,
         HealthCheckInEntity::class,
-        PairedGuardianEntity::class
+        PairedGuardianEntity::class,
+        OutboundMessageEntity::class
     ],
-    version = 2,
+    version = 7,
     exportSchema = false
 )
 @TypeConverters(Converters::class)
@@ -43,6 +45,7 @@ abstract class AppDatabase : RoomDatabase() {
     abstract fun alertDao(): AlertDao
     abstract fun healthCheckInDao(): HealthCheckInDao
     abstract fun pairedGuardianDao(): PairedGuardianDao
+    abstract fun outboundMessageDao(): OutboundMessageDao
 
     companion object {
         @Volatile
@@ -55,7 +58,9 @@ abstract class AppDatabase : RoomDatabase() {
                     AppDatabase::class.java,
                     "senior_launcher_database"
                 )
-                    .fallbackToDestructiveMigration()
+                    .addMigrations(*Migrations.ALL)
+                    // Pre-release v1 installs have no migration path
+                    .fallbackToDestructiveMigrationFrom(1)
                     .build()
                 INSTANCE = instance
                 instance
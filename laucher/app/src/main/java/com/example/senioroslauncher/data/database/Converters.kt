@@ -4,12 +4,13 @@ import androidx.room.TypeConverter
 import com.example.senioroslauncher.data.database.entity.AlertType
 import com.example.senioroslauncher.data.database.entity.MedicationAction
 import com.example.senioroslauncher.data.database.entity.MedicationFrequency
-import com.google.gson.Gson
-import com.google.gson.reflect.TypeToken
 import java.util.Date
 
 class Converters {
-    private val gson = Gson()
+    companion object {
+        // ASCII unit separator - never typed by users, so list items need no escaping
+        const val LIST_SEPARATOR = '\u001F'
+    }
 
     @TypeConverter
     fun fromTimestamp(value: Long?): Date? {
@@ -23,26 +24,14 @@ class Converters {
 
     @TypeConverter
     fun fromStringList(value: String?): List<String> {
-        if (value == null) return emptyList()
-        val listType = object : TypeToken<List<String>>() {}.type
-        return gson.fromJson(value, listType)
+        if (value.isNullOrEmpty()) return emptyList()
+        return value.split(LIST_SEPARATOR)
     }
 
     @TypeConverter
     fun toStringList(list: List<String>?): String {
-        return gson.toJson(list ?: emptyList<String>())
-    }
-
-    @TypeConverter
-    fun fromIntList(value: String?): List<Int> {
-        if (value == null) return emptyList()
-        val listType = object : TypeToken<List<Int>>() {}.type
-        return gson.fromJson(value, listType)
-    }
-
-    @TypeConverter
-    fun toIntList(list: List<Int>?): String {
-        return gson.toJson(list ?: emptyList<Int>())
+        if (list.isNullOrEmpty()) return ""
+        return list.joinToString(LIST_SEPARATOR.toString()) { it.replace(LIST_SEPARATOR, ' ') }
     }
 
     @TypeConverter
@@ -0,0 +1,176 @@
+package com.example.senioroslauncher.data.database
+
+import androidx.room.migration.Migration
+import androidx.sqlite.db.SupportSQLiteDatabase
+import com.example.senioroslauncher.data.database.entity.DaysOfWeekMask
+import com.google.gson.Gson
+import com.google.gson.reflect.TypeToken
+
+/**
+ * Schema migrations for [AppDatabase].
+ * Index names follow Room's default "index_<table>_<columns>" so the opened schema validates.
+ */
+object Migrations {
+
+    /**
+     * v2 -> v3: indexes for the time-range queries used by guardian sync and the dashboard.
+     */
+    val MIGRATION_2_3 = object : Migration(2, 3) {
+        override fun migrate(db: SupportSQLiteDatabase) {
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_alerts_triggeredAt` ON `alerts` (`triggeredAt`)")
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_alerts_type_triggeredAt` ON `alerts` (`type`, `triggeredAt`)")
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_alerts_resolved_triggeredAt` ON `alerts` (`resolved`, `triggeredAt`)")
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_alerts_resolvedAt` ON `alerts` (`resolvedAt`)")
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_medication_logs_actionTime` ON `medication_logs` (`actionTime`)")
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_health_checkins_date` ON `health_checkins` (`date`)")
+        }
+    }
+
+    /**
+     * v3 -> v4: day-of-week bitmask on medication_schedules, backfilled from the JSON day list.
+     */
+    val MIGRATION_3_4 = object : Migration(3, 4) {
+        override fun migrate(db: SupportSQLiteDatabase) {
+            db.execSQL(
+                "ALTER TABLE `medication_schedules` ADD COLUMN `daysMask` INTEGER NOT NULL DEFAULT ${DaysOfWeekMask.ALL_DAYS}"
+            )
+            db.query("SELECT `id`, `daysOfWeek` FROM `medication_schedules`").use { cursor ->
+                while (cursor.moveToNext()) {
+                    val id = cursor.getLong(0)
+                    val mask = parseDayList(cursor.getString(1))
+                    db.execSQL(
+                        "UPDATE `medication_schedules` SET `daysMask` = ? WHERE `id` = ?",
+                        arrayOf<Any>(mask, id)
+                    )
+                }
+            }
+        }
+    }
+
+    /**
+     * v4 -> v5: drop the Gson-encoded medication_schedules.daysOfWeek (daysMask replaces it)
+     * and re-encode health_checkins.symptoms from a JSON array to a separator-joined string.
+     */
+    val MIGRATION_4_5 = object : Migration(4, 5) {
+        override fun migrate(db: SupportSQLiteDatabase) {
+            // SQLite before 3.35 has no DROP COLUMN, so rebuild the table
+            db.execSQL(
+                "CREATE TABLE IF NOT EXISTS `medication_schedules_new` (" +
+                        "`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, " +
+                        "`medicationId` INTEGER NOT NULL, " +
+                        "`hour` INTEGER NOT NULL, " +
+                        "`minute` INTEGER NOT NULL, " +
+                        "`daysMask` INTEGER NOT NULL DEFAULT 127, " +
+                        "`isEnabled` INTEGER NOT NULL, " +
+                        "FOREIGN KEY(`medicationId`) REFERENCES `medications`(`id`) " +
+                        "ON UPDATE NO ACTION ON DELETE CASCADE )"
+            )
+            db.execSQL(
+                "INSERT INTO `medication_schedules_new` (`id`, `medicationId`, `hour`, `minute`, `daysMask`, `isEnabled`) " +
+                        "SELECT `id`, `medicationId`, `hour`, `minute`, `daysMask`, `isEnabled` FROM `medication_schedules`"
+            )
+            db.execSQL("DROP TABLE `medication_schedules`")
+            db.execSQL("ALTER TABLE `medication_schedules_new` RENAME TO `medication_schedules`")
+            db.execSQL(
+                "CREATE INDEX IF NOT EXISTS `index_medication_schedules_medicationId` ON `medication_schedules` (`medicationId`)"
+            )
+
+            val gson = Gson()
+            val listType = object : TypeToken<List<String>>() {}.type
+            db.query("SELECT `id`, `symptoms` FROM `health_checkins`").use { cursor ->
+                while (cursor.moveToNext()) {
+                    val id = cursor.getLong(0)
+                    val legacy = cursor.getString(1)
+                    val symptoms: List<String> = if (legacy.isNullOrEmpty()) {
+                        emptyList()
+                    } else {
+                        gson.fromJson(legacy, listType) ?: emptyList()
+                    }
+                    db.execSQL(
+                        "UPDATE `health_checkins` SET `symptoms` = ? WHERE `id` = ?",
+                        arrayOf<Any>(Converters().toStringList(symptoms), id)
+                    )
+                }
+            }
+        }
+    }
+
+    /**
+     * v5 -> v6: durable outbound queue for guardian events sent while offline.
+     */
+    val MIGRATION_5_6 = object : Migration(5, 6) {
+        override fun migrate(db: SupportSQLiteDatabase) {
+            db.execSQL(
+                "CREATE TABLE IF NOT EXISTS `outbound_messages` (" +
+                        "`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, " +
+                        "`requestId` TEXT NOT NULL, " +
+                        "`type` TEXT NOT NULL, " +
+                        "`recipientId` TEXT NOT NULL, " +
+                        "`body` TEXT NOT NULL, " +
+                        "`priority` INTEGER NOT NULL, " +
+                        "`createdAt` INTEGER NOT NULL, " +
+                        "`attempts` INTEGER NOT NULL, " +
+                        "`lastAttemptAt` INTEGER)"
+            )
+            db.execSQL(
+                "CREATE UNIQUE INDEX IF NOT EXISTS `index_outbound_messages_requestId` ON `outbound_messages` (`requestId`)"
+            )
+            db.execSQL(
+                "CREATE INDEX IF NOT EXISTS `index_outbound_messages_priority_createdAt` ON `outbound_messages` (`priority`, `createdAt`)"
+            )
+        }
+    }
+
+    /**
+     * v6 -> v7: FTS4 index over notes, with the same table and sync trigger definitions Room
+     * creates for [com.example.senioroslauncher.data.database.entity.NoteFtsEntity], then
+     * filled from the existing notes.
+     */
+    val MIGRATION_6_7 = object : Migration(6, 7) {
+        override fun migrate(db: SupportSQLiteDatabase) {
+            db.execSQL(
+                "CREATE VIRTUAL TABLE IF NOT EXISTS `notes_fts` USING FTS4(" +
+                        "`title` TEXT NOT NULL, `content` TEXT NOT NULL, content=`notes`)"
+            )
+            db.execSQL(
+                "CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_notes_fts_BEFORE_UPDATE " +
+                        "BEFORE UPDATE ON `notes` BEGIN DELETE FROM `notes_fts` WHERE `docid`=OLD.`rowid`; END"
+            )
+            db.execSQL(
+                "CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_notes_fts_BEFORE_DELETE " +
+                        "BEFORE DELETE ON `notes` BEGIN DELETE FROM `notes_fts` WHERE `docid`=OLD.`rowid`; END"
+            )
+            db.execSQL(
+                "CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_notes_fts_AFTER_UPDATE " +
+                        "AFTER UPDATE ON `notes` BEGIN INSERT INTO `notes_fts`(`docid`, `title`, `content`) " +
+                        "VALUES (NEW.`rowid`, NEW.`title`, NEW.`content`); END"
+            )
+            db.execSQL(
+                "CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_notes_fts_AFTER_INSERT " +
+                        "AFTER INSERT ON `notes` BEGIN INSERT INTO `notes_fts`(`docid`, `title`, `content`) " +
+                        "VALUES (NEW.`rowid`, NEW.`title`, NEW.`content`); END"
+            )
+            db.execSQL("INSERT INTO `notes_fts`(`notes_fts`) VALUES ('rebuild')")
+        }
+    }
+
+    val ALL: Array<Migration> = arrayOf(
+        MIGRATION_2_3,
+        MIGRATION_3_4,
+        MIGRATION_4_5,
+        MIGRATION_5_6,
+        MIGRATION_6_7
+    )
+
+    /**
+     * Parses the legacy Gson day list ("[1,2,3]") into a mask without going through Gson.
+     */
+    private fun parseDayList(value: String?): Int {
+        if (value == null) return DaysOfWeekMask.ALL_DAYS
+        var mask = 0
+        for (ch in value) {
+            if (ch in '1'..'7') mask = mask or DaysOfWeekMask.bitFor(ch - '0')
+        }
+        return mask
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.senioroslauncher.data.database
+
+import com.example.senioroslauncher.data.database.dao.NoteDao
+import com.example.senioroslauncher.data.database.entity.NoteSearchResult
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+import kotlin.math.ln
+
+/**
+ * Turns what the user typed into an FTS4 query for [NoteDao.searchNotes] and ranks the
+ * results. FTS4 has no built-in ranking, so BM25 is computed here from matchinfo('pcnalx'),
+ * with title hits weighted above body hits.
+ */
+object NoteSearch {
+
+    /** Around each matched term in a [NoteDao.searchNotes] snippet: char(2) and char(3) in the query. */
+    const val MATCH_START = '\u0002'
+    const val MATCH_END = '\u0003'
+
+    private const val K1 = 1.2
+    private const val B = 0.75
+    private val COLUMN_WEIGHTS = doubleArrayOf(3.0, 1.0) // title, content
+
+    /**
+     * "doctor apt" -> "doctor* apt*": every word must appear, the last few letters may still
+     * be being typed. FTS syntax characters are dropped, so input can't break the query.
+     * Null when nothing searchable is left.
+     */
+    fun toFtsQuery(input: String): String? {
+        val terms = input.split(Regex("[^\\p{L}\\p{N}]+")).filter { it.isNotEmpty() }
+        if (terms.isEmpty()) return null
+        return terms.joinToString(" ") { "${it.lowercase()}*" }
+    }
+
+    /**
+     * Best match first; ties go to the most recently edited note.
+     */
+    fun rank(results: List<NoteSearchResult>): List<NoteSearchResult> =
+        results
+            .map { it to score(it.matchInfo) }
+            .sortedWith(compareByDescending<Pair<NoteSearchResult, Double>> { it.second }.thenByDescending { it.first.note.updatedAt })
+            .map { it.first }
+
+    /**
+     * BM25 over matchinfo('pcnalx'): phrase count, column count, row count, average tokens
+     * per column, this row's tokens per column, then (hits here, hits everywhere, rows with
+     * a hit) for every phrase and column.
+     */
+    internal fun score(matchInfo: ByteArray): Double {
+        val ints = ByteBuffer.wrap(matchInfo).order(ByteOrder.nativeOrder()).asIntBuffer()
+        if (ints.limit() < 3) return 0.0
+        val phrases = ints.get(0)
+        val columns = ints.get(1)
+        val rows = ints.get(2).toDouble()
+        val averageStart = 3
+        val lengthStart = averageStart + columns
+        val hitsStart = lengthStart + columns
+        if (ints.limit() < hitsStart + 3 * phrases * columns) return 0.0
+
+        var score = 0.0
+        for (phrase in 0 until phrases) {
+            for (column in 0 until columns) {
+                val base = hitsStart + 3 * (phrase * columns + column)
+                val hits = ints.get(base).toDouble()
+                if (hits == 0.0) continue
+                val rowsWithHit = ints.get(base + 2).toDouble()
+                // Floored so a term in most notes still counts a little
+                val idf = ln((rows - rowsWithHit + 0.5) / (rowsWithHit + 0.5)).coerceAtLeast(0.01)
+                val length = ints.get(lengthStart + column).toDouble()
+                val average = ints.get(averageStart + column).toDouble().coerceAtLeast(1.0)
+                val tf = hits * (K1 + 1) / (hits + K1 * (1 - B + B * length / average))
+                score += COLUMN_WEIGHTS.getOrElse(column) { 1.0 } * idf * tf
+            }
+        }
+        return score
+    }
+}
@@ -38,7 +38,7 @@ interface AlertDao {
     @Query("UPDATE alerts SET resolved = 1, resolvedAt = :resolvedAt WHERE id = :id")
     suspend fun resolveAlert(id: Long, resolvedAt: Date = Date())
 
-    @Query("SELECT * FROM alerts WHERE type = :type AND triggeredAt > :since LIMIT 1")
+    @Query("SELECT * FROM alerts WHERE type = :type AND triggeredAt > :since ORDER BY triggeredAt DESC LIMIT 1")
     suspend fun hasRecentAlert(type: AlertType, since: Date): AlertEntity?
 
     // For sync - get all alerts as a list (not Flow)
@@ -47,4 +47,20 @@ interface AlertDao {
 
     @Query("SELECT * FROM alerts ORDER BY triggeredAt DESC LIMIT :limit")
     suspend fun getRecentAlertsSync(limit: Int = 50): List<AlertEntity>
+
+    // For delta sync - keyset paging on the primary key
+    @Query("SELECT * FROM alerts WHERE id > :afterId ORDER BY id ASC LIMIT :limit")
+    suspend fun getAlertsAfterIdSync(afterId: Long, limit: Int): List<AlertEntity>
+
+    // For delta sync - already-delivered alerts resolved after the (resolvedAt, id) watermark
+    @Query(
+        """
+        SELECT * FROM alerts
+        WHERE id <= :maxId
+          AND (resolvedAt > :changedSince OR (resolvedAt = :changedSince AND id > :changedAfterId))
+        ORDER BY resolvedAt ASC, id ASC
+        LIMIT :limit
+        """
+    )
+    suspend fun getAlertsResolvedSinceSync(maxId: Long, changedSince: Date, changedAfterId: Long, limit: Int): List<AlertEntity>
 }
@@ -40,4 +40,8 @@ interface HealthCheckInDao {
 
     @Query("SELECT * FROM health_checkins ORDER BY date DESC LIMIT :limit")
     suspend fun getRecentCheckInsSync(limit: Int = 30): List<HealthCheckInEntity>
+
+    // For delta sync - keyset paging on the primary key
+    @Query("SELECT * FROM health_checkins WHERE id > :afterId ORDER BY id ASC LIMIT :limit")
+    suspend fun getCheckInsAfterIdSync(afterId: Long, limit: Int): List<HealthCheckInEntity>
 }
@@ -16,9 +16,15 @@ interface MedicationLogDao {
     @Query("SELECT * FROM medication_logs ORDER BY actionTime DESC LIMIT :limit")
     fun getRecentLogs(limit: Int = 50): Flow<List<MedicationLogEntity>>
 
+    @Query("SELECT * FROM medication_logs WHERE actionTime BETWEEN :startDate AND :endDate ORDER BY actionTime DESC")
+    suspend fun getLogsBetweenDatesSync(startDate: Date, endDate: Date): List<MedicationLogEntity>
+
     @Insert(onConflict = OnConflictStrategy.REPLACE)
     suspend fun insert(log: MedicationLogEntity): Long
 
+    @Insert
+    suspend fun insertAll(logs: List<MedicationLogEntity>)
+
     @Delete
     suspend fun delete(log: MedicationLogEntity)
 
@@ -1,8 +1,10 @@
 package com.example.senioroslauncher.data.database.dao
 
 import androidx.room.*
+import com.example.senioroslauncher.data.database.entity.MedicationAction
 import com.example.senioroslauncher.data.database.entity.MedicationScheduleEntity
 import kotlinx.coroutines.flow.Flow
+import java.util.Date
 
 @Dao
 interface MedicationScheduleDao {
@@ -32,4 +34,84 @@ interface MedicationScheduleDao {
 
     @Query("DELETE FROM medication_schedules WHERE medicationId = :medicationId")
     suspend fun deleteAllForMedication(medicationId: Long)
+
+    // Dashboard aggregate - doses due today for active medications plus today's outcomes
+    @Query(
+        """
+        SELECT
+            (SELECT COUNT(*) FROM medication_schedules s
+                INNER JOIN medications m ON m.id = s.medicationId
+                WHERE m.isActive = 1 AND s.isEnabled = 1 AND (s.daysMask & :dayBit) != 0) AS todayTotal,
+            (SELECT COUNT(*) FROM medication_logs
+                WHERE actionTime >= :startOfDay AND actionTime < :endOfDay
+                AND action = 'TAKEN') AS takenToday,
+            (SELECT COUNT(*) FROM medication_logs
+                WHERE actionTime >= :startOfDay AND actionTime < :endOfDay
+                AND action IN ('SKIPPED', 'MISSED')) AS missedToday
+        """
+    )
+    suspend fun getTodayMedicationCounts(dayBit: Int, startOfDay: Date, endOfDay: Date): TodayMedicationCounts
+
+    // Reminder timeline - enabled schedules of active medications, joined with what a reminder shows
+    @Query(
+        """
+        SELECT s.id AS scheduleId, s.medicationId, s.hour, s.minute, s.daysMask,
+            m.name AS medicationName, m.dosage
+        FROM medication_schedules s
+        INNER JOIN medications m ON m.id = s.medicationId
+        WHERE s.isEnabled = 1 AND m.isActive = 1
+        """
+    )
+    suspend fun getReminderSchedules(): List<ReminderSchedule>
+
+    @Query(
+        """
+        SELECT s.id AS scheduleId, s.medicationId, s.hour, s.minute, s.daysMask,
+            m.name AS medicationName, m.dosage
+        FROM medication_schedules s
+        INNER JOIN medications m ON m.id = s.medicationId
+        WHERE s.medicationId = :medicationId AND s.isEnabled = 1 AND m.isActive = 1
+        """
+    )
+    suspend fun getReminderSchedulesForMedication(medicationId: Long): List<ReminderSchedule>
+
+    // Missed-dose sweep - each active schedule with the medication's logs since :logsSince
+    // (one row per log, or a single row with null log columns when there are none)
+    @Query(
+        """
+        SELECT s.id AS scheduleId, s.medicationId, s.hour, s.minute, s.daysMask,
+            m.name AS medicationName, m.dosage, m.createdAt AS medicationCreatedAt,
+            l.id AS logId, l.action AS logAction, l.scheduledTime AS logScheduledTime, l.actionTime AS logActionTime
+        FROM medication_schedules s
+        INNER JOIN medications m ON m.id = s.medicationId
+        LEFT JOIN medication_logs l ON l.medicationId = s.medicationId AND l.actionTime >= :logsSince
+        WHERE s.isEnabled = 1 AND m.isActive = 1
+        """
+    )
+    suspend fun getDoseSweepRows(logsSince: Date): List<DoseSweepRow>
 }
+
+data class ReminderSchedule(
+    val scheduleId: Long,
+    val medicationId: Long,
+    val hour: Int,
+    val minute: Int,
+    val daysMask: Int,
+    val medicationName: String,
+    val dosage: String
+)
+
+data class DoseSweepRow(
+    @Embedded val schedule: ReminderSchedule,
+    val medicationCreatedAt: Date,
+    val logId: Long?,
+    val logAction: MedicationAction?,
+    val logScheduledTime: Date?,
+    val logActionTime: Date?
+)
+
+data class TodayMedicationCounts(
+    val todayTotal: Int,
+    val takenToday: Int,
+    val missedToday: Int
+)
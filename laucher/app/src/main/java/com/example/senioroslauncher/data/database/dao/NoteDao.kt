@@ -2,6 +2,7 @@ package com.example.senioroslauncher.data.database.dao
 
 import androidx.room.*
 import com.example.senioroslauncher.data.database.entity.NoteEntity
+import com.example.senioroslauncher.data.database.entity.NoteSearchResult
 import kotlinx.coroutines.flow.Flow
 
 @Dao
@@ -12,8 +13,22 @@ interface NoteDao {
     @Query("SELECT * FROM notes WHERE id = :id")
     suspend fun getNoteById(id: Long): NoteEntity?
 
-    @Query("SELECT * FROM notes WHERE title LIKE '%' || :query || '%' OR content LIKE '%' || :query || '%' ORDER BY updatedAt DESC")
-    fun searchNotes(query: String): Flow<List<NoteEntity>>
+    /**
+     * Notes matching an FTS4 MATCH expression, unranked; build the expression and rank the
+     * results with NoteSearch. Matched terms in the snippet are wrapped in
+     * [NoteSearch.MATCH_START] and [NoteSearch.MATCH_END] (control characters, so brackets
+     * typed in a note can't be mistaken for them).
+     */
+    @Query(
+        """
+        SELECT notes.*,
+            snippet(notes_fts, char(2), char(3), '…', -1, 16) AS snippet,
+            matchinfo(notes_fts, 'pcnalx') AS matchInfo
+        FROM notes_fts JOIN notes ON notes.id = notes_fts.docid
+        WHERE notes_fts MATCH :ftsQuery
+        """
+    )
+    fun searchNotes(ftsQuery: String): Flow<List<NoteSearchResult>>
 
     @Insert(onConflict = OnConflictStrategy.REPLACE)
     suspend fun insert(note: NoteEntity): Long
@@ -0,0 +1,27 @@
+package com.example.senioroslauncher.data.database.dao
+
+import androidx.room.*
+import com.example.senioroslauncher.data.database.entity.OutboundMessageEntity
+import java.util.Date
+
+@Dao
+interface OutboundMessageDao {
+    // Never sent, or sent before :retryBefore without an ACK
+    @Query("SELECT * FROM outbound_messages WHERE lastAttemptAt IS NULL OR lastAttemptAt < :retryBefore ORDER BY priority ASC, createdAt ASC LIMIT :limit")
+    suspend fun getSendable(retryBefore: Date, limit: Int): List<OutboundMessageEntity>
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    suspend fun insert(message: OutboundMessageEntity): Long
+
+    @Query("UPDATE outbound_messages SET attempts = attempts + 1, lastAttemptAt = :attemptedAt WHERE id IN (:ids)")
+    suspend fun markAttempted(ids: List<Long>, attemptedAt: Date = Date())
+
+    @Query("DELETE FROM outbound_messages WHERE requestId = :requestId")
+    suspend fun deleteByRequestId(requestId: String): Int
+
+    @Query("DELETE FROM outbound_messages WHERE createdAt < :createdBefore OR attempts >= :maxAttempts")
+    suspend fun deleteExpired(createdBefore: Date, maxAttempts: Int): Int
+
+    @Query("SELECT COUNT(*) FROM outbound_messages")
+    suspend fun getCountSync(): Int
+}
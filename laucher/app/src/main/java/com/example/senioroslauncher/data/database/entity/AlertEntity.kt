@@ -1,10 +1,19 @@
 package com.example.senioroslauncher.data.database.entity
 
 import androidx.room.Entity
+import androidx.room.Index
 import androidx.room.PrimaryKey
 import java.util.Date
 
-@Entity(tableName = "alerts")
+@Entity(
+    tableName = "alerts",
+    indices = [
+        Index("triggeredAt"),
+        Index(value = ["type", "triggeredAt"]),
+        Index(value = ["resolved", "triggeredAt"]),
+        Index("resolvedAt")
+    ]
+)
 data class AlertEntity(
     @PrimaryKey(autoGenerate = true)
     val id: Long = 0,
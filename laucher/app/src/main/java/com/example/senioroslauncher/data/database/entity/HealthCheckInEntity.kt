@@ -1,10 +1,14 @@
 package com.example.senioroslauncher.data.database.entity
 
 import androidx.room.Entity
+import androidx.room.Index
 import androidx.room.PrimaryKey
 import java.util.Date
 
-@Entity(tableName = "health_checkins")
+@Entity(
+    tableName = "health_checkins",
+    indices = [Index("date")]
+)
 data class HealthCheckInEntity(
     @PrimaryKey(autoGenerate = true)
     val id: Long = 0,
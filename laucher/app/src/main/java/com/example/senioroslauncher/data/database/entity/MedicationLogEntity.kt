@@ -16,7 +16,7 @@ import java.util.Date
             onDelete = ForeignKey.CASCADE
         )
     ],
-    indices = [Index("medicationId")]
+    indices = [Index("medicationId"), Index("actionTime")]
 )
 data class MedicationLogEntity(
     @PrimaryKey(autoGenerate = true)
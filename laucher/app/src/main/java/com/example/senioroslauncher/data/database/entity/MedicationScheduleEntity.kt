@@ -1,7 +1,9 @@
 package com.example.senioroslauncher.data.database.entity
 
+import androidx.room.ColumnInfo
 import androidx.room.Entity
 import androidx.room.ForeignKey
+import androidx.room.Ignore
 import androidx.room.Index
 import androidx.room.PrimaryKey
 
@@ -23,6 +25,40 @@ data class MedicationScheduleEntity(
     val medicationId: Long,
     val hour: Int,
     val minute: Int,
-    val daysOfWeek: List<Int> = listOf(1, 2, 3, 4, 5, 6, 7), // 1=Sunday, 7=Saturday
+    @ColumnInfo(defaultValue = "127")
+    val daysMask: Int = DaysOfWeekMask.ALL_DAYS, // See DaysOfWeekMask, filterable in SQL
     val isEnabled: Boolean = true
-)
+) {
+    // 1=Sunday, 7=Saturday
+    @get:Ignore
+    val daysOfWeek: List<Int>
+        get() = DaysOfWeekMask.toDays(daysMask)
+}
+
+/**
+ * 7-bit day-of-week mask matching [java.util.Calendar.DAY_OF_WEEK]:
+ * bit 0 = Sunday (1) ... bit 6 = Saturday (7).
+ */
+object DaysOfWeekMask {
+    const val ALL_DAYS = 0x7F
+
+    fun bitFor(calendarDay: Int): Int = 1 shl (calendarDay - 1)
+
+    fun fromDays(days: List<Int>): Int {
+        var mask = 0
+        for (day in days) {
+            if (day in 1..7) mask = mask or bitFor(day)
+        }
+        return mask
+    }
+
+    fun toDays(mask: Int): List<Int> {
+        val days = ArrayList<Int>(Integer.bitCount(mask and ALL_DAYS))
+        for (day in 1..7) {
+            if (contains(mask, day)) days.add(day)
+        }
+        return days
+    }
+
+    fun contains(mask: Int, calendarDay: Int): Boolean = mask and bitFor(calendarDay) != 0
+}
@@ -0,0 +1,15 @@
+package com.example.senioroslauncher.data.database.entity
+
+import androidx.room.Entity
+import androidx.room.Fts4
+
+/**
+ * Full-text index over notes.title and notes.content. External content: the text lives only
+ * in `notes`, and Room's sync triggers keep the index in step on insert/update/delete.
+ */
+@Fts4(contentEntity = NoteEntity::class)
+@Entity(tableName = "notes_fts")
+data class NoteFtsEntity(
+    val title: String,
+    val content: String
+)
@@ -0,0 +1,14 @@
+package com.example.senioroslauncher.data.database.entity
+
+import androidx.room.Embedded
+
+/**
+ * A note matching a full-text query, with a highlighted excerpt and the raw FTS4
+ * matchinfo('pcnalx') blob that [com.example.senioroslauncher.data.database.NoteSearch] ranks by.
+ */
+class NoteSearchResult(
+    @Embedded
+    val note: NoteEntity,
+    val snippet: String,
+    val matchInfo: ByteArray
+)
@@ -0,0 +1,26 @@
+package com.example.senioroslauncher.data.database.entity
+
+import androidx.room.Entity
+import androidx.room.Index
+import androidx.room.PrimaryKey
+import java.util.Date
+
+@Entity(
+    tableName = "outbound_messages",
+    indices = [
+        Index(value = ["requestId"], unique = true),
+        Index(value = ["priority", "createdAt"])
+    ]
+)
+data class OutboundMessageEntity(
+    @PrimaryKey(autoGenerate = true)
+    val id: Long = 0,
+    val requestId: String,
+    val type: String,
+    val recipientId: String,
+    val body: String,               // Encoded WebSocketMessage, sent as-is
+    val priority: Int,              // Lower is sent first
+    val createdAt: Date = Date(),
+    val attempts: Int = 0,
+    val lastAttemptAt: Date? = null // Null until first sent; rows are deleted on ACK
+)
@@ -84,6 +84,27 @@ object AlertManager {
         )
     }
 
+    /**
+     * Trigger one alert covering several missed doses.
+     * Called by the missed-dose sweep, so guardians get a single event per sweep.
+     */
+    fun triggerMissedMedicationsAlert(
+        context: Context,
+        missed: List<Pair<String, String>> // medication name to scheduled time
+    ) {
+        if (missed.isEmpty()) return
+        if (missed.size == 1) {
+            triggerMissedMedicationAlert(context, missed[0].first, missed[0].second)
+            return
+        }
+        triggerAlert(
+            context = context,
+            type = AlertType.MISSED_MED,
+            notes = "Missed ${missed.size} doses: " +
+                missed.joinToString(", ") { (name, time) -> "$name at $time" }
+        )
+    }
+
     /**
      * Trigger a low battery alert.
      * Called when battery drops below threshold.
@@ -166,15 +187,26 @@ object AlertManager {
                     notes = notes
                 )
 
-                // Try to broadcast via running service
+                // Hand the event to the service (started if needed), which queues one
+                // ALERT_EVENT per guardian on its connection
                 val serviceIntent = Intent(context, GuardianMonitoringService::class.java)
-                serviceIntent.action = GuardianMonitoringService.ACTION_START
+                serviceIntent.action = GuardianMonitoringService.ACTION_SEND_ALERT
+                serviceIntent.putExtra(GuardianMonitoringService.EXTRA_PAYLOAD, json.encodeToString(payload))
+                serviceIntent.putExtra(
+                    GuardianMonitoringService.EXTRA_GUARDIAN_IDS,
+                    guardians.map { it.guardianId }.toTypedArray()
+                )
 
-                // If service isn't running, start it first
                 try {
                     context.startForegroundService(serviceIntent)
                 } catch (e: Exception) {
-                    Log.w(TAG, "Could not start service for alert broadcast", e)
+                    // Background callers (e.g. workers) may not start a foreground service on
+                    // Android 12+, but can still reach it while it is already running
+                    try {
+                        context.startService(serviceIntent)
+                    } catch (e2: Exception) {
+                        Log.w(TAG, "Could not start service for alert broadcast", e2)
+                    }
                 }
 
                 Log.d(TAG, "Alert broadcast to ${guardians.size} guardian(s)")
@@ -0,0 +1,51 @@
+package com.example.senioroslauncher.data.guardian
+
+import com.example.senioroslauncher.data.guardian.models.WebSocketMessage
+import kotlinx.serialization.json.Json
+import kotlinx.serialization.json.JsonElement
+import kotlinx.serialization.json.JsonObject
+import kotlinx.serialization.json.encodeToJsonElement
+import kotlinx.serialization.json.jsonObject
+
+/**
+ * Encodes and decodes the relay's "framed" wire format (negotiated with format=framed).
+ *
+ * A frame is "<routing header JSON>\n<payload JSON>". The relay parses only the small header
+ * to route and forwards the payload bytes untouched. Compact JSON never contains a raw
+ * newline, so the first one always ends the header. Relay control frames are plain JSON
+ * without a newline and decode the same way.
+ *
+ * Relays that announce batch support in CONNECTION_ACK also accept several messages in one
+ * frame: their header/payload lines joined by newlines ([joinBatch]).
+ */
+class MessageFrameCodec(private val json: Json) {
+    companion object {
+        const val FORMAT = "framed"
+        private const val PAYLOAD_KEY = "payload"
+
+        /**
+         * Joins already-encoded frames into one batch frame.
+         */
+        fun joinBatch(frames: List<String>): String = frames.joinToString("\n")
+    }
+
+    fun encode(message: WebSocketMessage): String {
+        val header = json.encodeToJsonElement(message.copy(payload = null)).jsonObject
+        val headerText = JsonObject(header - PAYLOAD_KEY).toString()
+        return headerText + "\n" + (message.payload?.toString() ?: "")
+    }
+
+    /**
+     * Returns the frame as a single JSON object with the payload merged back in.
+     */
+    fun decode(text: String): JsonObject {
+        val newline = text.indexOf('\n')
+        if (newline < 0) return json.parseToJsonElement(text).jsonObject
+
+        val header = json.parseToJsonElement(text.substring(0, newline)).jsonObject
+        if (newline == text.length - 1) return header
+
+        val payload: JsonElement = json.parseToJsonElement(text.substring(newline + 1))
+        return JsonObject(header + (PAYLOAD_KEY to payload))
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.senioroslauncher.data.guardian
+
+import android.util.Log
+import com.example.senioroslauncher.data.database.dao.OutboundMessageDao
+import com.example.senioroslauncher.data.database.entity.AlertType
+import com.example.senioroslauncher.data.database.entity.OutboundMessageEntity
+import com.example.senioroslauncher.data.guardian.models.OutgoingMessageTypes
+import com.example.senioroslauncher.data.guardian.models.WebSocketMessage
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.channels.Channel
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.launch
+import kotlinx.serialization.json.jsonObject
+import kotlinx.serialization.json.jsonPrimitive
+import java.util.Date
+
+/**
+ * Durable outbound queue for guardian events (alerts, medication updates).
+ *
+ * Events are written to the outbound_messages table first and drained in priority order
+ * whenever the socket is connected. A row is only deleted once the relay ACKs it, so events
+ * raised during the reconnect backoff window are not lost. Flush requests are coalesced so a
+ * burst of events or a reconnect drains in batches, and each batch goes out as a single
+ * frame when the relay accepts batch frames ([canBatch]).
+ */
+class OutboundMessageQueue(
+    private val dao: OutboundMessageDao,
+    private val scope: CoroutineScope,
+    private val transmit: (String) -> Boolean,
+    private val isConnected: () -> Boolean,
+    private val canBatch: () -> Boolean
+) {
+    companion object {
+        private const val TAG = "OutboundMessageQueue"
+        private const val BATCH_SIZE = 20
+        private const val COALESCE_DELAY = 250L // ms
+        private const val ACK_TIMEOUT = 30_000L // Resend if no ACK within 30 seconds
+        private const val RETRY_INTERVAL = 60_000L // Re-check pending rows every minute
+        private const val MAX_AGE = 24 * 60 * 60 * 1000L // Drop events older than a day
+        private const val MAX_ATTEMPTS = 50
+
+        const val PRIORITY_CRITICAL = 0 // SOS, FALL
+        const val PRIORITY_ALERT = 1
+        const val PRIORITY_UPDATE = 2
+        const val PRIORITY_DEFAULT = 3
+
+        private val DURABLE_TYPES = setOf(
+            OutgoingMessageTypes.ALERT_EVENT,
+            OutgoingMessageTypes.MEDICATION_UPDATED
+        )
+
+        /**
+         * Only events are queued; query responses are useless once the guardian's request times out.
+         */
+        fun isDurable(type: String): Boolean = type in DURABLE_TYPES
+
+        fun priorityFor(message: WebSocketMessage): Int = when (message.type) {
+            OutgoingMessageTypes.ALERT_EVENT -> {
+                val alertType = try {
+                    message.payload?.jsonObject?.get("type")?.jsonPrimitive?.content
+                } catch (e: Exception) {
+                    null
+                }
+                if (alertType == AlertType.SOS.name || alertType == AlertType.FALL.name) {
+                    PRIORITY_CRITICAL
+                } else {
+                    PRIORITY_ALERT
+                }
+            }
+            OutgoingMessageTypes.MEDICATION_UPDATED -> PRIORITY_UPDATE
+            else -> PRIORITY_DEFAULT
+        }
+    }
+
+    // Conflated: any number of requests while a drain is running collapse into one more drain
+    private val flushSignal = Channel<Unit>(Channel.CONFLATED)
+    private var retryJob: Job? = null
+
+    init {
+        scope.launch {
+            for (signal in flushSignal) {
+                delay(COALESCE_DELAY)
+                try {
+                    drain()
+                } catch (e: Exception) {
+                    Log.e(TAG, "Error draining outbound queue", e)
+                }
+            }
+        }
+    }
+
+    /**
+     * Persist an already-encoded message and schedule a flush.
+     */
+    suspend fun enqueue(message: WebSocketMessage, body: String) {
+        dao.insert(
+            OutboundMessageEntity(
+                requestId = message.requestId,
+                type = message.type,
+                recipientId = message.to,
+                body = body,
+                priority = priorityFor(message)
+            )
+        )
+        requestFlush()
+    }
+
+    fun requestFlush() {
+        flushSignal.trySend(Unit)
+    }
+
+    suspend fun onAck(requestId: String) {
+        if (dao.deleteByRequestId(requestId) > 0) {
+            Log.d(TAG, "Outbound message acknowledged: $requestId")
+        }
+    }
+
+    suspend fun onRelayError(requestId: String, error: String) {
+        // Pairing errors are permanent; anything else (e.g. recipient offline) is retried later
+        if (error.startsWith("Not paired")) {
+            dao.deleteByRequestId(requestId)
+            Log.w(TAG, "Dropped outbound message $requestId: $error")
+        }
+    }
+
+    private suspend fun drain() {
+        if (!isConnected()) return
+
+        val now = System.currentTimeMillis()
+        val expired = dao.deleteExpired(Date(now - MAX_AGE), MAX_ATTEMPTS)
+        if (expired > 0) {
+            Log.w(TAG, "Dropped $expired expired outbound message(s)")
+        }
+
+        while (isConnected()) {
+            val batch = dao.getSendable(Date(System.currentTimeMillis() - ACK_TIMEOUT), BATCH_SIZE)
+            if (batch.isEmpty()) break
+
+            val sent = if (canBatch()) {
+                // One frame for the whole batch; the relay splits it and ACKs each message
+                if (transmit(MessageFrameCodec.joinBatch(batch.map { it.body }))) batch else emptyList()
+            } else {
+                batch.takeWhile { transmit(it.body) }
+            }
+            if (sent.isNotEmpty()) {
+                dao.markAttempted(sent.map { it.id })
+                Log.d(TAG, "Flushed ${sent.size} outbound message(s)")
+            }
+            // Socket refused a frame; wait for the next onOpen
+            if (sent.size < batch.size) break
+        }
+
+        if (dao.getCountSync() > 0) scheduleRetry()
+    }
+
+    private fun scheduleRetry() {
+        if (retryJob?.isActive == true) return
+        retryJob = scope.launch {
+            delay(RETRY_INTERVAL)
+            requestFlush()
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.senioroslauncher.data.guardian
+
+import android.util.Base64
+
+/**
+ * Watermark used by the history sync protocol (GET_ALERT_HISTORY / GET_HEALTH_HISTORY).
+ *
+ * The Elder issues it as an opaque continuation token; the Guardian stores the last one
+ * it received and sends it back to get only rows that are newer or changed since then.
+ *
+ * - [lastId]: highest row id already delivered (new rows have id > lastId)
+ * - [lastChangedAt]: latest change timestamp already delivered, in epoch millis
+ *   (e.g. alert resolvedAt), used to pick up edits to rows the Guardian already has
+ * - [lastChangedId]: id of the last row delivered at [lastChangedAt], so rows sharing that
+ *   timestamp aren't skipped when a page ends among them
+ */
+data class SyncCursor(
+    val lastId: Long = 0,
+    val lastChangedAt: Long = 0,
+    val lastChangedId: Long = 0
+) {
+    /**
+     * Encodes the cursor as a URL-safe token, format "v2:<lastId>:<lastChangedAt>:<lastChangedId>".
+     */
+    fun encode(): String {
+        val raw = "$VERSION:$lastId:$lastChangedAt:$lastChangedId"
+        return Base64.encodeToString(
+            raw.toByteArray(Charsets.UTF_8),
+            Base64.URL_SAFE or Base64.NO_WRAP or Base64.NO_PADDING
+        )
+    }
+
+    companion object {
+        private const val VERSION = "v2"
+        private const val VERSION_1 = "v1"
+
+        val START = SyncCursor()
+
+        /**
+         * Decodes a token issued by [encode]. Returns null for malformed or foreign tokens,
+         * in which case the caller should restart the sync from [START].
+         */
+        fun decode(token: String?): SyncCursor? {
+            if (token.isNullOrBlank()) return null
+            return try {
+                val raw = String(Base64.decode(token, Base64.URL_SAFE), Charsets.UTF_8)
+                val parts = raw.split(":")
+                when {
+                    parts.size == 4 && parts[0] == VERSION -> SyncCursor(
+                        lastId = parts[1].toLong(),
+                        lastChangedAt = parts[2].toLong(),
+                        lastChangedId = parts[3].toLong()
+                    )
+                    // v1 tokens delivered everything up to and including lastChangedAt
+                    parts.size == 3 && parts[0] == VERSION_1 -> SyncCursor(
+                        lastId = parts[1].toLong(),
+                        lastChangedAt = parts[2].toLong(),
+                        lastChangedId = Long.MAX_VALUE
+                    )
+                    else -> null
+                }
+            } catch (e: Exception) {
+                null
+            }
+        }
+    }
+}
@@ -3,8 +3,9 @@ package com.example.senioroslauncher.data.guardian
 import android.content.Context
 import android.util.Log
 import com.example.senioroslauncher.BuildConfig
+import com.example.senioroslauncher.data.database.AppDatabase
 import com.example.senioroslauncher.data.guardian.models.IncomingMessageTypes
-import com.example.senioroslauncher.data.guardian.models.OutgoingMessageTypes
+import com.example.senioroslauncher.data.guardian.models.RelayMessageTypes
 import com.example.senioroslauncher.data.guardian.models.WebSocketMessage
 import kotlinx.coroutines.CoroutineScope
 import kotlinx.coroutines.Dispatchers
@@ -14,8 +15,12 @@ import kotlinx.coroutines.flow.MutableStateFlow
 import kotlinx.coroutines.flow.StateFlow
 import kotlinx.coroutines.flow.asStateFlow
 import kotlinx.coroutines.launch
-import kotlinx.serialization.encodeToString
 import kotlinx.serialization.json.Json
+import kotlinx.serialization.json.JsonObject
+import kotlinx.serialization.json.booleanOrNull
+import kotlinx.serialization.json.contentOrNull
+import kotlinx.serialization.json.decodeFromJsonElement
+import kotlinx.serialization.json.jsonPrimitive
 import okhttp3.OkHttpClient
 import okhttp3.Request
 import okhttp3.Response
@@ -62,12 +67,19 @@ class WebSocketManager(
     private val client = OkHttpClient.Builder()
         .readTimeout(0, TimeUnit.MILLISECONDS) // No timeout for WebSocket
         .pingInterval(30, TimeUnit.SECONDS) // Keep connection alive
+        .minWebSocketMessageToCompress(256) // permessage-deflate above 256 bytes
         .build()
 
+    private val frameCodec = MessageFrameCodec(json)
+
     private var webSocket: WebSocket? = null
     private var reconnectAttempts = 0
     private var shouldReconnect = true
 
+    // Set from the relay's CONNECTION_ACK; older relays only take one message per frame
+    @Volatile
+    private var relayAcceptsBatches = false
+
     private val _connectionState = MutableStateFlow(ConnectionState.DISCONNECTED)
     val connectionState: StateFlow<ConnectionState> = _connectionState.asStateFlow()
 
@@ -75,6 +87,14 @@ class WebSocketManager(
         ElderIdentity.getOrCreateElderId(context)
     }
 
+    private val outboundQueue = OutboundMessageQueue(
+        dao = AppDatabase.getDatabase(context).outboundMessageDao(),
+        scope = scope,
+        transmit = { text -> webSocket?.send(text) ?: false },
+        isConnected = { isConnected() },
+        canBatch = { relayAcceptsBatches }
+    )
+
     enum class ConnectionState {
         DISCONNECTED,
         CONNECTING,
@@ -93,10 +113,11 @@ class WebSocketManager(
         }
 
         shouldReconnect = true
+        relayAcceptsBatches = false
         _connectionState.value = ConnectionState.CONNECTING
 
         val serverUrl = "ws://${BuildConfig.GUARDIAN_SERVER_IP}:${BuildConfig.GUARDIAN_SERVER_PORT}" +
-                "?deviceId=$elderId&type=elder"
+                "?deviceId=$elderId&type=elder&format=${MessageFrameCodec.FORMAT}"
 
         Log.d(TAG, "Connecting to: $serverUrl")
 
@@ -120,17 +141,32 @@ class WebSocketManager(
 
     /**
      * Send a message to the relay server.
+     * Events (alerts, medication updates) go through the durable outbound queue and are
+     * delivered once connected, so this returns true for them even while offline.
      */
     fun sendMessage(message: WebSocketMessage): Boolean {
+        if (OutboundMessageQueue.isDurable(message.type)) {
+            val queued = message.copy(ackRequested = true)
+            val body = frameCodec.encode(queued)
+            scope.launch {
+                try {
+                    outboundQueue.enqueue(queued, body)
+                } catch (e: Exception) {
+                    Log.e(TAG, "Error queueing message", e)
+                }
+            }
+            return true
+        }
+
         if (_connectionState.value != ConnectionState.CONNECTED) {
             Log.w(TAG, "Cannot send message - not connected")
             return false
         }
 
         return try {
-            val jsonString = json.encodeToString(message)
-            Log.d(TAG, "Sending message: $jsonString")
-            webSocket?.send(jsonString) ?: false
+            val frame = frameCodec.encode(message)
+            Log.d(TAG, "Sending message: ${message.type} -> ${message.to}")
+            webSocket?.send(frame) ?: false
         } catch (e: Exception) {
             Log.e(TAG, "Error sending message", e)
             false
@@ -181,10 +217,11 @@ class WebSocketManager(
             Log.d(TAG, "WebSocket connected")
             _connectionState.value = ConnectionState.CONNECTED
             reconnectAttempts = 0
+            outboundQueue.requestFlush()
         }
 
         override fun onMessage(webSocket: WebSocket, text: String) {
-            Log.d(TAG, "Received message: $text")
+            Log.d(TAG, "Received message (${text.length} chars)")
             scope.launch {
                 handleIncomingMessage(text)
             }
@@ -209,7 +246,10 @@ class WebSocketManager(
 
     private suspend fun handleIncomingMessage(jsonMessage: String) {
         try {
-            val message = json.decodeFromString<WebSocketMessage>(jsonMessage)
+            val frame = frameCodec.decode(jsonMessage)
+            if (handleRelayFrame(frame)) return
+
+            val message = json.decodeFromJsonElement<WebSocketMessage>(frame)
 
             when (message.type) {
                 // Query requests
@@ -242,6 +282,34 @@ class WebSocketManager(
         }
     }
 
+    /**
+     * Handles control frames generated by the relay itself. Returns false for routed messages.
+     */
+    private suspend fun handleRelayFrame(frame: JsonObject): Boolean {
+        val type = frame["type"]?.jsonPrimitive?.contentOrNull
+        val requestId = frame["requestId"]?.jsonPrimitive?.contentOrNull
+
+        when (type) {
+            RelayMessageTypes.CONNECTION_ACK -> {
+                relayAcceptsBatches = frame["batch"]?.jsonPrimitive?.booleanOrNull == true
+                Log.d(TAG, "Relay acknowledged connection (batch frames: $relayAcceptsBatches)")
+                if (relayAcceptsBatches) outboundQueue.requestFlush()
+            }
+            RelayMessageTypes.ACK -> {
+                if (requestId != null) outboundQueue.onAck(requestId)
+            }
+            RelayMessageTypes.ERROR -> {
+                // Relay errors have no "from"; guardian errors are routed like any other message
+                if (frame.containsKey("from")) return false
+                val error = frame["error"]?.jsonPrimitive?.contentOrNull ?: "Unknown error"
+                Log.w(TAG, "Relay error for $requestId: $error")
+                if (requestId != null) outboundQueue.onRelayError(requestId, error)
+            }
+            else -> return false
+        }
+        return true
+    }
+
     private fun scheduleReconnect() {
         if (!shouldReconnect) {
             Log.d(TAG, "Reconnection disabled")
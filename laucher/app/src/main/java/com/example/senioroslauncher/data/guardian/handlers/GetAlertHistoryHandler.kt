@@ -2,45 +2,56 @@ package com.example.senioroslauncher.data.guardian.handlers
 
 import android.content.Context
 import com.example.senioroslauncher.data.database.AppDatabase
+import com.example.senioroslauncher.data.database.entity.AlertEntity
 import com.example.senioroslauncher.data.guardian.ElderIdentity
+import com.example.senioroslauncher.data.guardian.SyncCursor
 import com.example.senioroslauncher.data.guardian.WebSocketManager
 import com.example.senioroslauncher.data.guardian.models.AlertHistoryResponsePayload
 import com.example.senioroslauncher.data.guardian.models.AlertInfo
+import com.example.senioroslauncher.data.guardian.models.HistorySyncRequestPayload
 import com.example.senioroslauncher.data.guardian.models.LocationInfo
 import com.example.senioroslauncher.data.guardian.models.OutgoingMessageTypes
 import com.example.senioroslauncher.data.guardian.models.WebSocketMessage
 import kotlinx.serialization.encodeToString
 import kotlinx.serialization.json.Json
+import kotlinx.serialization.json.decodeFromJsonElement
+import java.util.Date
 
 /**
  * Handles GET_ALERT_HISTORY requests from Guardian app.
- * Returns all historical alerts.
+ *
+ * With a [HistorySyncRequestPayload] the response is a delta page: alerts created after the
+ * cursor (keyset on id) plus already-delivered alerts resolved since the cursor's watermark.
+ * Requests without a cursor start from the oldest alert; the Guardian follows the returned
+ * cursor while hasMore is set to get the full history a page at a time.
  */
 class GetAlertHistoryHandler(
     private val context: Context,
     private val webSocketManager: WebSocketManager,
     private val database: AppDatabase
 ) {
-    private val json = Json { encodeDefaults = true }
+    companion object {
+        private const val DEFAULT_PAGE_SIZE = 100
+        private const val MAX_PAGE_SIZE = 500
+    }
+
+    private val json = Json {
+        encodeDefaults = true
+        ignoreUnknownKeys = true
+    }
     private val elderId = ElderIdentity.getOrCreateElderId(context)
 
     suspend fun handle(message: WebSocketMessage) {
-        val alerts = database.alertDao().getAllAlertsSync().map { alert ->
-            AlertInfo(
-                id = alert.id.toString(),
-                elderId = elderId,
-                type = alert.type.name,
-                triggeredAt = alert.triggeredAt.toInstant().toString(),
-                location = if (alert.latitude != null && alert.longitude != null) {
-                    LocationInfo(alert.latitude, alert.longitude)
-                } else null,
-                batteryLevel = alert.batteryLevel,
-                resolved = alert.resolved,
-                notes = alert.notes
-            )
+        val request = message.payload?.let {
+            try {
+                json.decodeFromJsonElement<HistorySyncRequestPayload>(it)
+            } catch (e: Exception) {
+                null
+            }
         }
 
-        val payload = AlertHistoryResponsePayload(alerts = alerts)
+        // Without a cursor (first sync, or older builds sending "{}") paging starts at the oldest row
+        val payload = deltaPage(request ?: HistorySyncRequestPayload())
 
         webSocketManager.sendResponse(
             type = OutgoingMessageTypes.ALERT_HISTORY_RESPONSE,
@@ -49,4 +60,60 @@ class GetAlertHistoryHandler(
             payload = json.encodeToString(payload)
         )
     }
+
+    private suspend fun deltaPage(request: HistorySyncRequestPayload): AlertHistoryResponsePayload {
+        val cursor = SyncCursor.decode(request.cursor)
+            ?: SyncCursor(lastId = request.sinceId?.toLongOrNull() ?: 0)
+        val limit = (request.limit ?: DEFAULT_PAGE_SIZE).coerceIn(1, MAX_PAGE_SIZE)
+        val alertDao = database.alertDao()
+
+        // Rows the Guardian already has whose state changed since the last sync
+        val changed = if (cursor.lastId > 0) {
+            alertDao.getAlertsResolvedSinceSync(cursor.lastId, Date(cursor.lastChangedAt), cursor.lastChangedId, limit)
+        } else {
+            emptyList()
+        }
+        val created = alertDao.getAlertsAfterIdSync(cursor.lastId, limit)
+
+        // New rows are delivered with their current state, so their resolvedAt can advance the
+        // watermark too - unless the changed page was cut short and older changes are pending.
+        // The watermark is a (resolvedAt, id) pair, so a page cut among alerts resolved at the
+        // same instant resumes right after the last one sent.
+        val changedFull = changed.size == limit
+        val watermarkSource = if (changedFull) changed else changed + created
+        var lastChangedAt = cursor.lastChangedAt
+        var lastChangedId = cursor.lastChangedId
+        for (alert in watermarkSource) {
+            val resolvedAt = alert.resolvedAt?.time ?: continue
+            if (resolvedAt > lastChangedAt || (resolvedAt == lastChangedAt && alert.id > lastChangedId)) {
+                lastChangedAt = resolvedAt
+                lastChangedId = alert.id
+            }
+        }
+
+        val nextCursor = SyncCursor(
+            lastId = created.lastOrNull()?.id ?: cursor.lastId,
+            lastChangedAt = lastChangedAt,
+            lastChangedId = lastChangedId
+        )
+
+        return AlertHistoryResponsePayload(
+            alerts = (changed + created).map { it.toAlertInfo() },
+            cursor = nextCursor.encode(),
+            hasMore = changedFull || created.size == limit
+        )
+    }
+
+    private fun AlertEntity.toAlertInfo() = AlertInfo(
+        id = id.toString(),
+        elderId = elderId,
+        type = type.name,
+        triggeredAt = triggeredAt.toInstant().toString(),
+        location = if (latitude != null && longitude != null) {
+            LocationInfo(latitude, longitude)
+        } else null,
+        batteryLevel = batteryLevel,
+        resolved = resolved,
+        notes = notes
+    )
 }
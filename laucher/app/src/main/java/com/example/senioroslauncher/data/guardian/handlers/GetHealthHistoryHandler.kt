@@ -2,45 +2,56 @@ package com.example.senioroslauncher.data.guardian.handlers
 
 import android.content.Context
 import com.example.senioroslauncher.data.database.AppDatabase
+import com.example.senioroslauncher.data.database.entity.HealthCheckInEntity
 import com.example.senioroslauncher.data.guardian.ElderIdentity
+import com.example.senioroslauncher.data.guardian.SyncCursor
 import com.example.senioroslauncher.data.guardian.WebSocketManager
 import com.example.senioroslauncher.data.guardian.models.HealthCheckInInfo
 import com.example.senioroslauncher.data.guardian.models.HealthHistoryResponsePayload
+import com.example.senioroslauncher.data.guardian.models.HistorySyncRequestPayload
 import com.example.senioroslauncher.data.guardian.models.OutgoingMessageTypes
 import com.example.senioroslauncher.data.guardian.models.WebSocketMessage
 import kotlinx.serialization.encodeToString
 import kotlinx.serialization.json.Json
+import kotlinx.serialization.json.decodeFromJsonElement
 import java.text.SimpleDateFormat
 import java.util.Locale
 
 /**
  * Handles GET_HEALTH_HISTORY requests from Guardian app.
- * Returns all health check-ins.
+ *
+ * With a [HistorySyncRequestPayload] the response is a page of check-ins created after the
+ * cursor (keyset on id). Requests without a cursor start from the oldest check-in; the Guardian
+ * follows the returned cursor while hasMore is set to get the full history a page at a time.
  */
 class GetHealthHistoryHandler(
     private val context: Context,
     private val webSocketManager: WebSocketManager,
     private val database: AppDatabase
 ) {
-    private val json = Json { encodeDefaults = true }
+    companion object {
+        private const val DEFAULT_PAGE_SIZE = 60
+        private const val MAX_PAGE_SIZE = 365
+    }
+
+    private val json = Json {
+        encodeDefaults = true
+        ignoreUnknownKeys = true
+    }
     private val elderId = ElderIdentity.getOrCreateElderId(context)
     private val dateFormat = SimpleDateFormat("yyyy-MM-dd", Locale.US)
 
     suspend fun handle(message: WebSocketMessage) {
-        val checkIns = database.healthCheckInDao().getAllCheckInsSync().map { checkIn ->
-            HealthCheckInInfo(
-                id = checkIn.id.toString(),
-                elderId = elderId,
-                date = dateFormat.format(checkIn.date),
-                mood = checkIn.mood,
-                painLevel = checkIn.painLevel,
-                sleepQuality = checkIn.sleepQuality,
-                symptoms = checkIn.symptoms,
-                notes = checkIn.notes
-            )
+        val request = message.payload?.let {
+            try {
+                json.decodeFromJsonElement<HistorySyncRequestPayload>(it)
+            } catch (e: Exception) {
+                null
+            }
         }
 
-        val payload = HealthHistoryResponsePayload(checkIns = checkIns)
+        // Without a cursor (first sync, or older builds sending "{}") paging starts at the oldest row
+        val payload = deltaPage(request ?: HistorySyncRequestPayload())
 
         webSocketManager.sendResponse(
             type = OutgoingMessageTypes.HEALTH_HISTORY_RESPONSE,
@@ -49,4 +60,31 @@ class GetHealthHistoryHandler(
             payload = json.encodeToString(payload)
         )
     }
+
+    private suspend fun deltaPage(request: HistorySyncRequestPayload): HealthHistoryResponsePayload {
+        val cursor = SyncCursor.decode(request.cursor)
+            ?: SyncCursor(lastId = request.sinceId?.toLongOrNull() ?: 0)
+        val limit = (request.limit ?: DEFAULT_PAGE_SIZE).coerceIn(1, MAX_PAGE_SIZE)
+
+        // Check-ins are insert-only, so rows after the last delivered id are the whole delta
+        val created = database.healthCheckInDao().getCheckInsAfterIdSync(cursor.lastId, limit)
+        val nextCursor = cursor.copy(lastId = created.lastOrNull()?.id ?: cursor.lastId)
+
+        return HealthHistoryResponsePayload(
+            checkIns = created.map { it.toCheckInInfo() },
+            cursor = nextCursor.encode(),
+            hasMore = created.size == limit
+        )
+    }
+
+    private fun HealthCheckInEntity.toCheckInInfo() = HealthCheckInInfo(
+        id = id.toString(),
+        elderId = elderId,
+        date = dateFormat.format(date),
+        mood = mood,
+        painLevel = painLevel,
+        sleepQuality = sleepQuality,
+        symptoms = symptoms,
+        notes = notes
+    )
 }
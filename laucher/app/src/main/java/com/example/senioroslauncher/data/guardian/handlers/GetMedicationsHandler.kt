@@ -62,8 +62,7 @@ class GetMedicationsHandler(
         val sevenDaysAgo = calendar.time
 
         val logs = database.medicationLogDao()
-            .getLogsBetweenDates(sevenDaysAgo, Date())
-            .first()
+            .getLogsBetweenDatesSync(sevenDaysAgo, Date())
             .map { log ->
                 MedicationLogInfo(
                     id = log.id.toString(),
@@ -3,7 +3,7 @@ package com.example.senioroslauncher.data.guardian.handlers
 import android.content.Context
 import android.os.BatteryManager
 import com.example.senioroslauncher.data.database.AppDatabase
-import com.example.senioroslauncher.data.database.entity.MedicationAction
+import com.example.senioroslauncher.data.database.entity.DaysOfWeekMask
 import com.example.senioroslauncher.data.guardian.ElderIdentity
 import com.example.senioroslauncher.data.guardian.WebSocketManager
 import com.example.senioroslauncher.data.guardian.models.AlertInfo
@@ -97,32 +97,19 @@ class GetStateHandler(
         calendar.add(Calendar.DAY_OF_MONTH, 1)
         val endOfDay = calendar.time
 
-        // Get today's logs
-        val todayLogs = database.medicationLogDao()
-            .getLogsBetweenDates(startOfDay, endOfDay)
-            .first()
-
-        // Get total scheduled medications for today
-        val activeMedications = database.medicationDao().getAllActiveMedications().first()
         val todayDayOfWeek = Calendar.getInstance().get(Calendar.DAY_OF_WEEK)
 
-        var totalScheduled = 0
-        for (medication in activeMedications) {
-            val schedules = database.medicationScheduleDao()
-                .getSchedulesForMedicationSync(medication.id)
-                .filter { it.isEnabled && it.daysOfWeek.contains(todayDayOfWeek) }
-            totalScheduled += schedules.size
-        }
-
-        val taken = todayLogs.count { it.action == MedicationAction.TAKEN }
-        val missed = todayLogs.count {
-            it.action == MedicationAction.SKIPPED || it.action == MedicationAction.MISSED
-        }
+        // One aggregate query: scheduled doses for today plus today's outcomes
+        val counts = database.medicationScheduleDao().getTodayMedicationCounts(
+            dayBit = DaysOfWeekMask.bitFor(todayDayOfWeek),
+            startOfDay = startOfDay,
+            endOfDay = endOfDay
+        )
 
         return MedicationSummary(
-            todayTotal = totalScheduled,
-            takenToday = taken,
-            missedToday = missed
+            todayTotal = counts.todayTotal,
+            takenToday = counts.takenToday,
+            missedToday = counts.missedToday
         )
     }
 }
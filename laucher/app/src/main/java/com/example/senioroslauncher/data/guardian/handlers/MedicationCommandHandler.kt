@@ -2,10 +2,12 @@ package com.example.senioroslauncher.data.guardian.handlers
 
 import android.content.Context
 import com.example.senioroslauncher.data.database.AppDatabase
+import com.example.senioroslauncher.data.database.entity.DaysOfWeekMask
 import com.example.senioroslauncher.data.database.entity.MedicationEntity
 import com.example.senioroslauncher.data.database.entity.MedicationFrequency
 import com.example.senioroslauncher.data.database.entity.MedicationScheduleEntity
 import com.example.senioroslauncher.data.guardian.models.*
+import com.example.senioroslauncher.services.medication.MedicationAlarmScheduler
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.withContext
 import kotlinx.serialization.encodeToString
@@ -61,12 +63,14 @@ class MedicationCommandHandler(private val context: Context) {
                         medicationId = medicationId,
                         hour = hour,
                         minute = minute,
-                        daysOfWeek = schedulePayload.daysOfWeek,
+                        daysMask = DaysOfWeekMask.fromDays(schedulePayload.daysOfWeek.map { it + 1 }), // wire is 0-6
                         isEnabled = schedulePayload.enabled
                     )
                     scheduleDao.insert(schedule)
                 }
 
+                MedicationAlarmScheduler.onMedicationChanged(context, medicationId)
+
                 createSuccessResponse(
                     message,
                     "Medication added successfully",
@@ -117,13 +121,15 @@ class MedicationCommandHandler(private val context: Context) {
                             medicationId = medicationId,
                             hour = hour,
                             minute = minute,
-                            daysOfWeek = schedulePayload.daysOfWeek,
+                            daysMask = DaysOfWeekMask.fromDays(schedulePayload.daysOfWeek.map { it + 1 }), // wire is 0-6
                             isEnabled = schedulePayload.enabled
                         )
                         scheduleDao.insert(schedule)
                     }
                 }
 
+                MedicationAlarmScheduler.onMedicationChanged(context, medicationId)
+
                 createSuccessResponse(message, "Medication updated successfully")
             } catch (e: Exception) {
                 createErrorResponse(message, "Failed to update medication: ${e.message}")
@@ -147,6 +153,7 @@ class MedicationCommandHandler(private val context: Context) {
 
                 // Delete medication
                 medicationDao.deleteById(medicationId)
+                MedicationAlarmScheduler.onMedicationChanged(context, medicationId)
 
                 createSuccessResponse(message, "Medication deleted successfully")
             } catch (e: Exception) {
@@ -80,18 +80,31 @@ data class MedicationLogInfo(
     val status: String  // "taken", "missed", "skipped"
 )
 
+// ============== History Sync Request Payload (GET_ALERT_HISTORY / GET_HEALTH_HISTORY) ==============
+
+@Serializable
+data class HistorySyncRequestPayload(
+    val cursor: String? = null,   // Continuation token from the previous response
+    val sinceId: String? = null,  // Last-seen row id, used when no cursor is held yet
+    val limit: Int? = null        // Page size, clamped by the Elder
+)
+
 // ============== GET_ALERT_HISTORY Response Payloads ==============
 
 @Serializable
 data class AlertHistoryResponsePayload(
-    val alerts: List<AlertInfo>
+    val alerts: List<AlertInfo>,
+    val cursor: String? = null,   // Send back to continue paging / for the next delta sync
+    val hasMore: Boolean = false
 )
 
 // ============== GET_HEALTH_HISTORY Response Payloads ==============
 
 @Serializable
 data class HealthHistoryResponsePayload(
-    val checkIns: List<HealthCheckInInfo>
+    val checkIns: List<HealthCheckInInfo>,
+    val cursor: String? = null,   // Send back to continue paging / for the next delta sync
+    val hasMore: Boolean = false
 )
 
 @Serializable
@@ -14,7 +14,8 @@ data class WebSocketMessage(
     val to: String,
     val requestId: String,
     val payload: JsonElement? = null,
-    val timestamp: String
+    val timestamp: String,
+    val ackRequested: Boolean = false // Ask the relay to confirm with an ACK frame
 )
 
 /**
@@ -45,6 +46,15 @@ object IncomingMessageTypes {
     const val DELETE_EMERGENCY_CONTACT = "DELETE_EMERGENCY_CONTACT"
 }
 
+/**
+ * Control frames sent BY the relay server itself (no from/to envelope)
+ */
+object RelayMessageTypes {
+    const val CONNECTION_ACK = "CONNECTION_ACK"
+    const val ACK = "ACK"
+    const val ERROR = "ERROR"
+}
+
 /**
  * Message types sent FROM Elder TO Guardian (responses and events)
  */
@@ -0,0 +1,306 @@
+package com.example.senioroslauncher.data.messages
+
+import android.Manifest
+import android.content.Context
+import android.content.pm.PackageManager
+import android.database.ContentObserver
+import android.net.Uri
+import android.os.Handler
+import android.os.Looper
+import android.provider.Telephony
+import android.util.Log
+import androidx.core.content.ContextCompat
+import com.example.senioroslauncher.data.contacts.ContactIndex
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.flow.MutableStateFlow
+import kotlinx.coroutines.flow.StateFlow
+import kotlinx.coroutines.flow.asStateFlow
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.sync.Mutex
+import kotlinx.coroutines.sync.withLock
+
+data class MessageConversation(
+    val threadId: String,
+    val address: String,
+    val contactName: String,
+    val lastMessage: String,
+    val timestamp: Long,
+    val isRead: Boolean
+)
+
+/**
+ * SMS/MMS conversation list for the Messages screen ([getInstance]).
+ *
+ * Reads the threads table (one row per conversation, with its snippet and date) a page at a
+ * time instead of scanning every message, so the cost doesn't grow with the size of the
+ * inbox. The simple threads query ignores the sort order and any LIMIT in it, so pages are
+ * keyed on the oldest date loaded so far and capped while reading the cursor. Recipients
+ * come from the canonical address table, cached in one query, and names from [ContactIndex]
+ * without a lookup per conversation.
+ *
+ * A [ContentObserver] keeps the list current while the process lives. It watches the sms and
+ * mms providers, which name the changed message (content://sms/123), as well as mms-sms, which
+ * is only told that something changed. A burst naming messages re-reads just their threads;
+ * the id-less mms-sms notifications that accompany every message change are then ignored. A
+ * burst with no message named (a thread deleted, a bulk change) re-reads the loaded pages.
+ */
+class ConversationLoader private constructor(private val context: Context) {
+
+    companion object {
+        private const val TAG = "ConversationLoader"
+        const val PAGE_SIZE = 30
+        private const val CHANGE_DEBOUNCE_MS = 300L
+
+        private val THREADS_URI: Uri = Telephony.Threads.CONTENT_URI.buildUpon()
+            .appendQueryParameter("simple", "true")
+            .build()
+        private val CANONICAL_ADDRESSES_URI: Uri = Uri.parse("content://mms-sms/canonical-addresses")
+
+        private val PROJECTION = arrayOf(
+            Telephony.Threads._ID,
+            Telephony.Threads.DATE,
+            Telephony.Threads.SNIPPET,
+            Telephony.Threads.READ,
+            Telephony.Threads.RECIPIENT_IDS
+        )
+
+        @Volatile
+        private var INSTANCE: ConversationLoader? = null
+
+        fun getInstance(context: Context): ConversationLoader {
+            return INSTANCE ?: synchronized(this) {
+                INSTANCE ?: ConversationLoader(context.applicationContext).also { INSTANCE = it }
+            }
+        }
+    }
+
+    private val scope = CoroutineScope(SupervisorJob() + Dispatchers.IO)
+    private val mutex = Mutex()
+    private val contactIndex = ContactIndex.getInstance(context)
+
+    // Canonical address id -> phone number; ids are never reused, so entries never go stale
+    private val addresses = HashMap<String, String>()
+
+    private val pendingChanges = LinkedHashSet<Uri?>()
+    private var changeJob: Job? = null
+    private var observing = false
+
+    private val _conversations = MutableStateFlow<List<MessageConversation>>(emptyList())
+    val conversations: StateFlow<List<MessageConversation>> = _conversations.asStateFlow()
+
+    private val _hasMore = MutableStateFlow(true)
+    val hasMore: StateFlow<Boolean> = _hasMore.asStateFlow()
+
+    init {
+        // Names follow phone book edits without re-reading any messages
+        scope.launch {
+            contactIndex.snapshot.collect {
+                mutex.withLock {
+                    _conversations.value = _conversations.value.map { it.copy(contactName = displayName(it.address)) }
+                }
+            }
+        }
+    }
+
+    private val observer = object : ContentObserver(Handler(Looper.getMainLooper())) {
+        override fun onChange(selfChange: Boolean, uri: Uri?) {
+            onProviderChange(uri)
+        }
+    }
+
+    /**
+     * Load the first page if nothing is loaded yet, and start following changes. Cheap to
+     * call every time the screen opens; a list from an earlier visit is shown as is.
+     */
+    suspend fun ensureLoaded() {
+        if (!hasPermission()) return
+        startObserving()
+        mutex.withLock {
+            if (_conversations.value.isEmpty() && _hasMore.value) loadPage(PAGE_SIZE, replace = true)
+        }
+    }
+
+    /**
+     * Append the next page, e.g. when the list is scrolled near its end.
+     */
+    suspend fun loadMore() {
+        if (!hasPermission()) return
+        mutex.withLock {
+            if (_hasMore.value) loadPage(PAGE_SIZE, replace = false)
+        }
+    }
+
+    private fun hasPermission() =
+        ContextCompat.checkSelfPermission(context, Manifest.permission.READ_SMS) == PackageManager.PERMISSION_GRANTED
+
+    private fun startObserving() {
+        synchronized(this) {
+            if (observing) return
+            observing = true
+        }
+        context.contentResolver.registerContentObserver(Telephony.Sms.CONTENT_URI, true, observer)
+        context.contentResolver.registerContentObserver(Telephony.Mms.CONTENT_URI, true, observer)
+        context.contentResolver.registerContentObserver(Telephony.MmsSms.CONTENT_URI, true, observer)
+    }
+
+    /**
+     * Read up to [limit] threads older than the loaded ones, or the newest [limit] when
+     * [replace] is set.
+     */
+    private fun loadPage(limit: Int, replace: Boolean) {
+        val start = System.nanoTime()
+        val loaded = if (replace) emptyList() else _conversations.value
+        val oldest = loaded.lastOrNull()
+        var selection: String? = null
+        var args: Array<String>? = null
+        if (oldest != null) {
+            // Several threads can share the oldest date; skip the ones already loaded
+            val seen = loaded.filter { it.timestamp == oldest.timestamp }.map { it.threadId }
+            val date = oldest.timestamp.toString()
+            selection = "${Telephony.Threads.DATE} < ? OR (${Telephony.Threads.DATE} = ? AND " +
+                "${Telephony.Threads._ID} NOT IN (${seen.joinToString(",") { "?" }}))"
+            args = arrayOf(date, date) + seen
+        }
+        // One extra row tells whether another page follows
+        val page = queryThreads(selection, args, "${Telephony.Threads.DATE} DESC", limit + 1)
+        _hasMore.value = page.size > limit
+        _conversations.value = (loaded + page.take(limit)).distinctBy { it.threadId }
+        Log.d(TAG, "Loaded ${minOf(page.size, limit)} conversations after ${loaded.size} in ${(System.nanoTime() - start) / 1_000_000}ms")
+    }
+
+    private fun onProviderChange(uri: Uri?) {
+        synchronized(this) {
+            pendingChanges.add(uri)
+            // Providers often send a burst of notifications for one message
+            changeJob?.cancel()
+            changeJob = scope.launch {
+                delay(CHANGE_DEBOUNCE_MS)
+                applyPendingChanges()
+            }
+        }
+    }
+
+    private suspend fun applyPendingChanges() {
+        val changes = synchronized(this) { pendingChanges.toList().also { pendingChanges.clear() } }
+        val threads = HashSet<String>()
+        var unresolved = false // a message was named but its thread is unknown, e.g. it was deleted
+        var unnamed = false
+        for (uri in changes) {
+            val segments = uri?.pathSegments.orEmpty()
+            val id = segments.lastOrNull()?.takeIf { it.all(Char::isDigit) }
+            val threadId = when {
+                uri == null || id == null -> null
+                uri.authority == "mms-sms" && segments.firstOrNull() == "conversations" -> id
+                uri.authority == "sms" || uri.authority == "mms" -> threadOfMessage(uri)
+                else -> null
+            }
+            when {
+                threadId != null -> threads.add(threadId)
+                id != null -> unresolved = true
+                else -> unnamed = true
+            }
+        }
+        // Id-less notifications come with every named one; alone, they mean "anything changed"
+        val full = unresolved || (unnamed && threads.isEmpty())
+        mutex.withLock {
+            if (_conversations.value.isEmpty() && _hasMore.value) return // Not opened yet; the first load reads it all
+            if (full) {
+                loadPage(_conversations.value.size.coerceAtLeast(PAGE_SIZE), replace = true)
+            } else {
+                threads.forEach { refreshThread(it) }
+            }
+        }
+    }
+
+    /**
+     * Re-read one thread and move it to its place by date, or drop it if it was deleted.
+     */
+    private fun refreshThread(threadId: String) {
+        val updated = queryThreads("${Telephony.Threads._ID} = ?", arrayOf(threadId), null).firstOrNull()
+        val others = _conversations.value.filter { it.threadId != threadId }
+        _conversations.value = if (updated == null) {
+            others
+        } else {
+            val oldest = others.lastOrNull()?.timestamp ?: Long.MIN_VALUE
+            // A thread older than everything loaded belongs to a later page
+            if (_hasMore.value && updated.timestamp < oldest) others
+            else (others + updated).sortedByDescending { it.timestamp }
+        }
+    }
+
+    private fun threadOfMessage(uri: Uri): String? = try {
+        context.contentResolver.query(uri, arrayOf(Telephony.Sms.THREAD_ID), null, null, null)?.use {
+            if (it.moveToFirst()) it.getString(0) else null
+        }
+    } catch (e: Exception) {
+        null
+    }
+
+    private fun queryThreads(
+        selection: String?,
+        args: Array<String>?,
+        sortOrder: String?,
+        limit: Int = Int.MAX_VALUE
+    ): List<MessageConversation> {
+        val rows = ArrayList<Array<String?>>()
+        try {
+            context.contentResolver.query(THREADS_URI, PROJECTION, selection, args, sortOrder)?.use { cursor ->
+                while (rows.size < limit && cursor.moveToNext()) {
+                    rows.add(Array(PROJECTION.size) { cursor.getString(it) })
+                }
+            }
+        } catch (e: Exception) {
+            Log.e(TAG, "Failed to read conversations", e)
+            return emptyList()
+        }
+
+        val recipientIds = rows.map { it[4].orEmpty().split(' ').filter { id -> id.isNotBlank() } }
+        resolveAddresses(recipientIds.flatten())
+
+        return rows.mapIndexedNotNull { index, row ->
+            val threadId = row[0] ?: return@mapIndexedNotNull null
+            val address = recipientIds[index].mapNotNull { addresses[it] }.joinToString(", ").ifEmpty { "Unknown" }
+            MessageConversation(
+                threadId = threadId,
+                address = address,
+                contactName = displayName(address),
+                lastMessage = row[2].orEmpty(),
+                timestamp = row[1]?.toLongOrNull() ?: 0L,
+                isRead = row[3] == "1"
+            )
+        }
+    }
+
+    /**
+     * Fill [addresses] for any of [ids] not seen yet, one query per few hundred ids.
+     */
+    private fun resolveAddresses(ids: List<String>) {
+        val missing = ids.filter { it !in addresses }.distinct()
+        // Stay under SQLite's bound parameter limit
+        for (chunk in missing.chunked(500)) {
+            try {
+                context.contentResolver.query(
+                    CANONICAL_ADDRESSES_URI,
+                    arrayOf("_id", "address"),
+                    "_id IN (${chunk.joinToString(",") { "?" }})",
+                    chunk.toTypedArray(),
+                    null
+                )?.use { cursor ->
+                    while (cursor.moveToNext()) {
+                        val id = cursor.getString(0) ?: continue
+                        addresses[id] = cursor.getString(1) ?: continue
+                    }
+                }
+            } catch (e: Exception) {
+                Log.w(TAG, "Failed to read recipient addresses", e)
+            }
+        }
+    }
+
+    private fun displayName(address: String): String =
+        address.split(", ").joinToString(", ") { contactIndex.nameForNumber(it) ?: it }
+}
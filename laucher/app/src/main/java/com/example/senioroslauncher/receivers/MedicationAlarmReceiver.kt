@@ -14,6 +14,8 @@ import com.example.senioroslauncher.R
 import com.example.senioroslauncher.SeniorLauncherApp
 import com.example.senioroslauncher.data.database.entity.MedicationAction
 import com.example.senioroslauncher.data.database.entity.MedicationLogEntity
+import com.example.senioroslauncher.services.medication.DoseTimeline
+import com.example.senioroslauncher.services.medication.MedicationAlarmScheduler
 import com.example.senioroslauncher.ui.medication.MedicationReminderActivity
 import kotlinx.coroutines.CoroutineScope
 import kotlinx.coroutines.Dispatchers
@@ -29,11 +31,37 @@ class MedicationAlarmReceiver : BroadcastReceiver() {
         if (context == null || intent == null) return
 
         when (intent.action) {
+            ACTION_DOSES_DUE -> {
+                val pendingResult = goAsync()
+                val appContext = context.applicationContext
+                scope.launch {
+                    try {
+                        val doses = MedicationAlarmScheduler.takeDueDoses(appContext)
+                        if (doses.isNotEmpty()) remindDoses(appContext, doses)
+                    } finally {
+                        pendingResult.finish()
+                    }
+                }
+            }
+
+            // Wall-clock dose times moved; rebuild the timeline against the new clock
+            Intent.ACTION_TIMEZONE_CHANGED, Intent.ACTION_TIME_CHANGED -> {
+                val pendingResult = goAsync()
+                val appContext = context.applicationContext
+                scope.launch {
+                    try {
+                        MedicationAlarmScheduler.rescheduleAll(appContext)
+                    } finally {
+                        pendingResult.finish()
+                    }
+                }
+            }
+
+            // Snoozed reminder for a single medication
             ACTION_MEDICATION_REMINDER -> {
                 val medicationId = intent.getLongExtra(EXTRA_MEDICATION_ID, -1)
                 val medicationName = intent.getStringExtra(EXTRA_MEDICATION_NAME) ?: "Medication"
                 val medicationDosage = intent.getStringExtra(EXTRA_MEDICATION_DOSAGE) ?: ""
-                val scheduleId = intent.getLongExtra(EXTRA_SCHEDULE_ID, -1)
 
                 // Show notification
                 showMedicationNotification(context, medicationId, medicationName, medicationDosage)
@@ -43,9 +71,6 @@ class MedicationAlarmReceiver : BroadcastReceiver() {
 
                 // Vibrate
                 vibrate(context)
-
-                // Reschedule for tomorrow
-                rescheduleAlarm(context, scheduleId)
             }
 
             ACTION_MEDICATION_TAKEN -> {
@@ -79,6 +104,26 @@ class MedicationAlarmReceiver : BroadcastReceiver() {
         }
     }
 
+    /**
+     * One reminder for a group of doses due together: a notification per medication (each with
+     * its own actions), but a single full-screen prompt and vibration.
+     */
+    private fun remindDoses(context: Context, doses: List<DoseTimeline.Dose>) {
+        val medications = doses.distinctBy { it.medicationId }
+        medications.forEach {
+            showMedicationNotification(context, it.medicationId, it.medicationName, it.dosage)
+        }
+
+        val first = medications.first()
+        launchReminderActivity(
+            context,
+            first.medicationId,
+            medications.joinToString(", ") { it.medicationName },
+            medications.joinToString(" · ") { it.dosage }.ifBlank { first.dosage }
+        )
+        vibrate(context)
+    }
+
     private fun showMedicationNotification(
         context: Context,
         medicationId: Long,
@@ -186,11 +231,6 @@ class MedicationAlarmReceiver : BroadcastReceiver() {
         notificationManager.cancel(medicationId.toInt())
     }
 
-    private fun rescheduleAlarm(context: Context, scheduleId: Long) {
-        // The MedicationReminderService will handle rescheduling
-        // when it processes the next day's alarms
-    }
-
     private fun scheduleSnoozeReminder(
         context: Context,
         medicationId: Long,
@@ -224,6 +264,7 @@ class MedicationAlarmReceiver : BroadcastReceiver() {
     }
 
     companion object {
+        const val ACTION_DOSES_DUE = "com.example.senioroslauncher.MEDICATION_DOSES_DUE"
         const val ACTION_MEDICATION_REMINDER = "com.example.senioroslauncher.MEDICATION_REMINDER"
         const val ACTION_MEDICATION_TAKEN = "com.example.senioroslauncher.MEDICATION_TAKEN"
         const val ACTION_MEDICATION_SKIPPED = "com.example.senioroslauncher.MEDICATION_SKIPPED"
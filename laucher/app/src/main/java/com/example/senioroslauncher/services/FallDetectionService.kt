@@ -8,10 +8,18 @@ import android.content.Context
 import android.content.Intent
 import android.hardware.Sensor
 import android.hardware.SensorEvent
-import android.hardware.SensorEventListener
+import android.hardware.SensorEventListener2
 import android.hardware.SensorManager
+import android.hardware.TriggerEvent
+import android.hardware.TriggerEventListener
 import android.os.Build
+import android.os.Debug
+import android.os.Handler
+import android.os.HandlerThread
 import android.os.IBinder
+import android.os.Looper
+import android.os.PowerManager
+import android.os.SystemClock
 import android.os.VibrationEffect
 import android.os.Vibrator
 import android.os.VibratorManager
@@ -20,49 +28,130 @@ import androidx.core.app.NotificationCompat
 import com.example.senioroslauncher.R
 import com.example.senioroslauncher.SeniorLauncherApp
 import com.example.senioroslauncher.data.guardian.AlertManager
+import com.example.senioroslauncher.services.fall.FallDetector
+import com.example.senioroslauncher.services.fall.FallMonitorStats
+import com.example.senioroslauncher.services.fall.FallMonitorStats.CaptureMode
 import com.example.senioroslauncher.ui.emergency.EmergencyActivity
-import kotlin.math.sqrt
 
-class FallDetectionService : Service(), SensorEventListener {
+/**
+ * Foreground service running fall detection on the accelerometer.
+ *
+ * By default it captures in low-power mode: the non-wake-up accelerometer at 50 Hz into the
+ * sensor hub's FIFO, delivered in batches whenever the application processor is awake (at most
+ * every few seconds), so the sensor path never wakes it. The significant-motion trigger is the
+ * wake-up source: it, or a candidate impact found in a batch, switches to unbatched high-rate
+ * capture under a partial wake lock for a while before dropping back. Pass
+ * [EXTRA_CAPTURE_MODE] = [CAPTURE_MODE_HIGH_RATE] to capture at high rate permanently, e.g. to
+ * compare [FallMonitorStats] between modes.
+ */
+class FallDetectionService : Service(), SensorEventListener2 {
 
     companion object {
         private const val TAG = "FallDetectionService"
         private const val NOTIFICATION_ID = 1001
         private const val FALL_NOTIFICATION_ID = 1002
         const val ACTION_IM_OK = "com.example.senioroslauncher.IM_OK"
+
+        const val EXTRA_CAPTURE_MODE = "capture_mode"
+        const val CAPTURE_MODE_LOW_POWER = "low_power"
+        const val CAPTURE_MODE_HIGH_RATE = "high_rate"
+
+        private const val LOW_POWER_PERIOD_US = 20_000 // 50 Hz
+        private const val LOW_POWER_MAX_LATENCY_US = 5_000_000 // FIFO flushed at least every 5 s
+        private const val HIGH_RATE_PERIOD_US = 10_000 // 100 Hz, no batching
+        private const val MOTION_CAPTURE_MS = 30_000L // high rate after significant motion
+        private const val CANDIDATE_CAPTURE_MS = 10_000L // high rate after a candidate impact
+        private const val BATCH_CAPACITY = 512 // samples staged per delivery
+        private const val WAKE_LOCK_MARGIN_MS = 2_000L
+        private const val DRAIN_WAKE_LOCK_MS = 1_000L // until a delivery's posted drain has run
+        private const val COMPARISON_WAKE_LOCK_MS = 10 * 60 * 1000L // renewed at half this
+        private const val STATS_LOG_INTERVAL_MS = 15 * 60 * 1000L
     }
 
     private lateinit var sensorManager: SensorManager
     private var accelerometer: Sensor? = null
+    private var significantMotion: Sensor? = null
+
+    // Sensor callbacks and detection run off the main thread
+    private lateinit var sensorThread: HandlerThread
+    private lateinit var sensorHandler: Handler
+    private val mainHandler = Handler(Looper.getMainLooper())
+
+    // Thresholds and windows live in FallDetector.Config
+    private val detector = FallDetector()
+
+    // One delivery burst, copied out of the framework's recycled SensorEvents
+    private val batchTimestamps = LongArray(BATCH_CAPACITY)
+    private val batchValues = FloatArray(BATCH_CAPACITY * 3)
+    private var batchCount = 0
+    private lateinit var wakeLock: PowerManager.WakeLock
+    private lateinit var drainWakeLock: PowerManager.WakeLock
+    private var drainPosted = false
+    private val drain = Runnable {
+        drainPosted = false
+        processStagedBatch()
+        if (drainWakeLock.isHeld) drainWakeLock.release()
+    }
+    private val renewComparisonWakeLock = object : Runnable {
+        override fun run() {
+            wakeLock.acquire(COMPARISON_WAKE_LOCK_MS)
+            sensorHandler.postDelayed(this, COMPARISON_WAKE_LOCK_MS / 2)
+        }
+    }
 
-    private var lastUpdate: Long = 0
-    private var lastX = 0f
-    private var lastY = 0f
-    private var lastZ = 0f
-
-    // Fall detection parameters
-    private val FALL_THRESHOLD = 0.5f  // Free fall threshold (g) - lowered for better detection
-    private val IMPACT_THRESHOLD = 2.5f  // Impact threshold (g) - more realistic for phone drops
-    private val FALL_WINDOW = 500L  // Time window for fall detection (ms) - increased window
+    private var lowPowerAllowed = true
+    private var stopped = false
+    private var captureMode: CaptureMode? = null
+    private var awaitingFlush = false
+    private val returnToLowPower = Runnable { enterLowPower() }
+    private val logStats = object : Runnable {
+        override fun run() {
+            Log.i(TAG, "Fall monitor stats: ${FallMonitorStats.summary(SystemClock.elapsedRealtime())}")
+            sensorHandler.postDelayed(this, STATS_LOG_INTERVAL_MS)
+        }
+    }
 
-    private var potentialFallTime: Long = 0
-    private var inFreeFall = false
+    private val significantMotionListener = object : TriggerEventListener() {
+        override fun onTrigger(event: TriggerEvent?) {
+            // One-shot: the framework disarms it; enterLowPower re-arms it
+            sensorHandler.post {
+                FallMonitorStats.onSignificantMotion()
+                enterHighRate(MOTION_CAPTURE_MS)
+            }
+        }
+    }
 
     override fun onCreate() {
         super.onCreate()
         Log.d(TAG, "FallDetectionService onCreate()")
         sensorManager = getSystemService(Context.SENSOR_SERVICE) as SensorManager
+        // The default accelerometer is the non-wake-up one: its FIFO fills while the device sleeps
         accelerometer = sensorManager.getDefaultSensor(Sensor.TYPE_ACCELEROMETER)
+        significantMotion = sensorManager.getDefaultSensor(Sensor.TYPE_SIGNIFICANT_MOTION)
         if (accelerometer == null) {
             Log.e(TAG, "No accelerometer sensor available!")
         } else {
-            Log.d(TAG, "Accelerometer sensor found: ${accelerometer?.name}")
+            Log.d(
+                TAG,
+                "Accelerometer sensor found: ${accelerometer?.name} " +
+                    "(wakeUp=${accelerometer?.isWakeUpSensor}, fifo=${accelerometer?.fifoMaxEventCount}, " +
+                    "significantMotion=${significantMotion != null})"
+            )
         }
+
+        sensorThread = HandlerThread("FallDetectionSensors").apply { start() }
+        sensorHandler = Handler(sensorThread.looper)
+        val powerManager = getSystemService(Context.POWER_SERVICE) as PowerManager
+        wakeLock = powerManager.newWakeLock(PowerManager.PARTIAL_WAKE_LOCK, "SeniorLauncher:FallCapture")
+            .apply { setReferenceCounted(false) }
+        drainWakeLock = powerManager.newWakeLock(PowerManager.PARTIAL_WAKE_LOCK, "SeniorLauncher:FallDrain")
+            .apply { setReferenceCounted(false) }
     }
 
     override fun onStartCommand(intent: Intent?, flags: Int, startId: Int): Int {
         startForeground(NOTIFICATION_ID, createNotification())
-        startAccelerometerMonitoring()
+        val highRateOnly = intent?.getStringExtra(EXTRA_CAPTURE_MODE) == CAPTURE_MODE_HIGH_RATE
+        sensorHandler.post { startAccelerometerMonitoring(lowPower = !highRateOnly) }
         return START_STICKY
     }
 
@@ -70,73 +159,138 @@ class FallDetectionService : Service(), SensorEventListener {
 
     override fun onDestroy() {
         super.onDestroy()
-        sensorManager.unregisterListener(this)
-    }
-
-    private fun startAccelerometerMonitoring() {
-        accelerometer?.let {
-            val success = sensorManager.registerListener(
-                this,
-                it,
-                SensorManager.SENSOR_DELAY_GAME
-            )
-            Log.d(TAG, "Accelerometer monitoring started: $success")
-        } ?: Log.e(TAG, "Cannot start monitoring - no accelerometer")
+        // On the sensor thread, after anything already queued there that could re-register
+        sensorHandler.removeCallbacksAndMessages(null)
+        sensorHandler.post {
+            stopped = true // a significant-motion trigger queued behind us must not re-register
+            sensorManager.unregisterListener(this)
+            significantMotion?.let { sensorManager.cancelTriggerSensor(significantMotionListener, it) }
+            if (wakeLock.isHeld) wakeLock.release()
+            if (drainWakeLock.isHeld) drainWakeLock.release()
+            FallMonitorStats.onModeChanged(null, SystemClock.elapsedRealtime())
+            Log.i(TAG, "Fall monitor stats: ${FallMonitorStats.summary(SystemClock.elapsedRealtime())}")
+        }
+        sensorThread.quitSafely()
     }
 
-    override fun onSensorChanged(event: SensorEvent?) {
-        if (event?.sensor?.type != Sensor.TYPE_ACCELEROMETER) return
+    private fun startAccelerometerMonitoring(lowPower: Boolean) {
+        if (accelerometer == null) {
+            Log.e(TAG, "Cannot start monitoring - no accelerometer")
+            return
+        }
 
-        val curTime = System.currentTimeMillis()
-        if ((curTime - lastUpdate) < 20) return // Limit to ~50Hz
+        lowPowerAllowed = lowPower
+        captureMode = null
+        sensorHandler.removeCallbacks(renewComparisonWakeLock)
+        if (lowPower) {
+            enterLowPower()
+        } else {
+            // Comparison mode: keep the processor awake so the non-wake-up sensor keeps delivering.
+            // Renewed rather than held without a timeout, so a stuck thread can't keep it forever.
+            renewComparisonWakeLock.run()
+            register(CaptureMode.HIGH_RATE)
+        }
 
-        val x = event.values[0]
-        val y = event.values[1]
-        val z = event.values[2]
+        sensorHandler.removeCallbacks(logStats)
+        sensorHandler.postDelayed(logStats, STATS_LOG_INTERVAL_MS)
+    }
 
-        // Calculate total acceleration magnitude
-        val acceleration = sqrt(x * x + y * y + z * z) / SensorManager.GRAVITY_EARTH
+    private fun enterLowPower() {
+        sensorHandler.removeCallbacks(returnToLowPower)
+        if (!lowPowerAllowed || stopped) return
 
-        // Free fall detection (acceleration close to 0)
-        if (acceleration < FALL_THRESHOLD && !inFreeFall) {
-            inFreeFall = true
-            potentialFallTime = curTime
-            Log.d(TAG, "Free fall detected! acceleration=$acceleration")
+        awaitingFlush = false // an escalation still waiting on its flush is abandoned
+        register(CaptureMode.LOW_POWER)
+        if (wakeLock.isHeld) wakeLock.release()
+        significantMotion?.let {
+            if (!sensorManager.requestTriggerSensor(significantMotionListener, it)) {
+                Log.w(TAG, "Could not arm significant motion trigger")
+            }
         }
+    }
 
-        // Impact detection after free fall
-        if (inFreeFall && acceleration > IMPACT_THRESHOLD) {
-            val timeSinceFreeFall = curTime - potentialFallTime
-            Log.d(TAG, "Impact detected! acceleration=$acceleration, timeSinceFreeFall=$timeSinceFreeFall ms")
-            if (timeSinceFreeFall < FALL_WINDOW) {
-                // Fall detected!
-                Log.w(TAG, "FALL DETECTED! Triggering emergency alert")
-                onFallDetected()
-            }
-            inFreeFall = false
+    /**
+     * Switch to unbatched capture for [durationMs], extending the window if already there.
+     * Samples still in the FIFO are flushed first so the detector sees them in order. The wake
+     * lock keeps the processor up for the window, since the sensor itself won't wake it.
+     */
+    private fun enterHighRate(durationMs: Long) {
+        if (!lowPowerAllowed || stopped) return
+
+        wakeLock.acquire(durationMs + WAKE_LOCK_MARGIN_MS)
+        if (captureMode == CaptureMode.LOW_POWER && !awaitingFlush) {
+            FallMonitorStats.onEscalation()
+            awaitingFlush = true
+            if (!sensorManager.flush(this)) onFlushCompleted(accelerometer)
         }
+        sensorHandler.removeCallbacks(returnToLowPower)
+        sensorHandler.postDelayed(returnToLowPower, durationMs)
+    }
 
-        // Reset free fall state after window expires
-        if (inFreeFall && (curTime - potentialFallTime) > FALL_WINDOW) {
-            Log.d(TAG, "Free fall window expired without impact")
-            inFreeFall = false
+    private fun register(mode: CaptureMode) {
+        val sensor = accelerometer ?: return
+        // Re-registering an already registered listener is rejected, so drop it first
+        sensorManager.unregisterListener(this, sensor)
+        val success = when (mode) {
+            CaptureMode.LOW_POWER -> sensorManager.registerListener(
+                this, sensor, LOW_POWER_PERIOD_US, LOW_POWER_MAX_LATENCY_US, sensorHandler
+            )
+            CaptureMode.HIGH_RATE -> sensorManager.registerListener(
+                this, sensor, HIGH_RATE_PERIOD_US, 0, sensorHandler
+            )
         }
+        captureMode = mode
+        FallMonitorStats.onModeChanged(mode, SystemClock.elapsedRealtime())
+        Log.d(TAG, "Accelerometer capture mode $mode: $success")
+    }
 
-        // Sudden acceleration change detection
-        val deltaX = x - lastX
-        val deltaY = y - lastY
-        val deltaZ = z - lastZ
-        val deltaAccel = sqrt(deltaX * deltaX + deltaY * deltaY + deltaZ * deltaZ) / SensorManager.GRAVITY_EARTH
+    override fun onSensorChanged(event: SensorEvent?) {
+        if (event?.sensor?.type != Sensor.TYPE_ACCELEROMETER) return
 
-        if (deltaAccel > 3.0) {
-            // Possible fall from sudden movement - lowered threshold for better detection
-            Log.d(TAG, "Sudden movement detected: deltaAccel=$deltaAccel")
+        if (batchCount == BATCH_CAPACITY) processStagedBatch()
+
+        // Sensor timestamps, not wall-clock time: batched events arrive late but keep their spacing
+        val values = event.values
+        val i = batchCount++
+        batchTimestamps[i] = event.timestamp
+        batchValues[i * 3] = values[0]
+        batchValues[i * 3 + 1] = values[1]
+        batchValues[i * 3 + 2] = values[2]
+
+        // A FIFO flush is dispatched as consecutive callbacks, oldest first, from one looper
+        // message; a drain posted behind it runs once the whole delivery is staged. Keep the
+        // processor up until then, since nothing else holds it awake for a non-wake-up sensor.
+        if (!drainPosted) {
+            drainPosted = true
+            if (!wakeLock.isHeld) drainWakeLock.acquire(DRAIN_WAKE_LOCK_MS)
+            sensorHandler.post(drain)
         }
+    }
+
+    override fun onFlushCompleted(sensor: Sensor?) {
+        if (!awaitingFlush) return
+        awaitingFlush = false
+        register(CaptureMode.HIGH_RATE)
+        processStagedBatch()
+    }
 
-        lastX = x
-        lastY = y
-        lastZ = z
-        lastUpdate = curTime
+    private fun processStagedBatch() {
+        val count = batchCount
+        if (count == 0) return
+        batchCount = 0
+
+        val cpuStart = Debug.threadCpuTimeNanos()
+        val falls = detector.processBatch(batchTimestamps, batchValues, count)
+        FallMonitorStats.onDelivery(count, Debug.threadCpuTimeNanos() - cpuStart)
+
+        if (falls > 0) {
+            FallMonitorStats.onFall()
+            Log.w(TAG, "FALL DETECTED! ${detector.lastFeatures}")
+            mainHandler.post { onFallDetected() }
+        } else if (detector.isObserving && captureMode == CaptureMode.LOW_POWER) {
+            // Candidate impact in a batch: watch the stillness window at full rate
+            enterHighRate(CANDIDATE_CAPTURE_MS)
+        }
     }
 
     override fun onAccuracyChanged(sensor: Sensor?, accuracy: Int) {
@@ -60,6 +60,9 @@ class GuardianMonitoringService : Service() {
 
         const val ACTION_START = "com.example.senioroslauncher.guardian.START"
         const val ACTION_STOP = "com.example.senioroslauncher.guardian.STOP"
+        const val ACTION_SEND_ALERT = "com.example.senioroslauncher.guardian.SEND_ALERT"
+        const val EXTRA_PAYLOAD = "payload"
+        const val EXTRA_GUARDIAN_IDS = "guardian_ids"
     }
 
     private val serviceScope = CoroutineScope(Dispatchers.IO + SupervisorJob())
@@ -164,6 +167,8 @@ class GuardianMonitoringService : Service() {
                 handleMedicationUpdated(intent)
                 return START_STICKY
             }
+            // Sent with startForegroundService, so it continues into the normal start below
+            ACTION_SEND_ALERT -> handleSendAlert(intent)
         }
 
         // Start as foreground service
@@ -203,6 +208,38 @@ class GuardianMonitoringService : Service() {
         }
     }
 
+    /**
+     * Queue an alert raised outside the service (AlertManager) for each listed guardian.
+     */
+    private fun handleSendAlert(intent: Intent) {
+        val payload = intent.getStringExtra(EXTRA_PAYLOAD) ?: return
+        val guardianIds = intent.getStringArrayExtra(EXTRA_GUARDIAN_IDS) ?: return
+
+        serviceScope.launch {
+            try {
+                val elderId = ElderIdentity.getOrCreateElderId(this@GuardianMonitoringService)
+                val payloadElement = json.parseToJsonElement(payload)
+                val timestamp = java.time.Instant.now().toString()
+
+                guardianIds.forEach { guardianId ->
+                    webSocketManager.sendMessage(
+                        WebSocketMessage(
+                            type = OutgoingMessageTypes.ALERT_EVENT,
+                            from = elderId,
+                            to = guardianId,
+                            requestId = java.util.UUID.randomUUID().toString(),
+                            payload = payloadElement,
+                            timestamp = timestamp
+                        )
+                    )
+                }
+                Log.d(TAG, "Queued alert for ${guardianIds.size} guardian(s)")
+            } catch (e: Exception) {
+                Log.e(TAG, "Failed to send alert", e)
+            }
+        }
+    }
+
     override fun onBind(intent: Intent?): IBinder? = null
 
     override fun onDestroy() {
@@ -232,6 +269,8 @@ class GuardianMonitoringService : Service() {
     }
 
     private fun startBatteryMonitoring() {
+        // onStartCommand runs again for every start request; keep a single check loop
+        handler.removeCallbacks(batteryCheckRunnable)
         handler.postDelayed(batteryCheckRunnable, BATTERY_CHECK_INTERVAL)
     }
 
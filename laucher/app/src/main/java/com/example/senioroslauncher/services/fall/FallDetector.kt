@@ -0,0 +1,291 @@
+package com.example.senioroslauncher.services.fall
+
+import kotlin.math.abs
+import kotlin.math.acos
+import kotlin.math.max
+import kotlin.math.sqrt
+
+/**
+ * Fall detection engine. Plain JVM code (no Android types) so it can be driven by replayed
+ * traces; [FallDetectionService][com.example.senioroslauncher.services.FallDetectionService]
+ * feeds it raw accelerometer samples with their sensor timestamps.
+ *
+ * A fall is an impact (signal magnitude vector peak) preceded by free fall or a sharp jerk,
+ * followed by the phone lying still, usually in a different orientation than before.
+ * [process] never allocates: samples go into a preallocated [SampleRingBuffer] and window
+ * features are accumulated in primitive fields.
+ */
+class FallDetector(private val config: Config = Config()) {
+
+    data class Config(
+        val freeFallThresholdG: Float = 0.5f,
+        val impactThresholdG: Float = 2.5f,
+        val freeFallToImpactMs: Long = 500,
+        val jerkThresholdGPerSec: Float = 80f, // impact without free fall (e.g. a trip) needs a sharp jerk
+        val jerkWindowMs: Long = 100,
+        val impactSettleMs: Long = 500, // bounces after impact are ignored for stillness
+        val stillnessWindowMs: Long = 1500,
+        val stillnessMaxStdDevG: Float = 0.15f,
+        val orientationChangeMinDeg: Float = 45f,
+        val baselineWindowMs: Long = 500, // posture before the event, for orientation change
+        val refractoryMs: Long = 5000,
+        val bufferCapacity: Int = 256 // > (baseline + free fall window) at 200 Hz
+    )
+
+    /**
+     * Features of the most recent candidate event. Reused between events; copy fields out if
+     * they need to outlive the next call to [process].
+     */
+    class Features {
+        var impactTimestampNs = 0L
+        var peakSvmG = 0f
+        var peakJerkGPerSec = 0f
+        var freeFallMs = 0L
+        var stillnessStdDevG = 0f
+        var orientationChangeDeg = 0f
+        var confirmed = false
+
+        internal fun reset() {
+            impactTimestampNs = 0L
+            peakSvmG = 0f
+            peakJerkGPerSec = 0f
+            freeFallMs = 0L
+            stillnessStdDevG = 0f
+            orientationChangeDeg = 0f
+            confirmed = false
+        }
+
+        override fun toString(): String =
+            "peakSvm=${peakSvmG}g jerk=${peakJerkGPerSec}g/s freeFall=${freeFallMs}ms " +
+                "stillnessStd=${stillnessStdDevG}g orientationChange=${orientationChangeDeg}deg confirmed=$confirmed"
+    }
+
+    companion object {
+        const val STANDARD_GRAVITY = 9.80665f // m/s^2, same as SensorManager.GRAVITY_EARTH
+        private const val NONE = Long.MIN_VALUE
+        private const val NANOS_PER_MS = 1_000_000L
+        private const val RAD_TO_DEG = (180.0 / Math.PI).toFloat()
+    }
+
+    private val buffer = SampleRingBuffer(config.bufferCapacity)
+    val lastFeatures = Features()
+
+    var samplesProcessed = 0L
+        private set
+    var candidates = 0L
+        private set
+    var detections = 0L
+        private set
+
+    /**
+     * True while a candidate impact is being evaluated (settle and stillness windows).
+     */
+    val isObserving: Boolean get() = observing
+
+    private var observing = false
+    private var refractoryUntilNs = NONE
+
+    // Free fall run
+    private var freeFallStartNs = NONE
+    private var freeFallEndNs = NONE
+
+    // Candidate event
+    private var impactNs = 0L
+    private var hadFreeFall = false
+    private var baselineX = 0f
+    private var baselineY = 0f
+    private var baselineZ = 0f
+    private var hasBaseline = false
+    private var stillCount = 0
+    private var stillSum = 0.0
+    private var stillSumSq = 0.0
+    private var stillX = 0.0
+    private var stillY = 0.0
+    private var stillZ = 0.0
+
+    /**
+     * Feed one accelerometer sample (m/s^2). Returns true when this sample confirms a fall;
+     * details are then in [lastFeatures].
+     */
+    fun process(timestampNs: Long, x: Float, y: Float, z: Float): Boolean {
+        val svm = sqrt(x * x + y * y + z * z) / STANDARD_GRAVITY
+        val jerk = if (buffer.size > 0) jerkBetween(buffer.timestampAt(0), buffer.magnitudeAt(0), timestampNs, svm) else 0f
+        buffer.add(timestampNs, x, y, z, svm)
+        samplesProcessed++
+
+        return if (observing) {
+            observe(timestampNs, x, y, z, svm, jerk)
+        } else {
+            watch(timestampNs, svm)
+            false
+        }
+    }
+
+    /**
+     * Feed [count] samples at once, e.g. a flushed hardware FIFO. [values] holds x, y, z
+     * interleaved (3 floats per sample). Returns the number of falls confirmed in the batch;
+     * [lastFeatures] describes the last one.
+     */
+    fun processBatch(timestampsNs: LongArray, values: FloatArray, count: Int): Int {
+        require(count <= timestampsNs.size && count * 3 <= values.size) { "count exceeds batch arrays" }
+        var falls = 0
+        var v = 0
+        for (i in 0 until count) {
+            if (process(timestampsNs[i], values[v], values[v + 1], values[v + 2])) falls++
+            v += 3
+        }
+        return falls
+    }
+
+    fun reset() {
+        buffer.clear()
+        observing = false
+        refractoryUntilNs = NONE
+        freeFallStartNs = NONE
+        freeFallEndNs = NONE
+        lastFeatures.reset()
+    }
+
+    private fun watch(t: Long, svm: Float) {
+        if (refractoryUntilNs != NONE && t < refractoryUntilNs) return
+
+        val fallWindowNs = config.freeFallToImpactMs * NANOS_PER_MS
+        if (svm < config.freeFallThresholdG) {
+            if (freeFallStartNs == NONE) freeFallStartNs = t
+            freeFallEndNs = t
+        } else if (freeFallStartNs != NONE && t - freeFallEndNs > fallWindowNs) {
+            freeFallStartNs = NONE
+        }
+
+        if (svm < config.impactThresholdG) return
+
+        val freeFall = freeFallStartNs != NONE && t - freeFallEndNs <= fallWindowNs
+        val jerk = recentPeakJerk(t - config.jerkWindowMs * NANOS_PER_MS)
+        if (freeFall || jerk >= config.jerkThresholdGPerSec) {
+            startObserving(t, svm, jerk, freeFall)
+        }
+    }
+
+    private fun startObserving(t: Long, svm: Float, jerk: Float, freeFall: Boolean) {
+        candidates++
+        observing = true
+        impactNs = t
+        hadFreeFall = freeFall
+
+        lastFeatures.reset()
+        lastFeatures.impactTimestampNs = t
+        lastFeatures.peakSvmG = svm
+        lastFeatures.peakJerkGPerSec = jerk
+        lastFeatures.freeFallMs = if (freeFall) (freeFallEndNs - freeFallStartNs) / NANOS_PER_MS else 0L
+
+        // Posture before the event: mean acceleration over the baseline window ending where the
+        // fall began (free fall start, or the jerk window before impact)
+        val referenceNs = if (freeFall) freeFallStartNs else t - config.jerkWindowMs * NANOS_PER_MS
+        val baselineStartNs = referenceNs - config.baselineWindowMs * NANOS_PER_MS
+        var sumX = 0f
+        var sumY = 0f
+        var sumZ = 0f
+        var count = 0
+        for (age in 0 until buffer.size) {
+            val ts = buffer.timestampAt(age)
+            if (ts < baselineStartNs) break
+            if (ts >= referenceNs) continue
+            sumX += buffer.xAt(age)
+            sumY += buffer.yAt(age)
+            sumZ += buffer.zAt(age)
+            count++
+        }
+        hasBaseline = count > 0
+        if (hasBaseline) {
+            baselineX = sumX / count
+            baselineY = sumY / count
+            baselineZ = sumZ / count
+        }
+
+        stillCount = 0
+        stillSum = 0.0
+        stillSumSq = 0.0
+        stillX = 0.0
+        stillY = 0.0
+        stillZ = 0.0
+    }
+
+    private fun observe(t: Long, x: Float, y: Float, z: Float, svm: Float, jerk: Float): Boolean {
+        val sinceImpactNs = t - impactNs
+        val settleNs = config.impactSettleMs * NANOS_PER_MS
+
+        if (sinceImpactNs < settleNs) {
+            lastFeatures.peakSvmG = max(lastFeatures.peakSvmG, svm)
+            lastFeatures.peakJerkGPerSec = max(lastFeatures.peakJerkGPerSec, jerk)
+            return false
+        }
+
+        if (sinceImpactNs <= settleNs + config.stillnessWindowMs * NANOS_PER_MS) {
+            stillCount++
+            stillSum += svm
+            stillSumSq += svm.toDouble() * svm
+            stillX += x
+            stillY += y
+            stillZ += z
+            return false
+        }
+
+        return evaluate(t)
+    }
+
+    private fun evaluate(t: Long): Boolean {
+        observing = false
+        freeFallStartNs = NONE
+        if (stillCount == 0) return false
+
+        val mean = stillSum / stillCount
+        val variance = stillSumSq / stillCount - mean * mean
+        val stdDev = sqrt(max(variance, 0.0)).toFloat()
+        lastFeatures.stillnessStdDevG = stdDev
+
+        if (hasBaseline) {
+            lastFeatures.orientationChangeDeg = angleDeg(
+                baselineX, baselineY, baselineZ,
+                (stillX / stillCount).toFloat(), (stillY / stillCount).toFloat(), (stillZ / stillCount).toFloat()
+            )
+        }
+
+        val still = stdDev <= config.stillnessMaxStdDevG
+        val reoriented = lastFeatures.orientationChangeDeg >= config.orientationChangeMinDeg
+        lastFeatures.confirmed = still && (reoriented || hadFreeFall)
+
+        if (lastFeatures.confirmed) {
+            detections++
+            refractoryUntilNs = t + config.refractoryMs * NANOS_PER_MS
+        }
+        return lastFeatures.confirmed
+    }
+
+    /**
+     * Largest sample-to-sample jerk among buffered samples at or after [sinceNs].
+     */
+    private fun recentPeakJerk(sinceNs: Long): Float {
+        var peak = 0f
+        for (age in 0 until buffer.size - 1) {
+            val newerTs = buffer.timestampAt(age)
+            if (newerTs < sinceNs) break
+            val jerk = jerkBetween(buffer.timestampAt(age + 1), buffer.magnitudeAt(age + 1), newerTs, buffer.magnitudeAt(age))
+            if (jerk > peak) peak = jerk
+        }
+        return peak
+    }
+
+    private fun jerkBetween(olderNs: Long, olderSvm: Float, newerNs: Long, newerSvm: Float): Float {
+        val dtNs = newerNs - olderNs
+        if (dtNs <= 0) return 0f
+        return abs(newerSvm - olderSvm) * 1e9f / dtNs
+    }
+
+    private fun angleDeg(ax: Float, ay: Float, az: Float, bx: Float, by: Float, bz: Float): Float {
+        val normA = sqrt(ax * ax + ay * ay + az * az)
+        val normB = sqrt(bx * bx + by * by + bz * bz)
+        if (normA == 0f || normB == 0f) return 0f
+        val cos = ((ax * bx + ay * by + az * bz) / (normA * normB)).coerceIn(-1f, 1f)
+        return acos(cos) * RAD_TO_DEG
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.senioroslauncher.services.fall
+
+/**
+ * Power/CPU counters for fall monitoring, used to compare capture modes.
+ *
+ * Written only from the sensor thread; reads from elsewhere may be slightly stale.
+ * "Deliveries" counts bursts of sensor callbacks, i.e. how often the sensor path woke the
+ * application processor; with batching each delivery carries many events.
+ */
+object FallMonitorStats {
+    @Volatile var eventsReceived = 0L
+        private set
+    @Volatile var deliveries = 0L
+        private set
+    @Volatile var detectorCpuNanos = 0L
+        private set
+    @Volatile var significantMotionTriggers = 0L
+        private set
+    @Volatile var highRateEscalations = 0L
+        private set
+    @Volatile var fallsDetected = 0L
+        private set
+
+    private val modeMillis = LongArray(CaptureMode.entries.size)
+    @Volatile private var currentMode: CaptureMode? = null
+    @Volatile private var modeSinceMs = 0L
+
+    enum class CaptureMode { LOW_POWER, HIGH_RATE }
+
+    fun onDelivery(events: Int, cpuNanos: Long) {
+        deliveries++
+        eventsReceived += events
+        detectorCpuNanos += cpuNanos
+    }
+
+    fun onSignificantMotion() {
+        significantMotionTriggers++
+    }
+
+    fun onEscalation() {
+        highRateEscalations++
+    }
+
+    fun onFall() {
+        fallsDetected++
+    }
+
+    /**
+     * Record a mode switch; pass null when monitoring stops. [nowMs] is elapsed realtime.
+     */
+    fun onModeChanged(mode: CaptureMode?, nowMs: Long) {
+        currentMode?.let { modeMillis[it.ordinal] += nowMs - modeSinceMs }
+        currentMode = mode
+        modeSinceMs = nowMs
+    }
+
+    fun summary(nowMs: Long): String {
+        val millis = modeMillis.copyOf()
+        currentMode?.let { millis[it.ordinal] += nowMs - modeSinceMs }
+        val totalSec = millis.sum() / 1000.0
+        val perMinute = if (totalSec > 0) deliveries * 60.0 / totalSec else 0.0
+        return "deliveries=$deliveries (${"%.1f".format(perMinute)}/min) events=$eventsReceived " +
+            "detectorCpu=${detectorCpuNanos / 1_000_000}ms sigMotion=$significantMotionTriggers " +
+            "escalations=$highRateEscalations falls=$fallsDetected " +
+            "lowPower=${millis[CaptureMode.LOW_POWER.ordinal] / 1000}s " +
+            "highRate=${millis[CaptureMode.HIGH_RATE.ordinal] / 1000}s"
+    }
+}
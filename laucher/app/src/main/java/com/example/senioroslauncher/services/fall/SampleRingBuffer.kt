@@ -0,0 +1,50 @@
+package com.example.senioroslauncher.services.fall
+
+/**
+ * Fixed-capacity circular buffer of accelerometer samples, stored as parallel primitive arrays.
+ * Adding a sample never allocates; once full, the oldest sample is overwritten.
+ *
+ * Samples are addressed by age: 0 is the newest, [size] - 1 the oldest still held.
+ */
+class SampleRingBuffer(val capacity: Int) {
+    init {
+        require(capacity > 0) { "capacity must be positive" }
+    }
+
+    private val timestamps = LongArray(capacity)
+    private val xs = FloatArray(capacity)
+    private val ys = FloatArray(capacity)
+    private val zs = FloatArray(capacity)
+    private val magnitudes = FloatArray(capacity)
+
+    private var head = -1 // index of the newest sample
+    var size = 0
+        private set
+
+    fun add(timestampNs: Long, x: Float, y: Float, z: Float, magnitude: Float) {
+        head = if (head + 1 == capacity) 0 else head + 1
+        timestamps[head] = timestampNs
+        xs[head] = x
+        ys[head] = y
+        zs[head] = z
+        magnitudes[head] = magnitude
+        if (size < capacity) size++
+    }
+
+    fun clear() {
+        head = -1
+        size = 0
+    }
+
+    fun timestampAt(age: Int): Long = timestamps[indexOf(age)]
+    fun xAt(age: Int): Float = xs[indexOf(age)]
+    fun yAt(age: Int): Float = ys[indexOf(age)]
+    fun zAt(age: Int): Float = zs[indexOf(age)]
+    fun magnitudeAt(age: Int): Float = magnitudes[indexOf(age)]
+
+    private fun indexOf(age: Int): Int {
+        if (age < 0 || age >= size) throw IndexOutOfBoundsException("age $age, size $size")
+        val index = head - age
+        return if (index < 0) index + capacity else index
+    }
+}
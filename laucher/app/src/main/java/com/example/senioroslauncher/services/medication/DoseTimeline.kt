@@ -0,0 +1,141 @@
+package com.example.senioroslauncher.services.medication
+
+import com.example.senioroslauncher.data.database.dao.ReminderSchedule
+import com.example.senioroslauncher.data.database.entity.DaysOfWeekMask
+import java.util.Calendar
+import java.util.TimeZone
+import java.util.TreeMap
+
+/**
+ * In-memory timeline of upcoming medication doses.
+ *
+ * Each enabled schedule contributes only its next occurrence (honouring its day-of-week mask);
+ * when a dose is taken off the timeline the schedule is advanced to the occurrence after it.
+ * Schedules can be replaced per medication, so an edit doesn't rebuild the whole timeline.
+ * Not thread-safe; [MedicationAlarmScheduler] serialises access.
+ */
+class DoseTimeline(private val timeZone: () -> TimeZone = { TimeZone.getDefault() }) {
+
+    data class Dose(
+        val scheduleId: Long,
+        val medicationId: Long,
+        val medicationName: String,
+        val dosage: String,
+        val timeMillis: Long
+    )
+
+    companion object {
+        /**
+         * First hour:minute strictly after [afterMillis] on a day in the schedule's mask, or null
+         * if the mask selects no days.
+         */
+        fun nextOccurrence(schedule: ReminderSchedule, afterMillis: Long, timeZone: TimeZone): Long? {
+            if (schedule.daysMask and DaysOfWeekMask.ALL_DAYS == 0) return null
+
+            val calendar = Calendar.getInstance(timeZone).apply {
+                timeInMillis = afterMillis
+                set(Calendar.HOUR_OF_DAY, schedule.hour)
+                set(Calendar.MINUTE, schedule.minute)
+                set(Calendar.SECOND, 0)
+                set(Calendar.MILLISECOND, 0)
+            }
+            if (calendar.timeInMillis <= afterMillis) calendar.add(Calendar.DAY_OF_MONTH, 1)
+
+            repeat(7) {
+                if (DaysOfWeekMask.contains(schedule.daysMask, calendar.get(Calendar.DAY_OF_WEEK))) {
+                    return calendar.timeInMillis
+                }
+                calendar.add(Calendar.DAY_OF_MONTH, 1)
+                // DST days: keep the wall-clock time
+                calendar.set(Calendar.HOUR_OF_DAY, schedule.hour)
+                calendar.set(Calendar.MINUTE, schedule.minute)
+            }
+            return null
+        }
+    }
+
+    private val schedules = HashMap<Long, ReminderSchedule>() // scheduleId -> schedule
+    private val nextTimes = HashMap<Long, Long>() // scheduleId -> next occurrence
+    private val byTime = TreeMap<Long, MutableSet<Long>>() // occurrence -> scheduleIds
+
+    var isLoaded = false
+        private set
+
+    val size: Int get() = nextTimes.size
+
+    fun replaceAll(all: List<ReminderSchedule>, nowMillis: Long) {
+        schedules.clear()
+        nextTimes.clear()
+        byTime.clear()
+        all.forEach { add(it, nowMillis) }
+        isLoaded = true
+    }
+
+    /**
+     * Replace the schedules of one medication; an empty list removes it.
+     */
+    fun replaceMedication(medicationId: Long, updated: List<ReminderSchedule>, nowMillis: Long) {
+        schedules.values
+            .filter { it.medicationId == medicationId }
+            .map { it.scheduleId }
+            .forEach { remove(it) }
+        updated.forEach { add(it, nowMillis) }
+    }
+
+    /**
+     * Time of the earliest upcoming dose, or null if nothing is scheduled.
+     */
+    fun nextTime(): Long? = if (byTime.isEmpty()) null else byTime.firstKey()
+
+    /**
+     * Removes and returns every dose due up to [nowMillis] + [windowMillis], so doses a few
+     * minutes apart fire as one reminder. Their schedules are advanced past that window.
+     */
+    fun takeDue(nowMillis: Long, windowMillis: Long): List<Dose> {
+        val due = ArrayList<Dose>()
+        val limit = nowMillis + windowMillis
+
+        while (byTime.isNotEmpty() && byTime.firstKey() <= limit) {
+            val entry = byTime.pollFirstEntry() ?: break
+            for (scheduleId in entry.value) {
+                val schedule = schedules[scheduleId] ?: continue
+                due.add(
+                    Dose(
+                        scheduleId = scheduleId,
+                        medicationId = schedule.medicationId,
+                        medicationName = schedule.medicationName,
+                        dosage = schedule.dosage,
+                        timeMillis = entry.key
+                    )
+                )
+                nextTimes.remove(scheduleId)
+            }
+        }
+
+        // Re-queue after draining, so an advanced occurrence can't land inside this window
+        for (dose in due) {
+            schedules[dose.scheduleId]?.let { enqueue(it, limit) }
+        }
+        return due
+    }
+
+    private fun add(schedule: ReminderSchedule, nowMillis: Long) {
+        schedules[schedule.scheduleId] = schedule
+        enqueue(schedule, nowMillis)
+    }
+
+    private fun remove(scheduleId: Long) {
+        schedules.remove(scheduleId)
+        val time = nextTimes.remove(scheduleId) ?: return
+        byTime[time]?.let { ids ->
+            ids.remove(scheduleId)
+            if (ids.isEmpty()) byTime.remove(time)
+        }
+    }
+
+    private fun enqueue(schedule: ReminderSchedule, afterMillis: Long) {
+        val next = nextOccurrence(schedule, afterMillis, timeZone()) ?: return
+        nextTimes[schedule.scheduleId] = next
+        byTime.getOrPut(next) { LinkedHashSet() }.add(schedule.scheduleId)
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.senioroslauncher.services.medication
+
+import android.app.AlarmManager
+import android.app.PendingIntent
+import android.content.Context
+import android.content.Intent
+import android.os.Build
+import android.util.Log
+import com.example.senioroslauncher.data.database.AppDatabase
+import com.example.senioroslauncher.receivers.MedicationAlarmReceiver
+import kotlinx.coroutines.sync.Mutex
+import kotlinx.coroutines.sync.withLock
+
+/**
+ * Arms medication reminders from a single [DoseTimeline].
+ *
+ * Only one AlarmManager entry exists at any time: the next dose (or group of doses within
+ * [COALESCE_WINDOW_MS]). When it fires, [takeDueDoses] hands the group to the receiver and arms
+ * the next one. The timeline lives in memory and is rebuilt from the database with one joined
+ * query when the process starts cold; medication edits only replace that medication's entries.
+ *
+ * Each firing persists a watermark: the end of the window it reminded about. Rebuilds load from
+ * there (at most [MAX_CATCH_UP_MS] back), so a late inexact alarm, or a process started before a
+ * late alarm got to fire, still reminds about the doses it covers. Time zone and clock changes
+ * rebuild the timeline through [MedicationAlarmReceiver].
+ */
+object MedicationAlarmScheduler {
+    private const val TAG = "MedicationAlarmScheduler"
+    private const val REQUEST_CODE = 7001
+    const val COALESCE_WINDOW_MS = 5 * 60 * 1000L
+    private const val MAX_CATCH_UP_MS = 60 * 60 * 1000L // Older doses are left to the missed-dose sweep
+    private const val PREF_NAME = "medication_alarms"
+    private const val KEY_LAST_FIRED = "last_fired_until"
+
+    private val mutex = Mutex()
+    private val timeline = DoseTimeline()
+
+    /**
+     * Rebuilds the timeline from scratch (boot, app start, time zone or clock change).
+     */
+    suspend fun rescheduleAll(context: Context) {
+        mutex.withLock {
+            val schedules = AppDatabase.getDatabase(context).medicationScheduleDao().getReminderSchedules()
+            val now = System.currentTimeMillis()
+            timeline.replaceAll(schedules, loadFrom(context, now, default = now))
+            cancelLegacyAlarms(context, schedules.map { it.scheduleId })
+            armNext(context)
+        }
+    }
+
+    /**
+     * Re-reads one medication's schedules after an add, edit or delete.
+     */
+    suspend fun onMedicationChanged(context: Context, medicationId: Long) {
+        mutex.withLock {
+            val dao = AppDatabase.getDatabase(context).medicationScheduleDao()
+            if (!timeline.isLoaded) {
+                val now = System.currentTimeMillis()
+                timeline.replaceAll(dao.getReminderSchedules(), loadFrom(context, now, default = now))
+            } else {
+                timeline.replaceMedication(
+                    medicationId,
+                    dao.getReminderSchedulesForMedication(medicationId),
+                    System.currentTimeMillis()
+                )
+            }
+            armNext(context)
+        }
+    }
+
+    /**
+     * Called when the timeline alarm fires. Returns the doses to remind about now and arms the
+     * following group.
+     */
+    suspend fun takeDueDoses(context: Context): List<DoseTimeline.Dose> {
+        return mutex.withLock {
+            val now = System.currentTimeMillis()
+            if (!timeline.isLoaded) {
+                // Cold start from the alarm: load from the last firing so the doses it is late for count
+                val schedules = AppDatabase.getDatabase(context).medicationScheduleDao().getReminderSchedules()
+                timeline.replaceAll(schedules, loadFrom(context, now, default = now - COALESCE_WINDOW_MS))
+            }
+            val due = timeline.takeDue(now, COALESCE_WINDOW_MS)
+            prefs(context).edit().putLong(KEY_LAST_FIRED, now + COALESCE_WINDOW_MS).apply()
+            armNext(context)
+            due
+        }
+    }
+
+    /**
+     * Where a full rebuild starts: the last firing's watermark, or [default] before the first.
+     */
+    private fun loadFrom(context: Context, now: Long, default: Long): Long {
+        val lastFired = prefs(context).getLong(KEY_LAST_FIRED, -1L)
+        if (lastFired < 0) return default
+        // A clock set backwards leaves the watermark ahead of now; don't skip the doses in between
+        return lastFired.coerceIn(now - MAX_CATCH_UP_MS, now)
+    }
+
+    private fun prefs(context: Context) = context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE)
+
+    private fun armNext(context: Context) {
+        val alarmManager = context.getSystemService(Context.ALARM_SERVICE) as AlarmManager
+        val pendingIntent = timelineIntent(context)
+        val next = timeline.nextTime()
+
+        if (next == null) {
+            alarmManager.cancel(pendingIntent)
+            Log.d(TAG, "No upcoming doses; timeline alarm cancelled")
+            return
+        }
+
+        try {
+            if (Build.VERSION.SDK_INT < Build.VERSION_CODES.S || alarmManager.canScheduleExactAlarms()) {
+                alarmManager.setExactAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, next, pendingIntent)
+            } else {
+                alarmManager.setAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, next, pendingIntent)
+            }
+        } catch (e: SecurityException) {
+            // Fall back to inexact alarm
+            alarmManager.setAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, next, pendingIntent)
+        }
+        Log.d(TAG, "Next dose alarm at $next (${timeline.size} schedules on timeline)")
+    }
+
+    private fun timelineIntent(context: Context): PendingIntent {
+        val intent = Intent(context, MedicationAlarmReceiver::class.java).apply {
+            action = MedicationAlarmReceiver.ACTION_DOSES_DUE
+        }
+        return PendingIntent.getBroadcast(
+            context,
+            REQUEST_CODE,
+            intent,
+            PendingIntent.FLAG_UPDATE_CURRENT or PendingIntent.FLAG_IMMUTABLE
+        )
+    }
+
+    /**
+     * Earlier versions armed one alarm per schedule (request code = schedule id).
+     */
+    private fun cancelLegacyAlarms(context: Context, scheduleIds: List<Long>) {
+        val alarmManager = context.getSystemService(Context.ALARM_SERVICE) as AlarmManager
+        scheduleIds.forEach { scheduleId ->
+            val intent = Intent(context, MedicationAlarmReceiver::class.java).apply {
+                action = MedicationAlarmReceiver.ACTION_MEDICATION_REMINDER
+            }
+            PendingIntent.getBroadcast(
+                context,
+                scheduleId.toInt(),
+                intent,
+                PendingIntent.FLAG_NO_CREATE or PendingIntent.FLAG_IMMUTABLE
+            )?.let {
+                alarmManager.cancel(it)
+                it.cancel()
+            }
+        }
+    }
+}
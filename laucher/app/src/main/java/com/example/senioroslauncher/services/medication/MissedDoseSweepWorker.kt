@@ -0,0 +1,166 @@
+package com.example.senioroslauncher.services.medication
+
+import android.content.Context
+import android.util.Log
+import androidx.work.CoroutineWorker
+import androidx.work.ExistingPeriodicWorkPolicy
+import androidx.work.PeriodicWorkRequestBuilder
+import androidx.work.WorkManager
+import androidx.work.WorkerParameters
+import com.example.senioroslauncher.data.database.AppDatabase
+import com.example.senioroslauncher.data.database.dao.DoseSweepRow
+import com.example.senioroslauncher.data.database.entity.MedicationAction
+import com.example.senioroslauncher.data.database.entity.MedicationLogEntity
+import com.example.senioroslauncher.data.guardian.AlertManager
+import java.text.SimpleDateFormat
+import java.util.Date
+import java.util.Locale
+import java.util.TimeZone
+import java.util.concurrent.TimeUnit
+import kotlin.math.max
+
+/**
+ * Periodic sweep that records doses nobody responded to.
+ *
+ * Each run judges only the doses scheduled between the previous run's watermark and
+ * now - [GRACE_MS], so its cost follows the number of new doses, not the log history.
+ * A dose counts as handled when its medication has a TAKEN/SKIPPED log between [EARLY_MS]
+ * before and [GRACE_MS] after it (reminders log the tap time, not the scheduled time), or
+ * already has a MISSED log for that time. The rest get MISSED logs in one insert, and
+ * guardians get a single alert per sweep listing them.
+ */
+class MissedDoseSweepWorker(
+    context: Context,
+    params: WorkerParameters
+) : CoroutineWorker(context, params) {
+
+    companion object {
+        private const val TAG = "MissedDoseSweepWorker"
+        private const val WORK_NAME = "missed_dose_sweep"
+        private const val PREF_NAME = "missed_dose_sweep"
+        private const val KEY_WATERMARK = "watermark"
+        private const val SWEEP_INTERVAL_MINUTES = 15L
+        private const val GRACE_MS = 60 * 60 * 1000L // Missed if still unanswered an hour later
+        private const val EARLY_MS = 30 * 60 * 1000L // A dose taken this early still counts
+        private const val MAX_LOOKBACK_MS = 24 * 60 * 60 * 1000L
+
+        /**
+         * Enqueue the periodic sweep; keeps the existing one (and its schedule) if already enqueued.
+         */
+        fun schedule(context: Context) {
+            val request = PeriodicWorkRequestBuilder<MissedDoseSweepWorker>(
+                SWEEP_INTERVAL_MINUTES, TimeUnit.MINUTES
+            ).build()
+
+            WorkManager.getInstance(context).enqueueUniquePeriodicWork(
+                WORK_NAME,
+                ExistingPeriodicWorkPolicy.KEEP,
+                request
+            )
+        }
+    }
+
+    override suspend fun doWork(): Result {
+        return try {
+            sweep(System.currentTimeMillis())
+            Result.success()
+        } catch (e: Exception) {
+            Log.e(TAG, "Missed-dose sweep failed", e)
+            Result.retry()
+        }
+    }
+
+    private suspend fun sweep(now: Long) {
+        val prefs = applicationContext.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE)
+        val until = now - GRACE_MS
+        // The first run starts from here; after a long gap (device off) only the last day is judged
+        val from = max(prefs.getLong(KEY_WATERMARK, until), until - MAX_LOOKBACK_MS)
+        if (until <= from) return
+
+        val database = AppDatabase.getDatabase(applicationContext)
+        val rows = database.medicationScheduleDao().getDoseSweepRows(Date(from - EARLY_MS))
+        val missed = findMissedDoses(rows, from, until)
+
+        if (missed.isNotEmpty()) {
+            database.medicationLogDao().insertAll(
+                missed.map { dose ->
+                    MedicationLogEntity(
+                        medicationId = dose.medicationId,
+                        scheduledTime = Date(dose.timeMillis),
+                        actionTime = Date(now),
+                        action = MedicationAction.MISSED,
+                        notes = "No response to reminder"
+                    )
+                }
+            )
+        }
+
+        // Written after the logs: re-judging a window finds its MISSED logs and doesn't alert again
+        prefs.edit().putLong(KEY_WATERMARK, until).apply()
+
+        if (missed.isNotEmpty()) {
+            val timeFormat = SimpleDateFormat("HH:mm", Locale.getDefault())
+            AlertManager.triggerMissedMedicationsAlert(
+                applicationContext,
+                missed.map { it.medicationName to timeFormat.format(Date(it.timeMillis)) }
+            )
+        }
+        Log.d(TAG, "Swept doses in ($from, $until]: ${missed.size} missed")
+    }
+
+    /**
+     * Doses in ([from], [until]] without a response, in time order.
+     */
+    private fun findMissedDoses(rows: List<DoseSweepRow>, from: Long, until: Long): List<DoseTimeline.Dose> {
+        val timeZone = TimeZone.getDefault()
+        val missed = ArrayList<DoseTimeline.Dose>()
+
+        rows.groupBy { it.schedule.medicationId }.forEach { (_, medicationRows) ->
+            val createdAt = medicationRows.first().medicationCreatedAt.time
+
+            // Every schedule of the medication carries the same logs; keep one copy of each
+            val logs = medicationRows.filter { it.logId != null }.distinctBy { it.logId }
+            val alreadyMissed = logs
+                .filter { it.logAction == MedicationAction.MISSED }
+                .mapNotNullTo(HashSet()) { it.logScheduledTime?.time }
+            val responses = logs
+                .filter { it.logAction == MedicationAction.TAKEN || it.logAction == MedicationAction.SKIPPED }
+                .mapNotNull { it.logActionTime?.time }
+                .sorted()
+
+            val doses = ArrayList<DoseTimeline.Dose>()
+            medicationRows.distinctBy { it.schedule.scheduleId }.forEach { row ->
+                val schedule = row.schedule
+                var time = DoseTimeline.nextOccurrence(schedule, max(from, createdAt), timeZone)
+                while (time != null && time <= until) {
+                    doses.add(
+                        DoseTimeline.Dose(
+                            scheduleId = schedule.scheduleId,
+                            medicationId = schedule.medicationId,
+                            medicationName = schedule.medicationName,
+                            dosage = schedule.dosage,
+                            timeMillis = time
+                        )
+                    )
+                    time = DoseTimeline.nextOccurrence(schedule, time, timeZone)
+                }
+            }
+            doses.sortBy { it.timeMillis }
+
+            // Each response answers at most one dose: the earliest one whose window it falls in
+            var next = 0
+            for (dose in doses) {
+                if (dose.timeMillis in alreadyMissed) continue
+                while (next < responses.size && responses[next] < dose.timeMillis - EARLY_MS) next++
+                if (next < responses.size && responses[next] <= dose.timeMillis + GRACE_MS) {
+                    next++
+                } else {
+                    missed.add(dose)
+                }
+            }
+        }
+
+        missed.sortBy { it.timeMillis }
+        return missed
+    }
+}
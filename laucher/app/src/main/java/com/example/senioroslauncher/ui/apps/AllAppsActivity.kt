@@ -2,12 +2,6 @@ package com.example.senioroslauncher.ui.apps
 
 import android.content.Context
 import android.content.Intent
-import android.content.pm.PackageManager
-import android.graphics.Bitmap
-import android.graphics.Canvas
-import android.graphics.drawable.AdaptiveIconDrawable
-import android.graphics.drawable.BitmapDrawable
-import android.graphics.drawable.Drawable
 import android.os.Bundle
 import androidx.activity.ComponentActivity
 import androidx.activity.compose.setContent
@@ -30,6 +24,7 @@ import androidx.compose.ui.platform.LocalContext
 import androidx.compose.ui.text.style.TextAlign
 import androidx.compose.ui.text.style.TextOverflow
 import androidx.compose.ui.unit.dp
+import com.example.senioroslauncher.data.apps.AppCatalog
 import com.example.senioroslauncher.ui.components.SeniorTopAppBar
 import com.example.senioroslauncher.ui.theme.*
 
@@ -44,29 +39,21 @@ class AllAppsActivity : ComponentActivity() {
     }
 }
 
-data class AppInfo(
-    val name: String,
-    val packageName: String,
-    val icon: Drawable
-)
-
 @OptIn(ExperimentalMaterial3Api::class)
 @Composable
 fun AllAppsScreen(onBackClick: () -> Unit) {
     val context = LocalContext.current
+    val catalog = remember { AppCatalog.getInstance(context) }
+    val apps by catalog.apps.collectAsState()
     var searchQuery by remember { mutableStateOf("") }
-    var apps by remember { mutableStateOf<List<AppInfo>>(emptyList()) }
 
     LaunchedEffect(Unit) {
-        apps = loadInstalledApps(context)
+        catalog.ensureLoaded()
     }
 
+    // Index lookup per keystroke, ranked by match quality and recent use
     val filteredApps = remember(apps, searchQuery) {
-        if (searchQuery.isEmpty()) {
-            apps
-        } else {
-            apps.filter { it.name.contains(searchQuery, ignoreCase = true) }
-        }
+        catalog.search(searchQuery)
     }
 
     Scaffold(
@@ -112,10 +99,12 @@ fun AllAppsScreen(onBackClick: () -> Unit) {
                 contentPadding = PaddingValues(16.dp),
                 verticalArrangement = Arrangement.spacedBy(12.dp)
             ) {
-                items(filteredApps, key = { it.packageName }) { app ->
+                items(filteredApps, key = { it.packageName + "/" + it.activityName }) { app ->
                     FullWidthAppItem(
                         app = app,
+                        catalog = catalog,
                         onClick = {
+                            catalog.recordLaunch(app)
                             launchApp(context, app.packageName)
                         }
                     )
@@ -127,7 +116,8 @@ fun AllAppsScreen(onBackClick: () -> Unit) {
 
 @Composable
 private fun AppGridItem(
-    app: AppInfo,
+    app: AppCatalog.AppEntry,
+    catalog: AppCatalog,
     onClick: () -> Unit
 ) {
     Column(
@@ -137,21 +127,13 @@ private fun AppGridItem(
             .padding(8.dp),
         horizontalAlignment = Alignment.CenterHorizontally
     ) {
-        // App Icon - safely convert drawable to bitmap
-        val bitmap = remember(app.icon) {
-            drawableToBitmap(app.icon, 96).asImageBitmap()
-        }
-        Image(
-            bitmap = bitmap,
-            contentDescription = app.name,
-            modifier = Modifier.size(56.dp)
-        )
+        AppIcon(app = app, catalog = catalog, modifier = Modifier.size(56.dp))
 
         Spacer(modifier = Modifier.height(4.dp))
 
         // App Name
         Text(
-            text = app.name,
+            text = app.label,
             style = MaterialTheme.typography.labelMedium,
             color = MaterialTheme.colorScheme.onSurface,
             textAlign = TextAlign.Center,
@@ -163,7 +145,8 @@ private fun AppGridItem(
 
 @Composable
 private fun FullWidthAppItem(
-    app: AppInfo,
+    app: AppCatalog.AppEntry,
+    catalog: AppCatalog,
     onClick: () -> Unit
 ) {
     Card(
@@ -182,21 +165,13 @@ private fun FullWidthAppItem(
                 .padding(horizontal = 20.dp, vertical = 12.dp),
             verticalAlignment = Alignment.CenterVertically
         ) {
-            // App Icon - safely convert drawable to bitmap
-            val bitmap = remember(app.icon) {
-                drawableToBitmap(app.icon, 128).asImageBitmap()
-            }
-            Image(
-                bitmap = bitmap,
-                contentDescription = app.name,
-                modifier = Modifier.size(52.dp)
-            )
+            AppIcon(app = app, catalog = catalog, modifier = Modifier.size(52.dp))
 
             Spacer(modifier = Modifier.width(20.dp))
 
             // App Name
             Text(
-                text = app.name,
+                text = app.label,
                 style = MaterialTheme.typography.titleLarge,
                 color = MaterialTheme.colorScheme.onSurface,
                 maxLines = 1,
@@ -206,43 +181,29 @@ private fun FullWidthAppItem(
     }
 }
 
-private fun drawableToBitmap(drawable: Drawable, size: Int): Bitmap {
-    if (drawable is BitmapDrawable && drawable.bitmap != null) {
-        return Bitmap.createScaledBitmap(drawable.bitmap, size, size, true)
+/**
+ * Icon from the shared [AppCatalog]: drawn immediately when it's in memory, otherwise
+ * loaded from the disk cache (or rasterized once) in the background.
+ */
+@Composable
+private fun AppIcon(
+    app: AppCatalog.AppEntry,
+    catalog: AppCatalog,
+    modifier: Modifier = Modifier
+) {
+    val bitmap by produceState(catalog.cachedIcon(app), app.iconKey) {
+        if (value == null) value = catalog.icon(app)
     }
-
-    val bitmap = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888)
-    val canvas = Canvas(bitmap)
-
-    drawable.setBounds(0, 0, canvas.width, canvas.height)
-    drawable.draw(canvas)
-
-    return bitmap
-}
-
-private fun loadInstalledApps(context: Context): List<AppInfo> {
-    val packageManager = context.packageManager
-    val intent = Intent(Intent.ACTION_MAIN).apply {
-        addCategory(Intent.CATEGORY_LAUNCHER)
+    val imageBitmap = remember(bitmap) { bitmap?.asImageBitmap() }
+    if (imageBitmap != null) {
+        Image(
+            bitmap = imageBitmap,
+            contentDescription = app.label,
+            modifier = modifier
+        )
+    } else {
+        Spacer(modifier = modifier)
     }
-
-    val apps = packageManager.queryIntentActivities(intent, 0)
-        .mapNotNull { resolveInfo ->
-            try {
-                val appInfo = resolveInfo.activityInfo.applicationInfo
-                AppInfo(
-                    name = resolveInfo.loadLabel(packageManager).toString(),
-                    packageName = appInfo.packageName,
-                    icon = resolveInfo.loadIcon(packageManager)
-                )
-            } catch (e: Exception) {
-                null
-            }
-        }
-        .filter { it.packageName != context.packageName } // Exclude our own app
-        .sortedBy { it.name.lowercase() }
-
-    return apps
 }
 
 private fun launchApp(context: Context, packageName: String) {
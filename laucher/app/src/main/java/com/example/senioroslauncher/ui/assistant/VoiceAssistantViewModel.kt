@@ -5,10 +5,13 @@ import android.util.Log
 import androidx.lifecycle.AndroidViewModel
 import androidx.lifecycle.viewModelScope
 import com.example.senioroslauncher.assistant.*
+import com.example.senioroslauncher.data.contacts.ContactIndex
+import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.flow.MutableStateFlow
 import kotlinx.coroutines.flow.StateFlow
 import kotlinx.coroutines.flow.asStateFlow
 import kotlinx.coroutines.launch
+import kotlinx.coroutines.withContext
 import java.util.Calendar
 
 sealed class AssistantState {
@@ -27,8 +30,8 @@ sealed class AssistantState {
 /**
  * Hybrid Voice Assistant ViewModel
  * Strategy:
- * 1. Primary: Cloud LLM (High intelligence, conversational)
- * 2. Fallback: Local TFLite (Offline capable, fast, privacy-focused)
+ * 1. Primary: Local pipeline - result cache, keyword fast path, TFLite (fast, offline, private)
+ * 2. Fallback: Cloud LLM, only when local confidence is below the threshold
  */
 class VoiceAssistantViewModel(application: Application) : AndroidViewModel(application) {
 
@@ -43,10 +46,16 @@ class VoiceAssistantViewModel(application: Application) : AndroidViewModel(appli
     private val multilingualManager = MultilingualManager(application)
     private val actionExecutor = ActionExecutor(application)
     private val entityExtractor = EntityExtractor()
+    private val contactIndex = ContactIndex.getInstance(application)
 
     // --- Intelligence Layers ---
-    private val refinementService = IntentRefinementService() // Layer 1: Cloud
-    private val localClassifier = IntentClassifier(application) // Layer 2: Edge
+    private val localClassifier = IntentClassifier(application)
+    private val localPipeline = LocalIntentPipeline(localClassifier) // Layer 1: Edge
+    private val refinementService = IntentRefinementService() // Layer 2: Cloud
+    private val speculator = PartialResultSpeculator(
+        viewModelScope, localPipeline, entityExtractor, actionExecutor
+    ) { partial -> multilingualManager.toEnglish(partial, _selectedLanguage.value) }
+    private var commandCount = 0
 
     private var pendingAction: PendingAction? = null
     private var lastMessage: String = ""
@@ -60,6 +69,7 @@ class VoiceAssistantViewModel(application: Application) : AndroidViewModel(appli
 
     companion object {
         private const val TAG = "VoiceAssistantVM"
+        private const val LATENCY_LOG_INTERVAL = 20 // commands
     }
 
     data class PendingAction(
@@ -78,8 +88,8 @@ class VoiceAssistantViewModel(application: Application) : AndroidViewModel(appli
                 Log.d(TAG, "✓ Multilingual manager initialized")
             }
 
-            // B. Initialize Local TFLite (Backup)
-            localClassifier.initialize()
+            // B. Initialize Local TFLite
+            withContext(Dispatchers.Default) { localClassifier.initialize() }
                 .onSuccess { Log.d(TAG, "✓ Local TFLite Backup Ready") }
                 .onFailure { Log.e(TAG, "✗ Failed to load Local TFLite", it) }
 
@@ -87,16 +97,26 @@ class VoiceAssistantViewModel(application: Application) : AndroidViewModel(appli
             val serverAlive = refinementService.checkServerConnection()
             Log.d(TAG, "Server Status at launch: ${if (serverAlive) "Online" else "Offline"}")
         }
+
+        // Contact names for entity extraction, rebuilt whenever the phone book changes
+        viewModelScope.launch(Dispatchers.Default) {
+            contactIndex.snapshot.collect { snapshot ->
+                entityExtractor.contacts = ContactGazetteer.fromNames(snapshot.contacts.map { it.name })
+            }
+        }
     }
 
     // NEW: Function to set language from UI
     fun setLanguage(code: String) {
         _selectedLanguage.value = code
+        // Fetch the translation model while the user is still choosing what to say
+        viewModelScope.launch { multilingualManager.prefetchLanguage(code) }
     }
 
     // UPDATED: Pass selected language to MultilingualManager
     fun startListening() {
         _state.value = AssistantState.Listening()
+        speculator.reset()
 
         multilingualManager.startListening(object : MultilingualManager.SpeechListener {
             override fun onSpeechReady() { Log.d(TAG, "Speech ready") }
@@ -105,7 +125,10 @@ class VoiceAssistantViewModel(application: Application) : AndroidViewModel(appli
             override fun onSpeechResult(result: MultilingualManager.SpeechResult) {
                 Log.d(TAG, "Speech result detected: ${result.detectedLanguage}, translated: ${result.translatedToEnglish}")
                 // Pass the DETECTED language (which matches selected) to the processor
-                processCommandHybrid(result.translatedToEnglish, result.detectedLanguage)
+                val hypotheses = result.hypotheses.ifEmpty {
+                    listOf(MultilingualManager.Hypothesis(result.text, result.translatedToEnglish, result.confidence))
+                }
+                processCommandHybrid(hypotheses, result.detectedLanguage)
             }
 
             override fun onSpeechError(error: String) {
@@ -116,55 +139,78 @@ class VoiceAssistantViewModel(application: Application) : AndroidViewModel(appli
 
             override fun onPartialResult(text: String) {
                 _state.value = AssistantState.Listening(text)
+                speculator.onPartial(text)
             }
         }, _selectedLanguage.value) // <--- Pass the language code here
     }
 
     fun stopListening() {
         multilingualManager.stopListening()
+        speculator.reset()
         _state.value = AssistantState.Idle
     }
 
     /**
      * HYBRID LOGIC ENGINE
      */
-    private fun processCommandHybrid(text: String, detectedLanguage: String) {
+    private fun processCommandHybrid(hypotheses: List<MultilingualManager.Hypothesis>, detectedLanguage: String) {
         viewModelScope.launch {
             _state.value = AssistantState.Processing
             val startTime = System.currentTimeMillis()
-            var cloudSuccess = false
 
-            // --- STEP 1: Attempt Cloud Inference ---
             try {
-                Log.d(TAG, "☁️ Attempting Cloud Inference...")
-                val llmResult = refinementService.refineIntent(text)
-
-                if (llmResult.success && llmResult.intent != null) {
-                    Log.d(TAG, "✅ Cloud Success: ${llmResult.intent} in ${System.currentTimeMillis() - startTime}ms")
-                    cloudSuccess = true
-                    handleLLMResult(llmResult, text, detectedLanguage)
+                // --- STEP 0: The user finished saying exactly what we speculated on ---
+                val speculation = speculator.take(hypotheses.first().translatedToEnglish)
+                if (speculation != null) {
+                    Log.d(TAG, "✅ Speculation Hit: ${speculation.result.intent} in ${System.currentTimeMillis() - startTime}ms")
+                    val localReply = generateLocalReply(speculation.result.intent, speculation.entities)
+                    handleExecution(speculation.result.intent, speculation.entities, localReply, detectedLanguage)
                     return@launch
                 }
-            } catch (e: Exception) {
-                Log.w(TAG, "⚠️ Cloud Exception (${e.message}), switching to fallback.")
-            }
 
-            // --- STEP 2: Fallback to Local TFLite ---
-            if (!cloudSuccess) {
-                Log.d(TAG, "🏠 Attempting Local Inference...")
-                val localResult = localClassifier.classify(text)
+                // --- STEP 1: Local pipeline (cache -> keywords -> TFLite) over all N-best hypotheses ---
+                val ranked = withContext(Dispatchers.Default) {
+                    localPipeline.classifyHypotheses(
+                        hypotheses.map { LocalIntentPipeline.Hypothesis(it.translatedToEnglish, it.confidence) }
+                    )
+                }
+                val localResult = ranked.result
+                val text = ranked.text
+                speculator.recordFinalIntent(localResult.intent)
 
-                if (localResult.isAboveThreshold && localResult.intent != "UNKNOWN") {
-                    Log.d(TAG, "✅ Local Success: ${localResult.intent} (${localResult.confidence})")
+                if (localResult.isAboveThreshold) {
+                    Log.d(TAG, "✅ Local Success: ${localResult.intent} (${localResult.confidence}, ${localResult.stage}, hypothesis #${ranked.hypothesisIndex}) in ${System.currentTimeMillis() - startTime}ms")
                     val entities = entityExtractor.extract(text, localResult.intent)
                     val localReply = generateLocalReply(localResult.intent, entities)
 
                     // Proceed to execution
                     handleExecution(localResult.intent, entities, localReply, detectedLanguage)
+                    return@launch
+                }
+
+                // --- STEP 2: No hypothesis is confident enough, ask the cloud with the top one ---
+                Log.d(TAG, "☁️ No hypothesis above threshold (top: ${localResult.confidence}), attempting Cloud Inference...")
+                val llmResult = try {
+                    localPipeline.timeRefinement { refinementService.refineIntent(text) }
+                } catch (e: Exception) {
+                    Log.w(TAG, "⚠️ Cloud Exception (${e.message})")
+                    null
+                }
+
+                if (llmResult != null && llmResult.success && llmResult.intent != null) {
+                    Log.d(TAG, "✅ Cloud Success: ${llmResult.intent} in ${System.currentTimeMillis() - startTime}ms")
+                    localPipeline.remember(text, llmResult.intent)
+                    handleLLMResult(llmResult, text, detectedLanguage)
                 } else {
-                    Log.e(TAG, "❌ Both Cloud and Local failed.")
+                    Log.e(TAG, "❌ Both Local and Cloud failed.")
                     speak("I'm sorry, I didn't understand that.", detectedLanguage)
                 }
+            } finally {
+                if (++commandCount % LATENCY_LOG_INTERVAL == 0) {
+                    Log.d(TAG, "Intent latency: ${localPipeline.latencySummary()}")
+                    Log.d(TAG, "Translation latency: ${multilingualManager.translationLatencySummary()}")
+                    Log.d(TAG, speculator.summary())
+                }
             }
         }
     }
@@ -247,7 +293,12 @@ class VoiceAssistantViewModel(application: Application) : AndroidViewModel(appli
     private fun generateLocalReply(intent: String, entities: EntityExtractor.ExtractedEntities): String {
         return when(intent) {
             "SET_ALARM" -> "Setting alarm."
-            "CALL_CONTACT" -> "Calling ${entities.contactName ?: "contact"}."
+            // Name the contact that will actually be dialled, which a sound-alike match may differ from
+            "CALL_CONTACT" -> {
+                val spoken = entities.contactName
+                val resolved = spoken?.let { contactIndex.resolve(it) }?.entry?.name
+                "Calling ${resolved ?: spoken ?: "contact"}."
+            }
             else -> "Processing."
         }
     }
@@ -351,6 +402,10 @@ class VoiceAssistantViewModel(application: Application) : AndroidViewModel(appli
     override fun onCleared() {
         super.onCleared()
         multilingualManager.cleanup()
+        Log.d(TAG, "Intent latency: ${localPipeline.latencySummary()}")
+        Log.d(TAG, "Translation latency: ${multilingualManager.translationLatencySummary()}")
+        Log.d(TAG, speculator.summary())
         localClassifier.close()
+        actionExecutor.close()
     }
 }
\ No newline at end of file
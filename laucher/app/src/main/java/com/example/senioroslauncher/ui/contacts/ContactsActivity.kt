@@ -6,7 +6,6 @@ import android.content.Intent
 import android.content.pm.PackageManager
 import android.net.Uri
 import android.os.Bundle
-import android.provider.ContactsContract
 import androidx.activity.ComponentActivity
 import androidx.activity.compose.rememberLauncherForActivityResult
 import androidx.activity.compose.setContent
@@ -14,7 +13,9 @@ import androidx.activity.result.contract.ActivityResultContracts
 import androidx.compose.foundation.clickable
 import androidx.compose.foundation.layout.*
 import androidx.compose.foundation.lazy.LazyColumn
+import androidx.compose.foundation.lazy.LazyRow
 import androidx.compose.foundation.lazy.items
+import androidx.compose.foundation.lazy.rememberLazyListState
 import androidx.compose.foundation.shape.CircleShape
 import androidx.compose.foundation.shape.RoundedCornerShape
 import androidx.compose.material.icons.Icons
@@ -23,12 +24,20 @@ import androidx.compose.material3.*
 import androidx.compose.runtime.*
 import androidx.compose.ui.Alignment
 import androidx.compose.ui.Modifier
+import androidx.compose.ui.draw.clip
+import androidx.compose.ui.layout.ContentScale
 import androidx.compose.ui.platform.LocalContext
+import androidx.compose.ui.platform.LocalDensity
 import androidx.compose.ui.text.font.FontWeight
 import androidx.compose.ui.unit.dp
 import androidx.core.content.ContextCompat
+import coil.compose.AsyncImage
+import coil.request.ImageRequest
+import com.example.senioroslauncher.data.contacts.ContactIndex
+import com.example.senioroslauncher.data.contacts.ContactPager
 import com.example.senioroslauncher.ui.components.SeniorTopAppBar
 import com.example.senioroslauncher.ui.theme.*
+import kotlinx.coroutines.launch
 
 class ContactsActivity : ComponentActivity() {
     override fun onCreate(savedInstanceState: Bundle?) {
@@ -41,19 +50,17 @@ class ContactsActivity : ComponentActivity() {
     }
 }
 
-data class Contact(
-    val id: String,
-    val name: String,
-    val phoneNumber: String,
-    val photoUri: String? = null
-)
-
 @OptIn(ExperimentalMaterial3Api::class)
 @Composable
 fun ContactsScreen(onBackClick: () -> Unit) {
     val context = LocalContext.current
+    val scope = rememberCoroutineScope()
+    val contactIndex = remember { ContactIndex.getInstance(context) }
+    val snapshot by contactIndex.snapshot.collectAsState()
+    val pager = remember { ContactPager(context.applicationContext, scope) }
+    val pagerState by pager.state.collectAsState()
+    val listState = rememberLazyListState()
     var searchQuery by remember { mutableStateOf("") }
-    var contacts by remember { mutableStateOf<List<Contact>>(emptyList()) }
     var hasPermission by remember {
         mutableStateOf(
             ContextCompat.checkSelfPermission(context, Manifest.permission.READ_CONTACTS) == PackageManager.PERMISSION_GRANTED
@@ -65,27 +72,36 @@ fun ContactsScreen(onBackClick: () -> Unit) {
     ) { granted ->
         hasPermission = granted
         if (granted) {
-            contacts = loadContacts(context)
+            contactIndex.refresh()
+            pager.refresh()
         }
     }
 
     LaunchedEffect(hasPermission) {
-        if (hasPermission) {
-            contacts = loadContacts(context)
-        } else {
+        if (!hasPermission) {
             permissionLauncher.launch(Manifest.permission.READ_CONTACTS)
         }
     }
 
-    val filteredContacts = remember(contacts, searchQuery) {
-        if (searchQuery.isEmpty()) {
-            contacts
-        } else {
-            contacts.filter {
-                it.name.contains(searchQuery, ignoreCase = true) ||
-                        it.phoneNumber.contains(searchQuery)
-            }
-        }
+    DisposableEffect(pager) {
+        onDispose { pager.close() }
+    }
+
+    // Pages are loaded for the rows on screen, outside of composition
+    LaunchedEffect(pager) {
+        snapshotFlow {
+            val visible = listState.layoutInfo.visibleItemsInfo
+            // Nothing laid out (still empty, or showing search results): keep the last range
+            if (visible.isEmpty()) null else visible.first().index to visible.last().index
+        }.collect { range -> range?.let { (first, last) -> pager.show(first, last) } }
+    }
+
+    // Browsing pages through the provider, but typed search still uses the full in-memory
+    // ContactIndex: its word, phonetic and typo matching has no provider equivalent, and the
+    // index is loaded for the whole process anyway (assistant, messages, speed dial).
+    val isSearching = searchQuery.isNotBlank()
+    val filteredContacts = remember(snapshot, searchQuery) {
+        if (isSearching) contactIndex.search(searchQuery) else emptyList()
     }
 
     Scaffold(
@@ -157,7 +173,7 @@ fun ContactsScreen(onBackClick: () -> Unit) {
                         Text("Grant Permission")
                     }
                 }
-            } else if (contacts.isEmpty()) {
+            } else if (if (isSearching) filteredContacts.isEmpty() else pagerState.isLoaded && pagerState.total == 0) {
                 // Empty State
                 Column(
                     modifier = Modifier
@@ -178,8 +194,8 @@ fun ContactsScreen(onBackClick: () -> Unit) {
                         style = MaterialTheme.typography.headlineSmall
                     )
                 }
-            } else {
-                // Contacts List
+            } else if (isSearching) {
+                // Search Results
                 LazyColumn(
                     modifier = Modifier.fillMaxSize(),
                     contentPadding = PaddingValues(horizontal = 16.dp, vertical = 8.dp),
@@ -193,6 +209,45 @@ fun ContactsScreen(onBackClick: () -> Unit) {
                         )
                     }
                 }
+            } else {
+                // Alphabet Jump Bar
+                if (pagerState.sections.size > 1) {
+                    LazyRow(
+                        contentPadding = PaddingValues(horizontal = 16.dp),
+                        horizontalArrangement = Arrangement.spacedBy(8.dp)
+                    ) {
+                        items(pagerState.sections, key = { it.title }) { section ->
+                            FilledTonalButton(
+                                onClick = { scope.launch { listState.scrollToItem(section.position) } },
+                                contentPadding = PaddingValues(horizontal = 12.dp),
+                                modifier = Modifier.height(48.dp)
+                            ) {
+                                Text(section.title, style = MaterialTheme.typography.titleMedium)
+                            }
+                        }
+                    }
+                }
+
+                // Contacts List, one page of the phone book at a time
+                LazyColumn(
+                    modifier = Modifier.fillMaxSize(),
+                    state = listState,
+                    contentPadding = PaddingValues(horizontal = 16.dp, vertical = 8.dp),
+                    verticalArrangement = Arrangement.spacedBy(8.dp)
+                ) {
+                    items(pagerState.total) { position ->
+                        val contact = pager.get(position, pagerState)
+                        if (contact == null) {
+                            ContactCardPlaceholder()
+                        } else {
+                            ContactCard(
+                                contact = contact,
+                                onCallClick = { callContact(context, contact.phoneNumber) },
+                                onMessageClick = { messageContact(context, contact.phoneNumber) }
+                            )
+                        }
+                    }
+                }
             }
         }
     }
@@ -200,7 +255,7 @@ fun ContactsScreen(onBackClick: () -> Unit) {
 
 @Composable
 private fun ContactCard(
-    contact: Contact,
+    contact: ContactIndex.Entry,
     onCallClick: () -> Unit,
     onMessageClick: () -> Unit
 ) {
@@ -230,6 +285,23 @@ private fun ContactCard(
                         style = MaterialTheme.typography.headlineSmall,
                         color = ContactsBlue
                     )
+                    contact.photoUri?.let { photoUri ->
+                        // Decoded at avatar size and kept in Coil's memory cache
+                        val context = LocalContext.current
+                        val sizePx = with(LocalDensity.current) { 56.dp.roundToPx() }
+                        val request = remember(photoUri, sizePx) {
+                            ImageRequest.Builder(context)
+                                .data(photoUri)
+                                .size(sizePx)
+                                .build()
+                        }
+                        AsyncImage(
+                            model = request,
+                            contentDescription = null,
+                            contentScale = ContentScale.Crop,
+                            modifier = Modifier.fillMaxSize().clip(CircleShape)
+                        )
+                    }
                 }
             }
 
@@ -277,47 +349,15 @@ private fun ContactCard(
     }
 }
 
-private fun loadContacts(context: Context): List<Contact> {
-    val contacts = mutableListOf<Contact>()
-    val contentResolver = context.contentResolver
-
-    val projection = arrayOf(
-        ContactsContract.CommonDataKinds.Phone.CONTACT_ID,
-        ContactsContract.CommonDataKinds.Phone.DISPLAY_NAME,
-        ContactsContract.CommonDataKinds.Phone.NUMBER,
-        ContactsContract.CommonDataKinds.Phone.PHOTO_URI
-    )
-
-    val cursor = contentResolver.query(
-        ContactsContract.CommonDataKinds.Phone.CONTENT_URI,
-        projection,
-        null,
-        null,
-        ContactsContract.CommonDataKinds.Phone.DISPLAY_NAME + " ASC"
-    )
-
-    cursor?.use {
-        val idIndex = it.getColumnIndex(ContactsContract.CommonDataKinds.Phone.CONTACT_ID)
-        val nameIndex = it.getColumnIndex(ContactsContract.CommonDataKinds.Phone.DISPLAY_NAME)
-        val numberIndex = it.getColumnIndex(ContactsContract.CommonDataKinds.Phone.NUMBER)
-        val photoIndex = it.getColumnIndex(ContactsContract.CommonDataKinds.Phone.PHOTO_URI)
-
-        val addedIds = mutableSetOf<String>()
-
-        while (it.moveToNext()) {
-            val id = it.getString(idIndex) ?: continue
-            if (addedIds.contains(id)) continue
-
-            val name = it.getString(nameIndex) ?: "Unknown"
-            val number = it.getString(numberIndex) ?: continue
-            val photo = it.getString(photoIndex)
-
-            contacts.add(Contact(id, name, number, photo))
-            addedIds.add(id)
-        }
-    }
-
-    return contacts
+@Composable
+private fun ContactCardPlaceholder() {
+    Card(
+        modifier = Modifier
+            .fillMaxWidth()
+            .height(80.dp),
+        shape = RoundedCornerShape(12.dp),
+        colors = CardDefaults.cardColors(containerColor = MaterialTheme.colorScheme.surfaceVariant)
+    ) {}
 }
 
 private fun callContact(context: Context, phoneNumber: String) {
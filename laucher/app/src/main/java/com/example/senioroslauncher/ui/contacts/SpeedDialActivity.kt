@@ -1,10 +1,8 @@
 package com.example.senioroslauncher.ui.contacts
 
 import android.Manifest
-import android.content.Context
 import android.content.pm.PackageManager
 import android.os.Bundle
-import android.provider.ContactsContract
 import androidx.activity.ComponentActivity
 import androidx.activity.compose.rememberLauncherForActivityResult
 import androidx.activity.compose.setContent
@@ -27,6 +25,7 @@ import androidx.compose.ui.unit.dp
 import androidx.core.content.ContextCompat
 import androidx.lifecycle.compose.collectAsStateWithLifecycle
 import com.example.senioroslauncher.SeniorLauncherApp
+import com.example.senioroslauncher.data.contacts.ContactIndex
 import com.example.senioroslauncher.data.database.entity.SpeedDialContactEntity
 import com.example.senioroslauncher.ui.components.SeniorTopAppBar
 import com.example.senioroslauncher.ui.theme.*
@@ -222,7 +221,8 @@ private fun ContactPickerDialog(
     onContactSelected: (String, String) -> Unit
 ) {
     val context = LocalContext.current
-    var contacts by remember { mutableStateOf<List<Contact>>(emptyList()) }
+    val contactIndex = remember { ContactIndex.getInstance(context) }
+    val snapshot by contactIndex.snapshot.collectAsStateWithLifecycle()
     var searchQuery by remember { mutableStateOf("") }
     var hasPermission by remember {
         mutableStateOf(
@@ -235,27 +235,18 @@ private fun ContactPickerDialog(
     ) { granted ->
         hasPermission = granted
         if (granted) {
-            contacts = loadContactsForPicker(context)
+            contactIndex.refresh()
         }
     }
 
     LaunchedEffect(hasPermission) {
-        if (hasPermission) {
-            contacts = loadContactsForPicker(context)
-        } else {
+        if (!hasPermission) {
             permissionLauncher.launch(Manifest.permission.READ_CONTACTS)
         }
     }
 
-    val filteredContacts = remember(contacts, searchQuery) {
-        if (searchQuery.isEmpty()) {
-            contacts
-        } else {
-            contacts.filter {
-                it.name.contains(searchQuery, ignoreCase = true) ||
-                        it.phoneNumber.contains(searchQuery)
-            }
-        }
+    val filteredContacts = remember(snapshot, searchQuery) {
+        contactIndex.search(searchQuery)
     }
 
     AlertDialog(
@@ -324,43 +315,3 @@ private fun ContactPickerDialog(
         }
     )
 }
-
-private fun loadContactsForPicker(context: Context): List<Contact> {
-    val contacts = mutableListOf<Contact>()
-    val contentResolver = context.contentResolver
-
-    val projection = arrayOf(
-        ContactsContract.CommonDataKinds.Phone.CONTACT_ID,
-        ContactsContract.CommonDataKinds.Phone.DISPLAY_NAME,
-        ContactsContract.CommonDataKinds.Phone.NUMBER
-    )
-
-    val cursor = contentResolver.query(
-        ContactsContract.CommonDataKinds.Phone.CONTENT_URI,
-        projection,
-        null,
-        null,
-        ContactsContract.CommonDataKinds.Phone.DISPLAY_NAME + " ASC"
-    )
-
-    cursor?.use {
-        val idIndex = it.getColumnIndex(ContactsContract.CommonDataKinds.Phone.CONTACT_ID)
-        val nameIndex = it.getColumnIndex(ContactsContract.CommonDataKinds.Phone.DISPLAY_NAME)
-        val numberIndex = it.getColumnIndex(ContactsContract.CommonDataKinds.Phone.NUMBER)
-
-        val addedIds = mutableSetOf<String>()
-
-        while (it.moveToNext()) {
-            val id = it.getString(idIndex) ?: continue
-            if (addedIds.contains(id)) continue
-
-            val name = it.getString(nameIndex) ?: "Unknown"
-            val number = it.getString(numberIndex) ?: continue
-
-            contacts.add(Contact(id, name, number))
-            addedIds.add(id)
-        }
-    }
-
-    return contacts
-}
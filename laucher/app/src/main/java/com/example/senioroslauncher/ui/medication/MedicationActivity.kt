@@ -109,6 +109,7 @@ fun MedicationScreen(onBackClick: () -> Unit) {
                         onDeleteClick = {
                             scope.launch {
                                 app.database.medicationDao().delete(medication)
+                                MedicationReminderService.cancelMedicationReminders(context, medication.id)
                                 // Notify guardians
                                 MedicationNotifier.notifyMedicationDeleted(context, medication)
                             }
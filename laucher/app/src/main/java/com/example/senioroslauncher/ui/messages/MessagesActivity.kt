@@ -1,12 +1,10 @@
 package com.example.senioroslauncher.ui.messages
 
 import android.Manifest
-import android.content.Context
 import android.content.Intent
 import android.content.pm.PackageManager
 import android.net.Uri
 import android.os.Bundle
-import android.provider.Telephony
 import androidx.activity.ComponentActivity
 import androidx.activity.compose.rememberLauncherForActivityResult
 import androidx.activity.compose.setContent
@@ -15,6 +13,7 @@ import androidx.compose.foundation.clickable
 import androidx.compose.foundation.layout.*
 import androidx.compose.foundation.lazy.LazyColumn
 import androidx.compose.foundation.lazy.items
+import androidx.compose.foundation.lazy.rememberLazyListState
 import androidx.compose.foundation.shape.CircleShape
 import androidx.compose.foundation.shape.RoundedCornerShape
 import androidx.compose.material.icons.Icons
@@ -28,8 +27,11 @@ import androidx.compose.ui.text.font.FontWeight
 import androidx.compose.ui.text.style.TextOverflow
 import androidx.compose.ui.unit.dp
 import androidx.core.content.ContextCompat
+import com.example.senioroslauncher.data.messages.ConversationLoader
+import com.example.senioroslauncher.data.messages.MessageConversation
 import com.example.senioroslauncher.ui.components.SeniorTopAppBar
 import com.example.senioroslauncher.ui.theme.*
+import kotlinx.coroutines.launch
 import java.text.SimpleDateFormat
 import java.util.*
 
@@ -44,20 +46,15 @@ class MessagesActivity : ComponentActivity() {
     }
 }
 
-data class MessageConversation(
-    val threadId: String,
-    val address: String,
-    val contactName: String,
-    val lastMessage: String,
-    val timestamp: Long,
-    val isRead: Boolean
-)
-
 @OptIn(ExperimentalMaterial3Api::class)
 @Composable
 fun MessagesScreen(onBackClick: () -> Unit) {
     val context = LocalContext.current
-    var conversations by remember { mutableStateOf<List<MessageConversation>>(emptyList()) }
+    val loader = remember { ConversationLoader.getInstance(context) }
+    val conversations by loader.conversations.collectAsState()
+    val hasMore by loader.hasMore.collectAsState()
+    val listState = rememberLazyListState()
+    val scope = rememberCoroutineScope()
     var hasPermission by remember {
         mutableStateOf(
             ContextCompat.checkSelfPermission(context, Manifest.permission.READ_SMS) == PackageManager.PERMISSION_GRANTED
@@ -69,18 +66,28 @@ fun MessagesScreen(onBackClick: () -> Unit) {
     ) { granted ->
         hasPermission = granted
         if (granted) {
-            conversations = loadConversations(context)
+            scope.launch { loader.ensureLoaded() }
         }
     }
 
     LaunchedEffect(hasPermission) {
         if (hasPermission) {
-            conversations = loadConversations(context)
+            loader.ensureLoaded()
         } else {
             permissionLauncher.launch(Manifest.permission.READ_SMS)
         }
     }
 
+    // Next page once the list is scrolled close to its end
+    LaunchedEffect(listState, hasMore) {
+        if (!hasMore) return@LaunchedEffect
+        snapshotFlow {
+            val layoutInfo = listState.layoutInfo
+            (layoutInfo.visibleItemsInfo.lastOrNull()?.index ?: 0) >= layoutInfo.totalItemsCount - 5
+        }
+            .collect { nearEnd -> if (nearEnd) loader.loadMore() }
+    }
+
     Scaffold(
         topBar = {
             SeniorTopAppBar(
@@ -172,6 +179,7 @@ fun MessagesScreen(onBackClick: () -> Unit) {
                 modifier = Modifier
                     .fillMaxSize()
                     .padding(paddingValues),
+                state = listState,
                 contentPadding = PaddingValues(horizontal = 16.dp, vertical = 8.dp),
                 verticalArrangement = Arrangement.spacedBy(8.dp)
             ) {
@@ -294,86 +302,3 @@ private fun ConversationCard(
         }
     }
 }
-
-private fun loadConversations(context: Context): List<MessageConversation> {
-    val conversations = mutableListOf<MessageConversation>()
-
-    try {
-        val cursor = context.contentResolver.query(
-            Telephony.Sms.CONTENT_URI,
-            arrayOf(
-                Telephony.Sms.THREAD_ID,
-                Telephony.Sms.ADDRESS,
-                Telephony.Sms.BODY,
-                Telephony.Sms.DATE,
-                Telephony.Sms.READ
-            ),
-            null,
-            null,
-            "${Telephony.Sms.DATE} DESC"
-        )
-
-        cursor?.use {
-            val threadIdIndex = it.getColumnIndex(Telephony.Sms.THREAD_ID)
-            val addressIndex = it.getColumnIndex(Telephony.Sms.ADDRESS)
-            val bodyIndex = it.getColumnIndex(Telephony.Sms.BODY)
-            val dateIndex = it.getColumnIndex(Telephony.Sms.DATE)
-            val readIndex = it.getColumnIndex(Telephony.Sms.READ)
-
-            val seenThreads = mutableSetOf<String>()
-
-            while (it.moveToNext() && conversations.size < 50) {
-                val threadId = it.getString(threadIdIndex) ?: continue
-                if (seenThreads.contains(threadId)) continue
-                seenThreads.add(threadId)
-
-                val address = it.getString(addressIndex) ?: "Unknown"
-                val body = it.getString(bodyIndex) ?: ""
-                val date = it.getLong(dateIndex)
-                val isRead = it.getInt(readIndex) == 1
-
-                // Try to get contact name
-                val contactName = getContactName(context, address) ?: address
-
-                conversations.add(
-                    MessageConversation(
-                        threadId = threadId,
-                        address = address,
-                        contactName = contactName,
-                        lastMessage = body,
-                        timestamp = date,
-                        isRead = isRead
-                    )
-                )
-            }
-        }
-    } catch (e: Exception) {
-        // Handle error
-    }
-
-    return conversations
-}
-
-private fun getContactName(context: Context, phoneNumber: String): String? {
-    try {
-        val uri = Uri.withAppendedPath(
-            android.provider.ContactsContract.PhoneLookup.CONTENT_FILTER_URI,
-            Uri.encode(phoneNumber)
-        )
-        val cursor = context.contentResolver.query(
-            uri,
-            arrayOf(android.provider.ContactsContract.PhoneLookup.DISPLAY_NAME),
-            null,
-            null,
-            null
-        )
-        cursor?.use {
-            if (it.moveToFirst()) {
-                return it.getString(0)
-            }
-        }
-    } catch (e: Exception) {
-        // Ignore
-    }
-    return null
-}
@@ -15,18 +15,33 @@ import androidx.compose.runtime.*
 import androidx.compose.ui.Alignment
 import androidx.compose.ui.Modifier
 import androidx.compose.ui.platform.LocalContext
+import androidx.compose.ui.text.AnnotatedString
+import androidx.compose.ui.text.SpanStyle
+import androidx.compose.ui.text.buildAnnotatedString
 import androidx.compose.ui.text.font.FontWeight
 import androidx.compose.ui.text.style.TextOverflow
 import androidx.compose.ui.unit.dp
 import androidx.lifecycle.compose.collectAsStateWithLifecycle
 import com.example.senioroslauncher.SeniorLauncherApp
+import com.example.senioroslauncher.data.database.NoteSearch
 import com.example.senioroslauncher.data.database.entity.NoteEntity
 import com.example.senioroslauncher.ui.components.SeniorTopAppBar
 import com.example.senioroslauncher.ui.theme.*
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.FlowPreview
+import kotlinx.coroutines.flow.debounce
+import kotlinx.coroutines.flow.distinctUntilChanged
+import kotlinx.coroutines.flow.flatMapLatest
+import kotlinx.coroutines.flow.flowOf
+import kotlinx.coroutines.flow.flowOn
+import kotlinx.coroutines.flow.map
 import kotlinx.coroutines.launch
 import java.text.SimpleDateFormat
 import java.util.*
 
+private const val SEARCH_DEBOUNCE_MS = 300L
+
 class NotesActivity : ComponentActivity() {
     override fun onCreate(savedInstanceState: Bundle?) {
         super.onCreate(savedInstanceState)
@@ -38,7 +53,7 @@ class NotesActivity : ComponentActivity() {
     }
 }
 
-@OptIn(ExperimentalMaterial3Api::class)
+@OptIn(ExperimentalMaterial3Api::class, FlowPreview::class, ExperimentalCoroutinesApi::class)
 @Composable
 fun NotesScreen(onBackClick: () -> Unit) {
     val context = LocalContext.current
@@ -52,6 +67,23 @@ fun NotesScreen(onBackClick: () -> Unit) {
         .getAllNotes()
         .collectAsStateWithLifecycle(initialValue = emptyList())
 
+    // Full-text search once typing pauses; null while the search box is empty
+    var searchQuery by remember { mutableStateOf("") }
+    val searchResults by remember {
+        snapshotFlow { searchQuery }
+            .debounce(SEARCH_DEBOUNCE_MS)
+            .map { NoteSearch.toFtsQuery(it) }
+            .distinctUntilChanged()
+            .flatMapLatest { ftsQuery ->
+                if (ftsQuery == null) {
+                    flowOf(null)
+                } else {
+                    app.database.noteDao().searchNotes(ftsQuery).map { NoteSearch.rank(it) }
+                }
+            }
+            .flowOn(Dispatchers.Default)
+    }.collectAsStateWithLifecycle(initialValue = null)
+
     Scaffold(
         topBar = {
             SeniorTopAppBar(
@@ -100,23 +132,75 @@ fun NotesScreen(onBackClick: () -> Unit) {
                 )
             }
         } else {
-            LazyColumn(
+            Column(
                 modifier = Modifier
                     .fillMaxSize()
-                    .padding(paddingValues),
-                contentPadding = PaddingValues(16.dp),
-                verticalArrangement = Arrangement.spacedBy(12.dp)
+                    .padding(paddingValues)
             ) {
-                items(notes, key = { it.id }) { note ->
-                    NoteCard(
-                        note = note,
-                        onClick = { editingNote = note },
-                        onDeleteClick = {
-                            scope.launch {
-                                app.database.noteDao().delete(note)
+                // Search Bar
+                OutlinedTextField(
+                    value = searchQuery,
+                    onValueChange = { searchQuery = it },
+                    modifier = Modifier
+                        .fillMaxWidth()
+                        .padding(start = 16.dp, end = 16.dp, top = 16.dp),
+                    placeholder = { Text("Search notes...") },
+                    leadingIcon = {
+                        Icon(Icons.Default.Search, contentDescription = null)
+                    },
+                    trailingIcon = {
+                        if (searchQuery.isNotEmpty()) {
+                            IconButton(onClick = { searchQuery = "" }) {
+                                Icon(Icons.Default.Clear, contentDescription = "Clear")
                             }
                         }
+                    },
+                    singleLine = true,
+                    shape = RoundedCornerShape(12.dp),
+                    textStyle = MaterialTheme.typography.bodyLarge
+                )
+
+                val results = searchResults
+                if (results != null && results.isEmpty()) {
+                    Text(
+                        text = "No matching notes",
+                        style = MaterialTheme.typography.bodyLarge,
+                        color = MaterialTheme.colorScheme.onSurfaceVariant,
+                        modifier = Modifier.padding(32.dp)
                     )
+                } else {
+                    LazyColumn(
+                        modifier = Modifier.fillMaxSize(),
+                        contentPadding = PaddingValues(16.dp),
+                        verticalArrangement = Arrangement.spacedBy(12.dp)
+                    ) {
+                        if (results != null) {
+                            items(results, key = { it.note.id }) { result ->
+                                NoteCard(
+                                    note = result.note,
+                                    snippet = result.snippet,
+                                    onClick = { editingNote = result.note },
+                                    onDeleteClick = {
+                                        scope.launch {
+                                            app.database.noteDao().delete(result.note)
+                                        }
+                                    }
+                                )
+                            }
+                        } else {
+                            items(notes, key = { it.id }) { note ->
+                                NoteCard(
+                                    note = note,
+                                    onClick = { editingNote = note },
+                                    onDeleteClick = {
+                                        scope.launch {
+                                            app.database.noteDao().delete(note)
+                                        }
+                                    }
+                                )
+                            }
+                        }
+                    }
                 }
             }
         }
@@ -159,6 +243,7 @@ fun NotesScreen(onBackClick: () -> Unit) {
 @Composable
 private fun NoteCard(
     note: NoteEntity,
+    snippet: String? = null,
     onClick: () -> Unit,
     onDeleteClick: () -> Unit
 ) {
@@ -203,7 +288,17 @@ private fun NoteCard(
                 }
             }
 
-            if (note.content.isNotEmpty()) {
+            if (snippet != null) {
+                // Where the search matched, with the matched words in bold
+                Spacer(modifier = Modifier.height(8.dp))
+                Text(
+                    text = remember(snippet) { highlightSnippet(snippet) },
+                    style = MaterialTheme.typography.bodyLarge,
+                    color = DarkGray,
+                    maxLines = 4,
+                    overflow = TextOverflow.Ellipsis
+                )
+            } else if (note.content.isNotEmpty()) {
                 Spacer(modifier = Modifier.height(8.dp))
                 Text(
                     text = note.content,
@@ -241,6 +336,23 @@ private fun NoteCard(
     }
 }
 
+/**
+ * Snippet text with the FTS match markers ([NoteSearch.MATCH_START], [NoteSearch.MATCH_END])
+ * turned into bold spans.
+ */
+private fun highlightSnippet(snippet: String): AnnotatedString = buildAnnotatedString {
+    var bold = false
+    for (c in snippet) {
+        when {
+            c == NoteSearch.MATCH_START && !bold -> { pushStyle(SpanStyle(fontWeight = FontWeight.Bold)); bold = true }
+            c == NoteSearch.MATCH_END && bold -> { pop(); bold = false }
+            c == NoteSearch.MATCH_START || c == NoteSearch.MATCH_END -> {}
+            else -> append(c)
+        }
+    }
+    if (bold) pop()
+}
+
 @Composable
 private fun NoteDialog(
     note: NoteEntity?,
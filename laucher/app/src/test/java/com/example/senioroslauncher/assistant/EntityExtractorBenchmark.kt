@@ -0,0 +1,138 @@
+package com.example.senioroslauncher.assistant
+
+/**
+ * Per-utterance latency of [EntityExtractor] over a generated corpus of a few thousand
+ * commands (every template crossed with every filler value), for comparing extractor changes.
+ *
+ * Each utterance is timed on its own, so the report names the slowest ones, not just
+ * percentiles. Run by [EntityExtractorBenchmarkTest].
+ */
+object EntityExtractorBenchmark {
+
+    data class Timing(val text: String, val intent: String, val nanos: Long)
+
+    data class Result(
+        val utterances: Int,
+        val p50Us: Double,
+        val p99Us: Double,
+        val maxUs: Double,
+        val totalMs: Double,
+        val slowest: List<Timing>
+    ) {
+        override fun toString(): String =
+            "n=$utterances p50=${"%.1f".format(p50Us)}us p99=${"%.1f".format(p99Us)}us " +
+                "max=${"%.1f".format(maxUs)}us total=${"%.1f".format(totalMs)}ms; slowest: " +
+                slowest.joinToString(", ") { "'${it.text}' (${it.intent}) ${it.nanos / 1000}us" }
+    }
+
+    private val CONTACTS = listOf(
+        "Anish Kumar", "Meera", "Ravi Shankar", "Lakshmi Iyer", "John Mathew", "Priya",
+        "Suresh Babu", "Kavitha Nair", "Dr. Rao", "Arjun", "Fatima Begum", "Daughter Deepa"
+    )
+
+    private val TEMPLATES: List<Pair<String, String>> = listOf(
+        "call {contact}" to "CALL_CONTACT",
+        "please call {contact} now" to "CALL_CONTACT",
+        "can you ring up {contact}" to "CALL_CONTACT",
+        "call my {relation}" to "CALL_CONTACT",
+        "send a message to {contact} saying i will be late" to "SEND_MESSAGE",
+        "text my {relation} that i reached home" to "SEND_MESSAGE",
+        "set an alarm for {time}" to "SET_ALARM",
+        "wake me up at {time}" to "SET_ALARM",
+        "set alarm tomorrow at {time}" to "SET_ALARM",
+        "set a timer for {number} minutes" to "SET_TIMER",
+        "start a timer for {number} seconds" to "SET_TIMER",
+        "open {app}" to "OPEN_APP",
+        "please launch the {app} app" to "OPEN_APP",
+        "add {medication} {dose} {frequency}" to "MEDICATION_ADD",
+        "remind me to take {medication} {dose} {frequency}" to "MEDICATION_ADD",
+        "i took my {medication}" to "MEDICATION_LOG_TAKEN",
+        "when is my next dose of {medication}" to "MEDICATION_QUERY",
+        "find the nearest {place}" to "SEARCH_LOCATION",
+        "book an appointment at the {place} at {time}" to "APPOINTMENT_CREATE",
+        "my blood sugar is {number}" to "HEALTH_RECORD",
+        "book a ride to {destination}" to "BOOK_RIDE"
+    )
+
+    private val FILLERS: Map<String, List<String>> = mapOf(
+        "contact" to listOf("anish", "anish kumar", "meera", "ravi", "lakshmi iyer", "john", "dr rao", "someone new"),
+        "relation" to listOf("son", "daughter", "wife", "husband", "doctor", "grandson"),
+        "time" to listOf(
+            "6:30 pm", "7 am", "seven thirty in the morning", "half past six", "quarter to nine",
+            "8 o'clock tonight", "14:05", "noon"
+        ),
+        "number" to listOf("5", "10", "twenty five", "one hundred twenty", "90", "three"),
+        "app" to listOf("whatsapp", "google maps", "youtube", "calculator", "gmail", "facebook"),
+        "medication" to listOf("metformin", "aspirin", "vitamin d", "blood pressure tablet", "thyronorm", "calcium"),
+        "dose" to listOf("500mg", "2.5 ml", "two tablets", "10 mg", ""),
+        "frequency" to listOf("daily", "every week", "when needed", ""),
+        "place" to listOf("hospital", "medical store", "clinic", "park"),
+        "destination" to listOf("home", "the city mall", "my doctor", "the railway station")
+    )
+
+    // How people wrap the same command
+    private val PREFIXES = listOf("", "please ", "hey ", "can you ")
+    private val SUFFIXES = listOf("", " please", " now")
+
+    /**
+     * Every template with every combination of its fillers, prefixes and suffixes; a few
+     * thousand utterances.
+     */
+    fun corpus(): List<Pair<String, String>> {
+        val out = ArrayList<Pair<String, String>>()
+        for ((template, intent) in TEMPLATES) {
+            for (command in expand(template)) {
+                val clean = command.replace("  ", " ").trim()
+                for (prefix in PREFIXES) {
+                    for (suffix in SUFFIXES) out.add(prefix + clean + suffix to intent)
+                }
+            }
+        }
+        return out
+    }
+
+    private fun expand(template: String): List<String> {
+        val start = template.indexOf('{')
+        if (start < 0) return listOf(template)
+        val end = template.indexOf('}', start)
+        val slot = template.substring(start + 1, end)
+        val rest = expand(template.substring(end + 1))
+        val prefix = template.substring(0, start)
+        return FILLERS.getValue(slot).flatMap { value -> rest.map { prefix + value + it } }
+    }
+
+    fun run(
+        extractor: EntityExtractor = EntityExtractor(ContactGazetteer.fromNames(CONTACTS)),
+        corpus: List<Pair<String, String>> = corpus(),
+        warmUpPasses: Int = 2,
+        slowestCount: Int = 5
+    ): Result {
+        require(corpus.isNotEmpty())
+        repeat(warmUpPasses) { corpus.forEach { (text, intent) -> extractor.extractQuietly(text, intent) } }
+
+        val timings = ArrayList<Timing>(corpus.size)
+        var total = 0L
+        for ((text, intent) in corpus) {
+            val start = System.nanoTime()
+            extractor.extractQuietly(text, intent)
+            val nanos = System.nanoTime() - start
+            total += nanos
+            timings.add(Timing(text, intent, nanos))
+        }
+
+        val sorted = timings.map { it.nanos }.sorted()
+        return Result(
+            utterances = timings.size,
+            p50Us = percentile(sorted, 50.0) / 1000.0,
+            p99Us = percentile(sorted, 99.0) / 1000.0,
+            maxUs = sorted.last() / 1000.0,
+            totalMs = total / 1_000_000.0,
+            slowest = timings.sortedByDescending { it.nanos }.take(slowestCount)
+        )
+    }
+
+    private fun percentile(sorted: List<Long>, percentile: Double): Long {
+        val rank = Math.ceil(sorted.size * percentile / 100.0).toInt().coerceIn(1, sorted.size)
+        return sorted[rank - 1]
+    }
+}
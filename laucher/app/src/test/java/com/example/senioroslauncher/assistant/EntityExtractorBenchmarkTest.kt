@@ -0,0 +1,25 @@
+package com.example.senioroslauncher.assistant
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+/**
+ * Runs [EntityExtractorBenchmark] over its generated corpus and prints the timings.
+ */
+class EntityExtractorBenchmarkTest {
+
+    @Test
+    fun corpus_isSeveralThousandCommands() {
+        val corpus = EntityExtractorBenchmark.corpus()
+        assertTrue("corpus of ${corpus.size}", corpus.size > 1000)
+        assertTrue(corpus.none { (text, _) -> "  " in text || text != text.trim() })
+    }
+
+    @Test
+    fun extraction_benchmark() {
+        val result = EntityExtractorBenchmark.run()
+        println("EntityExtractor: $result")
+        assertEquals(EntityExtractorBenchmark.corpus().size, result.utterances)
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.senioroslauncher.assistant
+
+import com.example.senioroslauncher.data.database.entity.MedicationFrequency
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Test
+import java.util.Calendar
+
+class EntityExtractorTest {
+
+    private fun describe(tokens: List<EntityExtractor.Token>): List<String> = tokens.map {
+        when (it.kind) {
+            EntityExtractor.Token.NUMBER -> "#${it.value}"
+            EntityExtractor.Token.CLOCK -> "${it.value}:${it.minute}"
+            else -> it.text
+        }
+    }
+
+    @Test
+    fun tokenize_dropsInnerPunctuation() {
+        assertEquals(listOf("#8", "oclock", "pm"), describe(EntityExtractor.tokenize("8 O'Clock p.m.")))
+        assertEquals(listOf("dont", "call"), describe(EntityExtractor.tokenize("Don’t call!")))
+    }
+
+    @Test
+    fun tokenize_clockTimes() {
+        assertEquals(listOf("at", "6:30", "am"), describe(EntityExtractor.tokenize("at 6:30 a.m.")))
+        assertEquals(listOf("14:5"), describe(EntityExtractor.tokenize("14:05")))
+    }
+
+    @Test
+    fun tokenize_splitsDigitsFromUnits() {
+        val tokens = EntityExtractor.tokenize("500mg and 2.5 ml")
+        assertEquals(listOf("#500", "mg", "and", "#2", "ml"), describe(tokens))
+        assertEquals("2.5", tokens[3].text) // the decimal stays in the text
+    }
+
+    @Test
+    fun tokenize_foldsNumberWords() {
+        assertEquals(listOf("#25", "minutes"), describe(EntityExtractor.tokenize("twenty five minutes")))
+        assertEquals(listOf("#120"), describe(EntityExtractor.tokenize("one hundred twenty")))
+        assertEquals(listOf("#2000"), describe(EntityExtractor.tokenize("two thousand")))
+        // Two units in a row are two numbers ("six seven"), not 13
+        assertEquals(listOf("#6", "#7"), describe(EntityExtractor.tokenize("six seven")))
+    }
+
+    @Test
+    fun tokenize_keepsOffsets() {
+        val text = "call Anish Kumar"
+        val tokens = EntityExtractor.tokenize(text)
+        assertEquals("Anish", text.substring(tokens[1].start, tokens[1].end))
+    }
+
+    @Test
+    fun extract_alarmTime() {
+        val time = EntityExtractor().extractQuietly("wake me up at half past six in the evening", "SET_ALARM").time
+        assertEquals(18, time?.get(Calendar.HOUR_OF_DAY))
+        assertEquals(30, time?.get(Calendar.MINUTE))
+    }
+
+    @Test
+    fun extract_medication() {
+        val entities = EntityExtractor().extractQuietly("remind me to take metformin 500mg daily", "MEDICATION_ADD")
+        assertEquals("Metformin", entities.medicationName)
+        assertEquals(MedicationFrequency.DAILY, entities.frequency)
+    }
+
+    @Test
+    fun extract_contactFromGazetteer() {
+        val extractor = EntityExtractor(ContactGazetteer.fromNames(listOf("Anish Kumar", "Meera")))
+        assertEquals("Anish Kumar", extractor.extractQuietly("please call anish kumar now", "CALL_CONTACT").contactName)
+        assertEquals("Meera", extractor.extractQuietly("ring up aunt meera please", "CALL_CONTACT").contactName)
+        assertNull(extractor.extractQuietly("set a timer for 5 minutes", "SET_TIMER").contactName)
+    }
+
+    @Test
+    fun extract_contactOnlyFromRecipient() {
+        val extractor = EntityExtractor(ContactGazetteer.fromNames(listOf("Ravi", "Meera")))
+        assertEquals("Daughter", extractor.extractQuietly("text my daughter that ravi is here", "SEND_MESSAGE").contactName)
+        assertEquals("Meera", extractor.extractQuietly("message meera saying ravi called", "SEND_MESSAGE").contactName)
+        assertEquals("Meera", extractor.extractQuietly("tell meera to say hi to ravi", "SEND_MESSAGE").contactName)
+        assertEquals("Son", extractor.extractQuietly("call my son meera", "CALL_CONTACT").contactName)
+    }
+}
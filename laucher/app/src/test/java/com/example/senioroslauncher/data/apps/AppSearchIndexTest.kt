@@ -0,0 +1,78 @@
+package com.example.senioroslauncher.data.apps
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+
+class AppSearchIndexTest {
+
+    private val labels = listOf(
+        "WhatsApp", "Google Maps", "YouTube", "Calculator", "Calendar", "Camera", "Gmail",
+        "Phone", "PhonePe", "Photos", "Settings", "Café Coffee Day"
+    )
+
+    private lateinit var index: AppSearchIndex
+
+    private fun entry(label: String) =
+        AppCatalog.AppEntry(label.lowercase().replace(" ", ""), "MainActivity", label, 1)
+
+    private fun search(query: String) = index.search(query).map { it.label }
+
+    @Before
+    fun setUp() {
+        index = AppSearchIndex()
+        labels.forEach { index.add(entry(it)) }
+    }
+
+    @Test
+    fun prefix_labelStartsRankFirst() {
+        assertEquals(listOf("Calculator", "Calendar"), search("cal"))
+        assertEquals(listOf("Phone", "PhonePe", "Photos"), search("ph"))
+        assertEquals(listOf("Google Maps"), search("maps"))
+    }
+
+    @Test
+    fun prefix_incrementalTypingMatchesFreshSearch() {
+        // Typing, backspacing and retyping reuses the last trie node where it can
+        val keystrokes = listOf("c", "ca", "cal", "calc", "cal", "cam")
+        val typed = keystrokes.map { search(it) }
+        val fresh = keystrokes.map { query ->
+            AppSearchIndex().apply { labels.forEach { add(entry(it)) } }.search(query).map { it.label }
+        }
+        assertEquals(fresh, typed)
+    }
+
+    @Test
+    fun labelRunTogether_andEveryWordMustMatch() {
+        assertEquals(listOf("Google Maps"), search("googlem"))
+        assertEquals(listOf("Google Maps"), search("g m"))
+        assertEquals(emptyList<String>(), search("google camera"))
+    }
+
+    @Test
+    fun accentsAndDevanagari() {
+        assertEquals(listOf("Café Coffee Day"), search("cafe"))
+        assertEquals(listOf("WhatsApp"), search("व्हाट्सएप"))
+    }
+
+    @Test
+    fun typos_withinEditLimit() {
+        assertEquals(listOf("YouTube"), search("youtueb"))
+        assertEquals(listOf("Calculator"), search("calcualtor"))
+        assertEquals(listOf("Settings"), search("settngs"))
+        // Too short to allow an edit
+        assertEquals(emptyList<String>(), search("xyz"))
+    }
+
+    @Test
+    fun removeAndReplace() {
+        index.remove(entry("Camera"))
+        assertTrue("Camera" !in search("ca"))
+        assertEquals(labels.size - 1, index.size)
+
+        index.add(AppCatalog.AppEntry("camera", "MainActivity", "Camera Pro", 2))
+        assertEquals(listOf("Camera Pro"), search("pro"))
+        assertEquals(labels.size, index.size)
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.senioroslauncher.data.contacts
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class NameMatchingTest {
+
+    private fun sameKey(a: String, b: String) = NameMatching.phonetic(a) == NameMatching.phonetic(b)
+
+    @Test
+    fun phonetic_foldsSpellingVariants() {
+        assertTrue(sameKey("lakshmi", "laxmi"))
+        assertTrue(sameKey("srinivas", "sreenivas"))
+        assertTrue(sameKey("mohammed", "mohamed"))
+        assertTrue(sameKey("anish", "aneesh"))
+        assertTrue(sameKey("shiva", "siva"))
+    }
+
+    @Test
+    fun phonetic_keepsVowelClasses() {
+        assertFalse(sameKey("mohan", "meena"))
+        assertFalse(sameKey("mohan", "mina"))
+        assertFalse(sameKey("ravi", "rivu"))
+        assertEquals("muan", NameMatching.phonetic("mohan"))
+    }
+
+    @Test
+    fun withinEdits_countsSwapsAsOne() {
+        assertTrue(NameMatching.withinEdits("lakshmi", "lakhsmi", 1))
+        assertTrue(NameMatching.withinEdits("muhammad", "mohammed", 2))
+        assertFalse(NameMatching.withinEdits("meena", "mohan", 2))
+    }
+}
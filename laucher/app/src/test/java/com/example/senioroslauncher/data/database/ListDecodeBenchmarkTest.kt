@@ -0,0 +1,64 @@
+package com.example.senioroslauncher.data.database
+
+import com.example.senioroslauncher.data.database.entity.DaysOfWeekMask
+import com.google.gson.Gson
+import com.google.gson.reflect.TypeToken
+import org.junit.Assert.assertEquals
+import org.junit.Test
+
+/**
+ * Decode cost of the schedule-day and symptom columns: the Gson JSON lists they used to be
+ * stored as against the day mask and separator-joined string that replaced them. Checks the
+ * new encodings round-trip and prints per-row timings for both.
+ */
+class ListDecodeBenchmarkTest {
+
+    companion object {
+        private const val ROWS = 20_000
+        private const val ROUNDS = 5
+    }
+
+    private val converters = Converters()
+    private val gson = Gson()
+
+    @Test
+    fun symptoms_roundTrip() {
+        val symptoms = listOf("Headache", "Dizziness, mild", "Back pain")
+        assertEquals(symptoms, converters.fromStringList(converters.toStringList(symptoms)))
+        assertEquals(emptyList<String>(), converters.fromStringList(converters.toStringList(emptyList())))
+    }
+
+    @Test
+    fun days_roundTrip() {
+        for (mask in 0..DaysOfWeekMask.ALL_DAYS) {
+            assertEquals(mask, DaysOfWeekMask.fromDays(DaysOfWeekMask.toDays(mask)))
+        }
+    }
+
+    @Test
+    fun decode_benchmark() {
+        val symptomJson = List(ROWS) { gson.toJson(listOf("Headache", "Nausea", "Fatigue").take(it % 4)) }
+        val symptomJoined = List(ROWS) { converters.toStringList(listOf("Headache", "Nausea", "Fatigue").take(it % 4)) }
+        val dayJson = List(ROWS) { gson.toJson(DaysOfWeekMask.toDays(it % 128)) }
+        val dayMasks = List(ROWS) { it % 128 }
+
+        // What the removed converters did: a new TypeToken and a reflective parse per row
+        report("symptoms, Gson") { symptomJson.sumOf { gson.fromJson<List<String>>(it, object : TypeToken<List<String>>() {}.type).size } }
+        report("symptoms, split") { symptomJoined.sumOf { converters.fromStringList(it).size } }
+        report("days, Gson") { dayJson.sumOf { gson.fromJson<List<Int>>(it, object : TypeToken<List<Int>>() {}.type).size } }
+        report("days, mask") { dayMasks.sumOf { DaysOfWeekMask.toDays(it).size } }
+    }
+
+    private inline fun report(label: String, decodeAll: () -> Int) {
+        var best = Long.MAX_VALUE
+        var checksum = 0
+        // First round warms up the JIT; the best of the rest is reported
+        repeat(ROUNDS + 1) { round ->
+            val start = System.nanoTime()
+            checksum = decodeAll()
+            val elapsed = System.nanoTime() - start
+            if (round > 0) best = minOf(best, elapsed)
+        }
+        println("$label: ${best / ROWS} ns/row over $ROWS rows (checksum $checksum)")
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.senioroslauncher.data.database
+
+import com.example.senioroslauncher.data.database.entity.NoteEntity
+import com.example.senioroslauncher.data.database.entity.NoteSearchResult
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+import java.util.Date
+
+class NoteSearchTest {
+
+    /**
+     * matchinfo('pcnalx') for one phrase over (title, content) in a 100-note index where the
+     * average title is 3 tokens and the average body 200.
+     */
+    private fun matchInfo(titleTokens: Int, bodyTokens: Int, titleHits: Int, bodyHits: Int): ByteArray {
+        val ints = intArrayOf(
+            1, 2, 100, // phrases, columns, rows
+            3, 200, // average tokens per column
+            titleTokens, bodyTokens,
+            titleHits, 5, 4, // hits here, hits everywhere, rows with a hit
+            bodyHits, 20, 10
+        )
+        val buffer = ByteBuffer.allocate(ints.size * 4).order(ByteOrder.nativeOrder())
+        ints.forEach { buffer.putInt(it) }
+        return buffer.array()
+    }
+
+    private fun result(title: String, info: ByteArray, updatedAt: Long = 0) =
+        NoteSearchResult(NoteEntity(title = title, content = "", updatedAt = Date(updatedAt)), "", info)
+
+    @Test
+    fun toFtsQuery_prefixesEveryTermAndDropsSyntax() {
+        assertEquals("doctor* apt*", NoteSearch.toFtsQuery("Doctor  apt"))
+        assertEquals("doctor* s* apt* or*", NoteSearch.toFtsQuery("doctor's \"apt\"* OR"))
+        assertNull(NoteSearch.toFtsQuery(" -- "))
+    }
+
+    @Test
+    fun score_noHitsIsZero() {
+        assertEquals(0.0, NoteSearch.score(matchInfo(3, 200, 0, 0)), 0.0)
+        assertEquals(0.0, NoteSearch.score(ByteArray(4)), 0.0)
+    }
+
+    @Test
+    fun score_titleHitOutweighsBodyHit() {
+        assertTrue(NoteSearch.score(matchInfo(3, 200, 1, 0)) > NoteSearch.score(matchInfo(3, 200, 0, 1)))
+    }
+
+    @Test
+    fun score_shortBodyBeatsLongBodyForSameHits() {
+        assertTrue(NoteSearch.score(matchInfo(3, 50, 0, 2)) > NoteSearch.score(matchInfo(3, 900, 0, 2)))
+    }
+
+    @Test
+    fun score_moreHitsSaturate() {
+        val one = NoteSearch.score(matchInfo(3, 200, 0, 1))
+        val two = NoteSearch.score(matchInfo(3, 200, 0, 2))
+        val ten = NoteSearch.score(matchInfo(3, 200, 0, 10))
+        assertTrue(two > one && ten > two)
+        assertTrue("tf saturates", ten < 5 * one)
+    }
+
+    @Test
+    fun rank_bestFirstThenMostRecent() {
+        val titleHit = result("title hit", matchInfo(3, 200, 1, 0))
+        val bodyHitOld = result("body hit, old", matchInfo(3, 200, 0, 1), updatedAt = 1)
+        val bodyHitNew = result("body hit, new", matchInfo(3, 200, 0, 1), updatedAt = 2)
+
+        assertEquals(
+            listOf("title hit", "body hit, new", "body hit, old"),
+            NoteSearch.rank(listOf(bodyHitOld, titleHit, bodyHitNew)).map { it.note.title }
+        )
+    }
+}
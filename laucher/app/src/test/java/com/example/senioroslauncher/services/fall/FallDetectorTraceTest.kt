@@ -0,0 +1,95 @@
+package com.example.senioroslauncher.services.fall
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+/**
+ * Runs [FallDetector] over the traces in resources/fall_traces (see the header of each file
+ * for what it contains and the expected outcome). They are synthetic, not captures from a
+ * phone: gravity plus noise, shaped by hand into the phases of each scenario, at 100 Hz. They
+ * pin down the detector's behaviour, not its accuracy on real falls.
+ */
+class FallDetectorTraceTest {
+
+    private fun load(name: String): FallTraceReplay.Trace {
+        val stream = javaClass.classLoader!!.getResourceAsStream("fall_traces/$name")
+            ?: throw IllegalStateException("Missing trace $name")
+        return stream.reader().use { FallTraceReplay.parse(it) }
+    }
+
+    @Test
+    fun fallForward_isDetectedOnce() {
+        val trace = load("fall_forward.csv")
+        val detector = FallDetector()
+        var falls = 0
+        for (i in 0 until trace.size) {
+            if (detector.process(trace.timestampsNs[i], trace.xs[i], trace.ys[i], trace.zs[i])) falls++
+        }
+
+        assertEquals(1, falls)
+        val features = detector.lastFeatures
+        assertTrue(features.confirmed)
+        // Impact begins 4.35 s into the sensor clock, after ~350 ms of free fall
+        assertTrue("impact at ${features.impactTimestampNs}", features.impactTimestampNs in 4_350_000_000L..4_400_000_000L)
+        assertTrue("free fall ${features.freeFallMs}ms", features.freeFallMs in 250L..400L)
+        assertTrue("peak ${features.peakSvmG}g", features.peakSvmG >= 3f)
+        assertTrue("orientation ${features.orientationChangeDeg}deg", features.orientationChangeDeg >= 60f)
+    }
+
+    @Test
+    fun walking_isNotAFall() {
+        val result = FallTraceReplay.replay(load("walking.csv"), iterations = 1)
+        assertEquals(emptyList<Long>(), result.detectionTimestampsNs)
+    }
+
+    @Test
+    fun sittingDownHard_isRejectedAfterObserving() {
+        val trace = load("sit_down_hard.csv")
+        val detector = FallDetector()
+        for (i in 0 until trace.size) {
+            assertFalse(detector.process(trace.timestampsNs[i], trace.xs[i], trace.ys[i], trace.zs[i]))
+        }
+
+        // The jolt is an impact candidate, but no free fall and no change in posture
+        assertEquals(1L, detector.candidates)
+        assertEquals(0L, detector.detections)
+        assertFalse(detector.lastFeatures.confirmed)
+    }
+
+    @Test
+    fun batches_matchSampleBySample() {
+        val trace = load("fall_forward.csv")
+        val detector = FallDetector()
+        val batchSize = 50 // a 500 ms FIFO flush at 100 Hz
+        val timestamps = LongArray(batchSize)
+        val values = FloatArray(batchSize * 3)
+        var falls = 0
+        var start = 0
+        while (start < trace.size) {
+            val count = minOf(batchSize, trace.size - start)
+            for (i in 0 until count) {
+                timestamps[i] = trace.timestampsNs[start + i]
+                values[i * 3] = trace.xs[start + i]
+                values[i * 3 + 1] = trace.ys[start + i]
+                values[i * 3 + 2] = trace.zs[start + i]
+            }
+            falls += detector.processBatch(timestamps, values, count)
+            start += count
+        }
+
+        assertEquals(FallTraceReplay.replay(trace, iterations = 1).detectionTimestampsNs.size, falls)
+        assertEquals(1, falls)
+    }
+
+    @Test
+    fun process_doesNotAllocate() {
+        val result = FallTraceReplay.replay(load("walking.csv"), iterations = 6)
+        println("FallDetector: ${"%.1f".format(result.nanosPerSample)} ns/sample, ${result.allocatedBytesPerSample} B/sample")
+        // Any per-sample allocation would be at least an object header (~16 B); the few
+        // hundred bytes of measurement overhead spread over every sample stay well below 1.
+        // -1 where the JVM can't count allocations.
+        assertTrue(result.allocatedBytesPerSample < 1.0)
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.senioroslauncher.services.fall
+
+import java.io.BufferedReader
+import java.io.Reader
+import java.lang.management.ManagementFactory
+
+/**
+ * Replays accelerometer traces through a [FallDetector] and measures its cost.
+ *
+ * Trace format: one sample per line, "timestampNs,x,y,z" (m/s^2, as in SensorEvent.values).
+ * Blank lines and lines starting with '#' are ignored.
+ *
+ * Allocation is read from the JVM's per-thread allocation counter where the JVM has one
+ * (HotSpot/OpenJDK); elsewhere it is reported as -1.
+ */
+object FallTraceReplay {
+
+    class Trace(
+        val timestampsNs: LongArray,
+        val xs: FloatArray,
+        val ys: FloatArray,
+        val zs: FloatArray
+    ) {
+        val size: Int get() = timestampsNs.size
+    }
+
+    data class Result(
+        val samples: Long,
+        val detectionTimestampsNs: List<Long>,
+        val nanosPerSample: Double,
+        val allocatedBytesPerSample: Double // -1 when not measurable
+    )
+
+    fun parse(reader: Reader): Trace {
+        val timestamps = ArrayList<Long>()
+        val xs = ArrayList<Float>()
+        val ys = ArrayList<Float>()
+        val zs = ArrayList<Float>()
+
+        BufferedReader(reader).useLines { lines ->
+            lines.forEachIndexed { index, raw ->
+                val line = raw.trim()
+                if (line.isEmpty() || line.startsWith("#")) return@forEachIndexed
+                val parts = line.split(',')
+                require(parts.size >= 4) { "Line ${index + 1}: expected timestampNs,x,y,z" }
+                timestamps.add(parts[0].trim().toLong())
+                xs.add(parts[1].trim().toFloat())
+                ys.add(parts[2].trim().toFloat())
+                zs.add(parts[3].trim().toFloat())
+            }
+        }
+
+        return Trace(timestamps.toLongArray(), xs.toFloatArray(), ys.toFloatArray(), zs.toFloatArray())
+    }
+
+    /**
+     * Runs [trace] through a fresh detector [iterations] times (the first pass doubles as JIT
+     * warm-up and is not timed) and reports the detections of a single pass.
+     */
+    fun replay(trace: Trace, config: FallDetector.Config = FallDetector.Config(), iterations: Int = 5): Result {
+        require(iterations >= 1) { "iterations must be at least 1" }
+
+        val detections = ArrayList<Long>()
+        val detector = FallDetector(config)
+        runPass(trace, detector, detections)
+
+        val timedPasses = (iterations - 1).coerceAtLeast(1)
+        val allocatedBefore = currentThreadAllocatedBytes()
+        val start = System.nanoTime()
+        repeat(timedPasses) {
+            detector.reset()
+            runPass(trace, detector, null)
+        }
+        val elapsed = System.nanoTime() - start
+        val allocatedAfter = currentThreadAllocatedBytes()
+
+        val samples = trace.size.toLong() * timedPasses
+        val allocatedPerSample = if (allocatedBefore < 0 || allocatedAfter < 0 || samples == 0L) {
+            -1.0
+        } else {
+            (allocatedAfter - allocatedBefore).toDouble() / samples
+        }
+
+        return Result(
+            samples = trace.size.toLong(),
+            detectionTimestampsNs = detections,
+            nanosPerSample = if (samples == 0L) 0.0 else elapsed.toDouble() / samples,
+            allocatedBytesPerSample = allocatedPerSample
+        )
+    }
+
+    private fun runPass(trace: Trace, detector: FallDetector, detections: MutableList<Long>?) {
+        for (i in 0 until trace.size) {
+            if (detector.process(trace.timestampsNs[i], trace.xs[i], trace.ys[i], trace.zs[i])) {
+                detections?.add(detector.lastFeatures.impactTimestampNs)
+            }
+        }
+    }
+
+    private fun currentThreadAllocatedBytes(): Long {
+        val bean = ManagementFactory.getThreadMXBean() as? com.sun.management.ThreadMXBean ?: return -1L
+        return bean.getThreadAllocatedBytes(Thread.currentThread().id)
+    }
+}
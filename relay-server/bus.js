@@ -0,0 +1,428 @@
+// relay-server/bus.js
+// Node-to-node message bus for running the relay as several processes or hosts.
+//
+// Every bus has the same surface:
+//   start()              join the bus (resolves once this node can send)
+//   send(nodeId, msg)    deliver msg to one node; returns false if it could not be queued
+//   broadcast(msg)       deliver msg to every other node
+//   close()
+// and emits:
+//   'ready'              joined (again, after a reconnect)
+//   'disconnected'       lost the bus; remote state should be considered stale
+//   'node-up'   (id)     another node joined
+//   'node-down' (id)     another node left
+//   'message'   (msg, fromNodeId)
+//   'undeliverable' (msg, toNodeId)  a send() that returned true was dropped further along
+//                                    (target gone or congested); handle it like a false return
+//
+// Select with RELAY_BUS:
+//   (unset) | memory       in-process bus; nodes created in the same process see each other
+//   unix:/path/to/sock     local Unix socket
+//   tcp://host:port        TCP (host:port also accepted)
+
+const EventEmitter = require('events');
+const fs = require('fs');
+const net = require('net');
+
+const BROADCAST = '*';
+const RECONNECT_DELAY = 500; // ms, plus jitter
+const STALE_LOCK_AGE = 5000; // ms; an unreadable hub lock older than this was left by a crash
+const MAX_BUFFERED = 4 * 1024 * 1024; // bytes queued for a peer before it is disconnected
+
+// ============================================================================
+// in-process bus
+// ============================================================================
+
+// Shared by every InProcessBus in this process
+const memoryNodes = new Map();
+
+class InProcessBus extends EventEmitter {
+  constructor(nodeId) {
+    super();
+    this.nodeId = nodeId;
+  }
+
+  async start() {
+    memoryNodes.set(this.nodeId, this);
+    for (const [id, node] of memoryNodes) {
+      if (id !== this.nodeId) node.emit('node-up', this.nodeId);
+    }
+    this.emit('ready');
+  }
+
+  send(nodeId, msg) {
+    const node = memoryNodes.get(nodeId);
+    if (!node || nodeId === this.nodeId) return false;
+    // Async like a real transport, so callers never re-enter their own handlers
+    setImmediate(() => node.emit('message', msg, this.nodeId));
+    return true;
+  }
+
+  broadcast(msg) {
+    for (const id of memoryNodes.keys()) {
+      if (id !== this.nodeId) this.send(id, msg);
+    }
+  }
+
+  close() {
+    if (memoryNodes.get(this.nodeId) !== this) return;
+    memoryNodes.delete(this.nodeId);
+    for (const node of memoryNodes.values()) {
+      node.emit('node-down', this.nodeId);
+    }
+  }
+}
+
+// ============================================================================
+// socket bus (Unix socket or TCP)
+// ============================================================================
+
+/**
+ * Hub-and-spoke over newline-delimited JSON. The first node that finds nobody listening on
+ * the address binds it and becomes the hub; the rest connect to it. The hub is also a
+ * regular node and routes envelopes ({ from, to, msg | ctl }) between spokes. If the hub
+ * goes away the spokes race to take over the address.
+ *
+ * A Unix socket path can be unlinked and rebound while another hub still listens on the old
+ * inode, so for those the hub must first create "<path>.lock" exclusively; only the lock
+ * holder may unlink and bind. TCP needs no lock: a second bind fails with EADDRINUSE.
+ *
+ * Writes respect backpressure: while a peer's socket is over its high-water mark,
+ * point-to-point messages to it are refused (send() returns false and the caller falls back,
+ * e.g. to the mailbox). A spoke-to-spoke message passes the hub, which can only find out there
+ * that the target has left or is congested; it returns the envelope to the origin spoke as an
+ * 'undeliverable' control envelope, and that spoke emits 'undeliverable' so the caller falls
+ * back the same way. A peer that stops reading entirely is disconnected once MAX_BUFFERED
+ * bytes are queued, and resyncs when it reconnects.
+ */
+class SocketBus extends EventEmitter {
+  constructor(nodeId, address) {
+    super();
+    this.nodeId = nodeId;
+    this.address = address;
+    this.server = null; // set while we are the hub
+    this.spokes = new Map(); // hub only: nodeId -> socket
+    this.socket = null; // set while we are a spoke
+    this.hubId = null;
+    this.lockPath = null; // set while we hold the hub lock of a Unix socket
+    this.closed = false;
+  }
+
+  start() {
+    return new Promise((resolve) => {
+      this.once('ready', resolve);
+      this._join();
+    });
+  }
+
+  send(nodeId, msg) {
+    return this._route({ from: this.nodeId, to: nodeId, msg });
+  }
+
+  broadcast(msg) {
+    this._route({ from: this.nodeId, to: BROADCAST, msg });
+  }
+
+  close() {
+    this.closed = true;
+    if (this.socket) this.socket.destroy();
+    if (this.server) {
+      for (const socket of this.spokes.values()) socket.destroy();
+      this.server.close();
+    }
+    this._releaseLock();
+  }
+
+  // ---------------------------------------------------------------- joining
+
+  _join() {
+    if (this.closed) return;
+    this._connect((err) => {
+      if (!err) return;
+      if (err.code !== 'ECONNREFUSED' && err.code !== 'ENOENT') {
+        console.error(`❌ Bus connect failed (${err.code}), retrying`);
+        return this._retry();
+      }
+      // Nobody is listening. Probe once more after a jitter so that nodes starting together
+      // don't all unlink the socket file and each become a hub of their own.
+      setTimeout(() => {
+        this._connect((probeErr) => {
+          if (probeErr) this._listen();
+        });
+      }, Math.random() * 200);
+    });
+  }
+
+  _retry() {
+    if (this.closed) return;
+    setTimeout(() => this._join(), RECONNECT_DELAY + Math.random() * RECONNECT_DELAY);
+  }
+
+  _connect(onFailure) {
+    const socket = net.createConnection(this.address);
+    let joined = false;
+
+    socket.once('connect', () => {
+      joined = true;
+      this.socket = socket;
+      socket.setNoDelay(true);
+      this._write(socket, { from: this.nodeId, ctl: 'hello' });
+    });
+
+    socket.on('error', (err) => {
+      if (!joined) onFailure(err);
+    });
+
+    this._readLines(socket, (envelope) => {
+      if (envelope.ctl === 'welcome') {
+        this.hubId = envelope.from;
+        this.emit('ready');
+        return;
+      }
+      this._deliver(envelope);
+    });
+
+    socket.once('close', () => {
+      if (!joined) return;
+      this.socket = null;
+      if (this.hubId) this.emit('node-down', this.hubId);
+      this.hubId = null;
+      this.emit('disconnected');
+      this._retry();
+    });
+  }
+
+  _listen() {
+    if (this.address.path) {
+      // Another node is (or is becoming) the hub; connect to it on the next attempt
+      if (!this._acquireLock()) return this._retry();
+      try {
+        fs.unlinkSync(this.address.path); // stale socket from a crashed hub
+      } catch (err) {
+        if (err.code !== 'ENOENT') console.error('❌ Could not remove stale bus socket:', err);
+      }
+    }
+
+    const server = net.createServer((socket) => this._acceptSpoke(socket));
+    server.on('error', (err) => {
+      if (this.server === server) {
+        console.error('❌ Bus hub error:', err);
+        return;
+      }
+      // Someone else won the race
+      if (err.code !== 'EADDRINUSE') console.error('❌ Bus listen failed:', err);
+      this._releaseLock();
+      this._retry();
+    });
+    server.listen(this.address, () => {
+      this.server = server;
+      this.hubId = this.nodeId;
+      console.log(`🛰️  Bus hub listening on ${describeAddress(this.address)}`);
+      this.emit('ready');
+    });
+  }
+
+  /**
+   * Creates the hub lock for a Unix socket bus. Returns false if another live process holds
+   * it. A lock left by a dead process is removed, and taken on the next attempt, so two nodes
+   * that both find it stale still go through the exclusive create one at a time.
+   */
+  _acquireLock() {
+    const lockPath = this.address.path + '.lock';
+    try {
+      const fd = fs.openSync(lockPath, 'wx');
+      fs.writeSync(fd, String(process.pid));
+      fs.closeSync(fd);
+      this.lockPath = lockPath;
+      return true;
+    } catch (err) {
+      if (err.code !== 'EEXIST') {
+        console.error('❌ Could not create bus hub lock:', err);
+        return false;
+      }
+    }
+
+    let stale = false;
+    try {
+      const holder = parseInt(fs.readFileSync(lockPath, 'utf8'), 10);
+      stale = holder > 0
+        ? !isProcessAlive(holder)
+        // Not written yet by a node that just created it, or truncated by a crash
+        : Date.now() - fs.statSync(lockPath).mtimeMs > STALE_LOCK_AGE;
+    } catch (err) {
+      if (err.code === 'ENOENT') return false; // released meanwhile; retry
+      console.error('❌ Could not read bus hub lock:', err);
+    }
+    if (stale) {
+      console.log(`🧹 Removing stale bus hub lock ${lockPath}`);
+      try {
+        fs.unlinkSync(lockPath);
+      } catch (err) {
+        if (err.code !== 'ENOENT') console.error('❌ Could not remove stale bus hub lock:', err);
+      }
+    }
+    return false;
+  }
+
+  _releaseLock() {
+    if (!this.lockPath) return;
+    try {
+      fs.unlinkSync(this.lockPath);
+    } catch (err) {
+      if (err.code !== 'ENOENT') console.error('❌ Could not remove bus hub lock:', err);
+    }
+    this.lockPath = null;
+  }
+
+  _acceptSpoke(socket) {
+    let spokeId = null;
+    socket.setNoDelay(true);
+
+    this._readLines(socket, (envelope) => {
+      if (envelope.ctl === 'hello') {
+        spokeId = envelope.from;
+        this.spokes.set(spokeId, socket);
+        this._write(socket, { from: this.nodeId, ctl: 'welcome' });
+        this._routeFromHub({ from: spokeId, to: BROADCAST, ctl: 'node-up', nodeId: spokeId });
+        return;
+      }
+      if (spokeId) this._routeFromHub(envelope);
+    });
+
+    socket.on('error', () => {}); // 'close' follows
+    socket.once('close', () => {
+      if (!spokeId || this.spokes.get(spokeId) !== socket) return;
+      this.spokes.delete(spokeId);
+      this._routeFromHub({ from: spokeId, to: BROADCAST, ctl: 'node-down', nodeId: spokeId });
+    });
+  }
+
+  // ---------------------------------------------------------------- routing
+
+  _route(envelope) {
+    if (this.server) return this._routeFromHub(envelope);
+    if (!this.socket) return false;
+    return this._write(this.socket, envelope) !== null;
+  }
+
+  _routeFromHub(envelope) {
+    const { from, to } = envelope;
+
+    if (to === BROADCAST) {
+      if (from !== this.nodeId) this._deliver(envelope);
+      for (const [id, socket] of this.spokes) {
+        if (id !== from) this._write(socket, envelope);
+      }
+      return true;
+    }
+
+    if (to === this.nodeId) {
+      this._deliver(envelope);
+      return true;
+    }
+
+    const socket = this.spokes.get(to);
+    if (socket && this._write(socket, envelope) !== null) return true;
+
+    // The origin spoke's send() already returned true; hand the message back to it
+    const origin = from !== this.nodeId && envelope.msg ? this.spokes.get(from) : null;
+    if (origin) {
+      this._write(origin, { from: this.nodeId, to: from, ctl: 'undeliverable', target: to, msg: envelope.msg });
+    }
+    return false;
+  }
+
+  _deliver(envelope) {
+    if (envelope.ctl === 'node-up' || envelope.ctl === 'node-down') {
+      if (envelope.nodeId !== this.nodeId) this.emit(envelope.ctl, envelope.nodeId);
+      return;
+    }
+    if (envelope.ctl === 'undeliverable') {
+      this.emit('undeliverable', envelope.msg, envelope.target);
+      return;
+    }
+    if (envelope.msg) this.emit('message', envelope.msg, envelope.from);
+  }
+
+  // ---------------------------------------------------------------- framing
+
+  _write(socket, envelope) {
+    if (socket.destroyed) return null;
+
+    if (socket.writableLength > MAX_BUFFERED) {
+      // The peer stopped reading; drop it rather than buffer without bound
+      console.error(`❌ Bus peer not reading (${socket.writableLength} bytes queued), disconnecting`);
+      socket.destroy();
+      return null;
+    }
+    // Broadcasts and control envelopes (presence, pairing) must not be lost, so only
+    // point-to-point messages are refused while the peer is congested
+    if (socket.busCongested && envelope.msg && envelope.to !== BROADCAST) return null;
+
+    // JSON.stringify escapes newlines inside strings, so one line is one envelope
+    if (!socket.write(JSON.stringify(envelope) + '\n') && !socket.busCongested) {
+      socket.busCongested = true;
+      socket.once('drain', () => {
+        socket.busCongested = false;
+      });
+    }
+    return socket;
+  }
+
+  _readLines(socket, onEnvelope) {
+    let pending = '';
+    socket.setEncoding('utf8');
+    socket.on('data', (chunk) => {
+      pending += chunk;
+      let idx;
+      while ((idx = pending.indexOf('\n')) >= 0) {
+        const line = pending.slice(0, idx);
+        pending = pending.slice(idx + 1);
+        if (!line) continue;
+        try {
+          onEnvelope(JSON.parse(line));
+        } catch (err) {
+          console.error('❌ Bad bus envelope:', err);
+        }
+      }
+    });
+  }
+}
+
+function isProcessAlive(pid) {
+  try {
+    process.kill(pid, 0);
+    return true;
+  } catch (err) {
+    return err.code === 'EPERM'; // exists, owned by someone else
+  }
+}
+
+// ============================================================================
+// factory
+// ============================================================================
+
+function parseBusAddress(spec) {
+  if (spec.startsWith('unix:')) {
+    return { path: spec.slice('unix:'.length) };
+  }
+  const hostPort = spec.replace(/^tcp:\/\//, '');
+  const idx = hostPort.lastIndexOf(':');
+  if (idx < 0) {
+    throw new Error(`Invalid RELAY_BUS address: ${spec}`);
+  }
+  return { host: hostPort.slice(0, idx) || '127.0.0.1', port: parseInt(hostPort.slice(idx + 1), 10) };
+}
+
+function describeAddress(address) {
+  return address.path ? `unix:${address.path}` : `tcp://${address.host}:${address.port}`;
+}
+
+function createBus(spec, nodeId) {
+  if (!spec || spec === 'memory') {
+    return new InProcessBus(nodeId);
+  }
+  return new SocketBus(nodeId, parseBusAddress(spec));
+}
+
+module.exports = { createBus, InProcessBus, SocketBus };
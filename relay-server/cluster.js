@@ -0,0 +1,49 @@
+// relay-server/cluster.js
+// Runs the relay as several worker processes sharing one port and one relay.db.
+// Workers route to each other over a Unix-socket bus (see bus.js).
+//
+// Usage: RELAY_WORKERS=4 node cluster.js
+//   RELAY_BUS may be set to override the default unix:<tmpdir>/seniorcare-relay-<port>.sock
+
+const cluster = require('cluster');
+const os = require('os');
+const path = require('path');
+
+const PORT = process.env.PORT || 3000;
+const WORKERS = parseInt(process.env.RELAY_WORKERS, 10) || os.cpus().length;
+const BUS = process.env.RELAY_BUS || `unix:${path.join(os.tmpdir(), `seniorcare-relay-${PORT}.sock`)}`;
+
+if (cluster.isPrimary) {
+  let shuttingDown = false;
+
+  const fork = (index) => {
+    const worker = cluster.fork({
+      PORT,
+      RELAY_BUS: BUS,
+      RELAY_NODE_ID: `${os.hostname()}-w${index}`
+    });
+    worker.on('exit', (code, signal) => {
+      if (shuttingDown) return;
+      console.error(`💥 Relay worker ${index} exited (code=${code}, signal=${signal}), restarting`);
+      setTimeout(() => fork(index), 1000);
+    });
+  };
+
+  console.log(`🚀 Starting ${WORKERS} relay worker(s) on port ${PORT}, bus ${BUS}`);
+  for (let i = 0; i < WORKERS; i++) {
+    fork(i);
+  }
+
+  // Workers receive SIGINT from the terminal themselves and shut down cleanly
+  process.on('SIGINT', () => {
+    shuttingDown = true;
+  });
+  process.on('SIGTERM', () => {
+    shuttingDown = true;
+    for (const worker of Object.values(cluster.workers)) {
+      worker.process.kill('SIGINT');
+    }
+  });
+} else {
+  require('./server');
+}
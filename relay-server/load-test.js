@@ -0,0 +1,122 @@
+// relay-server/load-test.js
+// Measures relay forwarding throughput (messages/sec) against a running server.
+//
+// Usage: node load-test.js [messagesPerPair] [pairs]
+//   RELAY_URL=http://localhost:3000 node load-test.js 20000 4
+//
+// Set RELAY_ELDER_URL to attach the elder sockets to a different relay node, so every
+// message crosses the cluster bus:
+//   RELAY_URL=http://localhost:3001 RELAY_ELDER_URL=http://localhost:3002 node load-test.js
+
+const axios = require('axios');
+const WebSocket = require('ws');
+const { v4: uuidv4 } = require('uuid');
+
+const SERVER_URL = process.env.RELAY_URL || 'http://localhost:3000';
+const WS_URL = SERVER_URL.replace(/^http/, 'ws');
+const ELDER_WS_URL = (process.env.RELAY_ELDER_URL || SERVER_URL).replace(/^http/, 'ws');
+const MESSAGES_PER_PAIR = parseInt(process.argv[2], 10) || 10000;
+const PAIRS = parseInt(process.argv[3], 10) || 1;
+const SEND_WINDOW = 256 * 1024; // Pause sending while this many bytes are buffered
+
+async function createPair(index) {
+  const runId = `${Date.now()}_${index}`;
+
+  const guardianRes = await axios.post(`${SERVER_URL}/api/guardian/register`, {
+    name: `Load Guardian ${index}`,
+    phone: `load-${runId}`
+  });
+  const guardianId = guardianRes.data.data.guardianId;
+
+  const elderId = `elder_load_${runId}`;
+  const codeRes = await axios.post(`${SERVER_URL}/api/elder/generate-code`, { elderId });
+  await axios.post(`${SERVER_URL}/api/pair`, {
+    guardianId,
+    pairingCode: codeRes.data.data.code
+  });
+
+  return { guardianId, elderId };
+}
+
+function openSocket(baseUrl, deviceId, type) {
+  return new Promise((resolve, reject) => {
+    const ws = new WebSocket(`${baseUrl}?deviceId=${deviceId}&type=${type}`);
+    ws.once('message', () => resolve(ws)); // CONNECTION_ACK
+    ws.once('error', reject);
+  });
+}
+
+async function runPair({ guardianId, elderId }) {
+  const elderWs = await openSocket(ELDER_WS_URL, elderId, 'elder');
+  const guardianWs = await openSocket(WS_URL, guardianId, 'guardian');
+  // Give the elder's presence announcement time to reach the guardian's node
+  if (ELDER_WS_URL !== WS_URL) await new Promise((resolve) => setTimeout(resolve, 200));
+
+  let received = 0;
+  let errors = 0;
+
+  const done = new Promise((resolve) => {
+    elderWs.on('message', () => {
+      received++;
+      if (received === MESSAGES_PER_PAIR) resolve();
+    });
+    guardianWs.on('message', () => {
+      errors++;
+    });
+  });
+
+  const frame = (i) => JSON.stringify({
+    type: 'GET_STATE',
+    from: guardianId,
+    to: elderId,
+    requestId: uuidv4(),
+    payload: { seq: i },
+    timestamp: new Date().toISOString()
+  });
+
+  let sent = 0;
+  await new Promise((resolve) => {
+    const pump = () => {
+      while (sent < MESSAGES_PER_PAIR && guardianWs.bufferedAmount < SEND_WINDOW) {
+        guardianWs.send(frame(sent++));
+      }
+      if (sent < MESSAGES_PER_PAIR) {
+        setImmediate(pump);
+      } else {
+        resolve();
+      }
+    };
+    pump();
+  });
+
+  await done;
+  elderWs.close();
+  guardianWs.close();
+  return errors;
+}
+
+async function main() {
+  console.log(`🚀 Load test: ${PAIRS} pair(s) x ${MESSAGES_PER_PAIR} messages → ${SERVER_URL}` +
+    (ELDER_WS_URL !== WS_URL ? ` (elders on ${process.env.RELAY_ELDER_URL})` : ''));
+
+  const pairs = [];
+  for (let i = 0; i < PAIRS; i++) {
+    pairs.push(await createPair(i));
+  }
+
+  const start = process.hrtime.bigint();
+  const errors = await Promise.all(pairs.map(runPair));
+  const elapsedMs = Number(process.hrtime.bigint() - start) / 1e6;
+
+  const total = PAIRS * MESSAGES_PER_PAIR;
+  console.log('');
+  console.log(`  Delivered: ${total} messages in ${elapsedMs.toFixed(0)} ms`);
+  console.log(`  Throughput: ${Math.round(total / (elapsedMs / 1000))} messages/sec`);
+  console.log(`  Errors returned to sender: ${errors.reduce((a, b) => a + b, 0)}`);
+  process.exit(0);
+}
+
+main().catch((err) => {
+  console.error('❌ Load test failed:', err.response?.data || err.message);
+  process.exit(1);
+});
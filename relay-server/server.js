@@ -6,11 +6,30 @@ const cors = require('cors');
 const Database = require('better-sqlite3');
 const { v4: uuidv4 } = require('uuid');
 const path = require('path');
+const os = require('os');
+const { createBus } = require('./bus');
 
 
 const app = express();
 const server = http.createServer(app);
-const wss = new WebSocket.Server({ server });
+const wss = new WebSocket.Server({
+  server,
+  // permessage-deflate for clients that offer it (OkHttp does); small frames stay uncompressed
+  perMessageDeflate: {
+    threshold: 256,
+    zlibDeflateOptions: { level: 6, memLevel: 7 },
+    concurrencyLimit: 10
+  }
+});
+
+// Wire formats negotiated with ?format= on the connect URL
+//   json   - one JSON object per frame (default, Guardian app)
+//   framed - "<routing header JSON>\n<payload JSON>"; the relay only parses the header.
+//            Several messages may share one frame, their lines joined by newlines
+//            (announced with batch: true in CONNECTION_ACK).
+const FORMAT_JSON = 'json';
+const FORMAT_FRAMED = 'framed';
+const NEWLINE = 0x0a;
 
 app.use(cors());
 app.use(express.json());
@@ -28,6 +47,8 @@ let db;
 try {
   db = new Database('relay.db');
   db.pragma('journal_mode = WAL');
+  // Clustered nodes on one host share relay.db; wait out another process's write lock
+  db.pragma('busy_timeout = 5000');
 } catch (err) {
   console.error('❌ Failed to open SQLite DB:', err);
   process.exit(1);
@@ -60,6 +81,25 @@ try {
 
     CREATE INDEX IF NOT EXISTS idx_guardian_id ON pairings(guardian_id);
     CREATE INDEX IF NOT EXISTS idx_elder_id ON pairings(elder_id);
+
+    -- Store-and-forward for offline recipients. header is the forwarded message without its
+    -- payload, body the payload JSON text, so stored frames replay in either wire format.
+    CREATE TABLE IF NOT EXISTS mailbox (
+      id INTEGER PRIMARY KEY AUTOINCREMENT,
+      device_id TEXT NOT NULL,
+      request_id TEXT,
+      type TEXT NOT NULL,
+      priority INTEGER NOT NULL,
+      header TEXT NOT NULL,
+      body TEXT,
+      size INTEGER NOT NULL,
+      expires_at INTEGER NOT NULL,
+      created_at INTEGER NOT NULL,
+      UNIQUE (device_id, request_id)
+    );
+
+    CREATE INDEX IF NOT EXISTS idx_mailbox_drain ON mailbox(device_id, priority, id);
+    CREATE INDEX IF NOT EXISTS idx_mailbox_expires ON mailbox(expires_at);
   `);
   console.log('✅ Database initialized (including guardians table)');
 } catch (err) {
@@ -68,8 +108,411 @@ try {
 }
 
 
+// ============================================================================
+// prepared statements (compiled once, reused per request)
+// ============================================================================
+
+const stmts = {
+  deleteExpiredCodes: db.prepare('DELETE FROM pairing_codes WHERE expires_at < ?'),
+  findGuardianByPhone: db.prepare('SELECT guardian_id, token, name, phone FROM guardians WHERE phone = ?'),
+  insertGuardian: db.prepare('INSERT INTO guardians (guardian_id, name, phone, token) VALUES (?, ?, ?, ?)'),
+  insertPairingCode: db.prepare('INSERT INTO pairing_codes (code, elder_id, expires_at) VALUES (?, ?, ?)'),
+  findPairingCode: db.prepare('SELECT * FROM pairing_codes WHERE code = ?'),
+  deletePairingCode: db.prepare('DELETE FROM pairing_codes WHERE code = ?'),
+  findPairing: db.prepare('SELECT * FROM pairings WHERE guardian_id = ? AND elder_id = ?'),
+  insertPairing: db.prepare('INSERT INTO pairings (id, guardian_id, elder_id) VALUES (?, ?, ?)'),
+  deletePairing: db.prepare('DELETE FROM pairings WHERE guardian_id = ? AND elder_id = ?'),
+  listEldersForGuardian: db.prepare('SELECT elder_id, paired_at FROM pairings WHERE guardian_id = ?'),
+  listAllPairings: db.prepare('SELECT guardian_id, elder_id FROM pairings'),
+  insertMailbox: db.prepare(`
+    INSERT OR IGNORE INTO mailbox
+      (device_id, request_id, type, priority, header, body, size, expires_at, created_at)
+    VALUES
+      (@deviceId, @requestId, @type, @priority, @header, @body, @size, @expiresAt, @createdAt)
+  `),
+  mailboxTotals: db.prepare('SELECT COUNT(*) AS count, COALESCE(SUM(size), 0) AS bytes FROM mailbox WHERE device_id = ?'),
+  mailboxEvictionOrder: db.prepare('SELECT id, size FROM mailbox WHERE device_id = ? ORDER BY priority DESC, id ASC'),
+  mailboxBatch: db.prepare(`
+    SELECT id, header, body FROM mailbox
+    WHERE device_id = ? AND expires_at > ?
+    ORDER BY priority, id
+    LIMIT ?
+  `),
+  deleteMailboxRow: db.prepare('DELETE FROM mailbox WHERE id = ?'),
+  deleteExpiredMailbox: db.prepare('DELETE FROM mailbox WHERE expires_at <= ?'),
+  countMailbox: db.prepare('SELECT COUNT(*) AS count FROM mailbox')
+};
+
+// ============================================================================
+// pairing index
+// ============================================================================
+
+// elderId -> Set<guardianId>; mirrors the pairings table so routing never touches SQLite.
+// Only mutated after the corresponding DB transaction commits.
+const guardiansByElder = new Map();
+
+function indexPairing(guardianId, elderId) {
+  let guardians = guardiansByElder.get(elderId);
+  if (!guardians) {
+    guardians = new Set();
+    guardiansByElder.set(elderId, guardians);
+  }
+  guardians.add(guardianId);
+}
+
+function unindexPairing(guardianId, elderId) {
+  const guardians = guardiansByElder.get(elderId);
+  if (!guardians) return;
+  guardians.delete(guardianId);
+  if (guardians.size === 0) {
+    guardiansByElder.delete(elderId);
+  }
+}
+
+function isPaired(guardianId, elderId) {
+  const guardians = guardiansByElder.get(elderId);
+  return guardians !== undefined && guardians.has(guardianId);
+}
+
+function loadPairingIndex() {
+  guardiansByElder.clear();
+  for (const row of stmts.listAllPairings.iterate()) {
+    indexPairing(row.guardian_id, row.elder_id);
+  }
+  console.log(`✅ Pairing index loaded (${guardiansByElder.size} elders)`);
+}
+
+const pairTransaction = db.transaction((pairingId, guardianId, elderId, pairingCode) => {
+  stmts.insertPairing.run(pairingId, guardianId, elderId);
+  stmts.deletePairingCode.run(pairingCode);
+});
+
+try {
+  loadPairingIndex();
+} catch (err) {
+  console.error('❌ Failed to load pairing index:', err);
+  process.exit(1);
+}
+
 const connections = new Map();
 
+// ============================================================================
+// mailbox (store-and-forward)
+// ============================================================================
+
+const HOUR = 60 * 60 * 1000;
+const DAY = 24 * HOUR;
+
+// Only events and commands are stored; queries and their responses are useless once the
+// requester has timed out. Lower priority drains first and is evicted last.
+const MAILBOX_POLICY = {
+  ALERT_EVENT: { priority: 0, ttl: 7 * DAY },
+  ADD_MEDICATION: { priority: 1, ttl: 7 * DAY },
+  UPDATE_MEDICATION: { priority: 1, ttl: 7 * DAY },
+  DELETE_MEDICATION: { priority: 1, ttl: 7 * DAY },
+  UPDATE_EMERGENCY_CONTACT: { priority: 1, ttl: 7 * DAY },
+  DELETE_EMERGENCY_CONTACT: { priority: 1, ttl: 7 * DAY },
+  GUARDIAN_PAIRED: { priority: 1, ttl: 7 * DAY },
+  GUARDIAN_UNPAIRED: { priority: 1, ttl: 7 * DAY },
+  MEDICATION_UPDATED: { priority: 2, ttl: 2 * DAY },
+  SEND_MESSAGE: { priority: 2, ttl: 3 * DAY },
+  SEND_REMINDER: { priority: 2, ttl: 6 * HOUR }
+};
+
+const MAILBOX_MAX_MESSAGES = 500; // per device
+const MAILBOX_MAX_BYTES = 2 * 1024 * 1024; // per device
+const MAILBOX_MAX_MESSAGE_BYTES = 256 * 1024;
+const MAILBOX_BATCH_SIZE = 50;
+const MAILBOX_HIGH_WATER = 256 * 1024; // pause draining above this ws.bufferedAmount
+const MAILBOX_LOW_WATER = 64 * 1024; // resume below this
+
+const insertIntoMailbox = db.transaction((row) => {
+  stmts.insertMailbox.run(row);
+
+  const totals = stmts.mailboxTotals.get(row.deviceId);
+  let excessCount = totals.count - MAILBOX_MAX_MESSAGES;
+  let excessBytes = totals.bytes - MAILBOX_MAX_BYTES;
+  if (excessCount <= 0 && excessBytes <= 0) return 0;
+
+  // Over a cap: drop the least important, oldest messages first
+  let evicted = 0;
+  for (const victim of stmts.mailboxEvictionOrder.all(row.deviceId)) {
+    if (excessCount <= 0 && excessBytes <= 0) break;
+    stmts.deleteMailboxRow.run(victim.id);
+    excessCount--;
+    excessBytes -= victim.size;
+    evicted++;
+  }
+  return evicted;
+});
+
+/**
+ * Persists a forwarded message for a device that cannot take it right now.
+ * Returns false if the message type is not stored or the message is too large.
+ */
+function storeInMailbox(deviceId, header, body) {
+  const policy = MAILBOX_POLICY[header.type];
+  if (!policy) return false;
+
+  const { payload, ...rest } = header;
+  const headerText = JSON.stringify(rest);
+  let bodyText = null;
+  if (body) {
+    bodyText = body.toString();
+  } else if (payload !== undefined) {
+    bodyText = JSON.stringify(payload);
+  }
+
+  const size = Buffer.byteLength(headerText) + (bodyText ? Buffer.byteLength(bodyText) : 0);
+  if (size > MAILBOX_MAX_MESSAGE_BYTES) {
+    console.warn(`⚠️  Message too large for mailbox (${size} bytes): ${header.type} → ${deviceId}`);
+    return false;
+  }
+
+  const now = Date.now();
+  try {
+    const evicted = insertIntoMailbox({
+      deviceId,
+      requestId: rest.requestId || null, // retried requestIds are stored once
+      type: header.type,
+      priority: policy.priority,
+      header: headerText,
+      body: bodyText,
+      size,
+      expiresAt: now + policy.ttl,
+      createdAt: now
+    });
+    if (evicted > 0) {
+      console.warn(`⚠️  Mailbox for ${deviceId} full, evicted ${evicted} message(s)`);
+    }
+  } catch (err) {
+    console.error('❌ Failed to store message in mailbox:', err);
+    return false;
+  }
+
+  // The device may have just connected to another node, before its presence reached us
+  bus.broadcast({ kind: 'mailbox', deviceId });
+  return true;
+}
+
+/**
+ * Replays a device's mailbox in priority order, in batches. Rows are deleted only once their
+ * frame has been written to the socket, and sending pauses while ws.bufferedAmount is high.
+ * Live messages for the device are queued behind the drain (see deliverOrStore).
+ */
+async function drainMailbox(deviceId) {
+  const connection = connections.get(deviceId);
+  if (!connection || connection.draining) return;
+
+  connection.draining = true;
+  let delivered = 0;
+  try {
+    while (connections.get(deviceId) === connection && connection.ws.readyState === WebSocket.OPEN) {
+      const rows = stmts.mailboxBatch.all(deviceId, Date.now(), MAILBOX_BATCH_SIZE);
+      if (rows.length === 0) break;
+
+      const sends = [];
+      for (const row of rows) {
+        if (connection.ws.bufferedAmount > MAILBOX_HIGH_WATER) {
+          await waitForBufferDrain(connection.ws);
+        }
+        if (connection.ws.readyState !== WebSocket.OPEN) break;
+        sends.push(sendStored(connection, row));
+      }
+
+      const sentIds = (await Promise.all(sends)).filter((id) => id !== null);
+      deleteMailboxRows(sentIds);
+      delivered += sentIds.length;
+
+      if (sentIds.length < rows.length) break; // socket went away; the rest waits for next time
+    }
+  } catch (err) {
+    console.error(`❌ Error draining mailbox for ${deviceId}:`, err);
+  } finally {
+    connection.draining = false;
+  }
+
+  if (delivered > 0) {
+    console.log(`📬 Delivered ${delivered} stored message(s) to ${deviceId}`);
+  }
+}
+
+const deleteMailboxRows = db.transaction((ids) => {
+  for (const id of ids) stmts.deleteMailboxRow.run(id);
+});
+
+function sendStored(connection, row) {
+  return new Promise((resolve) => {
+    const header = JSON.parse(row.header);
+    const body = row.body === null ? null : Buffer.from(row.body);
+    forward(connection, header, body, (err) => resolve(err ? null : row.id));
+  });
+}
+
+function waitForBufferDrain(ws) {
+  return new Promise((resolve) => {
+    const check = () => {
+      if (ws.readyState !== WebSocket.OPEN || ws.bufferedAmount < MAILBOX_LOW_WATER) {
+        resolve();
+      } else {
+        setTimeout(check, 20);
+      }
+    };
+    check();
+  });
+}
+
+function purgeExpiredMailbox() {
+  try {
+    const result = stmts.deleteExpiredMailbox.run(Date.now());
+    if (result.changes > 0) {
+      console.log(` Purged ${result.changes} expired mailbox messages`);
+    }
+  } catch (err) {
+    console.error(' Failed to purge mailbox:', err);
+  }
+}
+
+// ============================================================================
+// cluster presence
+// ============================================================================
+
+// A relay node is one process. Nodes share relay.db and find each other over the bus
+// (RELAY_BUS, see bus.js); with no RELAY_BUS the in-process bus makes this a standalone relay.
+const NODE_ID = process.env.RELAY_NODE_ID || `${os.hostname()}-${process.pid}`;
+const bus = createBus(process.env.RELAY_BUS, NODE_ID);
+
+// deviceId -> nodeId for devices attached to other nodes. Local devices live in `connections`.
+const remotePresence = new Map();
+
+function isOnline(deviceId) {
+  return connections.has(deviceId) || remotePresence.has(deviceId);
+}
+
+function announcePresence(deviceId, online) {
+  bus.broadcast({ kind: 'presence', deviceId, online });
+}
+
+function presenceSnapshot() {
+  return { kind: 'presence-sync', devices: Array.from(connections.keys()) };
+}
+
+function dropNodePresence(nodeId) {
+  for (const [deviceId, owner] of remotePresence) {
+    if (owner === nodeId) remotePresence.delete(deviceId);
+  }
+}
+
+function setRemotePresence(deviceId, nodeId) {
+  remotePresence.set(deviceId, nodeId);
+
+  // The device reconnected through another node; our socket to it is stale
+  const local = connections.get(deviceId);
+  if (local) {
+    connections.delete(deviceId);
+    local.ws.close(1000, 'Connected to another relay node');
+  }
+}
+
+bus.on('ready', () => {
+  // Joining (or rejoining after a hub failover): tell everyone what we hold
+  bus.broadcast(presenceSnapshot());
+});
+
+bus.on('node-up', (nodeId) => {
+  bus.send(nodeId, presenceSnapshot());
+});
+
+bus.on('node-down', (nodeId) => {
+  dropNodePresence(nodeId);
+  console.log(`🛰️  Relay node left: ${nodeId}`);
+});
+
+bus.on('disconnected', () => {
+  remotePresence.clear();
+});
+
+// A hand-over that the hub could not pass on (the other node left or is congested)
+bus.on('undeliverable', (msg, toNode) => {
+  if (!msg || msg.kind !== 'deliver') return; // replies and presence are resent or resynced
+  const { header, body, ackRequested } = msg;
+  console.log(`🛰️  Node ${toNode} unreachable, delivering ${header.type} for ${header.to} from here`);
+  try {
+    deliverFromHere(header, body === null ? null : Buffer.from(body), ackRequested);
+  } catch (err) {
+    console.error('❌ Error handling undeliverable bus message:', err);
+  }
+});
+
+bus.on('message', (msg, fromNode) => {
+  try {
+    handleBusMessage(msg, fromNode);
+  } catch (err) {
+    console.error('❌ Error handling bus message:', err);
+  }
+});
+
+function handleBusMessage(msg, fromNode) {
+  switch (msg.kind) {
+    case 'presence':
+      if (msg.online) {
+        setRemotePresence(msg.deviceId, fromNode);
+      } else if (remotePresence.get(msg.deviceId) === fromNode) {
+        remotePresence.delete(msg.deviceId);
+      }
+      break;
+
+    case 'presence-sync':
+      dropNodePresence(fromNode);
+      for (const deviceId of msg.devices) {
+        // A snapshot can be older than a local reconnect; only live 'presence' events evict
+        if (!connections.has(deviceId)) remotePresence.set(deviceId, fromNode);
+      }
+      break;
+
+    case 'pairing':
+      if (msg.paired) {
+        indexPairing(msg.guardianId, msg.elderId);
+      } else {
+        unindexPairing(msg.guardianId, msg.elderId);
+      }
+      break;
+
+    case 'deliver': {
+      const { header, body, ackRequested } = msg;
+      const outcome = deliverOrStore(header.to, header, body === null ? null : Buffer.from(body));
+      const reply = { deviceId: header.from, requestId: header.requestId };
+      if (outcome === DELIVERY_STORED) {
+        bus.send(fromNode, { kind: 'queued', ...reply, ackRequested });
+      } else if (!outcome) {
+        bus.send(fromNode, { kind: 'undeliverable', ...reply });
+      } else if (ackRequested) {
+        bus.send(fromNode, { kind: 'delivered', ...reply });
+      }
+      break;
+    }
+
+    case 'delivered':
+      sendAck(msg.deviceId, msg.requestId);
+      break;
+
+    case 'queued':
+      reportQueued(msg.deviceId, msg.requestId, msg.ackRequested);
+      break;
+
+    case 'mailbox':
+      if (connections.has(msg.deviceId)) drainMailbox(msg.deviceId);
+      break;
+
+    case 'undeliverable':
+      sendError(msg.deviceId, msg.requestId, 'Recipient is offline');
+      break;
+
+    default:
+      console.warn(`⚠️  Unknown bus message kind from ${fromNode}:`, msg.kind);
+  }
+}
+
 // ============================================================================
 // utility
 // ============================================================================
@@ -86,8 +529,7 @@ function cleanExpiredCodes() {
   try {
     
     const nowIso = new Date().toISOString();
-    const stmt = db.prepare('DELETE FROM pairing_codes WHERE expires_at < ?');
-    const result = stmt.run(nowIso);
+    const result = stmts.deleteExpiredCodes.run(nowIso);
     if (result.changes > 0) {
       console.log(` Cleaned ${result.changes} expired pairing codes`);
     }
@@ -95,10 +537,10 @@ function cleanExpiredCodes() {
     console.error(' Failed to clean expired codes:', err);
   }
 }
-fdfdfd
 
 
 setInterval(cleanExpiredCodes, 5 * 60 * 1000);
+setInterval(purgeExpiredMailbox, 5 * 60 * 1000);
 
 // ============================================================================
 // api endpoints
@@ -108,7 +550,10 @@ setInterval(cleanExpiredCodes, 5 * 60 * 1000);
 app.get('/health', (req, res) => {
   res.json({ 
     status: 'ok', 
+    nodeId: NODE_ID,
     connections: connections.size,
+    remoteConnections: remotePresence.size,
+    mailbox: stmts.countMailbox.get().count,
     timestamp: new Date().toISOString()
   });
 });
@@ -128,8 +573,7 @@ app.post('/api/guardian/register', (req, res, next) => {
 
     const phoneNorm = String(phone).trim();
 
-    const lookupStmt = db.prepare('SELECT guardian_id, token, name, phone FROM guardians WHERE phone = ?');
-    const existing = lookupStmt.get(phoneNorm);
+    const existing = stmts.findGuardianByPhone.get(phoneNorm);
 
     if (existing) {
       console.log(`ℹ️  Guardian re-registered (existing) for phone ${phoneNorm}: ${existing.guardian_id}`);
@@ -149,8 +593,7 @@ app.post('/api/guardian/register', (req, res, next) => {
     const guardianId = `guardian_${uuidv4()}`;
     const token = `token_${uuidv4()}`; 
 
-    const insertStmt = db.prepare('INSERT INTO guardians (guardian_id, name, phone, token) VALUES (?, ?, ?, ?)');
-    insertStmt.run(guardianId, name, phoneNorm, token);
+    stmts.insertGuardian.run(guardianId, name, phoneNorm, token);
 
     console.log(`✅ Guardian registered: ${guardianId} (${name}, ${phoneNorm})`);
 
@@ -185,11 +628,7 @@ app.post('/api/elder/generate-code', (req, res, next) => {
     const code = generatePairingCode();
     const expiresAt = new Date(Date.now() + 10 * 60 * 1000); // 10 minutes
 
-    const stmt = db.prepare(
-      'INSERT INTO pairing_codes (code, elder_id, expires_at) VALUES (?, ?, ?)'
-    );
-
-    stmt.run(code, elderId, expiresAt.toISOString());
+    stmts.insertPairingCode.run(code, elderId, expiresAt.toISOString());
     
     console.log(`🔑 Pairing code generated: ${code} for elder ${elderId}`);
     
@@ -219,8 +658,7 @@ app.post('/api/pair', (req, res, next) => {
       });
     }
 
-    const stmt = db.prepare('SELECT * FROM pairing_codes WHERE code = ?');
-    const codeRecord = stmt.get(pairingCode);
+    const codeRecord = stmts.findPairingCode.get(pairingCode);
 
     if (!codeRecord) {
       console.warn(`⚠️  Invalid pairing code: ${pairingCode}`);
@@ -240,15 +678,11 @@ app.post('/api/pair', (req, res, next) => {
 
     const elderId = codeRecord.elder_id;
 
-    const checkStmt = db.prepare(
-      'SELECT * FROM pairings WHERE guardian_id = ? AND elder_id = ?'
-    );
-    const existing = checkStmt.get(guardianId, elderId);
+    const existing = stmts.findPairing.get(guardianId, elderId);
 
     if (existing) {
       console.log(`ℹ️  Guardian ${guardianId} already paired with elder ${elderId}`);
-      const deleteStmt1 = db.prepare('DELETE FROM pairing_codes WHERE code = ?');
-      deleteStmt1.run(pairingCode);
+      stmts.deletePairingCode.run(pairingCode);
 
       return res.json({
         success: true,
@@ -260,14 +694,9 @@ app.post('/api/pair', (req, res, next) => {
     }
 
     const pairingId = uuidv4();
-    const insertStmt = db.prepare(
-      'INSERT INTO pairings (id, guardian_id, elder_id) VALUES (?, ?, ?)'
-    );
-    
-    insertStmt.run(pairingId, guardianId, elderId);
-    
-    const deleteStmt = db.prepare('DELETE FROM pairing_codes WHERE code = ?');
-    deleteStmt.run(pairingCode);
+    pairTransaction(pairingId, guardianId, elderId, pairingCode);
+    indexPairing(guardianId, elderId);
+    bus.broadcast({ kind: 'pairing', guardianId, elderId, paired: true });
     
     console.log(`✅ Paired: Guardian ${guardianId} ↔ Elder ${elderId}`);
     
@@ -285,19 +714,52 @@ app.post('/api/pair', (req, res, next) => {
 });
 
 
+app.post('/api/unpair', (req, res, next) => {
+  try {
+    const { guardianId, elderId } = req.body || {};
+
+    if (!guardianId || !elderId) {
+      console.warn('⚠️  /api/unpair missing guardianId or elderId:', req.body);
+      return res.status(400).json({ 
+        success: false, 
+        error: 'Guardian ID and elder ID are required' 
+      });
+    }
+
+    const result = stmts.deletePairing.run(guardianId, elderId);
+    unindexPairing(guardianId, elderId);
+    bus.broadcast({ kind: 'pairing', guardianId, elderId, paired: false });
+
+    if (result.changes === 0) {
+      return res.status(404).json({ 
+        success: false, 
+        error: 'Pairing not found' 
+      });
+    }
+
+    console.log(`✅ Unpaired: Guardian ${guardianId} ↮ Elder ${elderId}`);
+
+    res.json({
+      success: true,
+      data: { elderId }
+    });
+  } catch (error) {
+    console.error('❌ Error removing pairing:', error);
+    next(error);
+  }
+});
+
+
 app.get('/api/guardian/:guardianId/elders', (req, res, next) => {
   try {
     const { guardianId } = req.params;
 
-    const stmt = db.prepare(
-      'SELECT elder_id, paired_at FROM pairings WHERE guardian_id = ?'
-    );
-    const pairings = stmt.all(guardianId);
+    const pairings = stmts.listEldersForGuardian.all(guardianId);
 
     const elders = pairings.map(p => ({
       elderId: p.elder_id,
       pairedAt: p.paired_at,
-      isOnline: connections.has(p.elder_id)
+      isOnline: isOnline(p.elder_id)
     }));
 
     res.json({
@@ -317,12 +779,14 @@ app.get('/api/guardian/:guardianId/elders', (req, res, next) => {
 wss.on('connection', (ws, req) => {
   let deviceId;
   let deviceType;
+  let format;
 
   try {
     
     const url = new URL(req.url, 'http://localhost');
     deviceId = url.searchParams.get('deviceId');
     deviceType = url.searchParams.get('type'); 
+    format = url.searchParams.get('format') === FORMAT_FRAMED ? FORMAT_FRAMED : FORMAT_JSON;
   } catch (err) {
     console.error('❌ Invalid WS URL:', req.url, err);
     ws.close(1008, 'Invalid URL');
@@ -341,27 +805,43 @@ wss.on('connection', (ws, req) => {
     return;
   }
 
-  
+  const previous = connections.get(deviceId);
+  if (previous) {
+    previous.ws.close(1000, 'Replaced by a new connection');
+  }
+
   connections.set(deviceId, {
     ws,
     type: deviceType,
+    format,
     connectedAt: new Date()
   });
+  remotePresence.delete(deviceId);
+  announcePresence(deviceId, true);
 
-  console.log(`✅ ${deviceType} connected: ${deviceId} (Total connections: ${connections.size})`);
+  console.log(`✅ ${deviceType} connected: ${deviceId} [${format}] (Total connections: ${connections.size})`);
 
   
   safeSend(ws, {
     type: 'CONNECTION_ACK',
     deviceId,
+    batch: format === FORMAT_FRAMED,
     timestamp: new Date().toISOString()
   });
 
+  drainMailbox(deviceId);
+
   
   ws.on('message', (data) => {
     try {
-      const message = JSON.parse(data.toString());
-      handleMessage(deviceId, deviceType, message);
+      if (format === FORMAT_FRAMED) {
+        for (const { header, body } of splitFrames(data)) {
+          handleMessage(deviceId, deviceType, header, body);
+        }
+      } else {
+        const message = JSON.parse(data.toString());
+        handleMessage(deviceId, deviceType, message, null);
+      }
     } catch (error) {
       console.error('❌ Error parsing message:', error);
       safeSend(ws, {
@@ -374,7 +854,12 @@ wss.on('connection', (ws, req) => {
 
   
   ws.on('close', (code, reason) => {
-    connections.delete(deviceId);
+    // A newer socket for the same device (here or on another node) may already have replaced us
+    const current = connections.get(deviceId);
+    if (current && current.ws === ws) {
+      connections.delete(deviceId);
+      announcePresence(deviceId, false);
+    }
     console.log(`🔌 ${deviceType} disconnected: ${deviceId} (code=${code}, reason=${reason}) (Total connections: ${connections.size})`);
   });
 
@@ -388,8 +873,40 @@ wss.on('connection', (ws, req) => {
 // message routing
 // ============================================================================
 
-function handleMessage(fromId, fromType, message) {
-  const { type, to, requestId, payload } = message || {};
+/**
+ * Splits a framed message into parsed routing headers and the untouched payload bytes, one
+ * entry per message: a batch frame alternates header and payload lines. Control frames may
+ * omit the newline, in which case the body is empty. All headers are parsed before any
+ * message is routed, so a malformed batch is rejected as a whole.
+ */
+function splitFrames(data) {
+  const buf = Buffer.isBuffer(data) ? data : Buffer.from(data);
+  if (buf.indexOf(NEWLINE) < 0) {
+    return [{ header: JSON.parse(buf.toString()), body: Buffer.alloc(0) }];
+  }
+
+  const frames = [];
+  let start = 0;
+  while (start <= buf.length) {
+    const headerEnd = buf.indexOf(NEWLINE, start);
+    if (headerEnd < 0) throw new Error('Frame header without payload line');
+    let bodyEnd = buf.indexOf(NEWLINE, headerEnd + 1);
+    if (bodyEnd < 0) bodyEnd = buf.length;
+    frames.push({
+      header: JSON.parse(buf.subarray(start, headerEnd).toString()),
+      body: buf.subarray(headerEnd + 1, bodyEnd)
+    });
+    start = bodyEnd + 1;
+  }
+  return frames;
+}
+
+/**
+ * @param message routing header (framed) or the full message (json)
+ * @param body    raw payload bytes for framed senders, null for json senders
+ */
+function handleMessage(fromId, fromType, message, body) {
+  const { type, to, requestId } = message || {};
 
   console.log(`📨 Message from ${fromType} ${fromId}: ${type} → ${to}`);
 
@@ -398,70 +915,168 @@ function handleMessage(fromId, fromType, message) {
     return sendError(fromId, requestId, 'Missing "to" field');
   }
 
-  // pairing verification
-  try {
-    if (fromType === 'guardian') {
-      const stmt = db.prepare(
-        'SELECT * FROM pairings WHERE guardian_id = ? AND elder_id = ?'
-      );
-      const pairing = stmt.get(fromId, to);
-      
-      if (!pairing) {
-        console.log('❌ Not paired');
-        return sendError(fromId, requestId, 'Not paired with this elder');
-      }
-    } else if (fromType === 'elder') {
-      const stmt = db.prepare(
-        'SELECT * FROM pairings WHERE elder_id = ? AND guardian_id = ?'
-      );
-      const pairing = stmt.get(fromId, to);
-      
-      if (!pairing) {
-        console.log('❌ Not paired');
-        return sendError(fromId, requestId, 'Not paired with this guardian');
-      }
+  // pairing verification (in-memory index, see loadPairingIndex)
+  if (fromType === 'guardian' && !isPaired(fromId, to)) {
+    console.log('❌ Not paired');
+    return sendError(fromId, requestId, 'Not paired with this elder');
+  }
+  if (fromType === 'elder' && !isPaired(to, fromId)) {
+    console.log('❌ Not paired');
+    return sendError(fromId, requestId, 'Not paired with this guardian');
+  }
+
+  const forwardedHeader = {
+    ...message,
+    from: fromId,
+    forwardedAt: new Date().toISOString()
+  };
+
+  if (!connections.has(to)) {
+    // Attached to another node: hand over the bus, which reports back delivered/queued/undeliverable
+    const remoteNode = remotePresence.get(to);
+    if (remoteNode && bus.send(remoteNode, {
+      kind: 'deliver',
+      header: forwardedHeader,
+      body: body ? body.toString() : null,
+      ackRequested: !!message.ackRequested
+    })) {
+      console.log(`🛰️  Message handed to node ${remoteNode} for ${to}`);
+      return;
     }
-  } catch (err) {
-    console.error('❌ DB error during pairing check:', err);
-    return sendError(fromId, requestId, 'Internal server error');
   }
 
+  deliverFromHere(forwardedHeader, body, !!message.ackRequested);
+}
 
-  const recipient = connections.get(to);
-  
-  if (!recipient) {
+/**
+ * Delivers a message from a sender attached to this node without going over the bus: to the
+ * recipient if it is attached here, else to its mailbox. Reports the outcome to the sender.
+ */
+function deliverFromHere(header, body, ackRequested) {
+  const { from: fromId, to, type, requestId } = header;
+  const outcome = deliverOrStore(to, header, body);
+
+  if (outcome === DELIVERY_STORED) {
+    console.log(`📬 Recipient offline, stored ${type} for ${to}`);
+    return reportQueued(fromId, requestId, ackRequested);
+  }
+
+  if (!outcome) {
     console.log('❌ Recipient offline');
     return sendError(fromId, requestId, 'Recipient is offline');
   }
 
+  console.log(`✅ Message forwarded to ${to}`);
 
-  const forwardedMessage = {
-    ...message,
-    from: fromId,
-    forwardedAt: new Date().toISOString()
-  };
+  // Senders with a durable outbound queue ask for a confirmation to clear the entry
+  if (ackRequested) {
+    sendAck(fromId, requestId);
+  }
+}
 
-  safeSend(recipient.ws, forwardedMessage);
-  console.log(`✅ Message forwarded to ${to}`);
+const DELIVERY_FORWARDED = 'forwarded';
+const DELIVERY_DEFERRED = 'deferred'; // online, queued behind a mailbox drain
+const DELIVERY_STORED = 'stored'; // offline, kept in the mailbox
+
+/**
+ * Delivers to a device attached to this node, falling back to its mailbox.
+ * Returns one of the DELIVERY_* outcomes, or null if the message could not be delivered or stored.
+ */
+function deliverOrStore(to, header, body) {
+  const recipient = connections.get(to);
+
+  if (recipient && !recipient.draining) {
+    forward(recipient, header, body);
+    return DELIVERY_FORWARDED;
+  }
+
+  if (storeInMailbox(to, header, body)) {
+    return recipient ? DELIVERY_DEFERRED : DELIVERY_STORED;
+  }
+
+  if (recipient) {
+    // Not a stored type (e.g. a query); ordering against the drain doesn't matter
+    forward(recipient, header, body);
+    return DELIVERY_FORWARDED;
+  }
+
+  return null;
+}
+
+/**
+ * A stored message is durable on the relay, so an ACK clears the sender's own outbound entry.
+ * Senders without a queue get the usual offline error, flagged so they know not to resend.
+ */
+function reportQueued(deviceId, requestId, ackRequested) {
+  if (ackRequested) {
+    sendAck(deviceId, requestId);
+  } else {
+    sendError(deviceId, requestId, 'Recipient is offline; message queued for delivery', { queued: true });
+  }
+}
+
+/**
+ * Delivers a message in the recipient's wire format. Framed-to-framed payloads are passed
+ * through as opaque bytes; only mixed-format pairs pay for a payload parse or stringify.
+ */
+function forward(recipient, header, body, onSent) {
+  if (recipient.format === FORMAT_FRAMED) {
+    if (body) {
+      safeSendRaw(recipient.ws, Buffer.concat([Buffer.from(JSON.stringify(header) + '\n'), body]), onSent);
+    } else {
+      const { payload, ...rest } = header;
+      const payloadText = payload === undefined ? '' : JSON.stringify(payload);
+      safeSendRaw(recipient.ws, JSON.stringify(rest) + '\n' + payloadText, onSent);
+    }
+    return;
+  }
+
+  if (body && body.length > 0) {
+    header.payload = JSON.parse(body.toString());
+  }
+  safeSend(recipient.ws, header, onSent);
 }
 
-function safeSend(ws, obj) {
+/**
+ * onSent (optional) is called with an error, or nothing once the frame is written to the socket.
+ */
+function safeSendRaw(ws, data, onSent) {
   try {
     if (ws.readyState === WebSocket.OPEN) {
-      ws.send(JSON.stringify(obj));
+      // Always a text frame, even when assembled from Buffers
+      ws.send(data, { binary: false }, onSent);
+      return;
     }
+    if (onSent) onSent(new Error('Socket not open'));
   } catch (err) {
     console.error('❌ Failed to send WS message:', err);
+    if (onSent) onSent(err);
   }
 }
 
-function sendError(deviceId, requestId, errorMessage) {
+function safeSend(ws, obj, onSent) {
+  safeSendRaw(ws, JSON.stringify(obj), onSent);
+}
+
+function sendAck(deviceId, requestId) {
+  const connection = connections.get(deviceId);
+  if (connection) {
+    safeSend(connection.ws, {
+      type: 'ACK',
+      requestId,
+      timestamp: new Date().toISOString()
+    });
+  }
+}
+
+function sendError(deviceId, requestId, errorMessage, extra = {}) {
   const connection = connections.get(deviceId);
   if (connection) {
     safeSend(connection.ws, {
       type: 'ERROR',
       requestId,
       error: errorMessage,
+      ...extra,
       timestamp: new Date().toISOString()
     });
   } else {
@@ -497,6 +1112,10 @@ app.use((err, req, res, next) => {
 
 const PORT = process.env.PORT || 3000;
 
+bus.start().then(() => {
+  console.log(`🛰️  Relay node ${NODE_ID} joined bus (${process.env.RELAY_BUS || 'memory'})`);
+});
+
 server.listen(PORT, '0.0.0.0', () => {
   console.log('');
   console.log('═══════════════════════════════════════════════════════════');
@@ -510,9 +1129,11 @@ server.listen(PORT, '0.0.0.0', () => {
   console.log(`    POST /api/guardian/register`);
   console.log(`    POST /api/elder/generate-code`);
   console.log(`    POST /api/pair`);
+  console.log(`    POST /api/unpair`);
   console.log(`    GET  /api/guardian/:guardianId/elders`);
   console.log('');
-  console.log('  WebSocket: ws://<host>:3000?deviceId=XXX&type=guardian|elder');
+  console.log('  WebSocket: ws://<host>:3000?deviceId=XXX&type=guardian|elder[&format=json|framed]');
+  console.log(`  Node: ${NODE_ID}  Bus: ${process.env.RELAY_BUS || 'memory'}`);
   console.log('═══════════════════════════════════════════════════════════');
   console.log('');
 });
@@ -529,6 +1150,8 @@ process.on('SIGINT', () => {
     }
   });
   
+  bus.close();
+
   try {
     db.close();
   } catch (err) {
@@ -0,0 +1,84 @@
+// relay-server/test/bus.test.js
+// Run with: npm test
+
+const test = require('node:test');
+const assert = require('node:assert');
+const fs = require('fs');
+const os = require('os');
+const path = require('path');
+const { SocketBus } = require('../bus');
+
+function tempAddress() {
+  const dir = fs.mkdtempSync(path.join(os.tmpdir(), 'relay-bus-'));
+  return { path: path.join(dir, 'bus.sock') };
+}
+
+function once(emitter, event) {
+  return new Promise((resolve) => emitter.once(event, (...args) => resolve(args)));
+}
+
+async function startNodes(address, ...ids) {
+  const nodes = [];
+  for (const id of ids) {
+    const node = new SocketBus(id, address);
+    await node.start(); // one at a time, so the first is the hub
+    nodes.push(node);
+  }
+  return nodes;
+}
+
+test('a spoke-to-spoke message for a node that left comes back as undeliverable', async (t) => {
+  const [hub, a, b] = await startNodes(tempAddress(), 'hub', 'a', 'b');
+  t.after(() => [a, b, hub].forEach((node) => node.close()));
+  assert.ok(hub.server, 'first node is the hub');
+
+  const gone = once(hub, 'node-down');
+  b.close();
+  await gone;
+
+  const returned = once(a, 'undeliverable');
+  assert.strictEqual(a.send('b', { kind: 'deliver', seq: 1 }), true); // the spoke can't know yet
+  const [msg, target] = await returned;
+  assert.deepStrictEqual(msg, { kind: 'deliver', seq: 1 });
+  assert.strictEqual(target, 'b');
+});
+
+test('a spoke-to-spoke message for a congested node comes back as undeliverable', async (t) => {
+  const [hub, a, b] = await startNodes(tempAddress(), 'hub', 'a', 'b');
+  t.after(() => [a, b, hub].forEach((node) => node.close()));
+
+  // b stops reading, so the hub's buffer towards it fills up
+  b.socket.pause();
+  let received = 0;
+  b.on('message', () => received++);
+
+  let returnedSeq = null;
+  a.on('undeliverable', (msg, target) => {
+    assert.strictEqual(target, 'b');
+    if (returnedSeq === null) returnedSeq = msg.seq;
+  });
+
+  const filler = 'x'.repeat(16 * 1024);
+  for (let seq = 0; seq < 200 && returnedSeq === null; seq++) {
+    assert.strictEqual(a.send('b', { kind: 'deliver', seq, filler }), true);
+    await new Promise((resolve) => setImmediate(resolve));
+  }
+
+  assert.notStrictEqual(returnedSeq, null, 'hub returned a message once b was congested');
+  assert.ok(returnedSeq > 0, 'messages before the congestion were passed on');
+  assert.strictEqual(received, 0);
+});
+
+test('a message the hub can pass on is delivered and not returned', async (t) => {
+  const [hub, a, b] = await startNodes(tempAddress(), 'hub', 'a', 'b');
+  t.after(() => [a, b, hub].forEach((node) => node.close()));
+
+  let returned = 0;
+  a.on('undeliverable', () => returned++);
+  const delivered = once(b, 'message');
+  a.send('b', { kind: 'deliver', seq: 7 });
+  const [msg, from] = await delivered;
+  assert.deepStrictEqual(msg, { kind: 'deliver', seq: 7 });
+  assert.strictEqual(from, 'a');
+  assert.strictEqual(returned, 0);
+});